@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.spi.resource.provider;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.sling.api.resource.Resource;
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * The bulk resource provider is an optional extension of a {@link ResourceProvider}
+ * which can read several resources with a single call to the underlying storage.
+ * This is mainly useful for remote or otherwise expensive storages where each
+ * call to {@link ResourceProvider#getResource(ResolveContext, String, ResourceContext, Resource)}
+ * or {@link ResourceProvider#listChildren(ResolveContext, Resource)} costs a round trip.
+ * <p>
+ * The resource resolver uses the bulk resource provider if the resource provider
+ * returns one from {@link ResourceProvider#getBulkResourceProvider()} and falls back
+ * to the single path methods of the resource provider otherwise.
+ *
+ * @since 1.1.0 (Sling API Bundle 2.15.0)
+ */
+@ConsumerType
+public interface BulkResourceProvider<T> {
+
+    /**
+     * Returns the resources for the given paths. The result must be the same as
+     * calling {@link ResourceProvider#getResource(ResolveContext, String, ResourceContext, Resource)}
+     * for each of the paths, but the implementation should read all resources
+     * at once.
+     *
+     * @param ctx The resolve context
+     * @param paths The absolute paths of the resources, all of them are
+     *              below the root of the resource provider.
+     * @param resourceContext Additional information for resolving the resources
+     * @return A map containing the found resources by path. Paths for which no
+     *         resource exists are not contained in the map.
+     * @throws org.apache.sling.api.SlingException
+     *             may be thrown in case of any problem creating the <code>Resource</code> instances.
+     */
+    @Nonnull Map<String, Resource> getResources(@Nonnull ResolveContext<T> ctx,
+            @Nonnull Collection<String> paths,
+            @Nonnull ResourceContext resourceContext);
+
+    /**
+     * Returns an <code>Iterator</code> of {@link Resource} objects loaded from
+     * the children of the given <code>Resource</code>, like
+     * {@link ResourceProvider#listChildren(ResolveContext, Resource)}.
+     * <p>
+     * The <code>depth</code> is a hint that the caller is going to access the
+     * value maps of the children and of their descendants up to the given depth.
+     * The implementation should therefore read them together with the children,
+     * a depth of <code>1</code> stands for the children themselves. The
+     * implementation is free to ignore the hint.
+     *
+     * @param ctx The resolve context
+     * @param parent The {@link Resource Resource} whose children are requested.
+     * @param depth The number of levels to prefetch, at least <code>1</code>.
+     * @return An <code>Iterator</code> of {@link Resource} objects or <code>null</code>
+     *         if the resource provider has no children for the parent.
+     * @throws org.apache.sling.api.SlingException
+     *             may be thrown in case of any problem creating the <code>Resource</code> instances.
+     */
+    @CheckForNull Iterator<Resource> listChildren(@Nonnull ResolveContext<T> ctx,
+            @Nonnull Resource parent,
+            int depth);
+}
@@ -572,6 +572,20 @@ public abstract class ResourceProvider<T> {
         return null;
     }
 
+    /**
+     * Get the optional bulk resource provider.
+     * If the provider is able to read several resources at once, it should return
+     * a bulk resource provider implementation if the provider is active.
+     * This method is called for each bulk read, therefore the provider implementation
+     * might cache the provider object.
+     *
+     * @return A bulk resource provider if this resource provider supports bulk reads.
+     * @since 1.1.0 (Sling API Bundle 2.15.0)
+     */
+    public @CheckForNull BulkResourceProvider<T> getBulkResourceProvider() {
+        return null;
+    }
+
     /**
      * Adapts the provider to another type.
      * <p>
@@ -32,6 +32,9 @@ public interface JavaCompiler {
      * file (if available).
      * The compiler compiles all sources if at least one of the
      * class files is out dated!
+     * Compiling several units with a single call is more efficient
+     * than compiling them one by one, as the types referenced by the
+     * units are only resolved once.
      *
      * @param units The compilation units.
      * @param options The compilation options - this object is optional
@@ -0,0 +1,463 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.apache.sling.commons.compiler.CompilationUnit;
+import org.apache.sling.commons.compiler.CompilerMessage;
+import org.apache.sling.commons.compiler.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The compilation cache stores the result of successful compilations
+ * with the class loader writer, next to the compiled classes. If the same
+ * sources are compiled again, e.g. after a restart or after the compiled
+ * classes have been removed, the class files are taken from the cache.
+ *
+ * An entry is stored per set of compilation units and contains a key
+ * calculated from the sources and the compiler options. In addition, all
+ * types which have been looked up through the class loader during the
+ * compilation are recorded together with a digest of their class file.
+ * An entry is only used if the key is the same and all these types still
+ * resolve to the same class files, therefore changes in dependencies
+ * invalidate the entry.
+ */
+public class CompilationCache {
+
+    /** The path of the cache within the class loader writer. */
+    public static final String CACHE_PATH = "/.compilercache";
+
+    private static final String ENTRY_EXTENSION = ".entry";
+
+    private static final int MAGIC = 0x534c4343;
+
+    private static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Dependency kind: no class with this name exists. */
+    private static final byte ABSENT = 0;
+
+    /** Dependency kind: a class with this name exists, the content does not matter. */
+    private static final byte PRESENT = 1;
+
+    /** Dependency kind: a class with this name and content exists. */
+    private static final byte CLASS = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Records the types looked up during a compilation.
+     */
+    public static final class Dependencies {
+
+        private final Map<String, byte[]> digests = new LinkedHashMap<String, byte[]>();
+
+        private final Map<String, Byte> kinds = new LinkedHashMap<String, Byte>();
+
+        /**
+         * A class has been looked up.
+         * @param name The class name
+         * @param bytes The class file or {@code null} if the class does not exist
+         */
+        public synchronized void classLookup(final String name, final byte[] bytes) {
+            if ( bytes == null ) {
+                if ( !kinds.containsKey(name) ) {
+                    kinds.put(name, ABSENT);
+                }
+            } else {
+                kinds.put(name, CLASS);
+                digests.put(name, digest(bytes));
+            }
+        }
+
+        /**
+         * The existence of a class has been checked.
+         * @param name The class name
+         * @param exists Whether the class exists
+         */
+        public synchronized void existenceCheck(final String name, final boolean exists) {
+            final Byte kind = kinds.get(name);
+            if ( kind == null || (kind == ABSENT && exists) ) {
+                kinds.put(name, exists ? PRESENT : ABSENT);
+            }
+        }
+    }
+
+    /**
+     * A cache entry.
+     */
+    public static final class Entry {
+
+        private final List<CompilerMessage> warnings = new ArrayList<CompilerMessage>();
+
+        private final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+        /**
+         * The warnings of the compilation
+         */
+        public List<CompilerMessage> getWarnings() {
+            return warnings;
+        }
+
+        /**
+         * The class files by class name
+         */
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+    }
+
+    private static byte[] digest(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (final NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Sort the units by their main class name to get a stable key.
+     */
+    private static CompilationUnit[] sort(final CompilationUnit[] units) {
+        final CompilationUnit[] sorted = units.clone();
+        Arrays.sort(sorted, new Comparator<CompilationUnit>() {
+
+            @Override
+            public int compare(final CompilationUnit o1, final CompilationUnit o2) {
+                return o1.getMainClassName().compareTo(o2.getMainClassName());
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Get the path of the cache entry for the units. The path of a single
+     * unit is derived from its class name, if several units are compiled
+     * together a digest of all class names is appended.
+     */
+    static String getEntryPath(final CompilationUnit[] units) {
+        final CompilationUnit[] sorted = sort(units);
+        final StringBuilder sb = new StringBuilder(CACHE_PATH);
+        sb.append('/').append(sorted[0].getMainClassName().replace('.', '/'));
+        if ( sorted.length > 1 ) {
+            final StringBuilder names = new StringBuilder();
+            for(final CompilationUnit unit : sorted) {
+                names.append(unit.getMainClassName()).append('\n');
+            }
+            sb.append('-');
+            for(final byte b : digest(names.toString().getBytes(UTF_8))) {
+                sb.append(String.format("%02x", b));
+            }
+        }
+        sb.append(ENTRY_EXTENSION);
+        return sb.toString();
+    }
+
+    /**
+     * Create the key for the units: a digest of the class names, the sources,
+     * the relevant compiler options and the compiler version.
+     * @return The key or {@code null} if a source can't be read.
+     */
+    public String createKey(final CompilationUnit[] units, final Options options) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            final StringBuilder sb = new StringBuilder();
+            sb.append(VERSION).append('\n');
+            final Package compilerPackage = org.eclipse.jdt.internal.compiler.Compiler.class.getPackage();
+            sb.append(compilerPackage == null ? null : compilerPackage.getImplementationVersion()).append('\n');
+            sb.append(options.getSourceVersion()).append('\n');
+            sb.append(options.getTargetVersion()).append('\n');
+            sb.append(options.isGenerateDebugInfo()).append('\n');
+            sb.append(options.get(Options.KEY_IGNORE_WARNINGS)).append('\n');
+            md.update(sb.toString().getBytes(UTF_8));
+            for(final CompilationUnit unit : sort(units)) {
+                md.update(unit.getMainClassName().getBytes(UTF_8));
+                md.update((byte)0);
+                final Reader reader = unit.getSource();
+                try {
+                    final char[] buf = new char[8192];
+                    final StringBuilder source = new StringBuilder();
+                    int count;
+                    while ((count = reader.read(buf, 0, buf.length)) > 0) {
+                        source.append(buf, 0, count);
+                    }
+                    md.update(source.toString().getBytes(UTF_8));
+                } finally {
+                    reader.close();
+                }
+                md.update((byte)0);
+            }
+            final StringBuilder key = new StringBuilder();
+            for(final byte b : md.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (final IOException ioe) {
+            logger.debug("Unable to read source for compilation cache.", ioe);
+        } catch (final NoSuchAlgorithmException nsae) {
+            logger.debug("Unable to create key for compilation cache.", nsae);
+        }
+        return null;
+    }
+
+    /**
+     * Get a valid entry from the cache.
+     * @param writer The class loader writer
+     * @param units The compilation units
+     * @param key The key of the units
+     * @param loader The class loader used for compilation
+     * @return The entry or {@code null} if there is no entry or it is not valid anymore.
+     */
+    public Entry get(final ClassLoaderWriter writer,
+            final CompilationUnit[] units,
+            final String key,
+            final ClassLoader loader) {
+        final String path = getEntryPath(units);
+        if ( writer.getLastModified(path) < 0 ) {
+            return null;
+        }
+        try {
+            final byte[] data = readFully(writer.getInputStream(path));
+            final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
+            if ( dis.readInt() != MAGIC || dis.readInt() != VERSION ) {
+                logger.debug("Ignoring compilation cache entry {} with unknown format.", path);
+                return null;
+            }
+            if ( !key.equals(dis.readUTF()) ) {
+                logger.debug("Compilation cache entry {} is for different sources.", path);
+                return null;
+            }
+            // check the checksum before interpreting the content
+            final CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length - 8);
+            final long expectedCrc = new DataInputStream(new ByteArrayInputStream(data, data.length - 8, 8)).readLong();
+            if ( crc.getValue() != expectedCrc ) {
+                logger.debug("Ignoring corrupt compilation cache entry {}.", path);
+                return null;
+            }
+
+            final int depCount = dis.readInt();
+            for(int i = 0; i < depCount; i++) {
+                final byte kind = dis.readByte();
+                final String name = dis.readUTF();
+                final byte[] digest;
+                if ( kind == CLASS ) {
+                    digest = new byte[dis.readInt()];
+                    dis.readFully(digest);
+                } else {
+                    digest = null;
+                }
+                if ( !isValid(loader, kind, name, digest) ) {
+                    logger.debug("Compilation cache entry {} is outdated, dependency {} changed.", path, name);
+                    return null;
+                }
+            }
+            final Entry entry = new Entry();
+            final int warningCount = dis.readInt();
+            for(int i = 0; i < warningCount; i++) {
+                final String file = dis.readUTF();
+                final int line = dis.readInt();
+                final int column = dis.readInt();
+                final String message = dis.readUTF();
+                entry.warnings.add(new CompilerMessage(file, line, column, message));
+            }
+            final int classCount = dis.readInt();
+            for(int i = 0; i < classCount; i++) {
+                final String name = dis.readUTF();
+                final byte[] bytes = new byte[dis.readInt()];
+                dis.readFully(bytes);
+                entry.classes.put(name, bytes);
+            }
+            return entry;
+        } catch (final IOException ioe) {
+            logger.debug("Unable to read compilation cache entry " + path, ioe);
+        }
+        return null;
+    }
+
+    /**
+     * Check whether a dependency still resolves to the same class.
+     */
+    private boolean isValid(final ClassLoader loader, final byte kind, final String name, final byte[] digest)
+    throws IOException {
+        final InputStream is = loader.getResourceAsStream(name.replace('.', '/') + ".class");
+        if ( is == null ) {
+            return kind == ABSENT;
+        }
+        if ( kind == PRESENT ) {
+            is.close();
+            return true;
+        }
+        if ( kind == ABSENT ) {
+            is.close();
+            return false;
+        }
+        return Arrays.equals(digest, digest(readFully(is)));
+    }
+
+    /**
+     * Store the result of a successful compilation.
+     * @param writer The class loader writer
+     * @param units The compilation units
+     * @param key The key of the units
+     * @param dependencies The dependencies recorded during compilation
+     * @param warnings The warnings or {@code null}
+     * @param classes The class files by class name
+     */
+    public void put(final ClassLoaderWriter writer,
+            final CompilationUnit[] units,
+            final String key,
+            final Dependencies dependencies,
+            final List<CompilerMessage> warnings,
+            final Map<String, byte[]> classes) {
+        final String path = getEntryPath(units);
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final DataOutputStream dos = new DataOutputStream(baos);
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeUTF(key);
+            synchronized ( dependencies ) {
+                dos.writeInt(dependencies.kinds.size());
+                for(final Map.Entry<String, Byte> dep : dependencies.kinds.entrySet()) {
+                    dos.writeByte(dep.getValue());
+                    dos.writeUTF(dep.getKey());
+                    if ( dep.getValue() == CLASS ) {
+                        final byte[] digest = dependencies.digests.get(dep.getKey());
+                        dos.writeInt(digest.length);
+                        dos.write(digest);
+                    }
+                }
+            }
+            if ( warnings == null ) {
+                dos.writeInt(0);
+            } else {
+                dos.writeInt(warnings.size());
+                for(final CompilerMessage msg : warnings) {
+                    dos.writeUTF(msg.getFile() == null ? "" : msg.getFile());
+                    dos.writeInt(msg.getLine());
+                    dos.writeInt(msg.getColumn());
+                    dos.writeUTF(msg.getMessage() == null ? "" : msg.getMessage());
+                }
+            }
+            dos.writeInt(classes.size());
+            for(final Map.Entry<String, byte[]> c : classes.entrySet()) {
+                dos.writeUTF(c.getKey());
+                dos.writeInt(c.getValue().length);
+                dos.write(c.getValue());
+            }
+            dos.flush();
+            final CRC32 crc = new CRC32();
+            crc.update(baos.toByteArray());
+            dos.writeLong(crc.getValue());
+            dos.flush();
+
+            final OutputStream os = writer.getOutputStream(path);
+            try {
+                baos.writeTo(os);
+            } finally {
+                os.close();
+            }
+        } catch (final IOException ioe) {
+            logger.debug("Unable to write compilation cache entry " + path, ioe);
+            writer.delete(path);
+        } catch (final RuntimeException re) {
+            logger.debug("Unable to write compilation cache entry " + path, re);
+        }
+    }
+
+    /**
+     * Import cache entries from an archive, for example created by a build.
+     * Only entries which do not exist yet are imported. As each entry is
+     * validated before it is used, outdated entries are harmless.
+     * @param writer The class loader writer
+     * @param archive A zip archive containing the entries below {@link #CACHE_PATH}
+     * @return The number of imported entries
+     * @throws IOException If reading the archive fails
+     */
+    public int importArchive(final ClassLoaderWriter writer, final File archive) throws IOException {
+        int count = 0;
+        final String prefix = CACHE_PATH.substring(1) + '/';
+        final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive)));
+        try {
+            ZipEntry ze;
+            while ( (ze = zis.getNextEntry()) != null ) {
+                final String name = ze.getName();
+                if ( !ze.isDirectory() && name.startsWith(prefix) && name.endsWith(ENTRY_EXTENSION) ) {
+                    final String path = '/' + name;
+                    if ( writer.getLastModified(path) < 0 ) {
+                        final OutputStream os = new BufferedOutputStream(writer.getOutputStream(path));
+                        try {
+                            final byte[] buf = new byte[8192];
+                            int l;
+                            while ( (l = zis.read(buf)) > 0 ) {
+                                os.write(buf, 0, l);
+                            }
+                        } finally {
+                            os.close();
+                        }
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            zis.close();
+        }
+        return count;
+    }
+
+    private static byte[] readFully(final InputStream is) throws IOException {
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int count;
+            while ((count = is.read(buf, 0, buf.length)) > 0) {
+                baos.write(buf, 0, count);
+            }
+            return baos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -18,22 +18,31 @@ package org.apache.sling.commons.compiler.impl;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.WeakHashMap;
 
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyUnbounded;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.commons.classloader.ClassLoaderWriter;
 import org.apache.sling.commons.compiler.CompilationResult;
 import org.apache.sling.commons.compiler.CompilationUnit;
 import org.apache.sling.commons.compiler.CompilationUnitWithSource;
+import org.apache.sling.commons.compiler.CompilerMessage;
 import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.compiler.Options;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
@@ -49,6 +58,9 @@ import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,13 +69,50 @@ import org.slf4j.LoggerFactory;
  * Java compilation support using the Eclipse Java Compiler (org.eclipse.jdt).
  *
  */
-@Component
+@Component(metatype=true,
+           label="Apache Sling Java Compiler",
+           description="The Java compiler based on the Eclipse Java Compiler.")
 @Service(value=JavaCompiler.class)
-public class EclipseJavaCompiler implements JavaCompiler {
+@Properties({
+    @Property(name=EclipseJavaCompiler.PROPERTY_CACHE_ENABLED, boolValue=EclipseJavaCompiler.DEFAULT_CACHE_ENABLED,
+            label="Compilation Cache",
+            description="If enabled, the results of compilations are cached with the class loader writer and reused "
+                    + "if the same sources are compiled again against the same dependencies, e.g. after a restart."),
+    @Property(name=EclipseJavaCompiler.PROPERTY_CACHE_IMPORT, value={}, unbounded=PropertyUnbounded.ARRAY,
+            label="Compilation Cache Import",
+            description="Paths of zip archives with compilation cache entries which are imported on startup, "
+                    + "for example created by a build. Existing entries are not overwritten."),
+    @Property(name=EclipseJavaCompiler.PROPERTY_TYPE_CACHE_SIZE, intValue=EclipseJavaCompiler.DEFAULT_TYPE_CACHE_SIZE,
+            label="Type Cache Size",
+            description="The maximum number of class lookups cached per class loader writer. Classes read from "
+                    + "bundles are read only once and shared between compilations. A value of 0 disables the cache.")
+})
+public class EclipseJavaCompiler implements JavaCompiler, SynchronousBundleListener {
+
+    public static final String PROPERTY_CACHE_ENABLED = "cache.enabled";
+
+    public static final boolean DEFAULT_CACHE_ENABLED = false;
+
+    public static final String PROPERTY_CACHE_IMPORT = "cache.import";
+
+    public static final String PROPERTY_TYPE_CACHE_SIZE = "type.cache.size";
+
+    public static final int DEFAULT_TYPE_CACHE_SIZE = 0;
 
     /** Logger instance */
     private final Logger logger = LoggerFactory.getLogger(EclipseJavaCompiler.class);
 
+    /** The compilation cache or {@code null} if disabled. */
+    private volatile CompilationCache cache;
+
+    /** The maximum size of the type caches, 0 if disabled. */
+    private volatile int typeCacheSize = DEFAULT_TYPE_CACHE_SIZE;
+
+    /** The type caches by class loader writer. */
+    private final Map<ClassLoaderWriter, TypeCache> typeCaches = new WeakHashMap<ClassLoaderWriter, TypeCache>();
+
+    private BundleContext bundleContext;
+
     @Reference
     private ClassLoaderWriter classLoaderWriter;
 
@@ -73,6 +122,104 @@ public class EclipseJavaCompiler implements JavaCompiler {
     /** the static policy. */
     private final IErrorHandlingPolicy policy = DefaultErrorHandlingPolicies.proceedWithAllProblems();
 
+    @Activate
+    protected void activate(final BundleContext bundleContext, final Map<String, Object> props) {
+        final Object size = props.get(PROPERTY_TYPE_CACHE_SIZE);
+        this.typeCacheSize = (size == null ? DEFAULT_TYPE_CACHE_SIZE : Integer.valueOf(size.toString()));
+        this.clearTypeCaches();
+        if ( bundleContext != null ) {
+            this.bundleContext = bundleContext;
+            bundleContext.addBundleListener(this);
+        }
+
+        final Object enabled = props.get(PROPERTY_CACHE_ENABLED);
+        if ( enabled == null ? DEFAULT_CACHE_ENABLED : Boolean.valueOf(enabled.toString()) ) {
+            this.cache = new CompilationCache();
+            final Object value = props.get(PROPERTY_CACHE_IMPORT);
+            final String[] archives;
+            if ( value instanceof String[] ) {
+                archives = (String[])value;
+            } else if ( value != null ) {
+                archives = new String[] {value.toString()};
+            } else {
+                archives = new String[0];
+            }
+            for(final String archive : archives) {
+                if ( archive != null && archive.trim().length() > 0 ) {
+                    try {
+                        final int count = this.cache.importArchive(this.classLoaderWriter, new File(archive.trim()));
+                        logger.info("Imported {} compilation cache entries from {}", count, archive);
+                    } catch (final IOException ioe) {
+                        logger.warn("Unable to import compilation cache entries from " + archive, ioe);
+                    }
+                }
+            }
+        } else {
+            this.cache = null;
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if ( this.bundleContext != null ) {
+            this.bundleContext.removeBundleListener(this);
+            this.bundleContext = null;
+        }
+        this.clearTypeCaches();
+    }
+
+    /**
+     * Clear the type caches if the set of available classes changes.
+     * @see org.osgi.framework.BundleListener#bundleChanged(org.osgi.framework.BundleEvent)
+     */
+    @Override
+    public void bundleChanged(final BundleEvent event) {
+        final int type = event.getType();
+        if ( type == BundleEvent.RESOLVED || type == BundleEvent.UNRESOLVED || type == BundleEvent.UPDATED ) {
+            this.clearTypeCaches();
+        }
+    }
+
+    private void clearTypeCaches() {
+        synchronized ( this.typeCaches ) {
+            this.typeCaches.clear();
+        }
+    }
+
+    /**
+     * A class has been written, writers might share their storage
+     * therefore all type caches are updated.
+     */
+    private void classWritten(final String name) {
+        synchronized ( this.typeCaches ) {
+            for(final TypeCache typeCache : this.typeCaches.values()) {
+                typeCache.classWritten(name);
+            }
+        }
+    }
+
+    /**
+     * Get the type cache for the compilation. Types are only cached if the
+     * class loader of the class loader writer is used.
+     * @return The type cache or {@code null}
+     */
+    private TypeCache getTypeCache(final Options options, final ClassLoaderWriter writer) {
+        final int maxSize = this.typeCacheSize;
+        if ( maxSize <= 0
+             || options.get(Options.KEY_CLASS_LOADER) != null
+             || options.get(Options.KEY_ADDITIONAL_CLASS_LOADER) != null ) {
+            return null;
+        }
+        synchronized ( this.typeCaches ) {
+            TypeCache cache = this.typeCaches.get(writer);
+            if ( cache == null ) {
+                cache = new TypeCache(maxSize);
+                this.typeCaches.put(writer, cache);
+            }
+            return cache;
+        }
+    }
+
     /**
      * Get the classloader for the compilation.
      */
@@ -191,6 +338,29 @@ public class EclipseJavaCompiler implements JavaCompiler {
             writer.delete(name);
         }
 
+        // check the cache for a previous compilation of the same sources
+        final CompilationCache cache = this.cache;
+        final String cacheKey = (cache != null && units.length > 0 ? cache.createKey(units, options) : null);
+        if ( cacheKey != null ) {
+            final CompilationCache.Entry entry = cache.get(writer, units, cacheKey, loader);
+            if ( entry != null ) {
+                final CompilationResultImpl result = new CompilationResultImpl(isIgnoreWarnings(options), writer);
+                try {
+                    for(final Map.Entry<String, byte[]> c : entry.getClasses().entrySet()) {
+                        writeClass(writer, c.getKey(), c.getValue());
+                        this.classWritten(c.getKey());
+                    }
+                    for(final CompilerMessage msg : entry.getWarnings()) {
+                        result.onWarning(msg.getMessage(), msg.getFile(), msg.getLine(), msg.getColumn());
+                    }
+                    logger.debug("Using cached compilation result for {}.", units[0].getMainClassName());
+                    return result;
+                } catch (final IOException ioe) {
+                    logger.debug("Unable to write cached class files, compiling.", ioe);
+                }
+            }
+        }
+
         // create properties for the settings object
         final Map<String, String> props = new HashMap<String, String>();
         if (options.isGenerateDebugInfo()) {
@@ -214,7 +384,9 @@ public class EclipseJavaCompiler implements JavaCompiler {
         // create the result
         final CompilationResultImpl result = new CompilationResultImpl(isIgnoreWarnings(options), writer);
         // create the context
-        final CompileContext context = new CompileContext(units, result, writer, loader);
+        final CompileContext context = new CompileContext(units, result, writer, loader,
+                cacheKey != null ? new CompilationCache.Dependencies() : null,
+                this.getTypeCache(options, writer));
 
         // create the compiler
         final org.eclipse.jdt.internal.compiler.Compiler compiler =
@@ -230,9 +402,21 @@ public class EclipseJavaCompiler implements JavaCompiler {
         // compile
         compiler.compile(context.getSourceUnits());
 
+        if ( cacheKey != null && result.getErrors() == null ) {
+            cache.put(writer, units, cacheKey, context.dependencies, result.getWarnings(), context.classes);
+        }
         return result;
     }
 
+    /**
+     * Write a class file
+     */
+    private static void writeClass(final ClassLoaderWriter writer, final String name, final byte[] data) throws IOException {
+        final OutputStream os = writer.getOutputStream('/' + name.replace('.', '/') + ".class");
+        os.write(data);
+        os.close();
+    }
+
     //--------------------------------------------------------< inner classes >
 
     private class CompileContext implements ICompilerRequestor, INameEnvironment {
@@ -243,20 +427,33 @@ public class EclipseJavaCompiler implements JavaCompiler {
         private final ClassLoaderWriter classLoaderWriter;
         private final ClassLoader classLoader;
 
+        /** The recorded class loader lookups or {@code null} if not cached. */
+        private final CompilationCache.Dependencies dependencies;
+
+        /** The written class files, only collected if cached. */
+        private final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+        /** The shared type cache or {@code null}. */
+        private final TypeCache typeCache;
+
         public CompileContext(final CompilationUnit[] units,
          		              final CompilationResultImpl errorHandler,
         		              final ClassLoaderWriter classWriter,
-        		              final ClassLoader classLoader) {
+        		              final ClassLoader classLoader,
+        		              final CompilationCache.Dependencies dependencies,
+        		              final TypeCache typeCache) {
         	this.compUnits = new HashMap<String,ICompilationUnit>();
             for (int i = 0; i < units.length; i++) {
                 CompilationUnitAdapter cua = new CompilationUnitAdapter(units[i], errorHandler);
                 char[][] compoundName = CharOperation.arrayConcat(cua.getPackageName(), cua.getMainTypeName());
-                this.compUnits.put(CharOperation.toString(compoundName), new CompilationUnitAdapter(units[i], errorHandler));
+                this.compUnits.put(CharOperation.toString(compoundName), cua);
             }
 
         	this.errorHandler = errorHandler;
             this.classLoaderWriter = classWriter;
             this.classLoader = classLoader;
+            this.dependencies = dependencies;
+            this.typeCache = typeCache;
         }
 
         public ICompilationUnit[] getSourceUnits() {
@@ -309,10 +506,49 @@ public class EclipseJavaCompiler implements JavaCompiler {
                 return new NameEnvironmentAnswer(cu, null);
             }
 
+            // check the shared type cache
+            if ( this.typeCache != null ) {
+                final Object cached = this.typeCache.get(fqn);
+                if ( cached == TypeCache.MISSING ) {
+                    if ( this.dependencies != null ) {
+                        this.dependencies.classLookup(fqn, null);
+                    }
+                    return null;
+                }
+                if ( cached instanceof byte[] ) {
+                    final byte[] bytes = (byte[])cached;
+                    if ( this.dependencies != null ) {
+                        this.dependencies.classLookup(fqn, bytes);
+                    }
+                    try {
+                        // the parsed class is not shared, as the reader is initialized lazily
+                        return new NameEnvironmentAnswer(new ClassFileReader(bytes, fqn.toCharArray(), true), null);
+                    } catch (Exception e) {
+                        return null;
+                    }
+                }
+            }
+
             // locate the class through the class loader
             try {
-                byte[] bytes = this.findClass(CharOperation.toString(compoundTypeName));
+                byte[] bytes = null;
+                final ClassLoader parent = this.getSharedClassLoader();
+                if ( parent != null ) {
+                    bytes = this.findClass(parent, fqn);
+                    if ( bytes != null ) {
+                        this.typeCache.putType(fqn, bytes);
+                    }
+                }
+                if ( bytes == null ) {
+                    bytes = this.findClass(this.classLoader, fqn);
+                }
+                if ( this.dependencies != null ) {
+                    this.dependencies.classLookup(fqn, bytes);
+                }
                 if (bytes == null) {
+                    if ( this.typeCache != null ) {
+                        this.typeCache.putMissing(fqn);
+                    }
                     return null;
                 }
                 ClassFileReader classFileReader =
@@ -323,6 +559,16 @@ public class EclipseJavaCompiler implements JavaCompiler {
             }
         }
 
+        /**
+         * Get the class loader for the classes which can be shared between
+         * compilations. These are the classes which are not managed by the
+         * class loader writer, i.e. the classes of its parent class loader.
+         * @return The class loader or {@code null} if types are not cached.
+         */
+        private ClassLoader getSharedClassLoader() {
+            return this.typeCache == null ? null : this.classLoader.getParent();
+        }
+
         /**
          * @see org.eclipse.jdt.internal.compiler.env.INameEnvironment#findType(char[], char[][])
          */
@@ -350,28 +596,59 @@ public class EclipseJavaCompiler implements JavaCompiler {
          * Write the classfile
          */
         private void write(String name, byte[] data) throws IOException {
-            final OutputStream os = this.classLoaderWriter.getOutputStream('/' + name.replace('.', '/') + ".class");
-            os.write(data);
-            os.close();
+            writeClass(this.classLoaderWriter, name, data);
+            classWritten(name);
+            if ( this.dependencies != null ) {
+                this.classes.put(name, data);
+            }
         }
 
         private boolean isPackage(String result) {
+            if ( this.typeCache != null ) {
+                final Object cached = this.typeCache.get(result);
+                if ( cached != null ) {
+                    final boolean exists = cached != TypeCache.MISSING;
+                    if ( this.dependencies != null ) {
+                        this.dependencies.existenceCheck(result, exists);
+                    }
+                    return !exists;
+                }
+            }
             String resourceName = result.replace('.', '/') + ".class";
             if ( resourceName.startsWith("/") ) {
                 resourceName = resourceName.substring(1);
             }
-            final InputStream is = this.classLoader.getResourceAsStream(resourceName);
+            boolean exists = false;
+            final ClassLoader parent = this.getSharedClassLoader();
+            if ( parent != null && exists(parent, resourceName) ) {
+                this.typeCache.putPresent(result);
+                exists = true;
+            }
+            if ( !exists ) {
+                exists = exists(this.classLoader, resourceName);
+                if ( !exists && this.typeCache != null ) {
+                    this.typeCache.putMissing(result);
+                }
+            }
+            if ( this.dependencies != null ) {
+                this.dependencies.existenceCheck(result, exists);
+            }
+            return !exists;
+        }
+
+        private boolean exists(final ClassLoader loader, final String resourceName) {
+            final InputStream is = loader.getResourceAsStream(resourceName);
             if ( is != null ) {
                 try {
                     is.close();
                 } catch (IOException ignore) {}
             }
-            return is == null;
+            return is != null;
         }
 
-        private byte[] findClass(String name) throws Exception {
+        private byte[] findClass(final ClassLoader loader, String name) throws Exception {
             final String resourceName = name.replace('.', '/') + ".class";
-            final InputStream is = this.classLoader.getResourceAsStream(resourceName);
+            final InputStream is = loader.getResourceAsStream(resourceName);
             if (is != null) {
                 try {
                     byte[] buf = new byte[8192];
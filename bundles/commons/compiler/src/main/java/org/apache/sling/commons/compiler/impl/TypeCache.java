@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache for the types looked up by the compiler through the class loader
+ * of a class loader writer. The class files are read only once and shared
+ * between compilations. Only the bytes are shared, each compilation parses
+ * them on its own.
+ *
+ * Only classes provided by the parent of the writer's class loader, like
+ * bundle classes, are cached. Classes which are managed by the class loader
+ * writer itself, like compiled scripts, might change at any time.
+ * As a class which does not exist yet might be created by a compilation,
+ * the information that a class does not exist is removed whenever a class
+ * is written by the compiler. The whole cache has to be cleared if the
+ * class loader changes, e.g. on bundle updates.
+ */
+public class TypeCache {
+
+    /** Marker for a class which does not exist. */
+    static final Object MISSING = new Object();
+
+    /** Marker for a class which exists but has not been read yet. */
+    static final Object PRESENT = new Object();
+
+    /** The class files, {@link #MISSING} or {@link #PRESENT} by class name. */
+    private final Map<String, Object> types;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param maxSize The maximum number of cached class names
+     */
+    public TypeCache(final int maxSize) {
+        this.types = new LinkedHashMap<String, Object>(256, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cached information for a class.
+     * @param name The class name
+     * @return The class file as a {@code byte[]}, {@link #MISSING}, {@link #PRESENT}
+     *         or {@code null} if nothing is known about the class. The class file
+     *         must not be modified.
+     */
+    public synchronized Object get(final String name) {
+        final Object value = this.types.get(name);
+        if ( value == null ) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Cache the class file of a class which is not managed by the class loader writer.
+     * The class file must not be modified afterwards.
+     */
+    public synchronized void putType(final String name, final byte[] bytes) {
+        this.types.put(name, bytes);
+    }
+
+    /**
+     * Cache that a class which is not managed by the class loader writer exists.
+     */
+    public synchronized void putPresent(final String name) {
+        if ( !(this.types.get(name) instanceof byte[]) ) {
+            this.types.put(name, PRESENT);
+        }
+    }
+
+    /**
+     * Cache that a class does not exist.
+     */
+    public synchronized void putMissing(final String name) {
+        this.types.put(name, MISSING);
+    }
+
+    /**
+     * A class has been written by the compiler.
+     */
+    public synchronized void classWritten(final String name) {
+        this.types.remove(name);
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public synchronized void clear() {
+        this.types.clear();
+    }
+
+    public synchronized int size() {
+        return this.types.size();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+}
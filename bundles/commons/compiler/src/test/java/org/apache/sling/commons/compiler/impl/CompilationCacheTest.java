@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sling.commons.compiler.CompilationResult;
+import org.apache.sling.commons.compiler.CompilationUnit;
+import org.apache.sling.commons.compiler.Options;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompilationCacheTest {
+
+    private static final String ENTRY_PATH = CompilationCache.CACHE_PATH + "/test/Main.entry";
+
+    private MemoryClassLoaderWriter writer;
+
+    private EclipseJavaCompiler compiler;
+
+    @Before
+    public void setup() {
+        writer = new MemoryClassLoaderWriter();
+        compiler = new EclipseJavaCompiler();
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(EclipseJavaCompiler.PROPERTY_CACHE_ENABLED, true);
+        compiler.activate(null, props);
+    }
+
+    private CompilationResult compile(final String className, final String source) {
+        final Options options = new Options();
+        options.put(Options.KEY_CLASS_LOADER_WRITER, writer);
+        options.put(Options.KEY_FORCE_COMPILATION, true);
+        final CompilationResult result = compiler.compile(new CompilationUnit[] {new StringCompilationUnit(className, source)}, options);
+        assertNotNull(result);
+        assertNull(result.getErrors());
+        return result;
+    }
+
+    private void compileDependency(final String value) {
+        compile("test.dep.Dep", "package test.dep; public class Dep { public static String value() { return \"" + value + "\"; } }");
+    }
+
+    private CompilationResult compileMain() {
+        return compile("test.Main", "package test; public class Main { public String get() { return test.dep.Dep.value(); } }");
+    }
+
+    @Test
+    public void testCacheHit() throws Exception {
+        compileDependency("a");
+        compileMain();
+        assertEquals(1, writer.getWrites(ENTRY_PATH));
+        final byte[] compiled = writer.files.get("/test/Main.class");
+        assertNotNull(compiled);
+
+        // the class files are removed, e.g. by a reset of the script engine
+        writer.delete("/test/Main.class");
+        final CompilationResult result = compileMain();
+        assertTrue(result.didCompile());
+        // no compilation happened, therefore the entry has not been written again
+        assertEquals(1, writer.getWrites(ENTRY_PATH));
+        assertArrayEquals(compiled, writer.files.get("/test/Main.class"));
+        final Class<?> mainClass = result.loadCompiledClass("test.Main");
+        assertEquals("a", mainClass.getMethod("get").invoke(mainClass.newInstance()));
+    }
+
+    @Test
+    public void testChangedSource() {
+        compileDependency("a");
+        compileMain();
+        compile("test.Main", "package test; public class Main { public String get() { return \"x\" + test.dep.Dep.value(); } }");
+        assertEquals(2, writer.getWrites(ENTRY_PATH));
+    }
+
+    @Test
+    public void testChangedDependency() {
+        compileDependency("a");
+        compileMain();
+        compileDependency("b");
+        compileMain();
+        assertEquals(2, writer.getWrites(ENTRY_PATH));
+        compileMain();
+        assertEquals(2, writer.getWrites(ENTRY_PATH));
+    }
+
+    @Test
+    public void testCorruptEntry() {
+        compileDependency("a");
+        compileMain();
+        final byte[] entry = writer.files.get(ENTRY_PATH);
+        entry[entry.length - 20] ^= 0xff;
+        compileMain();
+        assertEquals(2, writer.getWrites(ENTRY_PATH));
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        compiler.activate(null, Collections.<String, Object>emptyMap());
+        compileDependency("a");
+        compileMain();
+        assertEquals(0, writer.getWrites(ENTRY_PATH));
+    }
+
+    @Test
+    public void testEntryPathOfSeveralUnits() {
+        final CompilationUnit main = new StringCompilationUnit("test.Main", "");
+        final CompilationUnit other = new StringCompilationUnit("test.Other", "");
+        final CompilationUnit third = new StringCompilationUnit("test.Third", "");
+        assertEquals(ENTRY_PATH, CompilationCache.getEntryPath(new CompilationUnit[] {main}));
+        final String path = CompilationCache.getEntryPath(new CompilationUnit[] {other, main});
+        assertEquals(path, CompilationCache.getEntryPath(new CompilationUnit[] {main, other}));
+        assertFalse(ENTRY_PATH.equals(path));
+        assertFalse(path.equals(CompilationCache.getEntryPath(new CompilationUnit[] {main, third})));
+    }
+}
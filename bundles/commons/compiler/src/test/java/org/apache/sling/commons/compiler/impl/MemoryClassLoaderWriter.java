@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+
+/**
+ * Class loader writer keeping all files in memory
+ */
+class MemoryClassLoaderWriter implements ClassLoaderWriter {
+
+    final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+    private final Map<String, Integer> writes = new HashMap<String, Integer>();
+
+    private final Map<String, Integer> lookups = new ConcurrentHashMap<String, Integer>();
+
+    int getWrites(final String path) {
+        final Integer count = writes.get(path);
+        return count == null ? 0 : count;
+    }
+
+    public OutputStream getOutputStream(final String path) {
+        final Integer count = writes.get(path);
+        writes.put(path, count == null ? 1 : count + 1);
+        return new ByteArrayOutputStream() {
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                files.put(path, toByteArray());
+            }
+        };
+    }
+
+    public InputStream getInputStream(final String path) throws IOException {
+        final byte[] data = files.get(path);
+        if ( data == null ) {
+            throw new IOException("Not found " + path);
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    public long getLastModified(final String path) {
+        return files.containsKey(path) ? 1 : -1;
+    }
+
+    public boolean delete(final String path) {
+        return files.remove(path) != null;
+    }
+
+    public boolean rename(final String oldPath, final String newPath) {
+        return false;
+    }
+
+    int getResourceLookups(final String name) {
+        final Integer count = lookups.get(name);
+        return count == null ? 0 : count;
+    }
+
+    /** The parent of the class loaders, counting the lookups of the classes not managed by the writer. */
+    private final ClassLoader parent = new ClassLoader(MemoryClassLoaderWriter.class.getClassLoader()) {
+
+        @Override
+        public URL getResource(final String name) {
+            final Integer count = lookups.get(name);
+            lookups.put(name, count == null ? 1 : count + 1);
+            return super.getResource(name);
+        }
+    };
+
+    public ClassLoader getClassLoader() {
+        // a new class loader each time, to see the latest class files
+        return new ClassLoader(parent) {
+
+            @Override
+            protected Class<?> findClass(final String name) throws ClassNotFoundException {
+                final byte[] data = files.get('/' + name.replace('.', '/') + ".class");
+                if ( data == null ) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, data, 0, data.length);
+            }
+
+            @Override
+            public InputStream getResourceAsStream(final String name) {
+                final byte[] data = files.get('/' + name);
+                if ( data != null ) {
+                    return new ByteArrayInputStream(data);
+                }
+                return super.getResourceAsStream(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.apache.sling.commons.compiler.CompilationUnit;
+
+/**
+ * Compilation unit for a source string
+ */
+class StringCompilationUnit implements CompilationUnit {
+
+    private final String className;
+
+    private final String source;
+
+    StringCompilationUnit(final String className, final String source) {
+        this.className = className;
+        this.source = source;
+    }
+
+    public Reader getSource() throws IOException {
+        return new StringReader(source);
+    }
+
+    public String getMainClassName() {
+        return className;
+    }
+
+    public long getLastModified() {
+        return 0;
+    }
+}
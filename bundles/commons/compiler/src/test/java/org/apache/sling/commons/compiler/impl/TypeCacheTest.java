@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sling.commons.compiler.CompilationResult;
+import org.apache.sling.commons.compiler.CompilationUnit;
+import org.apache.sling.commons.compiler.Options;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+
+public class TypeCacheTest {
+
+    private static final String LIST_CLASS = "java/util/ArrayList.class";
+
+    private MemoryClassLoaderWriter writer;
+
+    private EclipseJavaCompiler compiler;
+
+    @Before
+    public void setup() {
+        writer = new MemoryClassLoaderWriter();
+        compiler = new EclipseJavaCompiler();
+        activate(5000);
+    }
+
+    private void activate(final int typeCacheSize) {
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(EclipseJavaCompiler.PROPERTY_CACHE_ENABLED, false);
+        props.put(EclipseJavaCompiler.PROPERTY_TYPE_CACHE_SIZE, typeCacheSize);
+        compiler.activate(null, props);
+    }
+
+    private CompilationResult compile(final String className, final String source) {
+        final Options options = new Options();
+        options.put(Options.KEY_CLASS_LOADER_WRITER, writer);
+        options.put(Options.KEY_FORCE_COMPILATION, true);
+        final CompilationResult result = compiler.compile(new CompilationUnit[] {new StringCompilationUnit(className, source)}, options);
+        assertNotNull(result);
+        return result;
+    }
+
+    private void compileListUser(final String name) {
+        final CompilationResult result = compile("test." + name,
+                "package test; public class " + name + " { java.util.List l = new java.util.ArrayList(); }");
+        assertNull(result.getErrors());
+    }
+
+    @Test
+    public void testSharedLookups() {
+        compileListUser("A");
+        compileListUser("B");
+        compileListUser("C");
+        assertEquals(1, writer.getResourceLookups(LIST_CLASS));
+    }
+
+    @Test
+    public void testDisabled() {
+        activate(EclipseJavaCompiler.DEFAULT_TYPE_CACHE_SIZE);
+        compileListUser("A");
+        compileListUser("B");
+        assertEquals(2, writer.getResourceLookups(LIST_CLASS));
+    }
+
+    @Test
+    public void testBundleChangeClearsCache() {
+        compileListUser("A");
+        final Bundle bundle = (Bundle) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {Bundle.class}, new InvocationHandler() {
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return null;
+                    }
+                });
+        compiler.bundleChanged(new BundleEvent(BundleEvent.STARTED, bundle));
+        compileListUser("B");
+        assertEquals(1, writer.getResourceLookups(LIST_CLASS));
+
+        compiler.bundleChanged(new BundleEvent(BundleEvent.UPDATED, bundle));
+        compileListUser("C");
+        assertEquals(2, writer.getResourceLookups(LIST_CLASS));
+    }
+
+    @Test
+    public void testCompiledClassBecomesAvailable() {
+        final String main = "package test; public class Main { public String get() { return test.dep.Dep.value(); } }";
+        assertNotNull(compile("test.Main", main).getErrors());
+        assertNull(compile("test.dep.Dep", "package test.dep; public class Dep { public static String value() { return \"a\"; } }").getErrors());
+        assertNull(compile("test.Main", main).getErrors());
+    }
+}
@@ -38,6 +38,9 @@ public class SlingHttpServletResponseImpl extends HttpServletResponseWrapper imp
 
     private final boolean firstSlingResponse;
 
+    /** The status set through this response. */
+    private int status = SC_OK;
+
     public SlingHttpServletResponseImpl(RequestData requestData,
             HttpServletResponse response) {
         super(response);
@@ -116,10 +119,38 @@ public class SlingHttpServletResponseImpl extends HttpServletResponseWrapper imp
     public void sendError(int status, String message) throws IOException {
         checkCommitted();
 
+        this.status = status;
         SlingRequestProcessorImpl eh = getRequestData().getSlingRequestProcessor();
         eh.handleError(status, message, requestData.getSlingRequest(), this);
     }
 
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        super.sendRedirect(location);
+        this.status = SC_MOVED_TEMPORARILY;
+    }
+
+    @Override
+    public void setStatus(int status) {
+        super.setStatus(status);
+        this.status = status;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int status, String message) {
+        super.setStatus(status, message);
+        this.status = status;
+    }
+
+    /**
+     * Returns the status set through this response. Other than
+     * <code>getStatus()</code> this does not require Servlet API 3.0.
+     */
+    public int getResponseStatus() {
+        return this.status;
+    }
+
 
     // ---------- Internal helper ---------------------------------------------
 
@@ -49,6 +49,7 @@ import org.apache.sling.api.request.SlingRequestEvent;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.servlets.ServletResolver;
 import org.apache.sling.auth.core.AuthenticationSupport;
+import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.commons.mime.MimeTypeService;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.engine.SlingRequestProcessor;
@@ -58,6 +59,7 @@ import org.apache.sling.engine.impl.helper.RequestListenerManager;
 import org.apache.sling.engine.impl.helper.SlingServletContext;
 import org.apache.sling.engine.impl.request.RequestData;
 import org.apache.sling.engine.impl.request.RequestHistoryConsolePlugin;
+import org.apache.sling.engine.impl.request.RequestMetrics;
 import org.apache.sling.engine.jmx.RequestProcessorMBean;
 import org.apache.sling.engine.servlets.ErrorHandler;
 import org.osgi.framework.BundleContext;
@@ -82,7 +84,8 @@ import org.slf4j.LoggerFactory;
     @Reference(name = "ErrorHandler", referenceInterface = ErrorHandler.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setErrorHandler", unbind = "unsetErrorHandler"),
     @Reference(name = "ServletResolver", referenceInterface = ServletResolver.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setServletResolver", unbind = "unsetServletResolver"),
     @Reference(name = "MimeTypeService", referenceInterface = MimeTypeService.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setMimeTypeService", unbind = "unsetMimeTypeService"),
-    @Reference(name = "AuthenticationSupport", referenceInterface = AuthenticationSupport.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setAuthenticationSupport", unbind = "unsetAuthenticationSupport") })
+    @Reference(name = "AuthenticationSupport", referenceInterface = AuthenticationSupport.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setAuthenticationSupport", unbind = "unsetAuthenticationSupport"),
+    @Reference(name = "MetricsService", referenceInterface = MetricsService.class, cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC, bind = "setMetricsService", unbind = "unsetMetricsService") })
 public class SlingMainServlet extends GenericServlet {
 
     @Property(intValue=RequestData.DEFAULT_MAX_CALL_COUNTER)
@@ -107,6 +110,14 @@ public class SlingMainServlet extends GenericServlet {
     @Property
     private static final String PROP_SERVER_INFO = "sling.serverinfo";
 
+    public static final boolean DEFAULT_METRICS_ENABLED = true;
+
+    @Property(boolValue=DEFAULT_METRICS_ENABLED)
+    private static final String PROP_METRICS_ENABLED = "sling.metrics.enabled";
+
+    @Property(intValue=RequestMetrics.DEFAULT_MAX_TAG_VALUES)
+    private static final String PROP_METRICS_MAX_TAG_VALUES = "sling.metrics.max.tag.values";
+
 
     @Property(value = {"X-Content-Type-Options=nosniff", "X-Frame-Options=SAMEORIGIN"},
             label = "Additional response headers",
@@ -184,6 +195,12 @@ public class SlingMainServlet extends GenericServlet {
 
     private String configuredServerInfo;
 
+    private MetricsService metricsService;
+
+    private boolean metricsEnabled;
+
+    private int metricsMaxTagValues = RequestMetrics.DEFAULT_MAX_TAG_VALUES;
+
     // ---------- Servlet API -------------------------------------------------
 
     @Override
@@ -382,6 +399,15 @@ public class SlingMainServlet extends GenericServlet {
             RequestData.DEFAULT_MAX_CALL_COUNTER));
         RequestData.setSlingMainServlet(this);
 
+        // configure the request metrics
+        synchronized (this) {
+            metricsEnabled = PropertiesUtil.toBoolean(componentConfig.get(PROP_METRICS_ENABLED),
+                DEFAULT_METRICS_ENABLED);
+            metricsMaxTagValues = PropertiesUtil.toInteger(componentConfig.get(PROP_METRICS_MAX_TAG_VALUES),
+                RequestMetrics.DEFAULT_MAX_TAG_VALUES);
+            updateMetrics();
+        }
+
         // Warn about the obsolete parameter encoding configuration
         if (componentConfig.get(PROP_DEFAULT_PARAMETER_ENCODING) != null) {
             log.warn("Please configure the default request parameter encoding using "
@@ -570,6 +596,30 @@ public class SlingMainServlet extends GenericServlet {
         slingHttpContext.unsetAuthenticationSupport(authenticationSupport);
     }
 
+    protected synchronized void setMetricsService(final MetricsService metricsService) {
+        this.metricsService = metricsService;
+        updateMetrics();
+    }
+
+    protected synchronized void unsetMetricsService(final MetricsService metricsService) {
+        if (this.metricsService == metricsService) {
+            this.metricsService = null;
+            updateMetrics();
+        }
+    }
+
+    /**
+     * Provides the request processor with request metrics if metrics are
+     * enabled and a metrics service is available.
+     */
+    private void updateMetrics() {
+        if (metricsEnabled && metricsService != null) {
+            requestProcessor.setMetrics(new RequestMetrics(metricsService, metricsMaxTagValues));
+        } else {
+            requestProcessor.setMetrics(null);
+        }
+    }
+
     private Dictionary<String, String> toStringConfig(Dictionary<?, ?> config) {
         Dictionary<String, String> stringConfig = new Hashtable<String, String>();
         for (Enumeration<?> ke = config.keys(); ke.hasMoreElements();) {
@@ -57,6 +57,7 @@ import org.apache.sling.engine.impl.parameters.ParameterSupport;
 import org.apache.sling.engine.impl.request.ContentData;
 import org.apache.sling.engine.impl.request.RequestData;
 import org.apache.sling.engine.impl.request.RequestHistoryConsolePlugin;
+import org.apache.sling.engine.impl.request.RequestMetrics;
 import org.apache.sling.engine.servlets.ErrorHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,6 +77,8 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
 
     private RequestProcessorMBeanImpl mbean;
 
+    private volatile RequestMetrics metrics;
+
     // ---------- helper setters
 
     void setServerInfo(final String serverInfo) {
@@ -110,6 +113,18 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
         this.mbean = mbean;
     }
 
+    void setMetrics(final RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the request metrics or <code>null</code> if metrics are
+     * disabled.
+     */
+    public RequestMetrics getMetrics() {
+        return this.metrics;
+    }
+
     /**
      * This method is directly called by the Sling main servlet.
      */
@@ -122,10 +137,13 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
             servletResponse);
         final SlingHttpServletRequest request = requestData.getSlingRequest();
         final SlingHttpServletResponse response = requestData.getSlingResponse();
+        final RequestMetrics metrics = requestData.getMetrics();
+        final long start = (metrics != null) ? metrics.start() : 0;
 
         // record the request for the web console display
         RequestHistoryConsolePlugin.recordRequest(request);
 
+        boolean unavailable = false;
         try {
             final ServletResolver sr = this.servletResolver;
 
@@ -207,6 +225,7 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
                 + " service missing, cannot service requests";
             log.error("{} , sending status {}", errorMessage, status);
             servletResponse.sendError(status, errorMessage);
+            unavailable = true;
 
         } catch (IOException ioe) {
 
@@ -229,6 +248,14 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
             if (mbean != null) {
                 mbean.addRequestData(requestData);
             }
+            if (metrics != null) {
+                final ContentData contentData = requestData.getContentData();
+                metrics.updateRequest(
+                    (contentData != null) ? contentData.getResource() : null,
+                    (contentData != null) ? contentData.getRequestPathInfo() : null,
+                    unavailable ? HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                        : RequestData.unwrap(response).getResponseStatus(), start);
+            }
         }
     }
 
@@ -312,7 +339,12 @@ public class SlingRequestProcessorImpl implements SlingRequestProcessor {
 
         try {
             // resolve the servlet
+            final RequestMetrics metrics = requestData.getMetrics();
+            final long start = (metrics != null) ? metrics.start() : 0;
             Servlet servlet = servletResolver.resolveServlet(cRequest);
+            if (metrics != null) {
+                metrics.updateServletResolution(start);
+            }
             contentData.setServlet(servlet);
 
             FilterChainType type = include
@@ -29,6 +29,7 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.request.RequestProgressTracker;
 import org.apache.sling.engine.impl.request.RequestData;
+import org.apache.sling.engine.impl.request.RequestMetrics;
 
 public abstract class AbstractSlingFilterChain implements FilterChain {
 
@@ -105,9 +106,13 @@ public abstract class AbstractSlingFilterChain implements FilterChain {
         if (filters != null) {
             RequestData data = RequestData.getRequestData(request);
             RequestProgressTracker tracker = (data != null) ? data.getRequestProgressTracker() : null;
+            RequestMetrics metrics = (data != null) ? data.getMetrics() : null;
 
             for (int i = filters.length - 1; i > 0; i--) {
                 filters[i].trackTime(times[i] - times[i + 1]);
+                if (metrics != null) {
+                    metrics.updateFilter(filters[i].getFilter().getClass().getName(), times[i] - times[i + 1]);
+                }
                 if (tracker != null) {
                     tracker.log("Filter timing: filter={0}, inner={1}, total={2}, outer={3}",
                         filters[i].getFilter().getClass().getName(), times[i + 1], times[i], (times[i] - times[i + 1]));
@@ -147,6 +147,9 @@ public class RequestData {
 
     private RequestProgressTracker requestProgressTracker;
 
+    /** The request metrics or <code>null</code> if metrics are disabled */
+    private final RequestMetrics metrics;
+
     /** the current ContentData */
     private ContentData currentContentData;
 
@@ -208,6 +211,7 @@ public class RequestData {
         this.startTimestamp = System.currentTimeMillis();
 
         this.slingRequestProcessor = slingRequestProcessor;
+        this.metrics = (slingRequestProcessor != null) ? slingRequestProcessor.getMetrics() : null;
 
         this.servletRequest = request;
         this.servletResponse = response;
@@ -235,6 +239,7 @@ public class RequestData {
 
         // resolve the resource
         requestProgressTracker.startTimer("ResourceResolution");
+        final long start = (metrics != null) ? metrics.start() : 0;
         final SlingHttpServletRequest request = getSlingRequest();
 
         StringBuffer requestURL = servletRequest.getRequestURL();
@@ -253,6 +258,9 @@ public class RequestData {
         if (request.getAttribute(REQUEST_RESOURCE_PATH_ATTR) == null) {
             request.setAttribute(REQUEST_RESOURCE_PATH_ATTR, resource.getPath());
         }
+        if (metrics != null) {
+            metrics.updateResourceResolution(start);
+        }
         requestProgressTracker.logTimer("ResourceResolution",
             "URI={0} resolves to Resource={1}",
             getServletRequest().getRequestURI(), resource);
@@ -269,7 +277,11 @@ public class RequestData {
 
         // finally resolve the servlet for the resource
         requestProgressTracker.startTimer("ServletResolution");
+        final long start = (metrics != null) ? metrics.start() : 0;
         Servlet servlet = sr.resolveServlet(slingRequest);
+        if (metrics != null) {
+            metrics.updateServletResolution(start);
+        }
         requestProgressTracker.logTimer("ServletResolution",
             "URI={0} handled by Servlet={1}",
             getServletRequest().getRequestURI(), (servlet == null ? "-none-" : RequestUtil.getServletName(servlet)));
@@ -280,6 +292,14 @@ public class RequestData {
         return slingRequestProcessor;
     }
 
+    /**
+     * Returns the request metrics or <code>null</code> if metrics are
+     * disabled.
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
     public HttpServletRequest getServletRequest() {
         return servletRequest;
     }
@@ -544,6 +564,8 @@ public class RequestData {
             String timerName = name + "#" + requestData.servletCallCounter;
             requestData.servletCallCounter++;
             requestData.getRequestProgressTracker().startTimer(timerName);
+            final RequestMetrics metrics = requestData.getMetrics();
+            final long start = (metrics != null) ? metrics.start() : 0;
 
             try {
 
@@ -559,6 +581,10 @@ public class RequestData {
 
                 requestData.getRequestProgressTracker().logTimer(timerName);
 
+                if (metrics != null) {
+                    metrics.updateServlet(name, start);
+                }
+
             }
         }
     }
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.request;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
+
+/**
+ * The <code>RequestMetrics</code> publishes the timings of the request
+ * processing stages to the {@link MetricsService}, from where they are
+ * exposed through the registered reporters like JMX.
+ * <p>
+ * Besides the untagged timers of each stage, the requests are timed by
+ * resource type, by selectors and extension and by response status and the
+ * servlet and script calls are timed by servlet name. The number of timers
+ * of each of these tags is bounded, all further values are recorded with
+ * the {@link #OTHER} timer of the tag.
+ * <p>
+ * If metrics are disabled, no instance of this class exists and the request
+ * processing only checks for <code>null</code>.
+ */
+public class RequestMetrics {
+
+    /** The prefix of all metric names */
+    public static final String PREFIX = "sling.request.";
+
+    /** The tag value used once the maximum number of values of a tag is reached */
+    public static final String OTHER = "_other";
+
+    /** The default maximum number of values per tag */
+    public static final int DEFAULT_MAX_TAG_VALUES = 100;
+
+    private final MetricsService metricsService;
+
+    private final int maxTagValues;
+
+    private final Timer requestTimer;
+
+    private final Timer resourceResolutionTimer;
+
+    private final Timer servletResolutionTimer;
+
+    private final TaggedTimers resourceTypeTimers = new TaggedTimers("resourceType");
+
+    private final TaggedTimers extensionTimers = new TaggedTimers("extension");
+
+    private final TaggedTimers statusTimers = new TaggedTimers("status");
+
+    private final TaggedTimers servletTimers = new TaggedTimers("servlet");
+
+    private final TaggedTimers filterTimers = new TaggedTimers("filter");
+
+    public RequestMetrics(final MetricsService metricsService, final int maxTagValues) {
+        this.metricsService = metricsService;
+        this.maxTagValues = maxTagValues;
+        this.requestTimer = metricsService.timer(PREFIX + "total");
+        this.resourceResolutionTimer = metricsService.timer(PREFIX + "resourceResolution");
+        this.servletResolutionTimer = metricsService.timer(PREFIX + "servletResolution");
+    }
+
+    /**
+     * Returns the start time for a measurement finished with one of the
+     * <code>update</code> methods.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void updateResourceResolution(final long start) {
+        resourceResolutionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    public void updateServletResolution(final long start) {
+        servletResolutionTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a single servlet or script call.
+     * @param servletName The name of the servlet, for scripts the script path
+     * @param start The start time of the call
+     */
+    public void updateServlet(final String servletName, final long start) {
+        servletTimers.get(servletName).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time spent in a filter, excluding the rest of the chain.
+     * @param filterName The name of the filter
+     * @param durationMsec The duration in milliseconds
+     */
+    public void updateFilter(final String filterName, final long durationMsec) {
+        filterTimers.get(filterName).update(durationMsec, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a complete request.
+     * @param resource The resource addressed by the request, may be <code>null</code>
+     * @param pathInfo The request path info, may be <code>null</code>
+     * @param status The response status
+     * @param start The start time of the request
+     */
+    public void updateRequest(final Resource resource, final RequestPathInfo pathInfo,
+            final int status, final long start) {
+        final long duration = System.nanoTime() - start;
+        requestTimer.update(duration, TimeUnit.NANOSECONDS);
+        if (resource != null) {
+            resourceTypeTimers.get(resource.getResourceType()).update(duration, TimeUnit.NANOSECONDS);
+        }
+        if (pathInfo != null) {
+            final String extension;
+            if (pathInfo.getSelectorString() != null) {
+                extension = pathInfo.getSelectorString() + "." + pathInfo.getExtension();
+            } else {
+                extension = pathInfo.getExtension();
+            }
+            extensionTimers.get(extension).update(duration, TimeUnit.NANOSECONDS);
+        }
+        statusTimers.get(String.valueOf(status)).update(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns a tag value which can be used as part of a metric name
+     * exposed through JMX.
+     */
+    static String toTagValue(final String value) {
+        if (value == null || value.length() == 0) {
+            return "_none";
+        }
+        final StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case ':':
+                case ',':
+                case '=':
+                case '*':
+                case '?':
+                case '"':
+                case '\n':
+                    sb.append('_');
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The timers of a single tag, the number of timers is bounded by the
+     * maximum number of tag values.
+     */
+    private final class TaggedTimers {
+
+        private final String prefix;
+
+        private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+        private volatile Timer otherTimer;
+
+        TaggedTimers(final String tag) {
+            this.prefix = PREFIX + tag + ".";
+        }
+
+        Timer get(final String value) {
+            final String key = (value == null ? "" : value);
+            Timer timer = timers.get(key);
+            if (timer == null) {
+                if (timers.size() >= maxTagValues) {
+                    return getOther();
+                }
+                timer = metricsService.timer(prefix + toTagValue(value));
+                final Timer existing = timers.putIfAbsent(key, timer);
+                if (existing != null) {
+                    timer = existing;
+                }
+            }
+            return timer;
+        }
+
+        private Timer getOther() {
+            Timer timer = otherTimer;
+            if (timer == null) {
+                timer = metricsService.timer(prefix + OTHER);
+                otherTimer = timer;
+            }
+            return timer;
+        }
+    }
+}
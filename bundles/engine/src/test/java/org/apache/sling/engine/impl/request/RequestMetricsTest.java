@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.engine.impl.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.commons.metrics.Counter;
+import org.apache.sling.commons.metrics.Histogram;
+import org.apache.sling.commons.metrics.Meter;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(JMock.class)
+public class RequestMetricsTest {
+
+    private final Mockery context = new JUnit4Mockery();
+
+    private final RecordingMetricsService metricsService = new RecordingMetricsService();
+
+    @Test
+    public void testStages() {
+        final RequestMetrics metrics = new RequestMetrics(metricsService, 10);
+        metrics.updateResourceResolution(metrics.start());
+        metrics.updateServletResolution(metrics.start());
+        metrics.updateServletResolution(metrics.start());
+        metrics.updateServlet("/apps/test/html.jsp", metrics.start());
+        metrics.updateFilter("org.example.Filter", 5);
+
+        assertEquals(1, metricsService.getCount("sling.request.resourceResolution"));
+        assertEquals(2, metricsService.getCount("sling.request.servletResolution"));
+        assertEquals(1, metricsService.getCount("sling.request.servlet./apps/test/html.jsp"));
+        assertEquals(1, metricsService.getCount("sling.request.filter.org.example.Filter"));
+        assertEquals(0, metricsService.getCount("sling.request.total"));
+    }
+
+    @Test
+    public void testRequestTags() {
+        final Resource resource = context.mock(Resource.class);
+        final RequestPathInfo pathInfo = context.mock(RequestPathInfo.class);
+        context.checking(new Expectations() {{
+            allowing(resource).getResourceType();
+            will(returnValue("app:test/page"));
+            allowing(pathInfo).getSelectorString();
+            will(returnValue("print"));
+            allowing(pathInfo).getExtension();
+            will(returnValue("html"));
+        }});
+
+        final RequestMetrics metrics = new RequestMetrics(metricsService, 10);
+        metrics.updateRequest(resource, pathInfo, 200, metrics.start());
+        metrics.updateRequest(null, null, 404, metrics.start());
+
+        assertEquals(2, metricsService.getCount("sling.request.total"));
+        assertEquals(1, metricsService.getCount("sling.request.resourceType.app_test/page"));
+        assertEquals(1, metricsService.getCount("sling.request.extension.print.html"));
+        assertEquals(1, metricsService.getCount("sling.request.status.200"));
+        assertEquals(1, metricsService.getCount("sling.request.status.404"));
+    }
+
+    @Test
+    public void testBoundedTagValues() {
+        final RequestMetrics metrics = new RequestMetrics(metricsService, 2);
+        metrics.updateServlet("servlet1", metrics.start());
+        metrics.updateServlet("servlet2", metrics.start());
+        metrics.updateServlet("servlet3", metrics.start());
+        metrics.updateServlet("servlet4", metrics.start());
+        metrics.updateServlet("servlet1", metrics.start());
+
+        assertEquals(2, metricsService.getCount("sling.request.servlet.servlet1"));
+        assertEquals(1, metricsService.getCount("sling.request.servlet.servlet2"));
+        assertNull(metricsService.timers.get("sling.request.servlet.servlet3"));
+        assertEquals(2, metricsService.getCount("sling.request.servlet." + RequestMetrics.OTHER));
+    }
+
+    @Test
+    public void testToTagValue() {
+        assertEquals("_none", RequestMetrics.toTagValue(null));
+        assertEquals("_none", RequestMetrics.toTagValue(""));
+        assertEquals("sling/servlet/default", RequestMetrics.toTagValue("sling/servlet/default"));
+        assertEquals("nt_unstructured", RequestMetrics.toTagValue("nt:unstructured"));
+        assertEquals("a_b_c", RequestMetrics.toTagValue("a=b,c"));
+    }
+
+    private static class RecordingMetricsService implements MetricsService {
+
+        final Map<String, RecordingTimer> timers = new HashMap<String, RecordingTimer>();
+
+        long getCount(final String name) {
+            final RecordingTimer timer = timers.get(name);
+            return (timer != null) ? timer.getCount() : 0;
+        }
+
+        public synchronized Timer timer(final String name) {
+            RecordingTimer timer = timers.get(name);
+            if (timer == null) {
+                timer = new RecordingTimer();
+                timers.put(name, timer);
+            }
+            return timer;
+        }
+
+        public Histogram histogram(final String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Counter counter(final String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Meter meter(final String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        public <A> A adaptTo(final Class<A> type) {
+            return null;
+        }
+    }
+
+    private static class RecordingTimer implements Timer {
+
+        private long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        public void update(final long duration, final TimeUnit unit) {
+            count++;
+        }
+
+        public Context time() {
+            throw new UnsupportedOperationException();
+        }
+
+        public <A> A adaptTo(final Class<A> type) {
+            return null;
+        }
+    }
+}
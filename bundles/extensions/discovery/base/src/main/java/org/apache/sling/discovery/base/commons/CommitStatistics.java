@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.discovery.base.commons;
+
+import java.util.LinkedList;
+
+/**
+ * Keeps track of the repository commits (and of the writes that
+ * were skipped as they were not necessary) issued by discovery -
+ * to be able to report the commits per minute discovery causes.
+ */
+public class CommitStatistics {
+
+    private static final long ONE_MINUTE_MILLIS = 60 * 1000;
+
+    /** the timestamps of the commits done within the last minute **/
+    private final LinkedList<Long> recentCommits = new LinkedList<Long>();
+
+    private long totalCommits = 0;
+
+    private long skippedWrites = 0;
+
+    /** Registers a commit that was just done **/
+    public synchronized void commitDone() {
+        final long now = System.currentTimeMillis();
+        totalCommits++;
+        recentCommits.add(now);
+        purge(now);
+    }
+
+    /** Registers a write (and hence a commit) that was skipped as it was not necessary **/
+    public synchronized void writeSkipped() {
+        skippedWrites++;
+    }
+
+    /** Returns the number of commits done within the last minute **/
+    public synchronized int getCommitsPerMinute() {
+        purge(System.currentTimeMillis());
+        return recentCommits.size();
+    }
+
+    /** Returns the total number of commits done **/
+    public synchronized long getTotalCommits() {
+        return totalCommits;
+    }
+
+    /** Returns the total number of writes that were skipped **/
+    public synchronized long getSkippedWrites() {
+        return skippedWrites;
+    }
+
+    private void purge(final long now) {
+        while (!recentCommits.isEmpty()
+                && now - recentCommits.getFirst() > ONE_MINUTE_MILLIS) {
+            recentCommits.removeFirst();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CommitStatistics[commitsPerMinute=" + getCommitsPerMinute()
+                + ", totalCommits=" + totalCommits
+                + ", skippedWrites=" + skippedWrites + "]";
+    }
+}
@@ -18,6 +18,9 @@
  */
 package org.apache.sling.discovery.base.connectors.announcement;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -53,6 +56,15 @@ public class Announcement {
      */
     private final static int PROTOCOL_VERSION = 1;
 
+    /** the property under which the announcement json is persisted **/
+    static final String PROPERTY_TOPOLOGY_ANNOUNCEMENT = "topologyAnnouncement";
+
+    /** the property under which the viewHash of a persisted announcement is stored **/
+    private static final String PROPERTY_VIEW_HASH = "viewHash";
+
+    /** the property under which the inherited flag of a persisted announcement is stored **/
+    private static final String PROPERTY_INHERITED = "inherited";
+
     /** the sling id of the owner of this announcement. the owner is where this announcement comes from **/
     private final String ownerId;
 
@@ -84,6 +96,21 @@ public class Announcement {
     
     private long receivedAt = System.currentTimeMillis();
 
+    /** the hash of the topology content of this announcement - either received or lazily computed **/
+    private String viewHash;
+
+    /** whether the viewHash was received from the sender - ie the sender supports hash-only announcements **/
+    private boolean viewHashReceived = false;
+
+    /** whether this announcement only carries the viewHash instead of the full topology content **/
+    private boolean hashOnly = false;
+
+    /** the viewHash of the last full announcement the sender received from its counterpart **/
+    private String knownViewHash;
+
+    /** set by the connector servlet when it cannot resolve a hash-only announcement and needs the full content **/
+    private boolean resendRequired = false;
+
     public Announcement(final String ownerId) {
         this(ownerId, PROTOCOL_VERSION);
     }
@@ -110,6 +137,7 @@ public class Announcement {
                 ", protocolVersion="+protocolVersion+
                 ", inherited="+isInherited()+
                 ", loop="+loop+
+                ", hashOnly="+hashOnly+
                 ", incomings="+incomingList+"]";
     }
 
@@ -126,6 +154,10 @@ public class Announcement {
         if (loop) {
             return true;
         }
+        if (hashOnly) {
+            // a hash-only announcement must first be resolved to its full content
+            return false;
+        }
         if (!isCorrectVersion()) {
             return false;
         }
@@ -196,6 +228,116 @@ public class Announcement {
         return resetBackoff;
     }
 
+    /** Returns whether this announcement only carries the viewHash but not the topology content **/
+    public boolean isHashOnly() {
+        return hashOnly;
+    }
+
+    /** Sets the viewHash of the last full announcement which was received from the counterpart **/
+    public void setKnownViewHash(String knownViewHash) {
+        this.knownViewHash = knownViewHash;
+    }
+
+    /** Returns the viewHash of the last full announcement which was received from the counterpart **/
+    public String getKnownViewHash() {
+        return knownViewHash;
+    }
+
+    /** Sets the resendRequired flag - set by the servlet when it could not resolve a hash-only announcement **/
+    public void setResendRequired(boolean resendRequired) {
+        this.resendRequired = resendRequired;
+    }
+
+    /** Returns the resendRequired flag - when set the client must send the full announcement **/
+    public boolean isResendRequired() {
+        return resendRequired;
+    }
+
+    /**
+     * Returns the hash of the topology content of this announcement.
+     * <p>
+     * The hash covers the owner, the local cluster view (including all
+     * instance properties), the server info and all incoming announcements.
+     * It ignores any heartbeat or backoff related information, hence it
+     * stays stable as long as the announced topology does not change.
+     * When the announcement was received, the hash as calculated by the
+     * sender is returned.
+     */
+    public String getViewHash() throws JSONException {
+        if (viewHash == null) {
+            viewHash = calcViewHash();
+        }
+        return viewHash;
+    }
+
+    /** Returns whether the sender included its viewHash - ie whether it supports hash-only announcements **/
+    public boolean isViewHashReceived() {
+        return viewHashReceived;
+    }
+
+    private String calcViewHash() throws JSONException {
+        if (hashOnly) {
+            throw new IllegalStateException("cannot calculate the viewHash of a hash-only announcement");
+        }
+        final JSONObject content = asJSONObject(true);
+        content.remove("resetBackoff");
+        content.remove("inherited");
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = digest.digest(content.toString().getBytes("UTF-8"));
+            final StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (int i = 0; i < hash.length; i++) {
+                sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available: " + e, e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not available: " + e, e);
+        }
+    }
+
+    /**
+     * Creates a hash-only variant of this announcement which carries
+     * the viewHash (and the ping related flags) but not the topology content.
+     */
+    public Announcement asHashOnly() throws JSONException {
+        final Announcement result = new Announcement(ownerId, protocolVersion);
+        result.hashOnly = true;
+        result.viewHash = getViewHash();
+        result.serverInfo = serverInfo;
+        result.backoffInterval = backoffInterval;
+        result.resetBackoff = resetBackoff;
+        result.knownViewHash = knownViewHash;
+        return result;
+    }
+
+    /**
+     * Restores the full content of an unchanged announcement: creates a copy
+     * of this (full) announcement which takes the ping related information
+     * from the given hash-only announcement.
+     */
+    public Announcement restoreFrom(final Announcement hashOnlyAnnouncement) {
+        if (!ownerId.equals(hashOnlyAnnouncement.ownerId)) {
+            throw new IllegalArgumentException("ownerId mismatch: " + ownerId
+                    + " vs " + hashOnlyAnnouncement.ownerId);
+        }
+        final Announcement result = new Announcement(ownerId, protocolVersion);
+        result.localCluster = localCluster;
+        result.incomings.addAll(incomings);
+        result.inherited = inherited;
+        result.serverInfo = serverInfo;
+        result.loop = loop;
+        result.viewHash = viewHash;
+        result.viewHashReceived = viewHashReceived;
+        result.originallyCreatedAt = hashOnlyAnnouncement.originallyCreatedAt;
+        result.backoffInterval = hashOnlyAnnouncement.backoffInterval;
+        result.resetBackoff = hashOnlyAnnouncement.resetBackoff;
+        result.knownViewHash = hashOnlyAnnouncement.knownViewHash;
+        return result;
+    }
+
     /** Returns the loop flag - set when this announcement represents a loop detected in the topology connectors **/
     public boolean isLoop() {
         return loop;
@@ -240,6 +382,16 @@ public class Announcement {
         if (!filterTimes) {
             announcement.put("created", System.currentTimeMillis());
         }
+        if (hashOnly) {
+            announcement.put("hashOnly", true);
+            announcement.put("viewHash", viewHash);
+        }
+        if (!filterTimes && knownViewHash != null) {
+            announcement.put("knownViewHash", knownViewHash);
+        }
+        if (resendRequired) {
+            announcement.put("resendRequired", true);
+        }
         announcement.put("inherited", inherited);
         if (loop) {
             announcement.put("loop", loop);
@@ -256,6 +408,9 @@ public class Announcement {
         if (resetBackoff) {
             announcement.put("resetBackoff", resetBackoff);
         }
+        if (hashOnly) {
+            return announcement;
+        }
         JSONArray incomingAnnouncements = new JSONArray();
         for (Iterator<Announcement> it = incomings.iterator(); it.hasNext();) {
             Announcement incoming = it.next();
@@ -288,10 +443,32 @@ public class Announcement {
             boolean resetBackoff = announcement.getBoolean("resetBackoff");
             result.resetBackoff = resetBackoff;
         }
+        if (announcement.has("viewHash")) {
+            result.viewHash = announcement.getString("viewHash");
+            result.viewHashReceived = true;
+        }
+        if (announcement.has("knownViewHash")) {
+            result.knownViewHash = announcement.getString("knownViewHash");
+        }
+        if (announcement.has("resendRequired")) {
+            result.resendRequired = announcement.getBoolean("resendRequired");
+        }
+        if (announcement.has("serverInfo")) {
+            result.serverInfo = announcement.getString("serverInfo");
+        }
         if (announcement.has("loop") && announcement.getBoolean("loop")) {
             result.setLoop(true);
             return result;
         }
+        if (result.resendRequired) {
+            return result;
+        }
+        if (announcement.has("hashOnly") && announcement.getBoolean("hashOnly")) {
+            result.hashOnly = result.viewHash != null;
+            if (result.hashOnly) {
+                return result;
+            }
+        }
         final String localClusterViewJSON = announcement
                 .getString("localClusterView");
         final ClusterView localClusterView = asClusterView(localClusterViewJSON);
@@ -302,15 +479,15 @@ public class Announcement {
             final Boolean inherited = announcement.getBoolean("inherited");
             result.inherited = inherited;
         }
-        if (announcement.has("serverInfo")) {
-            String serverInfo = announcement.getString("serverInfo");
-            result.serverInfo = serverInfo;
-        }
         result.setLocalCluster(localClusterView);
         for (int i = 0; i < subAnnouncements.length(); i++) {
             String subAnnouncementJSON = subAnnouncements.getString(i);
             result.addIncomingTopologyAnnouncement(fromJSON(subAnnouncementJSON));
         }
+        if (announcement.has("viewHash")) {
+            // restore the sender's viewHash which was reset by adding the content above
+            result.viewHash = announcement.getString("viewHash");
+        }
         return result;
     }
 
@@ -389,17 +566,23 @@ public class Announcement {
     /** sets the local clusterview **/
     public void setLocalCluster(ClusterView localCluster) {
         this.localCluster = localCluster;
+        this.viewHash = null;
     }
 
     /** adds an incoming announcement to this announcement **/
     public void addIncomingTopologyAnnouncement(
             Announcement incomingTopologyAnnouncement) {
         incomings.add(incomingTopologyAnnouncement);
+        this.viewHash = null;
     }
 
-    /** Convert this announcement into json **/
+    /** Convert this announcement into json - including the viewHash of a full announcement **/
     public String asJSON() throws JSONException {
-        return asJSONObject().toString();
+        final JSONObject announcement = asJSONObject();
+        if (!hashOnly && !loop && !resendRequired && localCluster != null) {
+            announcement.put("viewHash", getViewHash());
+        }
+        return announcement.toString();
     }
 
     /** the key which is unique to this announcement **/
@@ -421,7 +604,8 @@ public class Announcement {
 
     /**
      * Persists this announcement using the given 'announcements' resource,
-     * under which a node with the primary key is created
+     * under which a node with the primary key is created - unless that
+     * node already contains an announcement with the identical viewHash
      **/
     public void persistTo(Resource announcementsResource)
             throws PersistenceException, JSONException {
@@ -433,15 +617,24 @@ public class Announcement {
         // announcement-heartbeat-dates anymore at all, this resetting here
         // became unnecessary.
         
-        final String announcementJson = asJSON();
-		if (announcementChildResource==null) {
+        final String viewHash = getViewHash();
+        if (announcementChildResource!=null) {
+            final ModifiableValueMap announcementChildMap = announcementChildResource.adaptTo(ModifiableValueMap.class);
+            if (viewHash.equals(announcementChildMap.get(PROPERTY_VIEW_HASH, String.class))
+                    && inherited==announcementChildMap.get(PROPERTY_INHERITED, false)) {
+                // the persisted announcement has the identical content - no need to write it again
+                return;
+            }
+            announcementChildMap.put(PROPERTY_TOPOLOGY_ANNOUNCEMENT, asJSON());
+            announcementChildMap.put(PROPERTY_VIEW_HASH, viewHash);
+            announcementChildMap.put(PROPERTY_INHERITED, inherited);
+        } else {
             final ResourceResolver resourceResolver = announcementsResource.getResourceResolver();
             Map<String, Object> properties = new HashMap<String, Object>();
-            properties.put("topologyAnnouncement", announcementJson);
+            properties.put(PROPERTY_TOPOLOGY_ANNOUNCEMENT, asJSON());
+            properties.put(PROPERTY_VIEW_HASH, viewHash);
+            properties.put(PROPERTY_INHERITED, inherited);
             resourceResolver.create(announcementsResource, getPrimaryKey(), properties);
-        } else {
-            final ModifiableValueMap announcementChildMap = announcementChildResource.adaptTo(ModifiableValueMap.class);
-            announcementChildMap.put("topologyAnnouncement", announcementJson);
         }
     }
 
@@ -467,6 +660,12 @@ public class Announcement {
      * introduced as part of SLING-3382
      */
     public boolean correspondsTo(Announcement announcement) throws JSONException {
+        if (viewHash != null && viewHash.equals(announcement.viewHash)
+                && inherited == announcement.inherited
+                && resetBackoff == announcement.resetBackoff) {
+            // identical topology content as announced by the sender's viewHash
+            return true;
+        }
         final JSONObject myJson = asJSONObject(true);
         final JSONObject otherJson = announcement.asJSONObject(true);
         return myJson.toString().equals(otherJson.toString());
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.apache.sling.discovery.ClusterView;
 import org.apache.sling.discovery.InstanceDescription;
+import org.apache.sling.discovery.base.commons.CommitStatistics;
 
 /**
  * The announcement registry keeps track of all the announcement that this
@@ -63,4 +64,7 @@ public interface AnnouncementRegistry {
     /** Whether or not the given owner has an active (ie not expired) announcement registered **/
     boolean hasActiveAnnouncement(String ownerId);
 
+    /** Returns the statistics of the repository commits this registry issued **/
+    CommitStatistics getCommitStatistics();
+
 }
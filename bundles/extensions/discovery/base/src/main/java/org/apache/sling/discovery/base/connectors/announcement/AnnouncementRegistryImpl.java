@@ -19,6 +19,7 @@
 package org.apache.sling.discovery.base.connectors.announcement;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -38,6 +39,7 @@ import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.discovery.ClusterView;
 import org.apache.sling.discovery.InstanceDescription;
+import org.apache.sling.discovery.base.commons.CommitStatistics;
 import org.apache.sling.discovery.base.connectors.BaseConfig;
 import org.apache.sling.discovery.commons.providers.util.ResourceHelper;
 import org.apache.sling.settings.SlingSettingsService;
@@ -48,6 +50,13 @@ import org.slf4j.LoggerFactory;
  * Default implementation of the AnnouncementRegistry which
  * handles JSON-backed announcements and does so by storing
  * them in a local like /var/discovery/impl/clusterNodes/$slingId/announcement.
+ * <p>
+ * Readers are served lock-free from immutable in-memory snapshots:
+ * the announcements registered with this instance are kept in a
+ * copy-on-write map which is replaced upon each change, while the
+ * announcements of the other cluster instances are read from the
+ * repository in checkExpiredAnnouncements - ie once per heartbeat -
+ * instead of upon each read.
  */
 @Component
 @Service(value = AnnouncementRegistry.class)
@@ -87,15 +96,48 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         slingId = settingsService.getSlingId();
     }
     
-    private final Map<String,CachedAnnouncement> ownAnnouncementsCache = 
-            new HashMap<String,CachedAnnouncement>();
+    /** immutable snapshot of the announcements registered with this instance,
+     * replaced (copy-on-write) by the synchronized writers upon each change **/
+    private volatile Map<String,CachedAnnouncement> ownAnnouncementsCache = 
+            Collections.emptyMap();
+
+    /** immutable snapshot of the announcements of the other cluster instances
+     * (keyed by their slingId) as last read from the repository **/
+    private volatile Map<String,Collection<Announcement>> clusterAnnouncements =
+            Collections.emptyMap();
+
+    /** statistics of the commits issued by this registry **/
+    private final CommitStatistics commitStatistics = new CommitStatistics();
+
+    public CommitStatistics getCommitStatistics() {
+        return commitStatistics;
+    }
+
+    /** replaces the own announcements snapshot with a copy containing the given announcement **/
+    private void putOwnAnnouncement(final String ownerId, final CachedAnnouncement cachedAnnouncement) {
+        final Map<String,CachedAnnouncement> newCache = 
+                new HashMap<String,CachedAnnouncement>(ownAnnouncementsCache);
+        newCache.put(ownerId, cachedAnnouncement);
+        ownAnnouncementsCache = Collections.unmodifiableMap(newCache);
+    }
+
+    /** replaces the own announcements snapshot with a copy not containing the given owner's announcement **/
+    private void removeOwnAnnouncement(final String ownerId) {
+        if (!ownAnnouncementsCache.containsKey(ownerId)) {
+            return;
+        }
+        final Map<String,CachedAnnouncement> newCache = 
+                new HashMap<String,CachedAnnouncement>(ownAnnouncementsCache);
+        newCache.remove(ownerId);
+        ownAnnouncementsCache = Collections.unmodifiableMap(newCache);
+    }
 
     public synchronized void unregisterAnnouncement(final String ownerId) {
         if (ownerId==null || ownerId.length()==0) {
             throw new IllegalArgumentException("ownerId must not be null or empty");
         }
         // remove from the cache - even if there's an error afterwards
-        ownAnnouncementsCache.remove(ownerId);
+        removeOwnAnnouncement(ownerId);
         
         if (resourceResolverFactory == null) {
             logger.error("unregisterAnnouncement: resourceResolverFactory is null");
@@ -114,6 +156,7 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
             if (announcementsResource!=null) {
                 resourceResolver.delete(announcementsResource);
                 resourceResolver.commit();
+                commitStatistics.commitDone();
             }
 
         } catch (LoginException e) {
@@ -134,11 +177,11 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         }
     }
 
-    public synchronized Collection<Announcement> listLocalAnnouncements() {
+    public Collection<Announcement> listLocalAnnouncements() {
         return fillWithCachedAnnouncements(new LinkedList<Announcement>());
     }
     
-    public synchronized Collection<CachedAnnouncement> listLocalIncomingAnnouncements() {
+    public Collection<CachedAnnouncement> listLocalIncomingAnnouncements() {
         Collection<CachedAnnouncement> result = new LinkedList<CachedAnnouncement>(ownAnnouncementsCache.values());
         for (Iterator<CachedAnnouncement> it = result.iterator(); it.hasNext();) {
             CachedAnnouncement cachedAnnouncement = it.next();
@@ -165,88 +208,32 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         return null;
     }
 
-    public synchronized Collection<Announcement> listAnnouncementsInSameCluster(final ClusterView localClusterView) {
+    public Collection<Announcement> listAnnouncementsInSameCluster(final ClusterView localClusterView) {
         logger.debug("listAnnouncementsInSameCluster: start. localClusterView: {}", localClusterView);
         if (localClusterView==null) {
             throw new IllegalArgumentException("clusterView must not be null");
         }
-        ResourceResolver resourceResolver = null;
         final Collection<Announcement> incomingAnnouncements = new LinkedList<Announcement>();
         final InstanceDescription localInstance = getLocalInstanceDescription(localClusterView);
-        try {
-            resourceResolver = resourceResolverFactory
-                    .getAdministrativeResourceResolver(null);
-
-            Resource clusterInstancesResource = ResourceHelper
-                    .getOrCreateResource(
-                            resourceResolver,
-                            config.getClusterInstancesPath());
-
-            Iterator<Resource> it0 = clusterInstancesResource.getChildren()
-                    .iterator();
-            while (it0.hasNext()) {
-                Resource aClusterInstanceResource = it0.next();
-                final String instanceId = aClusterInstanceResource.getName();
-                logger.debug("listAnnouncementsInSameCluster: handling clusterInstance: {}", instanceId);
-                if (localInstance!=null && localInstance.getSlingId().equals(instanceId)) {
-                    // this is the local instance then - which we serve from the cache only
-                    logger.debug("listAnnouncementsInSameCluster: matched localInstance, filling with cache: {}", instanceId);
-                    fillWithCachedAnnouncements(incomingAnnouncements);
-                    continue;
-                }
-                
-                //TODO: add ClusterView.contains(instanceSlingId) for convenience to next api change
-                if (!contains(localClusterView, instanceId)) {
-                    logger.debug("listAnnouncementsInSameCluster: instance is not in my view, ignoring: {}", instanceId);
-                    // then the instance is not in my view, hence ignore its announcements
-                    // (corresponds to earlier expiry-handling)
-                    continue;
-                }
-                final Resource announcementsResource = aClusterInstanceResource
-                        .getChild("announcements");
-                if (announcementsResource == null) {
-                    logger.debug("listAnnouncementsInSameCluster: instance has no announcements: {}", instanceId);
-                    continue;
-                }
-                logger.debug("listAnnouncementsInSameCluster: instance has announcements: {}", instanceId);
-                Iterator<Resource> it = announcementsResource.getChildren()
-                        .iterator();
-                Announcement topologyAnnouncement;
-                while (it.hasNext()) {
-                    Resource anAnnouncement = it.next();
-                    topologyAnnouncement = Announcement
-                            .fromJSON(anAnnouncement
-                                    .adaptTo(ValueMap.class).get(
-                                            "topologyAnnouncement",
-                                            String.class));
-                    logger.debug("listAnnouncementsInSameCluster: found announcement: {}", topologyAnnouncement);
-                    incomingAnnouncements.add(topologyAnnouncement);
-                    // SLING-3389: no longer check for expired announcements - 
-                    // instead make use of the fact that this instance
-                    // has a clusterView and that every live instance
-                    // is responsible of cleaning up expired announcements
-                    // with the repository
-                }
-            }
-            // since SLING-3389 this method does only read operations, hence
-            // no commit necessary anymore - close happens in below finally block
-        } catch (LoginException e) {
-            logger.error(
-                    "listAnnouncementsInSameCluster: could not log in administratively: " + e, e);
-            throw new RuntimeException("Could not log in to repository (" + e
-                    + ")", e);
-        } catch (PersistenceException e) {
-            logger.error("listAnnouncementsInSameCluster: got a PersistenceException: " + e, e);
-            throw new RuntimeException(
-                    "Exception while talking to repository (" + e + ")", e);
-        } catch (JSONException e) {
-            logger.error("listAnnouncementsInSameCluster: got a JSONException: " + e, e);
-            throw new RuntimeException("Exception while converting json (" + e
-                    + ")", e);
-        } finally {
-            if (resourceResolver != null) {
-                resourceResolver.close();
+        if (localInstance!=null) {
+            // the local instance is served from the cache only
+            fillWithCachedAnnouncements(incomingAnnouncements);
+        }
+        for (Entry<String, Collection<Announcement>> entry : clusterAnnouncements.entrySet()) {
+            final String instanceId = entry.getKey();
+            //TODO: add ClusterView.contains(instanceSlingId) for convenience to next api change
+            if (!contains(localClusterView, instanceId)) {
+                logger.debug("listAnnouncementsInSameCluster: instance is not in my view, ignoring: {}", instanceId);
+                // then the instance is not in my view, hence ignore its announcements
+                // (corresponds to earlier expiry-handling)
+                continue;
             }
+            // SLING-3389: no longer check for expired announcements - 
+            // instead make use of the fact that this instance
+            // has a clusterView and that every live instance
+            // is responsible of cleaning up expired announcements
+            // with the repository
+            incomingAnnouncements.addAll(entry.getValue());
         }
     	if (logger.isDebugEnabled()) {
     		logger.debug("listAnnouncementsInSameCluster: result: "+incomingAnnouncements.size());
@@ -280,7 +267,7 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         return false;
     }
 
-    public synchronized boolean hasActiveAnnouncement(final String ownerId) {
+    public boolean hasActiveAnnouncement(final String ownerId) {
         if (ownerId==null || ownerId.length()==0) {
             throw new IllegalArgumentException("ownerId must not be null or empty: "+ownerId);
         }
@@ -326,7 +313,7 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
             }
             // otherwise the repository and the cache require to be updated
             // resetting the cache therefore at this point already
-            ownAnnouncementsCache.remove(topologyAnnouncement.getOwnerId());
+            removeOwnAnnouncement(topologyAnnouncement.getOwnerId());
         } else {
             logger.debug("registerAnnouncement: no cached announcement yet for ownerId="+topologyAnnouncement.getOwnerId());
         }
@@ -375,8 +362,15 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
                                     + "/announcements");
 
             topologyAnnouncement.persistTo(announcementsResource);
-            resourceResolver.commit();
-            ownAnnouncementsCache.put(topologyAnnouncement.getOwnerId(), 
+            if (resourceResolver.hasChanges()) {
+                resourceResolver.commit();
+                commitStatistics.commitDone();
+            } else {
+                // the persisted announcement is up-to-date already (eg after an expiry)
+                logger.debug("registerAnnouncement: persisted announcement unchanged, no commit necessary.");
+                commitStatistics.writeSkipped();
+            }
+            putOwnAnnouncement(topologyAnnouncement.getOwnerId(), 
                     new CachedAnnouncement(topologyAnnouncement, config));
         } catch (LoginException e) {
             logger.error(
@@ -401,83 +395,49 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         return 0;
     }
 
-    public synchronized void addAllExcept(final Announcement target, final ClusterView clusterView, 
+    public void addAllExcept(final Announcement target, final ClusterView clusterView, 
             final AnnouncementFilter filter) {
-        ResourceResolver resourceResolver = null;
-        try {
-            resourceResolver = resourceResolverFactory
-                    .getAdministrativeResourceResolver(null);
-
-            final Resource clusterInstancesResource = ResourceHelper
-                    .getOrCreateResource(
-                            resourceResolver,
-                            config.getClusterInstancesPath());
-
-            final Iterator<Resource> it0 = clusterInstancesResource.getChildren()
-                    .iterator();
-            Resource announcementsResource;
-            while (it0.hasNext()) {
-                final Resource aClusterInstanceResource = it0.next();
-                final String instanceId = aClusterInstanceResource.getName();
-                //TODO: add ClusterView.contains(instanceSlingId) for convenience to next api change
-                if (!contains(clusterView, instanceId)) {
-                    // then the instance is not in my view, hence dont propagate
-                    // its announcements
-                    // (corresponds to earlier expiry-handling)
-                    continue;
-                }
-                announcementsResource = aClusterInstanceResource
-                        .getChild("announcements");
-                if (announcementsResource == null) {
-                    continue;
-                }
-                Iterator<Resource> it = announcementsResource.getChildren()
-                        .iterator();
-                while (it.hasNext()) {
-                    Resource anAnnouncement = it.next();
-                	if (logger.isDebugEnabled()) {
-	                    logger.debug("addAllExcept: anAnnouncement="
-	                            + anAnnouncement);
-                	}
-                    Announcement topologyAnnouncement;
-                    topologyAnnouncement = Announcement.fromJSON(anAnnouncement
-                            .adaptTo(ValueMap.class).get(
-                                    "topologyAnnouncement", String.class));
-                    if (filter != null && !filter.accept(aClusterInstanceResource.getName(), topologyAnnouncement)) {
-                        continue;
-                    }
-                    target.addIncomingTopologyAnnouncement(topologyAnnouncement);
-                }
+        if (contains(clusterView, slingId)) {
+            // the local instance is served from the cache - which, same as the
+            // repository, still contains expired announcements until they
+            // are removed by checkExpiredAnnouncements
+            for (CachedAnnouncement cachedAnnouncement : ownAnnouncementsCache.values()) {
+                addIfAccepted(target, slingId, cachedAnnouncement.getAnnouncement(), filter);
             }
-            // even before SLING-3389 this method only did read operations,
-            // hence no commit was ever necessary. The close happens in the finally block
-        } catch (LoginException e) {
-            logger.error(
-                    "handleEvent: could not log in administratively: " + e, e);
-            throw new RuntimeException("Could not log in to repository (" + e
-                    + ")", e);
-        } catch (PersistenceException e) {
-            logger.error("handleEvent: got a PersistenceException: " + e, e);
-            throw new RuntimeException(
-                    "Exception while talking to repository (" + e + ")", e);
-        } catch (JSONException e) {
-            logger.error("handleEvent: got a JSONException: " + e, e);
-            throw new RuntimeException("Exception while converting json (" + e
-                    + ")", e);
-        } finally {
-            if (resourceResolver != null) {
-                resourceResolver.close();
+        }
+        for (Entry<String, Collection<Announcement>> entry : clusterAnnouncements.entrySet()) {
+            final String instanceId = entry.getKey();
+            //TODO: add ClusterView.contains(instanceSlingId) for convenience to next api change
+            if (!contains(clusterView, instanceId)) {
+                // then the instance is not in my view, hence dont propagate
+                // its announcements
+                // (corresponds to earlier expiry-handling)
+                continue;
+            }
+            for (Announcement announcement : entry.getValue()) {
+                addIfAccepted(target, instanceId, announcement, filter);
             }
         }
     }
 
+    private void addIfAccepted(final Announcement target, final String instanceId,
+            final Announcement announcement, final AnnouncementFilter filter) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("addAllExcept: announcement of " + instanceId + ": " + announcement);
+        }
+        if (filter != null && !filter.accept(instanceId, announcement)) {
+            return;
+        }
+        target.addIncomingTopologyAnnouncement(announcement);
+    }
+
     public synchronized void checkExpiredAnnouncements() {
         for (Iterator<Entry<String, CachedAnnouncement>> it = 
                 ownAnnouncementsCache.entrySet().iterator(); it.hasNext();) {
             final Entry<String, CachedAnnouncement> entry = it.next();
             if (entry.getValue().hasExpired()) {
                 // then we have an expiry
-                it.remove();
+                removeOwnAnnouncement(entry.getKey());
                 
                 final String instanceId = entry.getKey();
                 logger.info("checkExpiredAnnouncements: topology connector of "+instanceId+
@@ -524,7 +484,10 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
             }
             if (requiresCommit) {
                 resourceResolver.commit();
+                commitStatistics.commitDone();
             }
+            // while at it, refresh the snapshot of the announcements of the other cluster instances
+            refreshClusterAnnouncements(resourceResolver);
             resourceResolver.close();
             resourceResolver = null;
         } catch (LoginException e) {
@@ -544,6 +507,58 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         }
     }
 
+    /**
+     * Reads the announcements of all other cluster instances from the repository
+     * and replaces the snapshot served to the readers with the result
+     */
+    private void refreshClusterAnnouncements(final ResourceResolver resourceResolver)
+            throws PersistenceException {
+        final Map<String,Collection<Announcement>> newClusterAnnouncements =
+                new HashMap<String,Collection<Announcement>>();
+        final Resource clusterInstancesResource = ResourceHelper
+                .getOrCreateResource(
+                        resourceResolver,
+                        config.getClusterInstancesPath());
+        final Iterator<Resource> it0 = clusterInstancesResource.getChildren()
+                .iterator();
+        while (it0.hasNext()) {
+            final Resource aClusterInstanceResource = it0.next();
+            final String instanceId = aClusterInstanceResource.getName();
+            if (slingId.equals(instanceId)) {
+                // the local instance is served from the cache only
+                continue;
+            }
+            final Resource announcementsResource = aClusterInstanceResource
+                    .getChild("announcements");
+            if (announcementsResource == null) {
+                continue;
+            }
+            final Collection<Announcement> announcements = new LinkedList<Announcement>();
+            final Iterator<Resource> it = announcementsResource.getChildren()
+                    .iterator();
+            while (it.hasNext()) {
+                final Resource anAnnouncement = it.next();
+                try {
+                    announcements.add(Announcement.fromJSON(anAnnouncement
+                            .adaptTo(ValueMap.class).get(
+                                    Announcement.PROPERTY_TOPOLOGY_ANNOUNCEMENT, String.class)));
+                } catch (JSONException e) {
+                    logger.error("refreshClusterAnnouncements: got a JSONException for "
+                            + anAnnouncement.getPath() + ": " + e, e);
+                }
+            }
+            if (!announcements.isEmpty()) {
+                newClusterAnnouncements.put(instanceId,
+                        Collections.unmodifiableCollection(announcements));
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("refreshClusterAnnouncements: announcements of " + newClusterAnnouncements.size()
+                    + " other cluster instance(s) read");
+        }
+        clusterAnnouncements = Collections.unmodifiableMap(newClusterAnnouncements);
+    }
+
     private final void deleteAnnouncementsOf(final String instanceId) {
         ResourceResolver resourceResolver = null;
         try {
@@ -555,7 +570,10 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
                                 + slingId
                                 + "/announcements/"
                                 + instanceId);
-            resourceResolver.commit();
+            if (resourceResolver.hasChanges()) {
+                resourceResolver.commit();
+                commitStatistics.commitDone();
+            }
             resourceResolver.close();
             resourceResolver = null;
         } catch (LoginException e) {
@@ -575,7 +593,7 @@ public class AnnouncementRegistryImpl implements AnnouncementRegistry {
         }
     }
 
-    public synchronized Collection<InstanceDescription> listInstances(final ClusterView localClusterView) {
+    public Collection<InstanceDescription> listInstances(final ClusterView localClusterView) {
         logger.debug("listInstances: start. localClusterView: {}", localClusterView);
         final Collection<InstanceDescription> instances = new LinkedList<InstanceDescription>();
 
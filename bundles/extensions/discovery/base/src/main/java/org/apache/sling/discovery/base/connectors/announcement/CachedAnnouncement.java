@@ -33,13 +33,13 @@ public class CachedAnnouncement {
     
     private final static Logger logger = LoggerFactory.getLogger(CachedAnnouncement.class);
 
-    private long lastPing = System.currentTimeMillis();
+    private volatile long lastPing = System.currentTimeMillis();
 
     private final Announcement announcement;
     
-    private long firstPing = System.currentTimeMillis();
+    private volatile long firstPing = System.currentTimeMillis();
 
-    private long backoffIntervalSeconds = -1;
+    private volatile long backoffIntervalSeconds = -1;
 
     private final BaseConfig config;
     
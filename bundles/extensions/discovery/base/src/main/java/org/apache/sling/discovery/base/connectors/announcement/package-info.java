@@ -23,7 +23,7 @@
  *
  * @version 1.1.2
  */
-@Version("1.1.2")
+@Version("1.3.0")
 package org.apache.sling.discovery.base.connectors.announcement;
 
 import aQute.bnd.annotation.Version;
@@ -44,6 +44,8 @@ import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.discovery.ClusterView;
 import org.apache.sling.discovery.InstanceDescription;
@@ -111,6 +113,18 @@ public class TopologyConnectorClient implements
 
     /** SLING-3382: unix-time at which point the backoff-period ends and pings can be sent again **/
     private long backoffPeriodEnd = -1;
+
+    /** the http client - kept across pings to reuse persistent connections **/
+    private CloseableHttpClient httpClient;
+
+    /** the viewHash of the last announcement the servlet accepted - allows sending hash-only pings **/
+    private String lastAcceptedViewHash;
+
+    /** the last full announcement inherited from a servlet which supports hash-only announcements **/
+    private Announcement lastFullInheritedAnnouncement;
+
+    /** whether the last ping only sent the viewHash instead of the full announcement **/
+    private boolean lastPingHashOnly = false;
     
     TopologyConnectorClient(final ClusterViewService clusterViewService,
             final AnnouncementRegistry announcementRegistry, final BaseConfig config,
@@ -140,17 +154,30 @@ public class TopologyConnectorClient implements
 
     /** ping the server and pass the announcements between the two **/
     void ping(final boolean force) {
+        if (!ping(force, true)) {
+            // the servlet could not resolve the hash-only announcement, resend the full one
+            logger.debug("ping: servlet requested a full resend, pinging again.");
+            ping(force, false);
+        }
+    }
+
+    /**
+     * ping the server and pass the announcements between the two - sending only the
+     * viewHash if allowed and the announcement did not change since the last accepted ping.
+     * @return false if the servlet requested a resend of the full announcement, true otherwise
+     */
+    private boolean ping(final boolean force, final boolean allowHashOnly) {
     	if (autoStopped) {
     		// then we suppress any further pings!
     		logger.debug("ping: autoStopped=true, hence suppressing any further pings.");
-    		return;
+    		return true;
     	}
     	if (force) {
     	    backoffPeriodEnd = -1;
     	} else if (backoffPeriodEnd>0) {
     	    if (System.currentTimeMillis()<backoffPeriodEnd) {
     	        logger.debug("ping: not issueing a heartbeat due to backoff instruction from peer.");
-    	        return;
+    	        return true;
     	    } else {
                 logger.debug("ping: backoff period ended, issuing another ping now.");
     	    }
@@ -160,7 +187,7 @@ public class TopologyConnectorClient implements
     		logger.debug("ping: connectorUrl=" + connectorUrl + ", complete uri=" + uri);
     	}
     	final HttpClientContext clientContext = HttpClientContext.create();
-    	final CloseableHttpClient httpClient = createHttpClient();
+    	final CloseableHttpClient httpClient = getHttpClient();
     	final HttpPut putRequest = new HttpPut(uri);
 
     	// setting the connection timeout (idle connection, configured in seconds)
@@ -170,6 +197,8 @@ public class TopologyConnectorClient implements
     			build());
 
         Announcement resultingAnnouncement = null;
+        boolean resendRequired = false;
+        CloseableHttpResponse response = null;
         try {
             String userInfo = connectorUrl.getUserInfo();
             if (userInfo != null) {
@@ -189,7 +218,7 @@ public class TopologyConnectorClient implements
             } catch (UndefinedClusterViewException e) {
                 // SLING-5030 : then we cannot ping
                 logger.warn("ping: no clusterView available at the moment, cannot ping others now: "+e);
-                return;
+                return true;
             }
             topologyAnnouncement.setLocalCluster(clusterView);
             if (force) {
@@ -216,7 +245,21 @@ public class TopologyConnectorClient implements
                     return false;
                 }
             });
-            final String p = requestValidator.encodeMessage(topologyAnnouncement.asJSON());
+            if (lastFullInheritedAnnouncement != null) {
+                topologyAnnouncement.setKnownViewHash(lastFullInheritedAnnouncement.getViewHash());
+            }
+            final String viewHash = topologyAnnouncement.getViewHash();
+            final Announcement announcementToSend;
+            if (allowHashOnly && !force && viewHash.equals(lastAcceptedViewHash)) {
+                // unchanged since the last accepted ping - only send the hash
+                announcementToSend = topologyAnnouncement.asHashOnly();
+            } else {
+                announcementToSend = topologyAnnouncement;
+            }
+            lastPingHashOnly = announcementToSend.isHashOnly();
+            // only set again once the servlet accepted this ping
+            lastAcceptedViewHash = null;
+            final String p = requestValidator.encodeMessage(announcementToSend.asJSON());
             
             if (logger.isDebugEnabled()) {
                 logger.debug("ping: topologyAnnouncement json is: " + p);
@@ -243,7 +286,7 @@ public class TopologyConnectorClient implements
             // independent of request-gzipping, we do accept the response to be gzipped,
             // so indicate this to the server:
             putRequest.addHeader("Accept-Encoding", "gzip");
-            final CloseableHttpResponse response = httpClient.execute(putRequest, clientContext);
+            response = httpClient.execute(putRequest, clientContext);
         	if (logger.isDebugEnabled()) {
 	            logger.debug("ping: done. code=" + response.getStatusLine().getStatusCode() + " - "
 	                    + response.getStatusLine().getReasonPhrase());
@@ -265,6 +308,23 @@ public class TopologyConnectorClient implements
                 if (responseBody!=null && responseBody.length()>0) {
                     Announcement inheritedAnnouncement = Announcement
                             .fromJSON(responseBody);
+                    if (inheritedAnnouncement.isResendRequired()) {
+                        resendRequired = true;
+                        resultingAnnouncement = lastInheritedAnnouncement;
+                        statusDetails = "servlet requested a resend of the full announcement";
+                        return !allowHashOnly;
+                    }
+                    if (inheritedAnnouncement.isHashOnly()) {
+                        if (lastFullInheritedAnnouncement == null
+                                || !lastFullInheritedAnnouncement.getViewHash().equals(inheritedAnnouncement.getViewHash())) {
+                            // cannot resolve it - next ping will request the full announcement again
+                            logger.debug("ping: received an unknown hash-only announcement: {}", inheritedAnnouncement);
+                            lastFullInheritedAnnouncement = null;
+                            statusDetails = "received an unknown hash-only announcement";
+                            return true;
+                        }
+                        inheritedAnnouncement = lastFullInheritedAnnouncement.restoreFrom(inheritedAnnouncement);
+                    }
                     final long backoffInterval = inheritedAnnouncement.getBackoffInterval();
                     if (backoffInterval>0) {
                         // then reset the backoffPeriodEnd:
@@ -289,6 +349,7 @@ public class TopologyConnectorClient implements
                     			autoStopped = true; // results in isAutoStopped -> true
                     		}
                     	}
+                        lastFullInheritedAnnouncement = null;
                     } else {
                         inheritedAnnouncement.setInherited(true);
                         if (announcementRegistry
@@ -298,7 +359,15 @@ public class TopologyConnectorClient implements
 	                                    + inheritedAnnouncement);
                         	}
                             statusDetails = "receiving side is seeing me via another path (connector or cluster) already (loop)";
-                            return;
+                            lastFullInheritedAnnouncement = null;
+                            return true;
+                        }
+                        if (inheritedAnnouncement.isViewHashReceived()) {
+                            // the servlet supports hash-only announcements
+                            lastFullInheritedAnnouncement = inheritedAnnouncement;
+                            lastAcceptedViewHash = viewHash;
+                        } else {
+                            lastFullInheritedAnnouncement = null;
                         }
                     }
                     resultingAnnouncement = inheritedAnnouncement;
@@ -329,19 +398,61 @@ public class TopologyConnectorClient implements
             logger.warn("ping: got RuntimeException: " + re, re);
             statusDetails = re.toString();
         } finally {
+            closeResponse(response);
             putRequest.releaseConnection();
             lastInheritedAnnouncement = resultingAnnouncement;
-            lastPingedAt = System.currentTimeMillis();
-            try {
-				httpClient.close();
-			} catch (IOException e) {
-				logger.error("disconnect: could not close httpClient: "+e, e);
-			}
+            if (!resendRequired) {
+                lastPingedAt = System.currentTimeMillis();
+            }
+        }
+        return true;
+    }
+
+    /** Returns the http client of this connector - creating it if necessary **/
+    private synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = createHttpClient();
+        }
+        return httpClient;
+    }
+
+    /** Closes the http client of this connector including all its persistent connections **/
+    private synchronized void closeHttpClient() {
+        if (httpClient == null) {
+            return;
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.error("closeHttpClient: could not close httpClient: "+e, e);
+        }
+        httpClient = null;
+    }
+
+    /** Consumes and closes the given response - which returns the connection to the pool **/
+    private void closeResponse(final CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            EntityUtils.consume(response.getEntity());
+        } catch (IOException e) {
+            logger.debug("closeResponse: could not consume response: "+e);
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            logger.debug("closeResponse: could not close response: "+e);
         }
     }
 
 	private CloseableHttpClient createHttpClient() {
 		final HttpClientBuilder builder = HttpClientBuilder.create();
+		// one persistent connection to the connector servlet, reused across pings
+		final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setDefaultMaxPerRoute(1);
+		connectionManager.setMaxTotal(1);
+		builder.setConnectionManager(connectionManager);
     	// setting the SoTimeout (which is configured in seconds)
     	builder.setDefaultSocketConfig(SocketConfig.
     			custom().
@@ -428,6 +539,11 @@ public class TopologyConnectorClient implements
     public String getLastResponseEncoding() {
         return lastResponseEncoding==null ? "" : lastResponseEncoding;
     }
+
+    /** Returns whether the last ping only sent the viewHash instead of the full announcement **/
+    public boolean isLastPingHashOnly() {
+        return lastPingHashOnly;
+    }
     
     public String getRemoteSlingId() {
         if (lastInheritedAnnouncement == null) {
@@ -453,9 +569,11 @@ public class TopologyConnectorClient implements
                     .unregisterAnnouncement(lastInheritedAnnouncement
                             .getOwnerId());
         }
+        lastAcceptedViewHash = null;
+        lastFullInheritedAnnouncement = null;
 
         final HttpClientContext clientContext = HttpClientContext.create();
-        final CloseableHttpClient httpClient = createHttpClient();
+        final CloseableHttpClient httpClient = getHttpClient();
         final HttpDelete deleteRequest = new HttpDelete(uri);
         // setting the connection timeout (idle connection, configured in seconds)
         deleteRequest.setConfig(RequestConfig.
@@ -463,6 +581,7 @@ public class TopologyConnectorClient implements
         		setConnectTimeout(1000*config.getSocketConnectTimeout()).
         		build());
 
+        CloseableHttpResponse response = null;
         try {
             String userInfo = connectorUrl.getUserInfo();
             if (userInfo != null) {
@@ -473,7 +592,7 @@ public class TopologyConnectorClient implements
             }
 
             requestValidator.trustMessage(deleteRequest, null);
-            final CloseableHttpResponse response = httpClient.execute(deleteRequest, clientContext);
+            response = httpClient.execute(deleteRequest, clientContext);
         	if (logger.isDebugEnabled()) {
 	            logger.debug("disconnect: done. code=" + response.getStatusLine().getStatusCode()
 	                    + " - " + response.getStatusLine().getReasonPhrase());
@@ -485,12 +604,9 @@ public class TopologyConnectorClient implements
         } catch (RuntimeException re) {
             logger.error("disconnect: got RuntimeException: " + re, re);
         } finally {
+            closeResponse(response);
             deleteRequest.releaseConnection();
-            try {
-				httpClient.close();
-			} catch (IOException e) {
-				logger.error("disconnect: could not close httpClient: "+e, e);
-			}
+            closeHttpClient();
         }
     }
 }
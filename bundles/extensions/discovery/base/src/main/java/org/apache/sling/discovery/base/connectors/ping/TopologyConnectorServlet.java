@@ -24,8 +24,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
@@ -98,6 +100,12 @@ public class TopologyConnectorServlet extends HttpServlet {
 
     private TopologyRequestValidator requestValidator;
 
+    /**
+     * The last full announcement received per owner - used to resolve
+     * hash-only announcements of connectors whose view did not change
+     **/
+    private final Map<String, Announcement> fullAnnouncements = new ConcurrentHashMap<String, Announcement>();
+
     @Activate
     protected void activate(final ComponentContext context) {
         whitelist.clear();
@@ -122,6 +130,7 @@ public class TopologyConnectorServlet extends HttpServlet {
     @Deactivate
     protected void deactivate() {
         httpService.unregister(TOPOLOGY_CONNECTOR_PREFIX);
+        fullAnnouncements.clear();
     }
 
     void initWhitelist(String[] whitelistConfig) {
@@ -191,6 +200,7 @@ public class TopologyConnectorServlet extends HttpServlet {
         }
         final String selector = pathInfo.length==3 ? pathInfo[1] : "";
 
+        fullAnnouncements.remove(selector);
         announcementRegistry.unregisterAnnouncement(selector);
     }
     
@@ -221,10 +231,10 @@ public class TopologyConnectorServlet extends HttpServlet {
     	}
         final Announcement incomingTopologyAnnouncement;
         try {
-            incomingTopologyAnnouncement = Announcement
+            final Announcement receivedAnnouncement = Announcement
                     .fromJSON(topologyAnnouncementJSON);
 
-            if (!incomingTopologyAnnouncement.getOwnerId().equals(selector)) {
+            if (!receivedAnnouncement.getOwnerId().equals(selector)) {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST);
                 return;
             }
@@ -235,7 +245,25 @@ public class TopologyConnectorServlet extends HttpServlet {
             	logger.info("doPut: no slingId available. Service not ready as expected at the moment.");
             	return;
             }
-			incomingTopologyAnnouncement.removeInherited(slingId);
+            if (receivedAnnouncement.isHashOnly()) {
+                // the client claims its view is unchanged - resolve it from the last full announcement
+                final Announcement fullAnnouncement = fullAnnouncements.get(selector);
+                if (fullAnnouncement == null
+                        || !fullAnnouncement.getViewHash().equals(receivedAnnouncement.getViewHash())) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("doPut: cannot resolve hash-only announcement, requesting full resend: "
+                                + receivedAnnouncement);
+                    }
+                    final Announcement resendAnnouncement = new Announcement(slingId);
+                    resendAnnouncement.setResendRequired(true);
+                    writeReply(request, response, resendAnnouncement);
+                    return;
+                }
+                incomingTopologyAnnouncement = fullAnnouncement.restoreFrom(receivedAnnouncement);
+            } else {
+                incomingTopologyAnnouncement = receivedAnnouncement;
+                incomingTopologyAnnouncement.removeInherited(slingId);
+            }
 
             final Announcement replyAnnouncement = new Announcement(
                     slingId);
@@ -247,6 +275,11 @@ public class TopologyConnectorServlet extends HttpServlet {
                         + incomingTopologyAnnouncement);
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST);
                 return;
+            } else if (incomingTopologyAnnouncement.isHashOnly()) {
+                logger.warn("doPost: rejecting an unresolvable hash-only announcement: "
+                        + incomingTopologyAnnouncement);
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
             } else if (ClusterViewHelper.contains(clusterView, incomingTopologyAnnouncement
                     .getOwnerId())) {
             	if (logger.isDebugEnabled()) {
@@ -280,6 +313,8 @@ public class TopologyConnectorServlet extends HttpServlet {
                     replyAnnouncement.setLoop(true);
                     backoffInterval = config.getBackoffStandbyInterval();
                 } else {
+                    // remember the full announcement to resolve subsequent hash-only pings
+                    fullAnnouncements.put(selector, incomingTopologyAnnouncement);
                     // normal, successful case: replying with the part of the topology which this instance sees
                     replyAnnouncement.setLocalCluster(clusterView);
                     announcementRegistry.addAllExcept(replyAnnouncement, clusterView,
@@ -296,29 +331,22 @@ public class TopologyConnectorServlet extends HttpServlet {
                             });
                 }
             }
+            if (replyAnnouncement.isLoop()) {
+                fullAnnouncements.remove(selector);
+            }
             if (backoffInterval>0) {
                 replyAnnouncement.setBackoffInterval(backoffInterval);
                 if (logger.isDebugEnabled()) {
                     logger.debug("doPost: backoffInterval for client set to "+replyAnnouncement.getBackoffInterval());
                 }
             }
-            final String p = requestValidator.encodeMessage(replyAnnouncement.asJSON());
-            requestValidator.trustMessage(response, request, p);
-            // gzip the response if the client accepts this
-            final String acceptEncodingHeader = request.getHeader("Accept-Encoding");
-            if (acceptEncodingHeader!=null && acceptEncodingHeader.contains("gzip")) {
-                // tell the client that the content is gzipped:
-                response.setHeader("Content-Encoding", "gzip");
-                
-                // then gzip the body
-                final GZIPOutputStream gzipOut = new GZIPOutputStream(response.getOutputStream());
-                gzipOut.write(p.getBytes("UTF-8"));
-                gzipOut.close();
+            final String knownViewHash = incomingTopologyAnnouncement.getKnownViewHash();
+            if (!replyAnnouncement.isLoop() && knownViewHash != null
+                    && knownViewHash.equals(replyAnnouncement.getViewHash())) {
+                // the client already has this exact reply - only confirm the hash
+                writeReply(request, response, replyAnnouncement.asHashOnly());
             } else {
-                // otherwise plaintext
-                final PrintWriter pw = response.getWriter();
-                pw.print(p);
-                pw.flush();
+                writeReply(request, response, replyAnnouncement);
             }
         } catch (JSONException e) {
             logger.error("doPost: Got a JSONException: " + e, e);
@@ -330,6 +358,29 @@ public class TopologyConnectorServlet extends HttpServlet {
 
     }
     
+    /** Writes the given reply announcement - gzipped if the client accepts this **/
+    private void writeReply(final HttpServletRequest request, final HttpServletResponse response,
+            final Announcement replyAnnouncement) throws JSONException, IOException {
+        final String p = requestValidator.encodeMessage(replyAnnouncement.asJSON());
+        requestValidator.trustMessage(response, request, p);
+        // gzip the response if the client accepts this
+        final String acceptEncodingHeader = request.getHeader("Accept-Encoding");
+        if (acceptEncodingHeader!=null && acceptEncodingHeader.contains("gzip")) {
+            // tell the client that the content is gzipped:
+            response.setHeader("Content-Encoding", "gzip");
+            
+            // then gzip the body
+            final GZIPOutputStream gzipOut = new GZIPOutputStream(response.getOutputStream());
+            gzipOut.write(p.getBytes("UTF-8"));
+            gzipOut.close();
+        } else {
+            // otherwise plaintext
+            final PrintWriter pw = response.getWriter();
+            pw.print(p);
+            pw.flush();
+        }
+    }
+
     /** Checks if the provided request's remote server is whitelisted **/
     boolean isWhitelisted(final HttpServletRequest request) {
         if (config.isHmacEnabled()) {
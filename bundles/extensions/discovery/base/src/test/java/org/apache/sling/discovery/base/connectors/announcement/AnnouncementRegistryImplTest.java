@@ -366,6 +366,14 @@ public class AnnouncementRegistryImplTest {
         assertTrue(registry2.hasActiveAnnouncement(cluster2.getInstances().get(2).getSlingId()));
         assertTrue(registry3.hasActiveAnnouncement(cluster3.getInstances().get(3).getSlingId()));
 
+        // the announcements of the other cluster instances are only read
+        // from the repository upon the next (heartbeat's) expiry check
+        assertEquals(1, registry1.listAnnouncementsInSameCluster(myCluster).size());
+        assertAnnouncements(registry1, myCluster, 2, 5);
+        registry1.checkExpiredAnnouncements();
+        registry2.checkExpiredAnnouncements();
+        registry3.checkExpiredAnnouncements();
+
         assertEquals(3, registry1.listAnnouncementsInSameCluster(myCluster).size());
         assertEquals(1, registry1.listLocalAnnouncements().size());
         assertEquals(0, registry1.listLocalIncomingAnnouncements().size());
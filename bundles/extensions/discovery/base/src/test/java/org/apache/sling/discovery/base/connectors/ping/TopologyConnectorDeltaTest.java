@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.discovery.base.connectors.ping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.sling.discovery.base.connectors.DummyVirtualInstanceBuilder;
+import org.apache.sling.discovery.base.connectors.announcement.Announcement;
+import org.apache.sling.discovery.base.its.setup.VirtualInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junitx.util.PrivateAccessor;
+
+/**
+ * Tests the hash-only (delta) ping protocol of the topology connector
+ * between two instances on loopback
+ */
+public class TopologyConnectorDeltaTest {
+
+    private VirtualInstance instance1;
+
+    private VirtualInstance instance2;
+
+    @Before
+    public void setup() throws Throwable {
+        instance1 = new DummyVirtualInstanceBuilder()
+                .newRepository("/var/discovery/impl/", true)
+                .setDebugName("instance1")
+                .setConnectorPingInterval(3600)
+                .setConnectorPingTimeout(3600)
+                .build();
+        instance2 = new DummyVirtualInstanceBuilder()
+                .newRepository("/var/discovery/impl/", true)
+                .setDebugName("instance2")
+                .setConnectorPingInterval(3600)
+                .setConnectorPingTimeout(3600)
+                .build();
+        instance1.heartbeatsAndCheckView();
+        instance2.heartbeatsAndCheckView();
+        instance2.startJetty();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (instance1 != null) {
+            instance1.stop();
+        }
+        if (instance2 != null) {
+            instance2.stop();
+        }
+    }
+
+    private TopologyConnectorClient connect() throws Exception {
+        final TopologyConnectorClient client = (TopologyConnectorClient) instance1.connectTo(
+                "http://localhost:" + instance2.getJettyPort() + "/system/console/topology/connector");
+        assertNotNull(client);
+        assertTrue(client.isConnected());
+        assertEquals(instance2.getSlingId(), client.getRemoteSlingId());
+        // the second ping includes the announcement inherited by the first one
+        client.ping(false);
+        assertFalse(client.isLastPingHashOnly());
+        return client;
+    }
+
+    @Test
+    public void testUnchangedViewSendsHashOnly() throws Exception {
+        final TopologyConnectorClient client = connect();
+
+        client.ping(false);
+        assertTrue(client.isLastPingHashOnly());
+        assertTrue(client.isConnected());
+        assertEquals(instance2.getSlingId(), client.getRemoteSlingId());
+        assertTrue(instance2.getAnnouncementRegistry().hasActiveAnnouncement(instance1.getSlingId()));
+
+        client.ping(false);
+        assertTrue(client.isLastPingHashOnly());
+        assertTrue(client.isConnected());
+    }
+
+    @Test
+    public void testForcedPingSendsFullAnnouncement() throws Exception {
+        final TopologyConnectorClient client = connect();
+        client.ping(false);
+        assertTrue(client.isLastPingHashOnly());
+
+        client.ping(true);
+        assertFalse(client.isLastPingHashOnly());
+        assertTrue(client.isConnected());
+
+        client.ping(false);
+        assertTrue(client.isLastPingHashOnly());
+    }
+
+    @Test
+    public void testResendWhenServletLostState() throws Exception {
+        final TopologyConnectorClient client = connect();
+        final TopologyConnectorServlet servlet = (TopologyConnectorServlet) PrivateAccessor.getField(
+                instance2, "servlet");
+        @SuppressWarnings("unchecked")
+        final Map<String, Announcement> fullAnnouncements = (Map<String, Announcement>) PrivateAccessor
+                .getField(servlet, "fullAnnouncements");
+        fullAnnouncements.clear();
+
+        // the hash-only ping is answered with a resend request, upon which the full announcement is sent
+        client.ping(false);
+        assertFalse(client.isLastPingHashOnly());
+        assertTrue(client.isConnected());
+        assertEquals(1, fullAnnouncements.size());
+
+        client.ping(false);
+        assertTrue(client.isLastPingHashOnly());
+        assertTrue(client.isConnected());
+    }
+}
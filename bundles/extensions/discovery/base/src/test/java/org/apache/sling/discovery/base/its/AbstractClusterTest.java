@@ -814,6 +814,8 @@ public abstract class AbstractClusterTest {
         instance3.heartbeatsAndCheckView();
         Thread.sleep(1000);
         pingConnector(instance3, instance1);
+        // instance2 reads the announcement registered by instance1 with its next view check
+        instance2.getAnnouncementRegistry().checkExpiredAnnouncements();
         // make asserts on the topology
         instance1.dumpRepo();
         assertSameTopology(new SimpleClusterView(instance1, instance2), new SimpleClusterView(instance3));
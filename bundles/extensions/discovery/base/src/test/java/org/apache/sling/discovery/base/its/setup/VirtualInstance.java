@@ -91,6 +91,8 @@ public class VirtualInstance {
 
     private ServletContextHandler servletContext;
 
+    private TopologyConnectorServlet servlet;
+
     private Server jettyServer;
 
     private ModifiableTestBaseConfig config;
@@ -243,7 +245,7 @@ public class VirtualInstance {
         servletContext = new ServletContextHandler(ServletContextHandler.NO_SECURITY);
         servletContext.setContextPath("/");
 
-        TopologyConnectorServlet servlet = new TopologyConnectorServlet();
+        servlet = new TopologyConnectorServlet();
         PrivateAccessor.setField(servlet, "config", config);
         PrivateAccessor.setField(servlet, "clusterViewService", clusterViewService);
         PrivateAccessor.setField(servlet, "announcementRegistry", announcementRegistry);
@@ -325,7 +325,11 @@ public class MockedResourceResolver implements ResourceResolver {
     }
 
     public boolean hasChanges() {
-        throw new UnsupportedOperationException("Not implemented");
+        try {
+            return getSession().hasPendingChanges();
+        } catch (RepositoryException re) {
+            throw new RuntimeException("Unable to check for pending changes.", re);
+        }
     }
 
     public String getParentResourceType(Resource resource) {
@@ -76,6 +76,12 @@ public class Config implements BaseConfig, DiscoveryLiteConfig {
     public static final String HEARTBEAT_INTERVAL_KEY = "heartbeatInterval";
     protected long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
 
+    /** Configure the time (in seconds) within which a heartbeat is not written if nothing but the timestamp would change. */
+    public static final long DEFAULT_HEARTBEAT_WRITE_TOLERANCE = 60;
+    @Property(longValue=DEFAULT_HEARTBEAT_WRITE_TOLERANCE)
+    public static final String HEARTBEAT_WRITE_TOLERANCE_KEY = "heartbeatWriteTolerance";
+    protected long heartbeatWriteTolerance = DEFAULT_HEARTBEAT_WRITE_TOLERANCE;
+
     /** Configure the time (in seconds) which must be passed at minimum between sending TOPOLOGY_CHANGING/_CHANGED (avoid flooding). */
     public static final int DEFAULT_MIN_EVENT_DELAY = 3;
     @Property(intValue=DEFAULT_MIN_EVENT_DELAY)
@@ -244,6 +250,12 @@ public class Config implements BaseConfig, DiscoveryLiteConfig {
         logger.debug("configure: heartbeatInterval='{}'",
                 this.heartbeatInterval);
 
+        this.heartbeatWriteTolerance = PropertiesUtil.toLong(
+                properties.get(HEARTBEAT_WRITE_TOLERANCE_KEY),
+                DEFAULT_HEARTBEAT_WRITE_TOLERANCE);
+        logger.debug("configure: heartbeatWriteTolerance='{}'",
+                this.heartbeatWriteTolerance);
+
         this.minEventDelay = PropertiesUtil.toInteger(
                 properties.get(MIN_EVENT_DELAY_KEY),
                 DEFAULT_MIN_EVENT_DELAY);
@@ -382,6 +394,22 @@ public class Config implements BaseConfig, DiscoveryLiteConfig {
         return heartbeatInterval;
     }
     
+    /**
+     * Returns the time (in milliseconds) within which an unchanged heartbeat is not written
+     * to the repository again. The configured value is capped such that the stored heartbeat
+     * is always renewed at least two heartbeat intervals before the heartbeat timeout.
+     * @return the time (in milliseconds) within which an unchanged heartbeat is not written
+     * again - 0 if every heartbeat is written
+     */
+    public long getHeartbeatWriteToleranceMillis() {
+        final long maxTolerance = getHeartbeatTimeout() - 2 * getHeartbeatInterval();
+        final long tolerance = Math.min(heartbeatWriteTolerance, maxTolerance);
+        if (tolerance <= 0) {
+            return 0;
+        }
+        return tolerance * 1000;
+    }
+
     /**
      * Returns the minimum time (in seconds) between sending TOPOLOGY_CHANGING/_CHANGED events - to avoid flooding
      * @return the minimum time (in seconds) between sending TOPOLOGY_CHANGING/_CHANGED events - to avoid flooding
@@ -219,7 +219,7 @@ public class DiscoveryServiceImpl extends BaseDiscoveryService {
             final Dictionary<String, String> mbeanProps = new Hashtable<String, String>();
             mbeanProps.put("jmx.objectname", "org.apache.sling:type=discovery,name=DiscoveryServiceImpl");
 
-            final DiscoveryServiceMBeanImpl mbean = new DiscoveryServiceMBeanImpl(heartbeatHandler);
+            final DiscoveryServiceMBeanImpl mbean = new DiscoveryServiceMBeanImpl(heartbeatHandler, announcementRegistry);
             this.mbeanRegistration = bundleContext.registerService(DiscoveryServiceMBeanImpl.class.getName(), mbean, mbeanProps);
         } catch (Throwable t) {
             logger.warn("registerMBean: Unable to register DiscoveryServiceImpl MBean", t);
@@ -28,4 +28,25 @@ public interface DiscoveryServiceMBean {
      */
     public void startNewVoting();
 
+    /**
+     * Returns the number of repository commits caused by cluster-local heartbeats within the last minute.
+     */
+    public int getHeartbeatCommitsPerMinute();
+
+    /**
+     * Returns the number of cluster-local heartbeat writes that were skipped
+     * as nothing but the timestamp changed within the write tolerance.
+     */
+    public long getSkippedHeartbeatWrites();
+
+    /**
+     * Returns the number of repository commits caused by topology announcements within the last minute.
+     */
+    public int getAnnouncementCommitsPerMinute();
+
+    /**
+     * Returns the number of announcement writes that were skipped as the announcement was unchanged.
+     */
+    public long getSkippedAnnouncementWrites();
+
 }
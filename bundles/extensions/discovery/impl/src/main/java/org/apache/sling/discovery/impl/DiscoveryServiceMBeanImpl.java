@@ -21,6 +21,7 @@ package org.apache.sling.discovery.impl;
 import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
 
+import org.apache.sling.discovery.base.connectors.announcement.AnnouncementRegistry;
 import org.apache.sling.discovery.impl.common.heartbeat.HeartbeatHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,9 +35,13 @@ public class DiscoveryServiceMBeanImpl extends StandardMBean implements Discover
 
     private final HeartbeatHandler heartbeatHandler;
 
-    DiscoveryServiceMBeanImpl(HeartbeatHandler heartbeatHandler) throws NotCompliantMBeanException {
+    private final AnnouncementRegistry announcementRegistry;
+
+    DiscoveryServiceMBeanImpl(HeartbeatHandler heartbeatHandler, AnnouncementRegistry announcementRegistry)
+            throws NotCompliantMBeanException {
         super(DiscoveryServiceMBean.class);
         this.heartbeatHandler = heartbeatHandler;
+        this.announcementRegistry = announcementRegistry;
     }
 
     public void startNewVoting() {
@@ -45,4 +50,20 @@ public class DiscoveryServiceMBeanImpl extends StandardMBean implements Discover
         logger.info("startNewVoting: new voting was started.");
     }
 
+    public int getHeartbeatCommitsPerMinute() {
+        return heartbeatHandler.getCommitStatistics().getCommitsPerMinute();
+    }
+
+    public long getSkippedHeartbeatWrites() {
+        return heartbeatHandler.getCommitStatistics().getSkippedWrites();
+    }
+
+    public int getAnnouncementCommitsPerMinute() {
+        return announcementRegistry.getCommitStatistics().getCommitsPerMinute();
+    }
+
+    public long getSkippedAnnouncementWrites() {
+        return announcementRegistry.getCommitStatistics().getSkippedWrites();
+    }
+
 }
@@ -40,6 +40,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.commons.scheduler.Scheduler;
 import org.apache.sling.discovery.base.commons.BaseViewChecker;
+import org.apache.sling.discovery.base.commons.CommitStatistics;
 import org.apache.sling.discovery.base.commons.PeriodicBackgroundJob;
 import org.apache.sling.discovery.base.connectors.BaseConfig;
 import org.apache.sling.discovery.base.connectors.announcement.AnnouncementRegistry;
@@ -112,6 +113,12 @@ public class HeartbeatHandler extends BaseViewChecker {
     /** SLING-2892: remember the value of the heartbeat this instance has written the last time **/
     private volatile Calendar lastHeartbeatWritten = null;
 
+    /** the time of the last successful heartbeat round - updated also when the heartbeat
+     * was within the write tolerance and therefore not written again. This is what the
+     * periodic self-check compares against, as the written heartbeat itself is
+     * deliberately up to the write tolerance old **/
+    private volatile Calendar lastHeartbeatIssued = null;
+
     private DiscoveryServiceImpl discoveryServiceImpl;
 
     private String lastEstablishedViewId;
@@ -120,6 +127,9 @@ public class HeartbeatHandler extends BaseViewChecker {
 
     protected PeriodicBackgroundJob periodicCheckJob;
 
+    /** statistics of the commits issued by cluster-local heartbeats **/
+    private final CommitStatistics commitStatistics = new CommitStatistics();
+
     /** for testing only **/
     public static HeartbeatHandler testConstructor(
             SlingSettingsService slingSettingsService,
@@ -183,6 +193,7 @@ public class HeartbeatHandler extends BaseViewChecker {
         // SLING-2895: reset variables to avoid unnecessary log.error
         firstHeartbeatWritten = -1;
         lastHeartbeatWritten = null;
+        lastHeartbeatIssued = null;
 
         logger.info("doActivate: activated with runtimeId: {}, slingId: {}", runtimeId, slingId);
     }
@@ -239,8 +250,7 @@ public class HeartbeatHandler extends BaseViewChecker {
             long interval = config.getHeartbeatInterval();
             final long heartbeatTimeoutMillis = config.getHeartbeatTimeoutMillis();
             final long heartbeatIntervalMillis = config.getHeartbeatInterval() * 1000;
-            final long maxMillisSinceHb = Math.max(Math.min(heartbeatTimeoutMillis, 2 * heartbeatIntervalMillis),
-                    heartbeatTimeoutMillis - 2 * heartbeatIntervalMillis);
+            final long maxMillisSinceHb = getMaxMillisSinceHeartbeat(heartbeatTimeoutMillis, heartbeatIntervalMillis);
             logger.info("initialize: starting periodic checkForLocalClusterViewChange job for "+slingId+" with maxMillisSinceHb=" + maxMillisSinceHb + "ms, interval="+interval+" sec.");
             if (interval==0) {
                 logger.warn("initialize: Repeat interval cannot be zero. Defaulting to 10sec.");
@@ -250,15 +260,15 @@ public class HeartbeatHandler extends BaseViewChecker {
 
                 @Override
                 public void run() {
-                    Calendar lastHb = lastHeartbeatWritten;
+                    Calendar lastHb = lastHeartbeatIssued;
                     if (lastHb!=null) {
-                        // check to see when we last wrote a heartbeat
+                        // check to see when we last issued a heartbeat
                         // if it is older than the configured timeout,
                         // then mark ourselves as in topologyChanging automatically
                         final long timeSinceHb = System.currentTimeMillis() - lastHb.getTimeInMillis();
                         // SLING-5285: add a safety-margin for SLING-5195
                         if (timeSinceHb > maxMillisSinceHb) {
-                            logger.warn("checkForLocalClusterViewChange/.run: time since local instance last wrote a heartbeat is " + timeSinceHb + "ms"
+                            logger.warn("checkForLocalClusterViewChange/.run: time since local instance last issued a heartbeat is " + timeSinceHb + "ms"
                                     + " (heartbeatTimeoutMillis=" + heartbeatTimeoutMillis + ", heartbeatIntervalMillis=" + heartbeatIntervalMillis
                                     + " => maxMillisSinceHb=" + maxMillisSinceHb + "). Flagging us as (still) changing");
                             // mark the current establishedView as faulty
@@ -285,6 +295,20 @@ public class HeartbeatHandler extends BaseViewChecker {
         }
     }
 
+    /**
+     * SLING-5285 : returns the maximum time since the last heartbeat round after which
+     * the local instance flags itself as changing - which adds a safety-margin for SLING-5195
+     */
+    static long getMaxMillisSinceHeartbeat(final long heartbeatTimeoutMillis, final long heartbeatIntervalMillis) {
+        return Math.max(Math.min(heartbeatTimeoutMillis, 2 * heartbeatIntervalMillis),
+                heartbeatTimeoutMillis - 2 * heartbeatIntervalMillis);
+    }
+
+    /** Returns the statistics of the commits issued by cluster-local heartbeats **/
+    public CommitStatistics getCommitStatistics() {
+        return commitStatistics;
+    }
+
     /** Get or create a ResourceResolver **/
     private ResourceResolver getResourceResolver() throws LoginException {
         if (resourceResolverFactory == null) {
@@ -446,7 +470,18 @@ public class HeartbeatHandler extends BaseViewChecker {
             		return;
             	}
             }
-            resourceMap.put(PROPERTY_ID_LAST_HEARTBEAT, currentTime);
+            // only renew the heartbeat timestamp if the last one written is older than the
+            // configured tolerance - which is capped to stay well within the heartbeat timeout.
+            // note that the properties are deliberately not folded into one compact property:
+            // a regular heartbeat already only changes 'lastHeartbeat' of this instance's own node,
+            // the ClusterViewChangeListener relies on exactly that to ignore heartbeat-only events,
+            // and instances of older versions in the same cluster read the individual properties
+            final boolean heartbeatDue = firstHeartbeatWritten==-1 || lastHeartbeatWritten==null
+                    || currentTime.getTimeInMillis() - lastHeartbeatWritten.getTimeInMillis()
+                        >= config.getHeartbeatWriteToleranceMillis();
+            if (heartbeatDue) {
+                resourceMap.put(PROPERTY_ID_LAST_HEARTBEAT, currentTime);
+            }
             if (firstHeartbeatWritten==-1) {
             	resourceMap.put(PROPERTY_ID_RUNTIME, runtimeId);
             	// SLING-4765 : store more infos to be able to be more verbose on duplicate slingId/ghost detection
@@ -470,12 +505,22 @@ public class HeartbeatHandler extends BaseViewChecker {
                 }
                 resetLeaderElectionId = false;
             }
+            if (!resourceResolver.hasChanges()) {
+                logger.debug("issueClusterLocalHeartbeat: heartbeat within write tolerance, no commit necessary for {}", slingId);
+                commitStatistics.writeSkipped();
+                lastHeartbeatIssued = currentTime;
+                return;
+            }
             logger.debug("issueClusterLocalHeartbeat: committing cluster-local heartbeat to repository for {}", slingId);
             resourceResolver.commit();
+            commitStatistics.commitDone();
             logger.debug("issueClusterLocalHeartbeat: committed cluster-local heartbeat to repository for {}", slingId);
 
             // SLING-2892: only in success case: remember the last heartbeat value written
-            lastHeartbeatWritten = currentTime;
+            if (heartbeatDue) {
+                lastHeartbeatWritten = currentTime;
+            }
+            lastHeartbeatIssued = currentTime;
             // and set the first heartbeat written value - if it is not already set
             if (firstHeartbeatWritten==-1) {
             	firstHeartbeatWritten = System.currentTimeMillis();
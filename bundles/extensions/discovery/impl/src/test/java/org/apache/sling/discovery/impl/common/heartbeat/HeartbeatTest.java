@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Calendar;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -40,16 +41,19 @@ import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.commons.testing.junit.categories.Slow;
 import org.apache.sling.discovery.TopologyEvent;
 import org.apache.sling.discovery.TopologyEventListener;
 import org.apache.sling.discovery.TopologyView;
 import org.apache.sling.discovery.base.its.setup.VirtualInstance;
+import org.apache.sling.discovery.impl.Config;
 import org.apache.sling.discovery.impl.DiscoveryServiceImpl;
 import org.apache.sling.discovery.impl.cluster.voting.VotingHelper;
 import org.apache.sling.discovery.impl.cluster.voting.VotingView;
 import org.apache.sling.discovery.impl.setup.FullJR2VirtualInstance;
 import org.apache.sling.discovery.impl.setup.FullJR2VirtualInstanceBuilder;
+import org.apache.sling.discovery.impl.setup.TestConfig;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -700,4 +704,127 @@ public class HeartbeatTest {
         
     }
     
+    /**
+     * Tests that heartbeats which would only renew the timestamp are not
+     * written within the configured write tolerance
+     */
+    @Test
+    public void testHeartbeatWriteTolerance() throws Throwable {
+        FullJR2VirtualInstanceBuilder builder = newBuilder();
+        builder.setDebugName("tolerant")
+            .newRepository("/var/discovery/impl/", true)
+            .setConnectorPingTimeout(600)
+            .setConnectorPingInterval(999)
+            .setMinEventDelay(0);
+        FullJR2VirtualInstance instance = builder.fullBuild();
+        instances.add(instance);
+        final TestConfig config = (TestConfig) instance.getFullConfig();
+        config.setHeartbeatTimeout(600);
+        config.setHeartbeatInterval(1);
+        config.setHeartbeatWriteTolerance(300);
+        final HeartbeatHandler hh = instance.getHeartbeatHandler();
+
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        final Date firstHeartbeat = readLastHeartbeat(instance);
+        assertNotNull(firstHeartbeat);
+        final long commits = hh.getCommitStatistics().getTotalCommits();
+        final long skipped = hh.getCommitStatistics().getSkippedWrites();
+
+        Thread.sleep(50);
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        assertEquals(commits, hh.getCommitStatistics().getTotalCommits());
+        assertEquals(skipped + 2, hh.getCommitStatistics().getSkippedWrites());
+        assertEquals(firstHeartbeat, readLastHeartbeat(instance));
+
+        // without tolerance every heartbeat is written again
+        config.setHeartbeatWriteTolerance(0);
+        Thread.sleep(50);
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        assertEquals(commits + 1, hh.getCommitStatistics().getTotalCommits());
+        assertTrue(readLastHeartbeat(instance).after(firstHeartbeat));
+    }
+
+    /**
+     * Tests that a heartbeat skipped within the write tolerance doesn't let the
+     * periodic self-check flag a healthy instance as changing - with the default
+     * timeout, interval and tolerance the capped tolerance equals the self-check's limit
+     */
+    @Test
+    public void testHeartbeatWriteToleranceWithDefaults() throws Throwable {
+        FullJR2VirtualInstanceBuilder builder = newBuilder();
+        builder.setDebugName("tolerantDefaults")
+            .newRepository("/var/discovery/impl/", true)
+            .setConnectorPingTimeout(600)
+            .setConnectorPingInterval(999)
+            .setMinEventDelay(0);
+        FullJR2VirtualInstance instance = builder.fullBuild();
+        instances.add(instance);
+        final TestConfig config = (TestConfig) instance.getFullConfig();
+        config.setHeartbeatTimeout(Config.DEFAULT_HEARTBEAT_TIMEOUT);
+        config.setHeartbeatInterval(Config.DEFAULT_HEARTBEAT_INTERVAL);
+        config.setHeartbeatWriteTolerance(Config.DEFAULT_HEARTBEAT_WRITE_TOLERANCE);
+        final HeartbeatHandler hh = instance.getHeartbeatHandler();
+        final long intervalMillis = config.getHeartbeatInterval() * 1000;
+        final long maxMillisSinceHb = HeartbeatHandler.getMaxMillisSinceHeartbeat(
+                config.getHeartbeatTimeoutMillis(), intervalMillis);
+
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        final long skipped = hh.getCommitStatistics().getSkippedWrites();
+
+        // the next round happens just before the write tolerance elapsed and is skipped
+        moveHeartbeatsBack(instance, config.getHeartbeatWriteToleranceMillis() - 1000);
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        assertEquals(skipped + 1, hh.getCommitStatistics().getSkippedWrites());
+
+        // just before the following round the written heartbeat exceeds the self-check's
+        // limit - but the last round doesn't
+        moveHeartbeatsBack(instance, intervalMillis - 1000);
+        assertTrue(millisSince(hh, "lastHeartbeatWritten") > maxMillisSinceHb);
+        assertTrue(millisSince(hh, "lastHeartbeatIssued") <= maxMillisSinceHb);
+
+        // and that following round writes the heartbeat again
+        HeartbeatHelper.issueClusterLocalHeartbeat(hh);
+        assertEquals(skipped + 1, hh.getCommitStatistics().getSkippedWrites());
+        assertTrue(millisSince(hh, "lastHeartbeatWritten") < intervalMillis);
+    }
+
+    /** simulates the passing of time by moving the heartbeats, including the stored one, back **/
+    private void moveHeartbeatsBack(FullJR2VirtualInstance instance, long millis) throws Exception {
+        final HeartbeatHandler hh = instance.getHeartbeatHandler();
+        final Calendar written = Calendar.getInstance();
+        for (String field : new String[] {"lastHeartbeatWritten", "lastHeartbeatIssued"}) {
+            final Calendar moved = Calendar.getInstance();
+            moved.setTimeInMillis(((Calendar) PrivateAccessor.getField(hh, field)).getTimeInMillis() - millis);
+            PrivateAccessor.setField(hh, field, moved);
+        }
+        written.setTime(((Calendar) PrivateAccessor.getField(hh, "lastHeartbeatWritten")).getTime());
+        final ResourceResolver resourceResolver = instance.getResourceResolverFactory()
+                .getAdministrativeResourceResolver(null);
+        try {
+            final Resource resource = resourceResolver.getResource(
+                    instance.getFullConfig().getClusterInstancesPath() + "/" + instance.getSlingId());
+            resource.adaptTo(ModifiableValueMap.class).put("lastHeartbeat", written);
+            resourceResolver.commit();
+        } finally {
+            resourceResolver.close();
+        }
+    }
+
+    private long millisSince(HeartbeatHandler hh, String field) throws Exception {
+        return System.currentTimeMillis() - ((Calendar) PrivateAccessor.getField(hh, field)).getTimeInMillis();
+    }
+
+    private Date readLastHeartbeat(FullJR2VirtualInstance instance) throws Exception {
+        final ResourceResolver resourceResolver = instance.getResourceResolverFactory()
+                .getAdministrativeResourceResolver(null);
+        try {
+            final Resource resource = resourceResolver.getResource(
+                    instance.getFullConfig().getClusterInstancesPath() + "/" + instance.getSlingId());
+            return resource.adaptTo(ValueMap.class).get("lastHeartbeat", Date.class);
+        } finally {
+            resourceResolver.close();
+        }
+    }
+
 }
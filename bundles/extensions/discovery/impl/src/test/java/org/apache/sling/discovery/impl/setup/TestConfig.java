@@ -33,6 +33,8 @@ public class TestConfig extends Config implements ModifiableTestBaseConfig {
         this.drPath = path;
         heartbeatTimeout = 20;
         heartbeatInterval = 20;
+        // write every heartbeat unless a test explicitly enables the tolerance
+        heartbeatWriteTolerance = 0;
         minEventDelay = 1;
     }
     
@@ -103,6 +105,10 @@ public class TestConfig extends Config implements ModifiableTestBaseConfig {
         setHeartbeatInterval(viewCheckInterval);
     }
 
+    public void setHeartbeatWriteTolerance(long heartbeatWriteTolerance) {
+        this.heartbeatWriteTolerance = heartbeatWriteTolerance;
+    }
+
     public void setPath(String path) {
         drPath = path;
     }
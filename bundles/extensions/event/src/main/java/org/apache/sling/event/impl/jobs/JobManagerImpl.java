@@ -21,10 +21,12 @@ package org.apache.sling.event.impl.jobs;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +43,7 @@ import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.QuerySyntaxException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.commons.scheduler.Scheduler;
@@ -58,6 +61,7 @@ import org.apache.sling.event.impl.support.Environment;
 import org.apache.sling.event.impl.support.ResourceHelper;
 import org.apache.sling.event.jobs.Job;
 import org.apache.sling.event.jobs.Job.JobState;
+import org.apache.sling.event.jobs.JobBatchBuilder;
 import org.apache.sling.event.jobs.JobBuilder;
 import org.apache.sling.event.jobs.JobManager;
 import org.apache.sling.event.jobs.NotificationConstants;
@@ -127,6 +131,26 @@ public class JobManagerImpl
 
     private volatile ServiceRegistration<ResourceChangeListener> changeListenerReg;
 
+    /** Number of jobs persisted with a single commit when adding jobs in a batch. */
+    private static final int BATCH_COMMIT_SIZE = 500;
+
+    /** Maximum number of entries in the job path cache. */
+    private static final int MAX_CACHED_JOB_PATHS = 10000;
+
+    /**
+     * Paths of recently created or looked up jobs by job id.
+     * An entry is only a hint, the path is verified on each lookup.
+     */
+    private final Map<String, String> jobPathCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                    return size() > MAX_CACHED_JOB_PATHS;
+                }
+            });
+
     /**
      * Activate this component.
      * @param props Configuration properties
@@ -256,6 +280,7 @@ public class JobManagerImpl
                         if ( jobResource != null ) {
                             resolver.delete(jobResource);
                             resolver.commit();
+                            this.jobPathCache.remove(jobId);
                             logger.debug("Removed job with id: {}", jobId);
                         } else {
                             logger.debug("Unable to remove job with id - resource already removed: {}", jobId);
@@ -294,6 +319,116 @@ public class JobManagerImpl
     public Job getJobById(final String id) {
         logger.debug("Getting job by id: {}", id);
         final ResourceResolver resolver = this.configuration.createResourceResolver();
+        try {
+            final JobImpl job;
+            if ( this.configuration.hasUniqueIdFormat(id) ) {
+                job = this.findJobById(resolver, id);
+            } else {
+                // job created by a previous version, the path can't be derived from the id
+                job = this.queryJobById(resolver, id);
+            }
+            if ( job != null ) {
+                this.jobPathCache.put(id, job.getResourcePath());
+                if ( logger.isDebugEnabled() ) {
+                    logger.debug("Found job with id {} = {}", id, Utility.toString(job));
+                }
+                return job;
+            }
+        } finally {
+            resolver.close();
+        }
+        this.jobPathCache.remove(id);
+        logger.debug("Job not found with id: {}", id);
+        return null;
+    }
+
+    /**
+     * Find a job by id without a query.
+     * The job is stored at <code>&lt;location&gt;/&lt;topic name&gt;/&lt;job id&gt;</code>
+     * where the location is either the assigned jobs of an instance, the unassigned
+     * jobs or the storage for finished and cancelled jobs. As the topic and the location
+     * are not part of the id, the cached path of the job is tried first, then the topic
+     * name of the cached path is tried for all locations and finally all topics of all
+     * locations are checked.
+     */
+    private JobImpl findJobById(final ResourceResolver resolver, final String id) {
+        final String cachedPath = this.jobPathCache.get(id);
+        String topicName = null;
+        if ( cachedPath != null ) {
+            final JobImpl job = this.readJob(resolver, cachedPath, id);
+            if ( job != null ) {
+                return job;
+            }
+            if ( cachedPath.endsWith('/' + id) ) {
+                topicName = ResourceUtil.getName(cachedPath.substring(0, cachedPath.length() - id.length() - 1));
+            }
+        }
+        final List<String> locations = this.getJobLocations(resolver);
+        if ( topicName != null ) {
+            for(final String location : locations) {
+                final JobImpl job = this.readJob(resolver, location + '/' + topicName + '/' + id, id);
+                if ( job != null ) {
+                    return job;
+                }
+            }
+        }
+        for(final String location : locations) {
+            final Resource locationResource = resolver.getResource(location);
+            if ( locationResource != null ) {
+                for(final Resource topicResource : locationResource.getChildren()) {
+                    if ( !topicResource.getName().equals(topicName) ) {
+                        final JobImpl job = this.readJob(resolver, topicResource.getPath() + '/' + id, id);
+                        if ( job != null ) {
+                            return job;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all locations where jobs are stored, the most likely ones first:
+     * the jobs assigned to this instance, the unassigned jobs, the jobs assigned
+     * to other instances and the finished and cancelled jobs.
+     */
+    private List<String> getJobLocations(final ResourceResolver resolver) {
+        final List<String> locations = new ArrayList<String>();
+        locations.add(this.configuration.getLocalJobsPath());
+        locations.add(this.configuration.getUnassignedJobsPath());
+        final Resource assignedResource = resolver.getResource(this.configuration.getAssginedJobsPath());
+        if ( assignedResource != null ) {
+            for(final Resource instanceResource : assignedResource.getChildren()) {
+                if ( !instanceResource.getPath().equals(this.configuration.getLocalJobsPath()) ) {
+                    locations.add(instanceResource.getPath());
+                }
+            }
+        }
+        locations.add(this.configuration.getStoredSuccessfulJobsPath());
+        locations.add(this.configuration.getStoredCancelledJobsPath());
+        return locations;
+    }
+
+    /**
+     * Read the job at the path
+     * @return The job or {@code null} if there is no job with the id at the path.
+     */
+    private JobImpl readJob(final ResourceResolver resolver, final String path, final String id) {
+        final Resource jobResource = resolver.getResource(path);
+        if ( jobResource != null ) {
+            final JobImpl job = Utility.readJob(logger, jobResource);
+            if ( job != null && id.equals(job.getId()) ) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find a job by id using a query.
+     */
+    private JobImpl queryJobById(final ResourceResolver resolver, final String id) {
         final StringBuilder buf = new StringBuilder(64);
         try {
 
@@ -317,19 +452,13 @@ public class JobManagerImpl
                 if ( this.configuration.isJob(jobResource.getPath()) ) {
                     final JobImpl job = Utility.readJob(logger, jobResource);
                     if ( job != null ) {
-                        if ( logger.isDebugEnabled() ) {
-                            logger.debug("Found job with id {} = {}", id, Utility.toString(job));
-                        }
                         return job;
                     }
                 }
             }
         } catch (final QuerySyntaxException qse) {
             logger.warn("Query syntax wrong " + buf.toString(), qse);
-        } finally {
-            resolver.close();
         }
-        logger.debug("Job not found with id: {}", id);
         return null;
     }
 
@@ -554,10 +683,7 @@ public class JobManagerImpl
     private Job addJobInternal(final String jobTopic,
             final Map<String, Object> jobProperties,
             final List<String> errors) {
-        final QueueInfo info = this.configuration.getQueueConfigurationManager().getQueueInfo(jobTopic);
-
-        final TopologyCapabilities caps = this.configuration.getTopologyCapabilities();
-        info.targetId = (caps == null ? null : caps.detectTarget(jobTopic, jobProperties, info));
+        final QueueInfo info = this.getQueueInfo(jobTopic, jobProperties);
 
         if ( logger.isDebugEnabled() ) {
             if ( info.targetId != null ) {
@@ -572,13 +698,7 @@ public class JobManagerImpl
                     jobTopic,
                     jobProperties,
                     info);
-            if ( info.targetId != null ) {
-                this.configuration.getAuditLogger().debug("ASSIGN OK {} : {}",
-                        info.targetId, job.getId());
-            } else {
-                this.configuration.getAuditLogger().debug("UNASSIGN OK : {}",
-                        job.getId());
-            }
+            this.logAssignment(info, job);
             return job;
         } catch (final PersistenceException re ) {
             // something went wrong, so let's log it
@@ -593,6 +713,28 @@ public class JobManagerImpl
         return null;
     }
 
+    /**
+     * Get the queue information including the target instance for a new job.
+     */
+    private QueueInfo getQueueInfo(final String jobTopic, final Map<String, Object> jobProperties) {
+        final QueueInfo info = this.configuration.getQueueConfigurationManager().getQueueInfo(jobTopic);
+
+        final TopologyCapabilities caps = this.configuration.getTopologyCapabilities();
+        info.targetId = (caps == null ? null : caps.detectTarget(jobTopic, jobProperties, info));
+
+        return info;
+    }
+
+    private void logAssignment(final QueueInfo info, final JobImpl job) {
+        if ( info.targetId != null ) {
+            this.configuration.getAuditLogger().debug("ASSIGN OK {} : {}",
+                    info.targetId, job.getId());
+        } else {
+            this.configuration.getAuditLogger().debug("UNASSIGN OK : {}",
+                    job.getId());
+        }
+    }
+
     /**
      * Write a job to the resource tree.
      * @param resolver The resolver resolver
@@ -605,6 +747,20 @@ public class JobManagerImpl
             final Map<String, Object> jobProperties,
             final QueueInfo info)
     throws PersistenceException {
+        final JobImpl job = this.createJob(jobTopic, jobProperties, info);
+        ResourceHelper.getOrCreateResource(resolver,
+                job.getResourcePath(),
+                job.getProperties());
+        return job;
+    }
+
+    /**
+     * Create a new job with a unique id and path - without persisting it.
+     * @param info The queue information (queue name etc.)
+     */
+    private JobImpl createJob(final String jobTopic,
+            final Map<String, Object> jobProperties,
+            final QueueInfo info) {
         final String jobId = this.configuration.getUniqueId(jobTopic);
         final String path = this.configuration.getUniquePath(info.targetId, jobTopic, jobId, jobProperties);
 
@@ -640,12 +796,10 @@ public class JobManagerImpl
         if ( logger.isDebugEnabled() ) {
             logger.debug("Storing new job {} at {}", Utility.toString(jobTopic, properties), path);
         }
-        ResourceHelper.getOrCreateResource(resolver,
-                path,
-                properties);
 
-        // update property types - priority, add path and create job
+        // add path and create job
         properties.put(JobImpl.PROPERTY_RESOURCE_PATH, path);
+        this.jobPathCache.put(jobId, path);
         return new JobImpl(jobTopic, jobId, properties);
     }
 
@@ -684,6 +838,14 @@ public class JobManagerImpl
         return new JobBuilderImpl(this, topic);
     }
 
+    /**
+     * @see org.apache.sling.event.jobs.JobManager#createJobs()
+     */
+    @Override
+    public JobBatchBuilder createJobs() {
+        return new JobBatchBuilderImpl(this);
+    }
+
     /**
      * @see org.apache.sling.event.jobs.JobManager#getScheduledJobs()
      */
@@ -740,6 +902,139 @@ public class JobManagerImpl
         return result;
     }
 
+    /**
+     * Internal method to add many jobs at once.
+     * The jobs are persisted in chunks of {@link #BATCH_COMMIT_SIZE} jobs. If
+     * persisting a chunk fails, the jobs of this chunk are persisted one by one.
+     * A single notification is sent per topic for all jobs assigned to this instance.
+     */
+    public List<Job> addJobs(final List<String> topics,
+            final List<Map<String, Object>> properties,
+            final List<String> errors) {
+        final List<Job> result = new ArrayList<Job>(topics.size());
+        final List<JobImpl> chunk = new ArrayList<JobImpl>();
+        final List<QueueInfo> chunkInfos = new ArrayList<QueueInfo>();
+        final List<Integer> chunkIndexes = new ArrayList<Integer>();
+        final Map<String, List<String>> localJobIds = new LinkedHashMap<String, List<String>>();
+
+        final ResourceResolver resolver = this.configuration.createResourceResolver();
+        try {
+            for(int i = 0; i < topics.size(); i++) {
+                final String topic = topics.get(i);
+                final Map<String, Object> jobProperties = properties.get(i);
+                final String errorMessage = Utility.checkJob(topic, jobProperties);
+                if ( errorMessage != null ) {
+                    logger.warn("{}", errorMessage);
+                    if ( errors != null ) {
+                        errors.add(errorMessage);
+                    }
+                    this.configuration.getAuditLogger().debug("ADD FAILED topic={}, properties={} : {}",
+                            new Object[] {topic,
+                                          jobProperties,
+                                          errorMessage});
+                    result.add(null);
+                    continue;
+                }
+                final QueueInfo info = this.getQueueInfo(topic, jobProperties);
+                final JobImpl job = this.createJob(topic, jobProperties, info);
+                if ( this.configuration.isLocalJob(job.getResourcePath()) ) {
+                    this.configuration.addBatchedJob(job.getResourcePath());
+                }
+                result.add(job);
+                chunk.add(job);
+                chunkInfos.add(info);
+                chunkIndexes.add(i);
+                if ( chunk.size() == BATCH_COMMIT_SIZE ) {
+                    this.writeJobs(resolver, chunk, chunkInfos, chunkIndexes, result, errors, localJobIds);
+                }
+            }
+            if ( !chunk.isEmpty() ) {
+                this.writeJobs(resolver, chunk, chunkInfos, chunkIndexes, result, errors, localJobIds);
+            }
+        } finally {
+            resolver.close();
+        }
+
+        for(final Map.Entry<String, List<String>> entry : localJobIds.entrySet()) {
+            final String topic = entry.getKey();
+            final List<String> ids = entry.getValue();
+            final Dictionary<String, Object> eventProps = new Hashtable<String, Object>();
+            eventProps.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC, topic);
+            eventProps.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID, ids.get(0));
+            eventProps.put(NotificationConstants.NOTIFICATION_PROPERTY_JOB_IDS, ids.toArray(new String[ids.size()]));
+            eventProps.put(Job.PROPERTY_JOB_QUEUE_NAME,
+                    this.configuration.getQueueConfigurationManager().getQueueInfo(topic).queueName);
+            this.eventAdmin.postEvent(new Event(NotificationConstants.TOPIC_JOB_ADDED, eventProps));
+        }
+
+        return result;
+    }
+
+    /**
+     * Persist a chunk of jobs with a single commit.
+     * If this fails, each job is persisted on its own. Jobs which can't be
+     * persisted are replaced with {@code null} in the result. The ids of the
+     * persisted jobs for this instance are added to the local job ids by topic.
+     * The chunk is cleared afterwards.
+     */
+    private void writeJobs(final ResourceResolver resolver,
+            final List<JobImpl> jobs,
+            final List<QueueInfo> infos,
+            final List<Integer> indexes,
+            final List<Job> result,
+            final List<String> errors,
+            final Map<String, List<String>> localJobIds) {
+        boolean persisted = false;
+        try {
+            for(final JobImpl job : jobs) {
+                ResourceHelper.getOrCreateResource(resolver, job.getResourcePath(), job.getProperties(), false);
+            }
+            resolver.commit();
+            persisted = true;
+        } catch ( final PersistenceException pe ) {
+            logger.debug("Unable to persist " + jobs.size() + " jobs with a single commit, persisting them one by one.", pe);
+            resolver.revert();
+            resolver.refresh();
+        }
+        for(int i = 0; i < jobs.size(); i++) {
+            final JobImpl job = jobs.get(i);
+            if ( !persisted ) {
+                try {
+                    ResourceHelper.getOrCreateResource(resolver, job.getResourcePath(), job.getProperties());
+                } catch ( final PersistenceException pe ) {
+                    this.logger.error("Exception during persisting new job '" + Utility.toString(job) + "'", pe);
+                    this.configuration.removeBatchedJob(job.getResourcePath());
+                    this.jobPathCache.remove(job.getId());
+                    result.set(indexes.get(i), null);
+                    if ( errors != null ) {
+                        errors.add("Unable to persist new job.");
+                    }
+                    this.configuration.getAuditLogger().debug("ADD FAILED topic={}, properties={} : {}",
+                            new Object[] {job.getTopic(),
+                                          job.getProperties(),
+                                          "Unable to persist new job."});
+                    continue;
+                }
+            }
+            this.logAssignment(infos.get(i), job);
+            this.configuration.getAuditLogger().debug("ADD OK topic={}, properties={} : {}",
+                    new Object[] {job.getTopic(),
+                                  job.getProperties(),
+                                  job.getId()});
+            if ( this.configuration.isLocalJob(job.getResourcePath()) ) {
+                List<String> ids = localJobIds.get(job.getTopic());
+                if ( ids == null ) {
+                    ids = new ArrayList<String>();
+                    localJobIds.put(job.getTopic(), ids);
+                }
+                ids.add(job.getId());
+            }
+        }
+        jobs.clear();
+        infos.clear();
+        indexes.clear();
+    }
+
     /**
      * @see org.apache.sling.event.jobs.JobManager#retryJobById(java.lang.String)
      */
@@ -22,10 +22,12 @@ import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -398,6 +400,21 @@ public class JobManagerConfiguration {
         return sb.toString();
     }
 
+    /** Pattern matching the ids created by {@link #getUniqueId(String)}. */
+    private static final Pattern UNIQUE_ID_PATTERN = Pattern.compile("\\d+/\\d+/\\d+/\\d+/\\d+/[^/]+_\\d+");
+
+    /**
+     * Check whether the job id has been created by {@link #getUniqueId(String)}.
+     * The job resource of such an id is always stored at
+     * <code>&lt;location&gt;/&lt;topic name&gt;/&lt;job id&gt;</code>.
+     * @param jobId The job id
+     * @return {@code true} if the id has the current format, {@code false} for ids
+     *         of previous versions.
+     */
+    public boolean hasUniqueIdFormat(final String jobId) {
+        return jobId != null && UNIQUE_ID_PATTERN.matcher(jobId).matches();
+    }
+
     public boolean isLocalJob(final String jobPath) {
         return jobPath != null && jobPath.startsWith(this.localJobsPathWithSlash);
     }
@@ -618,6 +635,43 @@ public class JobManagerConfiguration {
         }
     }
 
+    /** Maximum number of paths of batched jobs. */
+    private static final int MAX_BATCHED_JOB_PATHS = 100000;
+
+    /**
+     * Paths of new jobs which have been added as part of a batch. For these jobs
+     * a single notification is sent for the whole batch.
+     */
+    private final Map<String, Boolean> batchedJobPaths = new LinkedHashMap<String, Boolean>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_BATCHED_JOB_PATHS;
+        }
+    };
+
+    /**
+     * Mark a new job as being part of a batch.
+     * @param jobPath The path of the job
+     */
+    public void addBatchedJob(final String jobPath) {
+        synchronized ( this.batchedJobPaths ) {
+            this.batchedJobPaths.put(jobPath, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Remove the mark for a job added as part of a batch.
+     * @param jobPath The path of the job
+     * @return {@code true} if the job is part of a batch.
+     */
+    public boolean removeBatchedJob(final String jobPath) {
+        synchronized ( this.batchedJobPaths ) {
+            return this.batchedJobPaths.remove(jobPath) != null;
+        }
+    }
+
     private final Map<String, Job> retryList = new HashMap<String, Job>();
 
     public void addJobToRetryList(final Job job) {
@@ -43,7 +43,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This component receives resource added events and sends a job
- * created event.
+ * created event. Jobs added as part of a batch are ignored, the
+ * job manager sends a single event for the whole batch.
  */
 @Component
 public class NewJobSender implements ResourceChangeListener, ExternalResourceChangeListener {
@@ -98,7 +99,7 @@ public class NewJobSender implements ResourceChangeListener, ExternalResourceCha
 
     		final int topicStart = this.configuration.getLocalJobsPath().length() + 1;
     		final int topicEnd = path.indexOf('/', topicStart);
-    		if ( topicEnd != -1 ) {
+    		if ( topicEnd != -1 && !this.configuration.removeBatchedJob(path) ) {
     			final String topic = path.substring(topicStart, topicEnd).replace('.', '/');
                 final String jobId = path.substring(topicEnd + 1);
 
@@ -280,7 +280,6 @@ public class QueueJobCache {
             public boolean handle(final JobImpl job) {
                 if ( job.getProcessingStarted() == null && !job.hasReadErrors() ) {
                     list.add(job);
-                    statisticsManager.jobQueued(queueName, topic);
                     if ( list.size() == maxPreloadLimit ) {
                         scanTopic.set(true);
                     }
@@ -300,6 +299,9 @@ public class QueueJobCache {
                 return list.size() < maxPreloadLimit;
             }
         });
+        if ( !list.isEmpty() ) {
+            statisticsManager.jobsQueued(queueName, topic, list.size());
+        }
         if ( scanTopic.get() ) {
             synchronized ( this.topicsWithNewJobs ) {
                 this.topicsWithNewJobs.add(topic);
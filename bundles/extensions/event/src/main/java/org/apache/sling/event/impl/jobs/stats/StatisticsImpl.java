@@ -193,6 +193,13 @@ public class StatisticsImpl implements Statistics {
         this.queuedJobs++;
     }
 
+    /**
+     * New jobs in the queue
+     */
+    public synchronized void incQueued(final long count) {
+        this.queuedJobs += count;
+    }
+
     /**
      * Job not processed by us
      */
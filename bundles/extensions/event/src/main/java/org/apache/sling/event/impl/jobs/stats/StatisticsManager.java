@@ -171,6 +171,20 @@ public class StatisticsManager {
         }
     }
 
+    /**
+     * Several jobs of the same topic have been queued at once.
+     */
+    public void jobsQueued(final String queueName,
+            final String topic,
+            final int count) {
+        final StatisticsImpl queueStats = getStatisticsForQueue(queueName);
+
+        this.globalStatistics.incQueued(count);
+        if ( queueStats != null ) {
+            queueStats.incQueued(count);
+        }
+    }
+
     public void jobDequeued(final String queueName, final String topic) {
         final StatisticsImpl queueStats = getStatisticsForQueue(queueName);
 
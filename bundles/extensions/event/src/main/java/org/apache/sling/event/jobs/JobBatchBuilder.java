@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.jobs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * This is a builder interface to add many jobs at once.
+ * Instances of this class can be retrieved using {@link JobManager#createJobs()}
+ *
+ * The jobs are not added before {@link #submit()} is called. They are persisted
+ * in chunks and a single {@link NotificationConstants#TOPIC_JOB_ADDED} event is
+ * sent per topic for the whole batch.
+ *
+ * @since 2.1.0
+ */
+@ProviderType
+public interface JobBatchBuilder {
+
+    /**
+     * Add a job to the batch.
+     * @param topic The required job topic.
+     * @param properties Optional job properties. The properties must be serializable.
+     * @return The job batch builder to continue building.
+     */
+    JobBatchBuilder add(final String topic, final Map<String, Object> properties);
+
+    /**
+     * Add all jobs of the batch.
+     * @return The list of jobs in the order they were added to the batch. If a
+     *         job could not be created, the list contains <code>null</code> for it.
+     * @see JobManager#addJob(String, Map)
+     */
+    List<Job> submit();
+
+    /**
+     * Add all jobs of the batch.
+     * @param errors Optional list which will be filled with error messages.
+     * @return The list of jobs in the order they were added to the batch. If a
+     *         job could not be created, the list contains <code>null</code> for it.
+     * @see JobManager#addJob(String, Map)
+     */
+    List<Job> submit(final List<String> errors);
+}
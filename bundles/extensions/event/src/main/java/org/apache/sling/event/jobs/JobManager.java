@@ -201,6 +201,16 @@ public interface JobManager {
      */
     JobBuilder createJob(final String topic);
 
+    /**
+     * Fluent API to add many jobs at once.
+     * Adding jobs in a batch is considerably faster than adding them one by one,
+     * as the jobs are persisted together. Each job still gets its own id and
+     * is processed independently of the other jobs of the batch.
+     * @return A job batch builder
+     * @since 2.1.0
+     */
+    JobBatchBuilder createJobs();
+
     /**
      * Return all available job schedules.
      * @return A collection of scheduled job infos
@@ -84,6 +84,10 @@ public abstract class NotificationConstants {
      * Asynchronous notification event when a job is added.
      * The property {@link #NOTIFICATION_PROPERTY_JOB_TOPIC} contains the job topic,
      * the property {@link #NOTIFICATION_PROPERTY_JOB_ID} contains the unique job id.
+     * For jobs added with {@link JobManager#createJobs()} a single event per topic
+     * is sent for all jobs of the batch. In this case the property
+     * {@link #NOTIFICATION_PROPERTY_JOB_IDS} contains the ids of all these jobs and
+     * {@link #NOTIFICATION_PROPERTY_JOB_ID} contains the id of the first job.
      * @since 1.6
      */
     public static final String TOPIC_JOB_ADDED = "org/apache/sling/event/notification/job/ADDED";
@@ -100,6 +104,14 @@ public abstract class NotificationConstants {
      */
     public static final String NOTIFICATION_PROPERTY_JOB_ID = "slingevent:eventId";
 
+    /**
+     * Property containing the unique job IDs of all jobs of a batch.
+     * Value is of type String[].
+     * @see #TOPIC_JOB_ADDED
+     * @since 2.1.0
+     */
+    public static final String NOTIFICATION_PROPERTY_JOB_IDS = "event.job.ids";
+
    private NotificationConstants() {
         // avoid instantiation
     }
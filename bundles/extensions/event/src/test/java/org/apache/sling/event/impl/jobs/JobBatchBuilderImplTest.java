@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.event.impl.TestUtil;
+import org.apache.sling.event.impl.jobs.config.InternalQueueConfiguration;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager;
+import org.apache.sling.event.impl.jobs.config.QueueConfigurationManager.QueueInfo;
+import org.apache.sling.event.impl.jobs.config.TopologyCapabilities;
+import org.apache.sling.event.impl.support.Environment;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobBatchBuilder;
+import org.apache.sling.event.jobs.NotificationConstants;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+public class JobBatchBuilderImplTest {
+
+    private static final String LOCAL_TOPIC = "sling/test/local";
+
+    private static final String UNASSIGNED_TOPIC = "sling/test/unassigned";
+
+    private String applicationId;
+
+    private MockResourceResolverFactory factory;
+
+    private JobManagerConfiguration configuration;
+
+    private EventAdmin eventAdmin;
+
+    private JobManagerImpl jobManager;
+
+    @Before
+    public void setup() {
+        applicationId = Environment.APPLICATION_ID;
+        Environment.APPLICATION_ID = "instance1";
+
+        factory = new MockResourceResolverFactory();
+        final InternalQueueConfiguration queueConfiguration = Mockito.mock(InternalQueueConfiguration.class);
+        Mockito.when(queueConfiguration.getName()).thenReturn("test-queue");
+        Mockito.when(queueConfiguration.getMaxRetries()).thenReturn(3);
+        final QueueConfigurationManager queueConfigurationManager = Mockito.mock(QueueConfigurationManager.class);
+        Mockito.when(queueConfigurationManager.getQueueInfo(Mockito.anyString())).thenAnswer(new Answer<QueueInfo>() {
+
+            @Override
+            public QueueInfo answer(final InvocationOnMock invocation) throws Throwable {
+                final QueueInfo info = new QueueInfo();
+                info.queueConfiguration = queueConfiguration;
+                info.queueName = queueConfiguration.getName();
+                return info;
+            }
+        });
+        final TopologyCapabilities caps = Mockito.mock(TopologyCapabilities.class);
+        Mockito.when(caps.detectTarget(Mockito.eq(LOCAL_TOPIC), Mockito.anyMapOf(String.class, Object.class),
+                Mockito.any(QueueInfo.class))).thenReturn("instance1");
+
+        configuration = new JobManagerConfiguration();
+        TestUtil.setFieldValue(configuration, "resourceResolverFactory", factory);
+        TestUtil.setFieldValue(configuration, "queueConfigManager", queueConfigurationManager);
+        TestUtil.setFieldValue(configuration, "topologyCapabilities", caps);
+        final String base = JobManagerConfiguration.DEFAULT_REPOSITORY_PATH + '/';
+        TestUtil.setFieldValue(configuration, "jobsBasePathWithSlash", base);
+        TestUtil.setFieldValue(configuration, "assignedJobsPath", base + "assigned");
+        TestUtil.setFieldValue(configuration, "unassignedJobsPath", base + "unassigned");
+        TestUtil.setFieldValue(configuration, "localJobsPath", base + "assigned/instance1");
+        TestUtil.setFieldValue(configuration, "localJobsPathWithSlash", base + "assigned/instance1/");
+        TestUtil.setFieldValue(configuration, "storedCancelledJobsPath", base + "cancelled");
+        TestUtil.setFieldValue(configuration, "storedSuccessfulJobsPath", base + "finished");
+
+        eventAdmin = Mockito.mock(EventAdmin.class);
+        jobManager = new JobManagerImpl();
+        TestUtil.setFieldValue(jobManager, "configuration", configuration);
+        TestUtil.setFieldValue(jobManager, "eventAdmin", eventAdmin);
+    }
+
+    @After
+    public void tearDown() {
+        Environment.APPLICATION_ID = applicationId;
+    }
+
+    @Test
+    public void testAddJobs() throws Exception {
+        final int count = 1201;
+        final JobBatchBuilder builder = jobManager.createJobs();
+        for(int i = 0; i < count; i++) {
+            final Map<String, Object> props = new HashMap<String, Object>();
+            props.put("index", i);
+            builder.add(i % 2 == 0 ? LOCAL_TOPIC : UNASSIGNED_TOPIC, props);
+        }
+        // an invalid job in between
+        builder.add("illegal topic", null);
+
+        final List<String> errors = new ArrayList<String>();
+        final List<Job> jobs = builder.submit(errors);
+        assertEquals(count + 1, jobs.size());
+        assertNull(jobs.get(count));
+        assertEquals(1, errors.size());
+
+        final ResourceResolver resolver = factory.getAdministrativeResourceResolver(null);
+        try {
+            final Set<String> ids = new HashSet<String>();
+            final List<String> localIds = new ArrayList<String>();
+            for(int i = 0; i < count; i++) {
+                final JobImpl job = (JobImpl)jobs.get(i);
+                assertNotNull(job);
+                assertTrue(ids.add(job.getId()));
+                assertEquals(i, job.getProperty("index"));
+                assertEquals(i % 2 == 0 ? LOCAL_TOPIC : UNASSIGNED_TOPIC, job.getTopic());
+                assertNotNull(resolver.getResource(job.getResourcePath()));
+                if ( i % 2 == 0 ) {
+                    assertTrue(configuration.isLocalJob(job.getResourcePath()));
+                    // no individual notification for batched jobs
+                    assertTrue(configuration.removeBatchedJob(job.getResourcePath()));
+                    localIds.add(job.getId());
+                } else {
+                    assertFalse(configuration.isLocalJob(job.getResourcePath()));
+                    assertFalse(configuration.removeBatchedJob(job.getResourcePath()));
+                }
+            }
+
+            // a single notification for the local jobs
+            final ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+            Mockito.verify(eventAdmin).postEvent(captor.capture());
+            final Event event = captor.getValue();
+            assertEquals(NotificationConstants.TOPIC_JOB_ADDED, event.getTopic());
+            assertEquals(LOCAL_TOPIC, event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_TOPIC));
+            assertEquals(localIds.get(0), event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_ID));
+            assertArrayEquals(localIds.toArray(), (Object[])event.getProperty(NotificationConstants.NOTIFICATION_PROPERTY_JOB_IDS));
+            assertEquals("test-queue", event.getProperty(Job.PROPERTY_JOB_QUEUE_NAME));
+
+            // jobs can be found by id
+            final JobImpl job = (JobImpl)jobs.get(42);
+            assertEquals(job.getResourcePath(), ((JobImpl)jobManager.getJobById(job.getId())).getResourcePath());
+        } finally {
+            resolver.close();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        assertTrue(jobManager.createJobs().submit().isEmpty());
+        Mockito.verifyZeroInteractions(eventAdmin);
+    }
+}
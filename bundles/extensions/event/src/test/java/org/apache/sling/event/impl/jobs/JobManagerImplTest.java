@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.event.impl.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.event.impl.TestUtil;
+import org.apache.sling.event.impl.jobs.config.JobManagerConfiguration;
+import org.apache.sling.event.impl.support.ResourceHelper;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class JobManagerImplTest {
+
+    private static final String BASE = JobManagerConfiguration.DEFAULT_REPOSITORY_PATH;
+
+    private static final String TOPIC = "sling/test";
+
+    private static final String TOPIC_NAME = "sling.test";
+
+    private static final String JOB_ID = "2016/5/17/10/42/instance1_17";
+
+    private ResourceResolverFactory factory;
+
+    private JobManagerImpl jobManager;
+
+    @Before
+    public void setup() {
+        factory = new MockResourceResolverFactory();
+
+        final JobManagerConfiguration configuration = Mockito.mock(JobManagerConfiguration.class);
+        Mockito.when(configuration.createResourceResolver()).thenAnswer(new Answer<ResourceResolver>() {
+
+            @Override
+            public ResourceResolver answer(final InvocationOnMock invocation) throws Throwable {
+                return factory.getAdministrativeResourceResolver(null);
+            }
+        });
+        Mockito.when(configuration.hasUniqueIdFormat(Mockito.anyString())).thenCallRealMethod();
+        Mockito.when(configuration.getAssginedJobsPath()).thenReturn(BASE + "/assigned");
+        Mockito.when(configuration.getLocalJobsPath()).thenReturn(BASE + "/assigned/instance1");
+        Mockito.when(configuration.getUnassignedJobsPath()).thenReturn(BASE + "/unassigned");
+        Mockito.when(configuration.getStoredSuccessfulJobsPath()).thenReturn(BASE + "/finished");
+        Mockito.when(configuration.getStoredCancelledJobsPath()).thenReturn(BASE + "/cancelled");
+
+        jobManager = new JobManagerImpl();
+        TestUtil.setFieldValue(jobManager, "configuration", configuration);
+    }
+
+    private String createJob(final String location, final String topicName, final String id)
+    throws LoginException, PersistenceException {
+        final String path = location + '/' + topicName + '/' + id;
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put(ResourceHelper.PROPERTY_JOB_ID, id);
+        props.put(ResourceHelper.PROPERTY_JOB_TOPIC, TOPIC);
+        props.put(ResourceResolver.PROPERTY_RESOURCE_TYPE, ResourceHelper.RESOURCE_TYPE_JOB);
+        final ResourceResolver resolver = factory.getAdministrativeResourceResolver(null);
+        try {
+            ResourceHelper.getOrCreateResource(resolver, path, props);
+        } finally {
+            resolver.close();
+        }
+        return path;
+    }
+
+    private void deleteJob(final String path) throws LoginException, PersistenceException {
+        final ResourceResolver resolver = factory.getAdministrativeResourceResolver(null);
+        try {
+            final Resource rsrc = resolver.getResource(path);
+            resolver.delete(rsrc);
+            resolver.commit();
+        } finally {
+            resolver.close();
+        }
+    }
+
+    private void assertJob(final String path, final Job job) {
+        assertNotNull(job);
+        assertEquals(JOB_ID, job.getId());
+        assertEquals(TOPIC, job.getTopic());
+        assertEquals(path, ((JobImpl)job).getResourcePath());
+    }
+
+    @Test
+    public void testUniqueIdFormat() {
+        final JobManagerConfiguration configuration = new JobManagerConfiguration();
+        assertEquals(true, configuration.hasUniqueIdFormat(JOB_ID));
+        assertEquals(true, configuration.hasUniqueIdFormat(configuration.getUniqueId(TOPIC)));
+        assertEquals(false, configuration.hasUniqueIdFormat("2016/5/17/10/42/instance1"));
+        assertEquals(false, configuration.hasUniqueIdFormat("a/b/c/d/e/instance1_17"));
+        assertEquals(false, configuration.hasUniqueIdFormat(null));
+    }
+
+    @Test
+    public void testGetJobByIdLocations() throws Exception {
+        createJob(BASE + "/unassigned", "other.topic", "2016/5/17/10/42/instance1_1");
+        final String[] locations = new String[] {
+                BASE + "/assigned/instance1",
+                BASE + "/unassigned",
+                BASE + "/assigned/instance2",
+                BASE + "/finished",
+                BASE + "/cancelled"
+        };
+        for(final String location : locations) {
+            final String path = createJob(location, TOPIC_NAME, JOB_ID);
+            assertJob(path, jobManager.getJobById(JOB_ID));
+            deleteJob(path);
+        }
+    }
+
+    @Test
+    public void testGetJobByIdAfterMove() throws Exception {
+        final String path = createJob(BASE + "/unassigned", TOPIC_NAME, JOB_ID);
+        assertJob(path, jobManager.getJobById(JOB_ID));
+
+        // the cached path is outdated, the job is found in the same topic of another location
+        deleteJob(path);
+        final String finishedPath = createJob(BASE + "/finished", TOPIC_NAME, JOB_ID);
+        assertJob(finishedPath, jobManager.getJobById(JOB_ID));
+
+        deleteJob(finishedPath);
+        assertNull(jobManager.getJobById(JOB_ID));
+    }
+
+    @Test
+    public void testGetUnknownJobById() throws Exception {
+        createJob(BASE + "/unassigned", TOPIC_NAME, "2016/5/17/10/42/instance1_1");
+        assertNull(jobManager.getJobById(JOB_ID));
+    }
+}
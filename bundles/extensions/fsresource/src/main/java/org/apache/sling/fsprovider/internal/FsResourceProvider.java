@@ -86,6 +86,16 @@ public class FsResourceProvider implements ResourceProvider {
 
     public static final long DEFAULT_CHECKINTERVAL = 1000;
 
+    /**
+     * The name of the configuration property defining whether the file system
+     * is watched for changes instead of being polled in the check interval
+     * (value is "provider.watch").
+     */
+    @Property(boolValue=FsResourceProvider.DEFAULT_WATCH)
+    public static final String PROP_PROVIDER_WATCH = "provider.watch";
+
+    public static final boolean DEFAULT_WATCH = true;
+
     // The location in the resource tree where the resources are mapped
     private String providerRoot;
 
@@ -233,7 +243,9 @@ public class FsResourceProvider implements ResourceProvider {
             checkInterval = (Long)interval;
         }
         if ( checkInterval > 100 ) {
-            this.monitor = new FileMonitor(this, checkInterval);
+            final Object watch = props.get(PROP_PROVIDER_WATCH);
+            this.monitor = new FileMonitor(this, checkInterval,
+                    watch == null ? DEFAULT_WATCH : Boolean.valueOf(watch.toString()));
         }
     }
 
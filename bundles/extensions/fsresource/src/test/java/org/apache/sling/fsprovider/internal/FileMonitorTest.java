@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.fsprovider.internal;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sling.api.SlingConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+/**
+ * Tests the resource events sent by the <code>FileMonitor</code>
+ * if the file system is watched.
+ */
+public class FileMonitorTest {
+
+    /** Polling is effectively disabled, changes are only detected through the watch service. */
+    private static final long INTERVAL = 60 * 60 * 1000;
+
+    private static final long TIMEOUT = 10000;
+
+    private File root;
+
+    private File dir;
+
+    private FileMonitor monitor;
+
+    private final List<String> events = new ArrayList<String>();
+
+    @Before
+    public void setup() throws IOException {
+        root = File.createTempFile("fsresource", "");
+        root.delete();
+        dir = new File(root, "folder");
+        assertTrue(dir.mkdirs());
+        write(new File(dir, "a.txt"), "a");
+
+        final EventAdmin eventAdmin = new EventAdmin() {
+
+            public void postEvent(final Event event) {
+                synchronized ( events ) {
+                    events.add(event.getTopic() + ' ' + event.getProperty(SlingConstants.PROPERTY_PATH));
+                }
+            }
+
+            public void sendEvent(final Event event) {
+                postEvent(event);
+            }
+        };
+        final FsResourceProvider provider = new FsResourceProvider() {
+
+            @Override
+            EventAdmin getEventAdmin() {
+                return eventAdmin;
+            }
+
+            @Override
+            File getRootFile() {
+                return root;
+            }
+
+            @Override
+            String getProviderRoot() {
+                return "/fs";
+            }
+        };
+        monitor = new FileMonitor(provider, INTERVAL, true);
+    }
+
+    @After
+    public void tearDown() {
+        monitor.stop();
+        delete(root);
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if ( children != null ) {
+            for(final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void await(final String topic, final String path) throws InterruptedException {
+        final String expected = topic + ' ' + path;
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while ( System.currentTimeMillis() < end ) {
+            synchronized ( events ) {
+                if ( events.contains(expected) ) {
+                    return;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No event " + expected + ", got " + events);
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        write(new File(dir, "b.txt"), "b");
+        await(SlingConstants.TOPIC_RESOURCE_ADDED, "/fs/folder/b.txt");
+    }
+
+    @Test
+    public void testModify() throws Exception {
+        final File file = new File(dir, "a.txt");
+        write(file, "changed");
+        file.setLastModified(file.lastModified() + 2000);
+        await(SlingConstants.TOPIC_RESOURCE_CHANGED, "/fs/folder/a.txt");
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        assertTrue(new File(dir, "a.txt").delete());
+        await(SlingConstants.TOPIC_RESOURCE_REMOVED, "/fs/folder/a.txt");
+    }
+
+    @Test
+    public void testRecreateFolder() throws Exception {
+        delete(dir);
+        assertTrue(dir.mkdir());
+        write(new File(dir, "b.txt"), "b");
+        await(SlingConstants.TOPIC_RESOURCE_REMOVED, "/fs/folder/a.txt");
+        await(SlingConstants.TOPIC_RESOURCE_ADDED, "/fs/folder/b.txt");
+
+        // the recreated folder is watched again
+        write(new File(dir, "c.txt"), "c");
+        await(SlingConstants.TOPIC_RESOURCE_ADDED, "/fs/folder/c.txt");
+    }
+
+    @Test
+    public void testReplaceFolder() throws Exception {
+        // the watch key of the moved folder stays valid
+        final File moved = new File(root.getParentFile(), root.getName() + ".moved");
+        try {
+            assertTrue(dir.renameTo(moved));
+            assertTrue(dir.mkdir());
+            write(new File(dir, "b.txt"), "b");
+            await(SlingConstants.TOPIC_RESOURCE_REMOVED, "/fs/folder/a.txt");
+            await(SlingConstants.TOPIC_RESOURCE_ADDED, "/fs/folder/b.txt");
+
+            write(new File(dir, "c.txt"), "c");
+            await(SlingConstants.TOPIC_RESOURCE_ADDED, "/fs/folder/c.txt");
+        } finally {
+            delete(moved);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.i18n.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The <code>CompactDictionary</code> is an immutable, read optimized map of
+ * messages. The keys are kept in a sorted array and looked up with a binary
+ * search, the values are kept in a second array with the same order. Compared
+ * to a hash map this saves the entry objects and the hash table.
+ * <p>
+ * Keys can be shared across dictionaries (and therefore across locales)
+ * through a key pool passed when creating the dictionary.
+ */
+final class CompactDictionary {
+
+    static final CompactDictionary EMPTY = new CompactDictionary(new String[0], new Object[0]);
+
+    /** Estimated size of an object header. */
+    private static final int OBJECT_HEADER = 12;
+
+    /** Estimated size of an object reference. */
+    private static final int REFERENCE = 4;
+
+    private final String[] keys;
+
+    private final Object[] values;
+
+    private CompactDictionary(final String[] keys, final Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Creates a dictionary with the given entries.
+     *
+     * @param entries The messages by key
+     * @param keyPool The pool to share key instances with other dictionaries,
+     *      might be {@code null}
+     */
+    static CompactDictionary create(final Map<String, ?> entries, final ConcurrentMap<String, String> keyPool) {
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        final String[] keys = entries.keySet().toArray(new String[entries.size()]);
+        Arrays.sort(keys);
+        final Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = entries.get(keys[i]);
+            keys[i] = pool(keys[i], keyPool);
+        }
+        return new CompactDictionary(keys, values);
+    }
+
+    private static String pool(final String key, final ConcurrentMap<String, String> keyPool) {
+        if (keyPool == null) {
+            return key;
+        }
+        final String pooled = keyPool.putIfAbsent(key, key);
+        return pooled == null ? key : pooled;
+    }
+
+    /**
+     * Returns a new dictionary with the entries of this dictionary and
+     * the given entries, the given entries replace existing ones.
+     */
+    CompactDictionary with(final Map<String, ?> entries, final ConcurrentMap<String, String> keyPool) {
+        final String[] patchKeys = entries.keySet().toArray(new String[entries.size()]);
+        Arrays.sort(patchKeys);
+
+        // merge the two sorted key arrays
+        final String[] mergedKeys = new String[keys.length + patchKeys.length];
+        final Object[] mergedValues = new Object[mergedKeys.length];
+        int i = 0, p = 0, m = 0;
+        while (i < keys.length || p < patchKeys.length) {
+            final int cmp;
+            if (i == keys.length) {
+                cmp = 1;
+            } else if (p == patchKeys.length) {
+                cmp = -1;
+            } else {
+                cmp = keys[i].compareTo(patchKeys[p]);
+            }
+            if (cmp < 0) {
+                mergedKeys[m] = keys[i];
+                mergedValues[m] = values[i];
+                i++;
+            } else {
+                mergedKeys[m] = (cmp == 0 ? keys[i] : pool(patchKeys[p], keyPool));
+                mergedValues[m] = entries.get(patchKeys[p]);
+                p++;
+                if (cmp == 0) {
+                    i++;
+                }
+            }
+            m++;
+        }
+        return new CompactDictionary(Arrays.copyOf(mergedKeys, m), Arrays.copyOf(mergedValues, m));
+    }
+
+    Object get(final String key) {
+        final int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    boolean containsKey(final String key) {
+        return Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Copies all entries into the map.
+     */
+    void copyTo(final Map<String, Object> target) {
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * The keys of this dictionary in their natural order.
+     */
+    Set<String> keySet() {
+        return new AbstractSet<String>() {
+
+            @Override
+            public Iterator<String> iterator() {
+                // the list returned by asList does not support removal
+                return Arrays.asList(keys).iterator();
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof String && containsKey((String) o);
+            }
+        };
+    }
+
+    /**
+     * Estimates the heap used by this dictionary in bytes.
+     *
+     * @param withStrings Whether to include the key and value strings, which
+     *      might be shared with other dictionaries.
+     */
+    long estimateSize(final boolean withStrings) {
+        long size = OBJECT_HEADER + 2 * REFERENCE + 2 * arraySize(keys.length);
+        if (withStrings) {
+            for (int i = 0; i < keys.length; i++) {
+                size += stringSize(keys[i]);
+                if (values[i] instanceof String) {
+                    size += stringSize((String) values[i]);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long arraySize(final int length) {
+        return align(OBJECT_HEADER + 4 + (long) length * REFERENCE);
+    }
+
+    private static long stringSize(final String s) {
+        // string object with hash and reference to the char array
+        return align(OBJECT_HEADER + 4 + REFERENCE) + align(OBJECT_HEADER + 4 + 2L * s.length());
+    }
+
+    private static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+}
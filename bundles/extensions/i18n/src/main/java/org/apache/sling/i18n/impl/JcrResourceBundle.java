@@ -21,10 +21,9 @@ package org.apache.sling.i18n.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -32,6 +31,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.jackrabbit.commons.json.JsonHandler;
 import org.apache.jackrabbit.commons.json.JsonParser;
@@ -39,6 +39,8 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceMetadata;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,7 +67,22 @@ public class JcrResourceBundle extends ResourceBundle {
 
     static final String QUERY_LANGUAGE_ROOTS = "//element(*,mix:language)[@jcr:language]";
 
-    private final Map<String, Object> resources;
+    /**
+     * The merged messages of all dictionaries. Updates replace the
+     * dictionary with a new one.
+     */
+    private volatile CompactDictionary resources;
+
+    /**
+     * The messages of the individual dictionaries by language root, only
+     * accessed while holding the lock of this bundle.
+     */
+    private final Map<String, CompactDictionary> dictionaries = new LinkedHashMap<String, CompactDictionary>();
+
+    /** The pool to share the keys with other bundles, might be {@code null}. */
+    private final ConcurrentMap<String, String> keyPool;
+
+    private final String[] searchPath;
 
     private final Locale locale;
 
@@ -75,21 +92,42 @@ public class JcrResourceBundle extends ResourceBundle {
 
     JcrResourceBundle(Locale locale, String baseName,
             ResourceResolver resourceResolver) {
+        this(locale, baseName, resourceResolver, null, null);
+    }
+
+    /**
+     * Creates the resource bundle using the language roots from the given
+     * index. If the index is <code>null</code>, the language roots are
+     * queried from the repository. The keys of the messages are shared with
+     * other resource bundles through the key pool, if one is given.
+     */
+    JcrResourceBundle(Locale locale, String baseName,
+            ResourceResolver resourceResolver, LanguageRootIndex languageRootIndex,
+            ConcurrentMap<String, String> keyPool) {
         this.locale = locale;
         this.baseName = baseName;
+        this.searchPath = resourceResolver.getSearchPath();
+        this.keyPool = keyPool;
 
         log.info("Finding all dictionaries for '{}' (basename: {}) ...", locale, baseName == null ? "<none>" : baseName);
 
         long start = System.currentTimeMillis();
         resourceResolver.refresh();
-        Set<String> roots = loadPotentialLanguageRoots(resourceResolver, locale, baseName);
-        this.resources = loadFully(resourceResolver, roots, this.languageRoots);
+        if (languageRootIndex == null) {
+            languageRootIndex = new LanguageRootIndex();
+        }
+        languageRootIndex.load(resourceResolver);
+        Set<String> roots = languageRootIndex.getRoots(locale, baseName);
+        synchronized (this) {
+            this.resources = loadFully(resourceResolver, roots, this.languageRoots);
+        }
 
         long end = System.currentTimeMillis();
         if (log.isInfoEnabled()) {
             log.info(
-                "Finished loading {} entries for '{}' (basename: {}) in {}ms",
-                new Object[] { resources.size(), locale, baseName == null ? "<none>" : baseName, (end - start)}
+                "Finished loading {} entries for '{}' (basename: {}) in {}ms, using about {} KB",
+                new Object[] { resources.size(), locale, baseName == null ? "<none>" : baseName, (end - start),
+                        getStatistics().getEstimatedSize() / 1024}
             );
         }
     }
@@ -137,12 +175,47 @@ public class JcrResourceBundle extends ResourceBundle {
         return new ResourceBundleEnumeration(resources.keySet(), parentKeys);
     }
 
+    /**
+     * Looks up the key in this bundle and in the chain of parent
+     * <code>JcrResourceBundle</code>s in a single loop. If none of them
+     * contains the key, the lookup is delegated to the first other parent,
+     * usually the root resource bundle. This avoids the repeated lookups of
+     * {@link ResourceBundle#getObject(String)} walking down the locale chain.
+     */
     @Override
     protected Object handleGetObject(String key) {
         if (log.isDebugEnabled()) {
             log.debug("Requesting key '{}' from resource bundle (baseName '{}', locale '{}')", new Object[] {key, baseName, locale});
         }
-        return resources.get(key);
+        JcrResourceBundle bundle = this;
+        while (true) {
+            final Object value = bundle.resources.get(key);
+            if (value != null) {
+                return value;
+            }
+            if (bundle.parent instanceof JcrResourceBundle) {
+                bundle = (JcrResourceBundle) bundle.parent;
+            } else if (bundle.parent != null && bundle != this) {
+                return bundle.parent.getObject(key);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns statistics about the memory used by this resource bundle,
+     * excluding its parents.
+     */
+    synchronized Statistics getStatistics() {
+        long size = resources.estimateSize(true);
+        for (final CompactDictionary dictionary : dictionaries.values()) {
+            if (dictionary != resources) {
+                // the strings are shared with the merged dictionary, unless overlaid
+                size += dictionary.estimateSize(false);
+            }
+        }
+        return new Statistics(dictionaries.size(), resources.size(), size);
     }
 
     /**
@@ -164,9 +237,33 @@ public class JcrResourceBundle extends ResourceBundle {
      *
      * @throws NullPointerException if either of the parameters is {@code null}.
      */
-    private Map<String, Object> loadFully(final ResourceResolver resolver, Set<String> roots, Set<String> languageRoots) {
+    private CompactDictionary loadFully(final ResourceResolver resolver, Set<String> roots, Set<String> languageRoots) {
+
+        for (final String root: roots) {
+
+            Resource dictionaryResource = resolver.getResource(root);
+            if (dictionaryResource == null) {
+                log.warn("Dictionary root found by search not accessible: {}", root);
+                continue;
+            }
+
+            dictionaries.put(root, loadDictionary(dictionaryResource));
+
+            languageRoots.add(root);
+        }
+
+        return merge();
+    }
+
+    /**
+     * Merges the dictionaries into a single map, honouring the search path.
+     */
+    private CompactDictionary merge() {
 
-        final String[] searchPath = resolver.getSearchPath();
+        if (dictionaries.size() == 1) {
+            // no need to merge, share the dictionary
+            return dictionaries.values().iterator().next();
+        }
 
         // for each search path entry, have a list of maps (dictionaries)
         // plus other = "outside the search path" at the end
@@ -176,63 +273,180 @@ public class JcrResourceBundle extends ResourceBundle {
         //   [2] /libs   -> [dict6, ...]
         //   [3] (other) -> [dict7, dict8 ...]
 
-        List<List<Map<String, Object>>> dictionariesBySearchPath = new ArrayList<List<Map<String, Object>>>(searchPath.length + 1);
+        List<List<CompactDictionary>> dictionariesBySearchPath = new ArrayList<List<CompactDictionary>>(searchPath.length + 1);
         for (int i = 0; i < searchPath.length + 1; i++) {
-            dictionariesBySearchPath.add(new ArrayList<Map<String, Object>>());
+            dictionariesBySearchPath.add(new ArrayList<CompactDictionary>());
         }
 
-        for (final String root: roots) {
-
-            Resource dictionaryResource = resolver.getResource(root);
-            if (dictionaryResource == null) {
-                log.warn("Dictionary root found by search not accessible: {}", root);
-                continue;
-            }
-
-            // linked hash map to keep order (not functionally important, but helpful for dictionary debugging)
-            Map<String, Object> dictionary = new LinkedHashMap<String, Object>();
+        for (final Map.Entry<String, CompactDictionary> entry : dictionaries.entrySet()) {
+            final String root = entry.getKey();
 
             // find where in the search path this dict belongs
             // otherwise put it in the outside-the-search-path bucket (last list)
-            List<Map<String, Object>> targetList = dictionariesBySearchPath.get(searchPath.length);
+            List<CompactDictionary> targetList = dictionariesBySearchPath.get(searchPath.length);
             for (int i = 0; i < searchPath.length; i++) {
                 if (root.startsWith(searchPath[i])) {
                     targetList = dictionariesBySearchPath.get(i);
                     break;
                 }
             }
-            targetList.add(dictionary);
-
-            // check type of dictionary
-            if (dictionaryResource.getName().endsWith(".json")) {
-                loadJsonDictionary(dictionaryResource, dictionary);
-            } else {
-                loadSlingMessageDictionary(dictionaryResource, dictionary);
-            }
-
-            languageRoots.add(root);
+            targetList.add(entry.getValue());
         }
 
-        // linked hash map to keep order (not functionally important, but helpful for dictionary debugging)
-        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        final Map<String, Object> result = new HashMap<String, Object>();
 
         // first, add everything that's not under a search path (e.g. /content)
         // below, same strings inside a search path dictionary would overlay them since
         // they are added later to result = overwrite
-        for (Map<String, Object> dict : dictionariesBySearchPath.get(searchPath.length)) {
-            result.putAll(dict);
+        for (CompactDictionary dict : dictionariesBySearchPath.get(searchPath.length)) {
+            dict.copyTo(result);
         }
 
         // then, in order of the search path, add all the individual dictionaries into
         // a single result, so that e.g. strings in /apps overlay the ones in /libs
         for (int i = searchPath.length - 1; i >= 0; i--) {
 
-            for (Map<String, Object> dict : dictionariesBySearchPath.get(i)) {
-                result.putAll(dict);
+            for (CompactDictionary dict : dictionariesBySearchPath.get(i)) {
+                dict.copyTo(result);
+            }
+        }
+
+        return CompactDictionary.create(result, keyPool);
+    }
+
+    private CompactDictionary loadDictionary(final Resource dictionaryResource) {
+        final Map<String, Object> dictionary = new HashMap<String, Object>();
+
+        // check type of dictionary
+        if (dictionaryResource.getName().endsWith(".json")) {
+            loadJsonDictionary(dictionaryResource, dictionary);
+        } else {
+            loadSlingMessageDictionary(dictionaryResource, dictionary);
+        }
+        return CompactDictionary.create(dictionary, keyPool);
+    }
+
+    /**
+     * Applies resource changes below the language roots of this bundle.
+     * <p>
+     * Added and changed <code>sling:Message</code> resources are patched into
+     * the bundle directly. For any other change, like a removed message or a
+     * changed key, only the affected dictionary is read again. Changes outside
+     * of the language roots of this bundle are ignored.
+     *
+     * @param resolver The storage access (must not be {@code null})
+     * @param changes The changes
+     * @return {@code true} if the messages of this bundle have been updated
+     */
+    synchronized boolean update(final ResourceResolver resolver, final List<ResourceChange> changes) {
+        final Set<String> reloadRoots = new LinkedHashSet<String>();
+        final Map<String, Map<String, Object>> patches = new LinkedHashMap<String, Map<String, Object>>();
+        for (final ResourceChange change : changes) {
+            final String root = getLanguageRoot(change.getPath());
+            if (root == null || reloadRoots.contains(root)) {
+                continue;
+            }
+            if (!dictionaries.containsKey(root) || root.endsWith(".json") || !isMessagePatch(change)) {
+                reloadRoots.add(root);
+                continue;
+            }
+            final Resource resource = resolver.getResource(change.getPath());
+            if (resource == null) {
+                reloadRoots.add(root);
+                continue;
+            }
+            final ValueMap vm = resource.adaptTo(ValueMap.class);
+            final String value = (vm == null ? null : vm.get(PROP_VALUE, String.class));
+            if (value != null) {
+                final String key = vm.get(PROP_KEY, resource.getName());
+                log.debug("Updating message '{}' from {}", key, change.getPath());
+                Map<String, Object> rootPatches = patches.get(root);
+                if (rootPatches == null) {
+                    rootPatches = new HashMap<String, Object>();
+                    patches.put(root, rootPatches);
+                }
+                rootPatches.put(key, value);
+            } else if (change.getType() == ChangeType.ADDED && resource.hasChildren()) {
+                // a subtree which might contain messages
+                reloadRoots.add(root);
+            }
+        }
+
+        patches.keySet().removeAll(reloadRoots);
+        for (final Map.Entry<String, Map<String, Object>> entry : patches.entrySet()) {
+            dictionaries.put(entry.getKey(), dictionaries.get(entry.getKey()).with(entry.getValue(), keyPool));
+        }
+        for (final String root : reloadRoots) {
+            log.debug("Reloading dictionary {} of {}", root, this);
+            final Resource dictionaryResource = resolver.getResource(root);
+            if (dictionaryResource == null) {
+                dictionaries.remove(root);
+            } else {
+                dictionaries.put(root, loadDictionary(dictionaryResource));
+            }
+        }
+
+        if (!reloadRoots.isEmpty() || patches.size() > 1) {
+            this.resources = merge();
+        } else if (!patches.isEmpty()) {
+            final String root = patches.keySet().iterator().next();
+            this.resources = patch(patches.get(root), root);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Patches the messages of a single dictionary into a copy of the merged
+     * messages, unless another dictionary takes precedence for a key.
+     */
+    private CompactDictionary patch(final Map<String, Object> patches, final String root) {
+        if (dictionaries.size() == 1) {
+            return merge();
+        }
+        for (final String key : patches.keySet()) {
+            for (final Map.Entry<String, CompactDictionary> other : dictionaries.entrySet()) {
+                if (!other.getKey().equals(root) && other.getValue().containsKey(key)) {
+                    return merge();
+                }
+            }
+        }
+        return this.resources.with(patches, keyPool);
+    }
+
+    /**
+     * Returns the language root of this bundle containing the path.
+     */
+    private String getLanguageRoot(final String path) {
+        for (final String root : languageRoots) {
+            if (path.equals(root) || (path.startsWith(root) && path.charAt(root.length()) == '/')) {
+                return root;
             }
         }
+        return null;
+    }
 
-        return result;
+    /**
+     * Checks whether a change can be applied by reading the changed
+     * resource only. This is not possible if the key of a message might
+     * have changed or a message might have been removed.
+     */
+    private boolean isMessagePatch(final ResourceChange change) {
+        if (change.getType() == ChangeType.ADDED) {
+            return true;
+        }
+        if (change.getType() != ChangeType.CHANGED) {
+            return false;
+        }
+        final Set<String> added = change.getAddedPropertyNames();
+        final Set<String> changed = change.getChangedPropertyNames();
+        final Set<String> removed = change.getRemovedPropertyNames();
+        if (added == null || changed == null || removed == null) {
+            return false;
+        }
+        return !added.contains(PROP_KEY) && !changed.contains(PROP_KEY)
+                && !removed.contains(PROP_KEY) && !removed.contains(PROP_VALUE);
     }
 
     private void loadJsonDictionary(Resource resource, final Map<String, Object> targetDictionary) {
@@ -318,36 +532,43 @@ public class JcrResourceBundle extends ResourceBundle {
         this.scanForSlingMessages(dictionaryResource, targetDictionary);
     }
 
-    private Set<String> loadPotentialLanguageRoots(ResourceResolver resourceResolver, Locale locale, String baseName) {
-        final String localeString = locale.toString();
-        final String localeStringLower = localeString.toLowerCase();
-        final String localeRFC4646String = toRFC4646String(locale);
-        final String localeRFC4646StringLower = localeRFC4646String.toLowerCase();
-
-        final Set<String> paths = new LinkedHashSet<String>();
-        final Iterator<Resource> bundles = resourceResolver.findResources(QUERY_LANGUAGE_ROOTS, "xpath");
-        while (bundles.hasNext()) {
-            Resource bundle = bundles.next();
-            ValueMap properties = bundle.adaptTo(ValueMap.class);
-            String language = properties.get(PROP_LANGUAGE, String.class);
-            if (language != null && language.length() > 0) {
-                if (language.equals(localeString)
-                        || language.equals(localeStringLower)
-                        || language.equals(localeRFC4646String)
-                        || language.equals(localeRFC4646StringLower)) {
-
-                    if (baseName == null || baseName.equals(properties.get(PROP_BASENAME, ""))) {
-                        paths.add(bundle.getPath());
-                    }
-                }
-            }
+    /**
+     * Memory statistics of a resource bundle.
+     */
+    static final class Statistics {
+
+        private final int dictionaries;
+
+        private final int entries;
+
+        private final long estimatedSize;
+
+        Statistics(final int dictionaries, final int entries, final long estimatedSize) {
+            this.dictionaries = dictionaries;
+            this.entries = entries;
+            this.estimatedSize = estimatedSize;
         }
-        return Collections.unmodifiableSet(paths);
-    }
 
-    // Would be nice if Locale.toString() output RFC 4646, but it doesn't
-    private static String toRFC4646String(Locale locale) {
-        return locale.toString().replace('_', '-');
+        /** The number of dictionaries merged into the resource bundle. */
+        int getDictionaries() {
+            return dictionaries;
+        }
+
+        /** The number of messages of the resource bundle. */
+        int getEntries() {
+            return entries;
+        }
+
+        /** The estimated heap used by the resource bundle in bytes. */
+        long getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics [dictionaries=" + dictionaries + ", entries=" + entries
+                    + ", estimatedSize=" + estimatedSize + "]";
+        }
     }
 
     @Override
@@ -18,9 +18,6 @@
  */
 package org.apache.sling.i18n.impl;
 
-import static org.apache.sling.i18n.impl.JcrResourceBundle.PROP_BASENAME;
-import static org.apache.sling.i18n.impl.JcrResourceBundle.PROP_LANGUAGE;
-
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,7 +26,6 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -44,10 +40,8 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.LoginException;
-import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
-import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
 import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChangeListener;
@@ -93,9 +87,6 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
     @Reference
     private Scheduler scheduler;
 
-    /** job names of scheduled jobs for reloading individual bundles */
-    private final Collection<String> scheduledJobNames = Collections.synchronizedList(new ArrayList<String>()) ;
-
     /** default log */
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -129,6 +120,18 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
      */
     private final Set<String> languageRootPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
+    /**
+     * all language roots in the repository, queried once and then kept
+     * up to date from the resource changes
+     */
+    private final LanguageRootIndex languageRootIndex = new LanguageRootIndex();
+
+    /**
+     * the message keys shared by all resource bundles, most keys exist
+     * in the dictionaries of several locales
+     */
+    private final ConcurrentHashMap<String, String> keyPool = new ConcurrentHashMap<String, String>();
+
     /**
      * Return root resource bundle as created on-demand by
      * {@link #getRootResourceBundle()}.
@@ -187,96 +190,55 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
 
     @Override
     public void onChange(List<ResourceChange> changes) {
+        final List<ResourceChange> bundleChanges = new ArrayList<ResourceChange>();
+        boolean refreshed = false;
         for(final ResourceChange change : changes) {
             log.trace("handleEvent: Detecting event {} for path '{}'", change.getType(), change.getPath());
 
+            // keep the language roots up to date
+            boolean languageRootChanged = false;
+            if (change.getType() == ResourceChange.ChangeType.REMOVED) {
+                languageRootChanged = languageRootIndex.remove(change.getPath());
+            } else if (change.getType() == ResourceChange.ChangeType.ADDED
+                    || change.getType() == ResourceChange.ChangeType.CHANGED) {
+                if (!refreshed && languageRootIndex.isLoaded()) {
+                    resourceResolver.refresh();
+                    refreshed = true;
+                }
+                languageRootChanged = languageRootIndex.update(resourceResolver, change.getPath());
+            }
+
             // if this change was on languageRootPath level this might change basename and locale as well, therefore
             // invalidate everything
-            if (languageRootPaths.contains(change.getPath())) {
+            if (languageRootChanged) {
                 log.debug(
-                        "handleEvent: Detected change of cached language root '{}', removing all cached ResourceBundles",
+                        "handleEvent: Detected change of language root '{}', removing all cached ResourceBundles",
                         change.getPath());
                 scheduleReloadBundles(true);
-            } else {
-                // if it is only a change below a root path, only messages of one resource bundle can be affected!
-                for (final String root : languageRootPaths) {
-                    if (change.getPath().startsWith(root)) {
-                        // figure out which JcrResourceBundle from the cached ones is affected
-                        for (JcrResourceBundle bundle : resourceBundleCache.values()) {
-                            if (bundle.getLanguageRootPaths().contains(root)) {
-                                // reload it
-                                log.debug("handleEvent: Resource changes below '{}', reloading ResourceBundle '{}'",
-                                        root, bundle);
-                                scheduleReloadBundle(bundle);
-                                return;
-                            }
-                        }
-                        log.debug("handleEvent: No cached resource bundle found with root '{}'", root);
-                        break;
-                    }
-                }
-                // may be a completely new dictionary
-                if (isDictionaryResource(change)) {
-                    scheduleReloadBundles(true);
+                return;
+            }
+            // if it is only a change below a root path, only messages of the bundles using that root can be affected!
+            for (final String root : languageRootPaths) {
+                if (change.getPath().startsWith(root)) {
+                    bundleChanges.add(change);
+                    break;
                 }
             }
         }
-    }
 
-    private boolean isDictionaryResource(final ResourceChange change) {
-        // language node changes happen quite frequently (https://issues.apache.org/jira/browse/SLING-2881)
-        // therefore only consider changes either for sling:MessageEntry's
-        // or for JSON dictionaries
-        // get valuemap
-        resourceResolver.refresh();
-        final Resource resource = resourceResolver.getResource(change.getPath());
-        if (resource == null) {
-            log.trace("Could not get resource for '{}' for event {}", change.getPath(), change.getType());
-            return false;
-        }
-        if ( resource.getResourceType() == null ) {
-            return false;
-        }
-        if (resource.isResourceType(JcrResourceBundle.RT_MESSAGE_ENTRY)) {
-            log.debug("Found new dictionary entry: New {} resource in '{}' detected", JcrResourceBundle.RT_MESSAGE_ENTRY, change.getPath());
-            return true;
-        }
-        final ValueMap valueMap = resource.getValueMap();
-        // FIXME: derivatives from mix:Message are not detected
-        if (hasMixin(valueMap, JcrResourceBundle.MIXIN_MESSAGE)) {
-            log.debug("Found new dictionary entry: New {} resource in '{}' detected", JcrResourceBundle.MIXIN_MESSAGE, change.getPath());
-            return true;
-        }
-        if (change.getPath().endsWith(".json")) {
-            // check for mixin
-            if (hasMixin(valueMap, JcrResourceBundle.MIXIN_LANGUAGE)) {
-                log.debug("Found new dictionary: New {} resource in '{}' detected", JcrResourceBundle.MIXIN_LANGUAGE, change.getPath());
-                return true;
+        if (!bundleChanges.isEmpty()) {
+            if (!refreshed) {
+                resourceResolver.refresh();
             }
-        }
-        return false;
-    }
-
-    private boolean hasMixin(ValueMap valueMap, String mixin) {
-        final String[] mixins = valueMap.get(JcrResourceBundle.PROP_MIXINS, String[].class);
-        if ( mixins != null ) {
-            for(final String m : mixins) {
-                if (mixin.equals(m) ) {
-                    return true;
+            for (final JcrResourceBundle bundle : resourceBundleCache.values()) {
+                if (bundle.update(resourceResolver, bundleChanges)) {
+                    log.debug("handleEvent: Updated ResourceBundle '{}'", bundle);
                 }
             }
         }
-        return false;
     }
 
     private void scheduleReloadBundles(boolean withDelay) {
-        // cancel all reload individual bundle jobs!
-        synchronized(scheduledJobNames) {
-            for (String scheduledJobName : scheduledJobNames) {
-                scheduler.unschedule(scheduledJobName);
-            }
-        }
-        scheduledJobNames.clear();
         // defer this job
         final ScheduleOptions options;
         if (withDelay) {
@@ -290,30 +252,13 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
             public void run() {
                 log.info("Reloading all resource bundles");
                 clearCache();
+                languageRootIndex.clear();
+                keyPool.clear();
                 preloadBundles();
             }
         }, options);
     }
 
-    private void scheduleReloadBundle(JcrResourceBundle bundle) {
-        String baseName = bundle.getBaseName();
-        Locale locale = bundle.getLocale();
-        final Key key = new Key(baseName, locale);
-
-        // defer this job
-        ScheduleOptions options = scheduler.AT(new Date(System.currentTimeMillis() + invalidationDelay));
-        final String jobName = "JcrResourceBundleProvider: reload bundle with key " + key.toString();
-        scheduledJobNames.add(jobName);
-        options.name(jobName);
-        scheduler.schedule(new Runnable() {
-            @Override
-            public void run() {
-                reloadBundle(key);
-                scheduledJobNames.remove(jobName);
-            }
-        }, options);
-    }
-
     void reloadBundle(final Key key) {
         // remove bundle from cache
         resourceBundleCache.remove(key);
@@ -391,6 +336,8 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
 
     protected void deactivate() {
         clearCache();
+        languageRootIndex.clear();
+        keyPool.clear();
         resourceResolver.close();
     }
 
@@ -463,7 +410,7 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
      *             is not available to access the resources.
      */
     private JcrResourceBundle createResourceBundle(String baseName, Locale locale) {
-        final JcrResourceBundle bundle = new JcrResourceBundle(locale, baseName, resourceResolver);
+        final JcrResourceBundle bundle = new JcrResourceBundle(locale, baseName, resourceResolver, languageRootIndex, keyPool);
 
         // set parent resource bundle
         Locale parentLocale = getParentLocale(locale);
@@ -537,21 +484,14 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
     private void preloadBundles() {
         if (preloadBundles) {
             resourceResolver.refresh();
-            Iterator<Map<String, Object>> bundles = resourceResolver.queryResources(
-                    JcrResourceBundle.QUERY_LANGUAGE_ROOTS, "xpath");
+            languageRootIndex.load(resourceResolver);
             Set<Key> usedKeys = new HashSet<Key>();
-            while (bundles.hasNext()) {
-                Map<String,Object> bundle = bundles.next();
-                if (bundle.containsKey(PROP_LANGUAGE)) {
-                    Locale locale = toLocale(bundle.get(PROP_LANGUAGE).toString());
-                    String baseName = null;
-                    if (bundle.containsKey(PROP_BASENAME)) {
-                        baseName = bundle.get(PROP_BASENAME).toString();
-                    }
-                    Key key = new Key(baseName, locale);
-                    if (usedKeys.add(key)) {
-                        getResourceBundle(baseName, locale);
-                    }
+            for (final LanguageRootIndex.LanguageRoot root : languageRootIndex.getRoots()) {
+                Locale locale = toLocale(root.getLanguage());
+                String baseName = root.getBaseName();
+                Key key = new Key(baseName, locale);
+                if (usedKeys.add(key)) {
+                    getResourceBundle(baseName, locale);
                 }
             }
         }
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.i18n.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>LanguageRootIndex</code> keeps the paths of all dictionary
+ * subtrees (resources with the <code>mix:language</code> mixin and a
+ * <code>jcr:language</code> property) together with their language and
+ * base name.
+ * <p>
+ * The index is filled by a single query on first use and afterwards kept
+ * up to date through {@link #update(ResourceResolver, String)} and
+ * {@link #remove(String)}, so loading a resource bundle does not need to
+ * query the repository again.
+ */
+class LanguageRootIndex {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** The language roots by path, sorted to find subtrees quickly. */
+    private final ConcurrentSkipListMap<String, LanguageRoot> roots = new ConcurrentSkipListMap<String, LanguageRoot>();
+
+    private volatile boolean loaded;
+
+    /**
+     * Fills the index by querying all language roots, unless it has
+     * already been filled.
+     */
+    void load(final ResourceResolver resolver) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                final Iterator<Resource> bundles = resolver.findResources(JcrResourceBundle.QUERY_LANGUAGE_ROOTS, "xpath");
+                while (bundles.hasNext()) {
+                    final Resource bundle = bundles.next();
+                    final LanguageRoot root = toLanguageRoot(bundle, false);
+                    if (root != null) {
+                        roots.put(bundle.getPath(), root);
+                    }
+                }
+                loaded = true;
+                log.debug("Found language roots {}", roots.keySet());
+            }
+        }
+    }
+
+    /**
+     * Drops all entries, the next call to {@link #load(ResourceResolver)}
+     * queries the repository again.
+     */
+    synchronized void clear() {
+        roots.clear();
+        loaded = false;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Updates the index for a resource which has been added or changed.
+     *
+     * @return <code>true</code> if the resource has become a language root, is
+     *         no longer a language root or its language or base name changed
+     */
+    boolean update(final ResourceResolver resolver, final String path) {
+        if (!loaded) {
+            // the language roots are queried on first use
+            return false;
+        }
+        final Resource resource = resolver.getResource(path);
+        final LanguageRoot root = (resource == null ? null : toLanguageRoot(resource, true));
+        if (root != null) {
+            return !root.equals(roots.put(path, root));
+        }
+        return roots.remove(path) != null;
+    }
+
+    /**
+     * Removes the language roots at and below the given path.
+     *
+     * @return <code>true</code> if a language root has been removed
+     */
+    boolean remove(final String path) {
+        boolean removed = roots.remove(path) != null;
+        final String prefix = path.endsWith("/") ? path : path.concat("/");
+        final Iterator<String> below = roots.tailMap(prefix).keySet().iterator();
+        while (below.hasNext()) {
+            if (!below.next().startsWith(prefix)) {
+                break;
+            }
+            below.remove();
+            removed = true;
+        }
+        return removed;
+    }
+
+    boolean contains(final String path) {
+        return roots.containsKey(path);
+    }
+
+    /**
+     * Returns the language roots contributing to the resource bundle for
+     * the locale and base name.
+     */
+    Set<String> getRoots(final Locale locale, final String baseName) {
+        final String localeString = locale.toString();
+        final String localeStringLower = localeString.toLowerCase();
+        final String localeRFC4646String = toRFC4646String(locale);
+        final String localeRFC4646StringLower = localeRFC4646String.toLowerCase();
+
+        final Set<String> paths = new LinkedHashSet<String>();
+        for (final Map.Entry<String, LanguageRoot> entry : roots.entrySet()) {
+            final String language = entry.getValue().getLanguage();
+            if (language.equals(localeString)
+                    || language.equals(localeStringLower)
+                    || language.equals(localeRFC4646String)
+                    || language.equals(localeRFC4646StringLower)) {
+
+                if (baseName == null || baseName.equals(entry.getValue().getBaseName())) {
+                    paths.add(entry.getKey());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(paths);
+    }
+
+    /**
+     * Returns all indexed language roots.
+     */
+    Collection<LanguageRoot> getRoots() {
+        return roots.values();
+    }
+
+    private LanguageRoot toLanguageRoot(final Resource resource, final boolean checkMixin) {
+        final ValueMap properties = resource.adaptTo(ValueMap.class);
+        if (properties == null) {
+            return null;
+        }
+        final String language = properties.get(JcrResourceBundle.PROP_LANGUAGE, String.class);
+        if (language == null || language.length() == 0) {
+            return null;
+        }
+        // FIXME: derivatives from mix:language are not detected
+        if (checkMixin) {
+            final String[] mixins = properties.get(JcrResourceBundle.PROP_MIXINS, String[].class);
+            boolean isLanguage = false;
+            if (mixins != null) {
+                for (final String mixin : mixins) {
+                    if (JcrResourceBundle.MIXIN_LANGUAGE.equals(mixin)) {
+                        isLanguage = true;
+                        break;
+                    }
+                }
+            }
+            if (!isLanguage) {
+                return null;
+            }
+        }
+        return new LanguageRoot(language, properties.get(JcrResourceBundle.PROP_BASENAME, String.class));
+    }
+
+    // Would be nice if Locale.toString() output RFC 4646, but it doesn't
+    private static String toRFC4646String(Locale locale) {
+        return locale.toString().replace('_', '-');
+    }
+
+    /**
+     * The language and base name of a language root.
+     */
+    static final class LanguageRoot {
+
+        private final String language;
+
+        private final String baseName;
+
+        LanguageRoot(final String language, final String baseName) {
+            this.language = language;
+            this.baseName = baseName;
+        }
+
+        String getLanguage() {
+            return language;
+        }
+
+        /**
+         * The base name or <code>null</code> if the language root has none.
+         */
+        String getBaseName() {
+            return baseName;
+        }
+
+        @Override
+        public int hashCode() {
+            return language.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            } else if (obj instanceof LanguageRoot) {
+                final LanguageRoot other = (LanguageRoot) obj;
+                return language.equals(other.language)
+                    && (baseName == null ? other.baseName == null : baseName.equals(other.baseName));
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.i18n.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+
+/**
+ * The <code>CompactDictionaryTest</code> tests lookups, updates and the key
+ * sharing of the <code>CompactDictionary</code>.
+ */
+public class CompactDictionaryTest extends TestCase {
+
+    private static Map<String, Object> entries(String... keysAndValues) {
+        final Map<String, Object> entries = new HashMap<String, Object>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            entries.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return entries;
+    }
+
+    public void test_get() {
+        CompactDictionary dict = CompactDictionary.create(entries("plate", "Teller", "fork", "Gabel", "spoon", "Loeffel"), null);
+        assertEquals(3, dict.size());
+        assertEquals("Teller", dict.get("plate"));
+        assertEquals("Gabel", dict.get("fork"));
+        assertEquals("Loeffel", dict.get("spoon"));
+        assertNull(dict.get("knife"));
+        assertTrue(dict.containsKey("fork"));
+        assertFalse(dict.containsKey("knife"));
+        assertEquals(Arrays.asList("fork", "plate", "spoon"), Arrays.asList(dict.keySet().toArray()));
+        assertTrue(dict.keySet().contains("spoon"));
+        assertFalse(dict.keySet().contains("knife"));
+    }
+
+    public void test_empty() {
+        CompactDictionary dict = CompactDictionary.create(Collections.<String, Object>emptyMap(), null);
+        assertSame(CompactDictionary.EMPTY, dict);
+        assertNull(dict.get("plate"));
+        assertTrue(dict.keySet().isEmpty());
+    }
+
+    public void test_with() {
+        CompactDictionary dict = CompactDictionary.create(entries("b", "1", "d", "2"), null);
+        CompactDictionary patched = dict.with(entries("a", "3", "d", "4", "e", "5"), null);
+
+        // the original dictionary is unchanged
+        assertEquals(2, dict.size());
+        assertEquals("2", dict.get("d"));
+
+        assertEquals(4, patched.size());
+        assertEquals("3", patched.get("a"));
+        assertEquals("1", patched.get("b"));
+        assertEquals("4", patched.get("d"));
+        assertEquals("5", patched.get("e"));
+        assertEquals(Arrays.asList("a", "b", "d", "e"), Arrays.asList(patched.keySet().toArray()));
+    }
+
+    public void test_shared_keys() {
+        ConcurrentHashMap<String, String> keyPool = new ConcurrentHashMap<String, String>();
+        CompactDictionary de = CompactDictionary.create(entries(new String("plate"), "Teller"), keyPool);
+        CompactDictionary fr = CompactDictionary.create(entries(new String("plate"), "Assiette"), keyPool);
+        assertSame(de.keySet().iterator().next(), fr.keySet().iterator().next());
+    }
+
+    public void test_estimateSize() {
+        CompactDictionary dict = CompactDictionary.create(entries("plate", "Teller", "fork", "Gabel"), null);
+        assertTrue(dict.estimateSize(false) > 0);
+        assertTrue(dict.estimateSize(true) > dict.estimateSize(false));
+        assertTrue(CompactDictionary.EMPTY.estimateSize(true) < dict.estimateSize(false));
+    }
+}
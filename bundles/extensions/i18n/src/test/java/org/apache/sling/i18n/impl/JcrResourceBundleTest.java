@@ -20,6 +20,8 @@ package org.apache.sling.i18n.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -45,6 +47,8 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceMetadata;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.commons.testing.jcr.RepositoryTestBase;
 import org.apache.sling.commons.testing.jcr.RepositoryUtil;
@@ -527,6 +531,28 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
         assertEquals("missing", bundle.getString("missing"));
     }
 
+    public void test_bundle_parenting_chain() {
+        // de_AT -> de -> en -> root
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de", "AT"), null, resolver);
+        JcrResourceBundle deBundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        JcrResourceBundle enBundle = new JcrResourceBundle(new Locale("en"), null, resolver);
+        bundle.setParent(deBundle);
+        deBundle.setParent(enBundle);
+        enBundle.setParent(new RootResourceBundle());
+
+        assertEquals("Teller", bundle.getString("plate"));
+        assertEquals(PARENT_MSG.message, bundle.getObject(PARENT_MSG.key));
+        assertEquals("missing", bundle.getString("missing"));
+    }
+
+    public void test_getStatistics() {
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        JcrResourceBundle.Statistics stats = bundle.getStatistics();
+        assertEquals(1, stats.getDictionaries());
+        assertEquals(MESSAGES_DE.size(), stats.getEntries());
+        assertTrue(stats.getEstimatedSize() > 0);
+    }
+
     public void test_search_path() throws Exception {
         // overwrite stuff in apps
         Node appsI18n = getSession().getRootNode().addNode("apps").addNode("i18n", "nt:unstructured");
@@ -670,6 +696,70 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
         assertEquals(MESSAGES_DE.size(), counter);
     }
 
+    public void test_update_message() throws Exception {
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        assertEquals("Teller", bundle.getString("plate"));
+
+        // change an existing message
+        Node plate = getSession().getNode("/libs/i18n/de/plate");
+        plate.setProperty("sling:message", "Platte");
+        // add a new message
+        Node knife = getSession().getNode("/libs/i18n/de").addNode("knife", "sling:MessageEntry");
+        knife.setProperty("sling:message", "Messer");
+        getSession().save();
+
+        assertTrue(bundle.update(resolver, Arrays.asList(
+                new ResourceChange(ChangeType.CHANGED, plate.getPath(), false,
+                        Collections.<String>emptySet(), Collections.singleton("sling:message"), Collections.<String>emptySet()),
+                new ResourceChange(ChangeType.ADDED, knife.getPath(), false, null, null, null))));
+        assertEquals("Platte", bundle.getString("plate"));
+        assertEquals("Messer", bundle.getString("knife"));
+        assertEquals("Gabel", bundle.getString("fork"));
+        assertEquals(MESSAGES_DE.size() + 1, bundle.keySet().size());
+
+        // changes outside of the dictionaries are ignored
+        assertFalse(bundle.update(resolver, Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, "/libs/i18n/en/untranslated", false, null, null, null))));
+    }
+
+    public void test_update_removed_message() throws Exception {
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        assertEquals("Gabel", bundle.getString("fork"));
+
+        Node fork = getSession().getNode("/libs/i18n/de/f");
+        fork.remove();
+        getSession().save();
+
+        // the dictionary is read again
+        assertTrue(bundle.update(resolver, Collections.singletonList(
+                new ResourceChange(ChangeType.REMOVED, "/libs/i18n/de/f", false, null, null, null))));
+        assertFalse(bundle.keySet().contains("fork"));
+        assertEquals("Teller", bundle.getString("plate"));
+    }
+
+    public void test_update_overlaid_message() throws Exception {
+        Node appsI18n = getSession().getRootNode().addNode("apps").addNode("i18n", "nt:unstructured");
+        Node de = appsI18n.addNode("de", "nt:folder");
+        de.addMixin("mix:language");
+        de.setProperty("jcr:language", "de");
+        Node plate = de.addNode("plate", "sling:MessageEntry");
+        plate.setProperty("sling:message", "OTHER");
+        getSession().save();
+
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+        assertEquals("OTHER", bundle.getString("plate"));
+
+        // a change in /libs must not overwrite the message from /apps
+        Node libsPlate = getSession().getNode("/libs/i18n/de/plate");
+        libsPlate.setProperty("sling:message", "Platte");
+        getSession().save();
+
+        assertTrue(bundle.update(resolver, Collections.singletonList(
+                new ResourceChange(ChangeType.CHANGED, libsPlate.getPath(), false,
+                        Collections.<String>emptySet(), Collections.singleton("sling:message"), Collections.<String>emptySet()))));
+        assertEquals("OTHER", bundle.getString("plate"));
+    }
+
     private class TestResource extends AbstractResource {
 
         private final Node node;
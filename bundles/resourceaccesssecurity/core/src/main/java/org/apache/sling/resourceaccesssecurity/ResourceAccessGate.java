@@ -46,6 +46,8 @@ import aQute.bnd.annotation.ConsumerType;
  * <li><b>finaloperations</b>: set of operations on which the service answer is
  * final and no further service should be called (default none of them), except
  * the GateResult is {@link GateResult.DONTCARE}</li>
+ * <li><b>cacheable</b>: whether the results of the service might be cached
+ * per resource resolver (default false)</li>
  * </ul>
  *
  * The resource access gate can either have the context {@link #PROVIDER_CONTEXT},
@@ -111,6 +113,18 @@ public interface ResourceAccessGate {
      */
     String FINALOPERATIONS = "finaloperations";
 
+    /**
+     * The name of the service registration property indicating whether the
+     * results of the service might be cached, defaults to <code>false</code>
+     * (value is "cacheable").
+     * If set to <code>true</code>, the results of the canXXX methods and of
+     * {@link #canReadAllValues(Resource)} are cached per resource resolver and
+     * path for the lifetime of the resource resolver. Therefore the results
+     * must only depend on the path and the resource resolver.
+     * @since 1.1.0
+     */
+    String CACHEABLE = "cacheable";
+
     /**
      * <code>GateResult</code> defines 3 possible states which can be returned
      * by the different canXXX methods of this interface.
@@ -25,6 +25,7 @@ import java.util.regex.Pattern;
 
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.resourceaccesssecurity.ResourceAccessGate;
+import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 
 public class ResourceAccessGateHandler implements Comparable<ResourceAccessGateHandler> {
@@ -37,6 +38,27 @@ public class ResourceAccessGateHandler implements Comparable<ResourceAccessGateH
     private final Set<ResourceAccessGate.Operation> operations = new HashSet<ResourceAccessGate.Operation>();
     private final Set<ResourceAccessGate.Operation> finalOperations = new HashSet<ResourceAccessGate.Operation>();
 
+    /** The literal prefix every path matched by the path pattern starts with. */
+    private final String pathPrefix;
+
+    /** How the path pattern is evaluated. */
+    private final int matchType;
+
+    /** The path pattern is evaluated as regular expression. */
+    private static final int MATCH_REGEXP = 0;
+
+    /** The path pattern is a literal path. */
+    private static final int MATCH_LITERAL = 1;
+
+    /** The path pattern is the literal prefix followed by <code>.*</code>. */
+    private static final int MATCH_PREFIX = 2;
+
+    /** Whether the results of the gate might be cached. */
+    private final boolean cacheable;
+
+    /** The service id, used to identify cached results. */
+    private final Object serviceId;
+
     /**
      * constructor
      */
@@ -52,6 +74,19 @@ public class ResourceAccessGateHandler implements Comparable<ResourceAccessGateH
         } else {
             pathPattern = Pattern.compile(".*");
         }
+        pathPrefix = getLiteralPrefix(pathPattern.pattern());
+        final String remainder = pathPattern.pattern().substring(pathPrefix.length());
+        if ( remainder.length() == 0 ) {
+            matchType = MATCH_LITERAL;
+        } else if ( remainder.equals(".*") ) {
+            matchType = MATCH_PREFIX;
+        } else {
+            matchType = MATCH_REGEXP;
+        }
+
+        cacheable = PropertiesUtil.toBoolean(resourceAccessGateRef.getProperty(ResourceAccessGate.CACHEABLE), false);
+        final Object id = resourceAccessGateRef.getProperty(Constants.SERVICE_ID);
+        serviceId = (id != null ? id : resourceAccessGateRef);
 
         // extract the service property "operations"
         final String ops = PropertiesUtil.toString( resourceAccessGateRef.getProperty(ResourceAccessGate.OPERATIONS), null );
@@ -88,8 +123,7 @@ public class ResourceAccessGateHandler implements Comparable<ResourceAccessGateH
 
         if ( operations.contains( operation ) ) {
             if (path != null) {
-                final Matcher match = pathPattern.matcher(path);
-                returnValue = match.matches();
+                returnValue = matchesPath(path);
             } else {
                 // if no path is given just add every ResourceAccessGate for
                 // security reason
@@ -100,6 +134,88 @@ public class ResourceAccessGateHandler implements Comparable<ResourceAccessGateH
         return returnValue;
     }
 
+    /**
+     * Check whether the path pattern matches the path. The regular expression
+     * is only evaluated if the path starts with the literal prefix of the pattern.
+     */
+    public boolean matchesPath ( final String path ) {
+        if ( !path.startsWith(pathPrefix) ) {
+            return false;
+        }
+        if ( matchType == MATCH_LITERAL ) {
+            return path.length() == pathPrefix.length();
+        }
+        if ( matchType == MATCH_PREFIX ) {
+            // '.' does not match line terminators
+            for(int i = pathPrefix.length(); i < path.length(); i++) {
+                final char c = path.charAt(i);
+                if ( c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029' ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        final Matcher match = pathPattern.matcher(path);
+        return match.matches();
+    }
+
+    /**
+     * Get the literal prefix of the path pattern: every path matched
+     * by the pattern starts with this prefix.
+     */
+    public String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    public boolean isOperation( final ResourceAccessGate.Operation operation ) {
+        return operations.contains(operation);
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public Object getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * Get the literal prefix of a regular expression. This is conservative,
+     * as soon as a construct with a special meaning is found, the prefix ends.
+     */
+    static String getLiteralPrefix(final String regexp) {
+        // an alternation on the top level allows different prefixes
+        int depth = 0;
+        boolean inClass = false;
+        for(int i = 0; i < regexp.length(); i++) {
+            final char c = regexp.charAt(i);
+            if ( c == '\\' ) {
+                i++;
+            } else if ( inClass ) {
+                if ( c == ']' ) {
+                    inClass = false;
+                }
+            } else if ( c == '[' ) {
+                inClass = true;
+            } else if ( c == '(' ) {
+                depth++;
+            } else if ( c == ')' ) {
+                depth--;
+            } else if ( c == '|' && depth == 0 ) {
+                return "";
+            }
+        }
+        int end = 0;
+        while ( end < regexp.length() && "\\^$.|?*+()[]{}".indexOf(regexp.charAt(end)) == -1 ) {
+            end++;
+        }
+        // a quantifier makes the preceding character optional
+        if ( end < regexp.length() && end > 0 && "?*{".indexOf(regexp.charAt(end)) != -1 ) {
+            end--;
+        }
+        return regexp.substring(0, end);
+    }
+
     public boolean isFinalOperation( final ResourceAccessGate.Operation operation ) {
         return finalOperations.contains(operation);
     }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceaccesssecurity.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.resourceaccesssecurity.ResourceAccessGate;
+
+/**
+ * The <code>ResourceAccessGateIndex</code> groups the resource access gate
+ * handlers by operation and by the first path segment of the literal prefix
+ * of their path pattern. This avoids evaluating the path patterns of all
+ * gates for every path.
+ *
+ * The index is immutable, a new index is created whenever a gate is
+ * added or removed.
+ */
+public class ResourceAccessGateIndex {
+
+    /** Candidate handlers per operation. */
+    private final Map<ResourceAccessGate.Operation, OperationIndex> operationIndexes =
+            new EnumMap<ResourceAccessGate.Operation, OperationIndex>(ResourceAccessGate.Operation.class);
+
+    /**
+     * Create a new index
+     * @param handlers The handlers in the order in which they are called.
+     */
+    public ResourceAccessGateIndex(final List<ResourceAccessGateHandler> handlers) {
+        for(final ResourceAccessGate.Operation operation : ResourceAccessGate.Operation.values()) {
+            final List<ResourceAccessGateHandler> opHandlers = new ArrayList<ResourceAccessGateHandler>();
+            for(final ResourceAccessGateHandler handler : handlers) {
+                if ( handler.isOperation(operation) ) {
+                    opHandlers.add(handler);
+                }
+            }
+            this.operationIndexes.put(operation, new OperationIndex(opHandlers));
+        }
+    }
+
+    /**
+     * Get the handlers which might match the path for the operation. The
+     * path pattern of the returned handlers still needs to be checked.
+     * @param path The path, if <code>null</code> all handlers for the operation are returned.
+     * @param operation The operation
+     * @return The candidates in the order in which they are called.
+     */
+    public List<ResourceAccessGateHandler> getCandidates(final String path, final ResourceAccessGate.Operation operation) {
+        final OperationIndex index = this.operationIndexes.get(operation);
+        if ( path == null ) {
+            return index.all;
+        }
+        final List<ResourceAccessGateHandler> candidates = index.bySegment.get(getFirstSegment(path));
+        return candidates != null ? candidates : index.unsegmented;
+    }
+
+    /**
+     * Get the first segment of a path or <code>null</code> if the
+     * path does not start with a complete segment.
+     * @param path The path
+     * @param complete Whether the segment needs to be followed by a slash.
+     */
+    private static String getFirstSegment(final String path, final boolean complete) {
+        if ( path.length() < 2 || path.charAt(0) != '/' ) {
+            return null;
+        }
+        final int pos = path.indexOf('/', 1);
+        if ( pos == -1 ) {
+            return complete ? null : path.substring(1);
+        }
+        return path.substring(1, pos);
+    }
+
+    private static String getFirstSegment(final String path) {
+        return getFirstSegment(path, false);
+    }
+
+    private static final class OperationIndex {
+
+        /** All handlers for the operation. */
+        public final List<ResourceAccessGateHandler> all;
+
+        /** The handlers for paths which don't start with one of the indexed segments. */
+        public final List<ResourceAccessGateHandler> unsegmented;
+
+        /** The handlers for paths starting with a segment. */
+        public final Map<String, List<ResourceAccessGateHandler>> bySegment = new HashMap<String, List<ResourceAccessGateHandler>>();
+
+        public OperationIndex(final List<ResourceAccessGateHandler> handlers) {
+            this.all = Collections.unmodifiableList(handlers);
+
+            final Set<String> segments = new HashSet<String>();
+            final List<ResourceAccessGateHandler> unsegmented = new ArrayList<ResourceAccessGateHandler>();
+            for(final ResourceAccessGateHandler handler : handlers) {
+                final String segment = getFirstSegment(handler.getPathPrefix(), true);
+                if ( segment != null ) {
+                    segments.add(segment);
+                } else {
+                    unsegmented.add(handler);
+                }
+            }
+            this.unsegmented = Collections.unmodifiableList(unsegmented);
+
+            // keep the order of the handlers for each segment
+            for(final String segment : segments) {
+                final List<ResourceAccessGateHandler> list = new ArrayList<ResourceAccessGateHandler>();
+                for(final ResourceAccessGateHandler handler : handlers) {
+                    final String handlerSegment = getFirstSegment(handler.getPathPrefix(), true);
+                    if ( handlerSegment == null || handlerSegment.equals(segment) ) {
+                        list.add(handler);
+                    }
+                }
+                this.bySegment.put(segment, Collections.unmodifiableList(list));
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceaccesssecurity.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * The <code>ResourceAccessGateResultCache</code> caches the results of
+ * cacheable resource access gates per resource resolver. The entries
+ * of a resource resolver are dropped once the resolver is garbage
+ * collected, the number of entries per resolver is limited.
+ */
+public class ResourceAccessGateResultCache {
+
+    /** The maximum number of cached results per resource resolver. */
+    private static final int MAX_ENTRIES = 1000;
+
+    private final Map<ResourceResolver, Map<Key, Object>> caches = new WeakHashMap<ResourceResolver, Map<Key, Object>>();
+
+    /**
+     * Get a cached result.
+     * @param resolver The resource resolver
+     * @param handler The gate handler
+     * @param check The name of the check
+     * @param path The path, might be <code>null</code>
+     * @return The cached result or <code>null</code>
+     */
+    public Object get(final ResourceResolver resolver,
+            final ResourceAccessGateHandler handler,
+            final String check,
+            final String path) {
+        final Map<Key, Object> cache;
+        synchronized ( this.caches ) {
+            cache = this.caches.get(resolver);
+        }
+        if ( cache == null ) {
+            return null;
+        }
+        synchronized ( cache ) {
+            return cache.get(new Key(handler.getServiceId(), check, path));
+        }
+    }
+
+    /**
+     * Cache a result.
+     * @param resolver The resource resolver
+     * @param handler The gate handler
+     * @param check The name of the check
+     * @param path The path, might be <code>null</code>
+     * @param result The result
+     */
+    public void put(final ResourceResolver resolver,
+            final ResourceAccessGateHandler handler,
+            final String check,
+            final String path,
+            final Object result) {
+        Map<Key, Object> cache;
+        synchronized ( this.caches ) {
+            cache = this.caches.get(resolver);
+            if ( cache == null ) {
+                cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+                        return size() > MAX_ENTRIES;
+                    }
+                };
+                this.caches.put(resolver, cache);
+            }
+        }
+        synchronized ( cache ) {
+            cache.put(new Key(handler.getServiceId(), check, path), result);
+        }
+    }
+
+    private static final class Key {
+
+        private final Object serviceId;
+
+        private final String check;
+
+        private final String path;
+
+        private final int hashCode;
+
+        public Key(final Object serviceId, final String check, final String path) {
+            this.serviceId = serviceId;
+            this.check = check;
+            this.path = path;
+            int hash = (serviceId == null ? 0 : serviceId.hashCode());
+            hash = 31 * hash + check.hashCode();
+            hash = 31 * hash + (path == null ? 0 : path.hashCode());
+            this.hashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if ( !(obj instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key)obj;
+            return (serviceId == null ? other.serviceId == null : serviceId.equals(other.serviceId))
+                    && check.equals(other.check)
+                    && (path == null ? other.path == null : path.equals(other.path));
+        }
+    }
+}
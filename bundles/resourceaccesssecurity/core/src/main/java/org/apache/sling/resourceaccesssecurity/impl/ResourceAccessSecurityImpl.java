@@ -36,6 +36,12 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
 
     private List<ResourceAccessGateHandler> allHandlers = Collections.emptyList();
 
+    /** The handlers indexed by operation and path prefix. */
+    private volatile ResourceAccessGateIndex handlerIndex = new ResourceAccessGateIndex(allHandlers);
+
+    /** The cached results of cacheable gates. */
+    private volatile ResourceAccessGateResultCache resultCache = new ResourceAccessGateResultCache();
+
     private final boolean defaultAllowIfNoGateMatches;
 
     public ResourceAccessSecurityImpl(final boolean defaultAllowIfNoGateMatches) {
@@ -48,14 +54,9 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
      */
     private Iterator<ResourceAccessGateHandler> getMatchingResourceAccessGateHandlerIterator(
             final String path, final ResourceAccessGate.Operation operation) {
-        //
-        // TODO: maybe caching some frequent paths with read operation would be
-        // a good idea
-        //
-        final List<ResourceAccessGateHandler> handlers = allHandlers;
-        if (handlers.size() > 0) {
-
-            final Iterator<ResourceAccessGateHandler> iter = handlers.iterator();
+        if (allHandlers.size() > 0) {
+
+            final Iterator<ResourceAccessGateHandler> iter = handlerIndex.getCandidates(path, operation).iterator();
             return new Iterator<ResourceAccessGateHandler>() {
 
                 private ResourceAccessGateHandler next;
@@ -68,7 +69,9 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                     this.next = null;
                     while ( iter.hasNext() && next == null ) {
                         final ResourceAccessGateHandler handler = iter.next();
-                        if (handler.matches(path, operation)) {
+                        // if no path is given just add every ResourceAccessGate for
+                        // security reason
+                        if (path == null || handler.matchesPath(path)) {
                             next = handler;
                         }
                     }
@@ -119,12 +122,10 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                 noGateMatched = false;
                 final ResourceAccessGateHandler resourceAccessGateHandler  = accessGateHandlers.next();
 
-                final GateResult gateResult = !resourceAccessGateHandler
-                        .getResourceAccessGate().hasReadRestrictions(resource.getResourceResolver()) ? GateResult.GRANTED
-                        : resourceAccessGateHandler.getResourceAccessGate()
-                                .canRead(resource);
+                final GateResult gateResult = getGateResult(resourceAccessGateHandler,
+                        ResourceAccessGate.Operation.READ, resource.getPath(), resource, resource.getResourceResolver());
                 if (!canReadAllValues && gateResult == GateResult.GRANTED) {
-                    if (resourceAccessGateHandler.getResourceAccessGate().canReadAllValues(resource)) {
+                    if (canReadAllValues(resourceAccessGateHandler, resource)) {
                         canReadAllValues = true;
                         accessGatesForReadValues = null;
                     } else {
@@ -185,10 +186,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                 noGateMatched = false;
                 final ResourceAccessGateHandler resourceAccessGateHandler  = handlers.next();
 
-                final GateResult gateResult = !resourceAccessGateHandler
-                        .getResourceAccessGate().hasCreateRestrictions(resolver) ? GateResult.GRANTED
-                        : resourceAccessGateHandler.getResourceAccessGate()
-                                .canCreate(path, resolver);
+                final GateResult gateResult = getGateResult(resourceAccessGateHandler,
+                        ResourceAccessGate.Operation.CREATE, path, null, resolver);
                 if (finalGateResult == null) {
                     finalGateResult = gateResult;
                 } else if (finalGateResult != GateResult.GRANTED && gateResult != GateResult.CANT_DECIDE) {
@@ -225,10 +224,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                 noGateMatched = false;
                 final ResourceAccessGateHandler resourceAccessGateHandler  = handlers.next();
 
-                final GateResult gateResult = !resourceAccessGateHandler
-                        .getResourceAccessGate().hasUpdateRestrictions(resource.getResourceResolver()) ? GateResult.GRANTED
-                        : resourceAccessGateHandler.getResourceAccessGate()
-                                .canUpdate(resource);
+                final GateResult gateResult = getGateResult(resourceAccessGateHandler,
+                        ResourceAccessGate.Operation.UPDATE, resource.getPath(), resource, resource.getResourceResolver());
                 if (finalGateResult == null) {
                     finalGateResult = gateResult;
                 } else if (finalGateResult != GateResult.GRANTED && gateResult != GateResult.CANT_DECIDE) {
@@ -265,10 +262,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                 noGateMatched = false;
                 final ResourceAccessGateHandler resourceAccessGateHandler  = handlers.next();
 
-                final GateResult gateResult = !resourceAccessGateHandler
-                        .getResourceAccessGate().hasDeleteRestrictions(resource.getResourceResolver()) ? GateResult.GRANTED
-                        : resourceAccessGateHandler.getResourceAccessGate()
-                                .canDelete(resource);
+                final GateResult gateResult = getGateResult(resourceAccessGateHandler,
+                        ResourceAccessGate.Operation.DELETE, resource.getPath(), resource, resource.getResourceResolver());
                 if (finalGateResult == null) {
                     finalGateResult = gateResult;
                 } else if (finalGateResult != GateResult.GRANTED && gateResult != GateResult.CANT_DECIDE) {
@@ -305,10 +300,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
                 noGateMatched = false;
                 final ResourceAccessGateHandler resourceAccessGateHandler  = handlers.next();
 
-                final GateResult gateResult = !resourceAccessGateHandler
-                        .getResourceAccessGate().hasExecuteRestrictions(resource.getResourceResolver()) ? GateResult.GRANTED
-                        : resourceAccessGateHandler.getResourceAccessGate()
-                                .canExecute(resource);
+                final GateResult gateResult = getGateResult(resourceAccessGateHandler,
+                        ResourceAccessGate.Operation.EXECUTE, resource.getPath(), resource, resource.getResourceResolver());
                 if (finalGateResult == null) {
                     finalGateResult = gateResult;
                 } else if (finalGateResult != GateResult.GRANTED && gateResult != GateResult.CANT_DECIDE) {
@@ -331,6 +324,66 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
         return result;
     }
 
+    /**
+     * Get the result of a gate for an operation. The results of cacheable
+     * gates are cached per resource resolver.
+     * @param handler The gate handler
+     * @param operation The operation
+     * @param path The path
+     * @param resource The resource, <code>null</code> for {@link ResourceAccessGate.Operation#CREATE}
+     * @param resolver The resource resolver
+     */
+    private GateResult getGateResult(final ResourceAccessGateHandler handler,
+            final ResourceAccessGate.Operation operation,
+            final String path,
+            final Resource resource,
+            final ResourceResolver resolver) {
+        final ResourceAccessGateResultCache cache = (handler.isCacheable() && resolver != null ? this.resultCache : null);
+        if ( cache != null ) {
+            final GateResult cachedResult = (GateResult)cache.get(resolver, handler, operation.getText(), path);
+            if ( cachedResult != null ) {
+                return cachedResult;
+            }
+        }
+        final ResourceAccessGate gate = handler.getResourceAccessGate();
+        final GateResult gateResult;
+        switch ( operation ) {
+            case READ : gateResult = !gate.hasReadRestrictions(resolver) ? GateResult.GRANTED : gate.canRead(resource);
+                        break;
+            case CREATE : gateResult = !gate.hasCreateRestrictions(resolver) ? GateResult.GRANTED : gate.canCreate(path, resolver);
+                        break;
+            case UPDATE : gateResult = !gate.hasUpdateRestrictions(resolver) ? GateResult.GRANTED : gate.canUpdate(resource);
+                        break;
+            case DELETE : gateResult = !gate.hasDeleteRestrictions(resolver) ? GateResult.GRANTED : gate.canDelete(resource);
+                        break;
+            default : gateResult = !gate.hasExecuteRestrictions(resolver) ? GateResult.GRANTED : gate.canExecute(resource);
+        }
+        if ( cache != null && gateResult != null ) {
+            cache.put(resolver, handler, operation.getText(), path, gateResult);
+        }
+        return gateResult;
+    }
+
+    /**
+     * Check if all values of a resource can be read. The results of cacheable
+     * gates are cached per resource resolver.
+     */
+    private boolean canReadAllValues(final ResourceAccessGateHandler handler, final Resource resource) {
+        final ResourceResolver resolver = resource.getResourceResolver();
+        final ResourceAccessGateResultCache cache = (handler.isCacheable() && resolver != null ? this.resultCache : null);
+        if ( cache != null ) {
+            final Boolean cachedResult = (Boolean)cache.get(resolver, handler, "readallvalues", resource.getPath());
+            if ( cachedResult != null ) {
+                return cachedResult;
+            }
+        }
+        final boolean result = handler.getResourceAccessGate().canReadAllValues(resource);
+        if ( cache != null ) {
+            cache.put(resolver, handler, "readallvalues", resource.getPath(), result);
+        }
+        return result;
+    }
+
     @Override
     public boolean canReadValue(final Resource resource, final String valueName) {
         // TODO Auto-generated method stub
@@ -381,6 +434,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
             newList.add(h);
             Collections.sort(newList);
             this.allHandlers = newList;
+            this.handlerIndex = new ResourceAccessGateIndex(newList);
+            this.resultCache = new ResourceAccessGateResultCache();
         }
     }
 
@@ -394,6 +449,8 @@ public abstract class ResourceAccessSecurityImpl implements ResourceAccessSecuri
             final ResourceAccessGateHandler h = new ResourceAccessGateHandler(ref);
             newList.remove(h);
             this.allHandlers = newList;
+            this.handlerIndex = new ResourceAccessGateIndex(newList);
+            this.resultCache = new ResourceAccessGateResultCache();
         }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceaccesssecurity.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.resourceaccesssecurity.ResourceAccessGate;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+public class ResourceAccessGateIndexTest {
+
+    private static final String[] PATTERNS = new String[] {
+        "/content",
+        "/content/.*",
+        "/content/a.*",
+        "/contents?/.*",
+        "/test/(un|)secured-provider/read(-update|)/(app|mixed)/.*",
+        "^((?!(/test/secured-provider/read|/test/unsecured-provider/read)).*|/test/(un|)secured-provider/read(-update|)/prov/.*)",
+        "/apps/.*|/libs/.*",
+        "/libs/[a-z]+/x",
+        "/a\\.b/.*",
+        ".*"
+    };
+
+    private static final String[] PATHS = new String[] {
+        "/", "/content", "/content/", "/content/a", "/content/b/c", "/contents/x", "/conten",
+        "/test/secured-provider/read/app/x", "/test/unsecured-provider/read-update/prov/y",
+        "/test/secured-provider/update/app/x", "/apps/x", "/libs/abc/x", "/libs/ABC/x",
+        "/a.b/c", "/aXb/c", "/content/a\nb", "/other"
+    };
+
+    private static ResourceAccessGateHandler createHandler(final ResourceAccessGate gate,
+            final long serviceId,
+            final String path,
+            final String operations,
+            final boolean cacheable) {
+        final ServiceReference serviceReference = createHandlerReference(gate, serviceId, path, cacheable);
+        when(serviceReference.getProperty(ResourceAccessGate.OPERATIONS)).thenReturn(operations);
+        return new ResourceAccessGateHandler(serviceReference);
+    }
+
+    @Test
+    public void testLiteralPrefix() {
+        assertEquals("/content", ResourceAccessGateHandler.getLiteralPrefix("/content"));
+        assertEquals("/content/", ResourceAccessGateHandler.getLiteralPrefix("/content/.*"));
+        assertEquals("/content", ResourceAccessGateHandler.getLiteralPrefix("/contents?/.*"));
+        assertEquals("/contents", ResourceAccessGateHandler.getLiteralPrefix("/contents+/.*"));
+        assertEquals("/test/", ResourceAccessGateHandler.getLiteralPrefix("/test/(un|)secured/.*"));
+        assertEquals("", ResourceAccessGateHandler.getLiteralPrefix("/apps/.*|/libs/.*"));
+        assertEquals("", ResourceAccessGateHandler.getLiteralPrefix("^/apps/.*"));
+        assertEquals("/a", ResourceAccessGateHandler.getLiteralPrefix("/a\\.b/.*"));
+        assertEquals("/libs/", ResourceAccessGateHandler.getLiteralPrefix("/libs/[|]/.*"));
+    }
+
+    @Test
+    public void testMatchesLikeRegexp() {
+        for(final String pattern : PATTERNS) {
+            final ResourceAccessGateHandler handler = createHandler(mock(ResourceAccessGate.class), 1, pattern, null, false);
+            for(final String path : PATHS) {
+                assertEquals(pattern + " : " + path, Pattern.compile(pattern).matcher(path).matches(),
+                        handler.matchesPath(path));
+            }
+        }
+    }
+
+    @Test
+    public void testCandidatesKeepOrderAndMatches() {
+        final List<ResourceAccessGateHandler> handlers = new ArrayList<ResourceAccessGateHandler>();
+        for(int i = 0; i < PATTERNS.length; i++) {
+            handlers.add(createHandler(mock(ResourceAccessGate.class), i, PATTERNS[i], i % 2 == 0 ? "read" : "read,update", false));
+        }
+        final ResourceAccessGateIndex index = new ResourceAccessGateIndex(handlers);
+        for(final ResourceAccessGate.Operation op : new ResourceAccessGate.Operation[] {
+                ResourceAccessGate.Operation.READ, ResourceAccessGate.Operation.UPDATE}) {
+            for(final String path : PATHS) {
+                final List<ResourceAccessGateHandler> expected = new ArrayList<ResourceAccessGateHandler>();
+                for(final ResourceAccessGateHandler h : handlers) {
+                    if ( h.matches(path, op) ) {
+                        expected.add(h);
+                    }
+                }
+                final List<ResourceAccessGateHandler> actual = new ArrayList<ResourceAccessGateHandler>();
+                for(final ResourceAccessGateHandler h : index.getCandidates(path, op)) {
+                    if ( h.matchesPath(path) ) {
+                        actual.add(h);
+                    }
+                }
+                assertEquals(op + " : " + path, expected, actual);
+            }
+        }
+        assertEquals(PATTERNS.length, index.getCandidates(null, ResourceAccessGate.Operation.READ).size());
+        assertTrue(index.getCandidates("/content", ResourceAccessGate.Operation.DELETE).isEmpty());
+    }
+
+    @Test
+    public void testCacheableGate() {
+        final ResourceAccessGate cacheableGate = mock(ResourceAccessGate.class);
+        final ResourceAccessGate gate = mock(ResourceAccessGate.class);
+        final ProviderResourceAccessSecurityImpl security = new ProviderResourceAccessSecurityImpl();
+        security.bindResourceAccessGate(createHandlerReference(cacheableGate, 1, "/content/.*", true));
+        security.bindResourceAccessGate(createHandlerReference(gate, 2, "/content/.*", false));
+
+        final ResourceResolver resolver = mock(ResourceResolver.class);
+        final Resource resource = mock(Resource.class);
+        when(resource.getPath()).thenReturn("/content/a");
+        when(resource.getResourceResolver()).thenReturn(resolver);
+        when(cacheableGate.hasUpdateRestrictions(resolver)).thenReturn(true);
+        when(cacheableGate.canUpdate(resource)).thenReturn(ResourceAccessGate.GateResult.CANT_DECIDE);
+        when(gate.hasUpdateRestrictions(resolver)).thenReturn(true);
+        when(gate.canUpdate(resource)).thenReturn(ResourceAccessGate.GateResult.DENIED);
+
+        assertFalse(security.canUpdate(resource));
+        assertFalse(security.canUpdate(resource));
+        verify(cacheableGate, times(1)).canUpdate(resource);
+        verify(gate, times(2)).canUpdate(resource);
+
+        // a different resolver doesn't share the results
+        final ResourceResolver otherResolver = mock(ResourceResolver.class);
+        when(resource.getResourceResolver()).thenReturn(otherResolver);
+        when(cacheableGate.hasUpdateRestrictions(otherResolver)).thenReturn(true);
+        when(gate.hasUpdateRestrictions(otherResolver)).thenReturn(true);
+        assertFalse(security.canUpdate(resource));
+        verify(cacheableGate, times(2)).canUpdate(resource);
+    }
+
+    static ServiceReference createHandlerReference(final ResourceAccessGate gate,
+            final long serviceId,
+            final String path,
+            final boolean cacheable) {
+        final ServiceReference serviceReference = mock(ServiceReference.class);
+        final Bundle bundle = mock(Bundle.class);
+        final BundleContext bundleContext = mock(BundleContext.class);
+
+        when(serviceReference.getBundle()).thenReturn(bundle);
+        when(bundle.getBundleContext()).thenReturn(bundleContext);
+        when(bundleContext.getService(serviceReference)).thenReturn(gate);
+
+        when(serviceReference.getProperty(Constants.SERVICE_ID)).thenReturn(serviceId);
+        when(serviceReference.getProperty(ResourceAccessGate.PATH)).thenReturn(path);
+        when(serviceReference.getProperty(ResourceAccessGate.CACHEABLE)).thenReturn(cacheable);
+        return serviceReference;
+    }
+}
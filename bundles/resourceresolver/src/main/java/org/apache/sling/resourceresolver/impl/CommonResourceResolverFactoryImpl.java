@@ -37,6 +37,7 @@ import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.resourceresolver.impl.console.ResourceResolverWebConsolePlugin;
 import org.apache.sling.resourceresolver.impl.helper.ResourceDecoratorTracker;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverControl;
+import org.apache.sling.resourceresolver.impl.helper.ResourceTypeHierarchyCache;
 import org.apache.sling.resourceresolver.impl.mapping.MapConfigurationProvider;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
 import org.apache.sling.resourceresolver.impl.mapping.Mapping;
@@ -62,6 +63,9 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
     /** The activator */
     private final ResourceResolverFactoryActivator activator;
 
+    /** The resource type hierarchy cache shared by all resource resolvers. */
+    private final ResourceTypeHierarchyCache resourceTypeHierarchyCache;
+
     /**
      * Thread local holding the resource resolver stack
      */
@@ -86,6 +90,7 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
      */
     public CommonResourceResolverFactoryImpl(final ResourceResolverFactoryActivator activator) {
         this.activator = activator;
+        this.resourceTypeHierarchyCache = new ResourceTypeHierarchyCache(activator.getSearchPath());
         this.logResourceResolverClosing = activator.shouldLogResourceResolverClosing();
         this.refQueueThread = new Thread("Apache Sling Resource Resolver Finalizer Thread") {
 
@@ -278,6 +283,7 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         } catch (final Exception e) {
             logger.error("activate: Cannot access repository, failed setting up Mapping Support", e);
         }
+        resourceTypeHierarchyCache.register(bundleContext);
     }
 
     /**
@@ -295,9 +301,14 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
             mapEntries.dispose();
             mapEntries = MapEntries.EMPTY;
         }
+        resourceTypeHierarchyCache.unregister();
         resolverStackHolder = null;
     }
 
+    public ResourceTypeHierarchyCache getResourceTypeHierarchyCache() {
+        return this.resourceTypeHierarchyCache;
+    }
+
     public ResourceDecoratorTracker getResourceDecoratorTracker() {
         return this.activator.getResourceDecoratorTracker();
     }
@@ -20,14 +20,14 @@ package org.apache.sling.resourceresolver.impl;
 
 import static org.apache.commons.lang.StringUtils.defaultString;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -56,6 +56,7 @@ import org.apache.sling.resourceresolver.impl.helper.ResourceIteratorDecorator;
 import org.apache.sling.resourceresolver.impl.helper.ResourcePathIterator;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverControl;
+import org.apache.sling.resourceresolver.impl.helper.ResourceTypeHierarchyCache.ResourceTypeHierarchy;
 import org.apache.sling.resourceresolver.impl.helper.StarResource;
 import org.apache.sling.resourceresolver.impl.helper.URI;
 import org.apache.sling.resourceresolver.impl.helper.URIException;
@@ -73,6 +74,9 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
 
     private static final Map<String, String> EMPTY_PARAMETERS = Collections.emptyMap();
 
+    /** The children of listed resources are usually accessed with their value maps. */
+    private static final int CHILDREN_PREFETCH_DEPTH = 1;
+
     private static final String MANGLE_NAMESPACE_IN_SUFFIX = "_";
 
     private static final String MANGLE_NAMESPACE_IN_PREFIX = "/_";
@@ -695,8 +699,14 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
                 // (don't use this.getSearchPath() to save a few cycle for not cloning)
                 final String[] paths = factory.getSearchPath();
                 if (paths != null) {
-                    for (final String prefix : factory.getSearchPath()) {
-                        result = getResource(prefix + path);
+                    final Map<String, Resource> prefetched = getSearchPathResources(paths, path);
+                    for (final String prefix : paths) {
+                        final String absPath = prefix + path;
+                        if (prefetched.containsKey(absPath)) {
+                            result = prefetched.get(absPath);
+                        } else {
+                            result = getResource(absPath);
+                        }
                         if (result != null) {
                             break;
                         }
@@ -708,17 +718,57 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
         return result;
     }
 
+    /**
+     * Reads the resources for the relative path in all search paths at once
+     * from resource providers supporting bulk reads.
+     *
+     * @return The resources by absolute path, see
+     *         {@link ResourceResolverControl#getResources(ResourceResolverContext, java.util.Collection)}
+     */
+    private Map<String, Resource> getSearchPathResources(final String[] searchPath, final String path) {
+        if (searchPath.length < 2 || path.indexOf(';') != -1) {
+            return Collections.emptyMap();
+        }
+        final List<String> absPaths = new ArrayList<String>(searchPath.length);
+        for (final String prefix : searchPath) {
+            final String absPath = prefix + path;
+            // paths requiring normalization are read one by one
+            if (!absPath.equals(ResourceUtil.normalize(absPath))) {
+                return Collections.emptyMap();
+            }
+            absPaths.add(absPath);
+        }
+        final Map<String, Resource> resources = this.control.getResources(this.context, absPaths);
+        for (final Map.Entry<String, Resource> entry : resources.entrySet()) {
+            final Resource resource = entry.getValue();
+            if (resource != null) {
+                resource.getResourceMetadata().setResolutionPath(entry.getKey());
+                resource.getResourceMetadata().setParameterMap(EMPTY_PARAMETERS);
+                entry.setValue(this.factory.getResourceDecoratorTracker().decorate(resource));
+            }
+        }
+        return resources;
+    }
+
     /**
      * @see org.apache.sling.api.resource.ResourceResolver#listChildren(org.apache.sling.api.resource.Resource)
      */
     @Override
     public Iterator<Resource> listChildren(final Resource parent) {
+        return listChildren(parent, CHILDREN_PREFETCH_DEPTH);
+    }
+
+    /**
+     * List the children, passing the depth as a prefetch hint to resource
+     * providers supporting bulk reads.
+     */
+    private Iterator<Resource> listChildren(final Resource parent, final int depth) {
         checkClosed();
 
         if (parent instanceof ResourceWrapper) {
-            return listChildren(((ResourceWrapper) parent).getResource());
+            return listChildren(((ResourceWrapper) parent).getResource(), depth);
         }
-        return new ResourceIteratorDecorator(this.factory.getResourceDecoratorTracker(), this.control.listChildren(this.context, parent));
+        return new ResourceIteratorDecorator(this.factory.getResourceDecoratorTracker(), this.control.listChildren(this.context, parent, depth));
     }
 
     /**
@@ -1275,7 +1325,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      */
 	@Override
     public boolean hasChildren(Resource resource) {
-		return listChildren(resource).hasNext();
+		return listChildren(resource, 0).hasNext();
 	}
 
     /**
@@ -1298,7 +1348,7 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      */
     @Override
     public String getParentResourceType(final String resourceType) {
-        return this.control.getParentResourceType(this.factory, this, resourceType);
+        return this.control.getParentResourceType(this.factory, this, this.factory.getResourceTypeHierarchyCache(), resourceType);
     }
 
     /**
@@ -1314,17 +1364,13 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
              if (resourceType.equals(resource.getResourceType())) {
                  result = true;
              } else {
-                 Set<String> superTypesChecked = new HashSet<String>();
-                 String superType = this.getParentResourceType(resource);
-                 while (!result && superType != null) {
-                     if (resourceType.equals(superType)) {
-                         result = true;
-                     } else {
-                         superTypesChecked.add(superType);
-                         superType = this.getParentResourceType(superType);
-                         if (superType != null && superTypesChecked.contains(superType)) {
-                             throw new SlingException("Cyclic dependency for resourceSuperType hierarchy detected on resource " + resource.getPath(), null);
-                         }
+                 final String superType = this.getParentResourceType(resource);
+                 if (superType != null) {
+                     final ResourceTypeHierarchy hierarchy = this.control.getResourceTypeHierarchy(this.factory, this,
+                             this.factory.getResourceTypeHierarchyCache(), superType);
+                     result = hierarchy.contains(resourceType);
+                     if (!result && hierarchy.isCyclic()) {
+                         throw new SlingException("Cyclic dependency for resourceSuperType hierarchy detected on resource " + resource.getPath(), null);
                      }
                  }
              }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -46,6 +47,7 @@ import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.resource.SyntheticResource;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.resource.path.PathBuilder;
+import org.apache.sling.resourceresolver.impl.helper.ResourceTypeHierarchyCache.ResourceTypeHierarchy;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderHandler;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderInfo;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderStorage;
@@ -236,6 +238,52 @@ public class ResourceResolverControl {
         return null;
     }
 
+    /**
+     * Reads the resources for the given absolute paths with a single call per
+     * resource provider if the resource providers support bulk reads. Like
+     * {@link #getResource(ResourceResolverContext, String, Resource, Map, boolean)}
+     * synthetic resources are returned for intermediate paths.
+     *
+     * @return A map containing an entry for every path read from a bulk resource
+     *         provider, the value is {@code null} if there is no resource. Paths of
+     *         resource providers not supporting bulk reads are not contained and
+     *         have to be read with {@link #getResource(ResourceResolverContext, String, Resource, Map, boolean)}.
+     */
+    public Map<String, Resource> getResources(final ResourceResolverContext context, final Collection<String> paths) {
+        final Map<AuthenticatedResourceProvider, List<String>> pathsByProvider = new IdentityHashMap<AuthenticatedResourceProvider, List<String>>();
+        for (final String path : paths) {
+            if (path == null || path.length() == 0 || path.charAt(0) != '/') {
+                continue;
+            }
+            final AuthenticatedResourceProvider provider = this.getBestMatchingProvider(context, path);
+            if ( provider != null ) {
+                List<String> providerPaths = pathsByProvider.get(provider);
+                if ( providerPaths == null ) {
+                    providerPaths = new ArrayList<String>();
+                    pathsByProvider.put(provider, providerPaths);
+                }
+                providerPaths.add(path);
+            }
+        }
+        final Map<String, Resource> result = new HashMap<String, Resource>();
+        for (final Map.Entry<AuthenticatedResourceProvider, List<String>> entry : pathsByProvider.entrySet()) {
+            final Map<String, Resource> resources = entry.getKey().getResources(entry.getValue());
+            if ( resources == null ) {
+                // no bulk support
+                continue;
+            }
+            for (final String path : entry.getValue()) {
+                Resource resource = resources.get(path);
+                if (resource == null && isIntermediatePath(path)) {
+                    logger.debug("Resolved Synthetic {}", path);
+                    resource = new SyntheticResource(context.getResourceResolver(), path, ResourceProvider.RESOURCE_TYPE_SYNTHETIC);
+                }
+                result.put(path, resource);
+            }
+        }
+        return result;
+    }
+
     private boolean isIntermediatePath(final String fullPath) {
         return getResourceProviderStorage().getTree().getNode(fullPath) != null;
     }
@@ -248,8 +296,17 @@ public class ResourceResolverControl {
      * transformations are done lazily, during the {@link Iterator#hasNext()}
      * invocation on the result.
      */
-    @SuppressWarnings("unchecked")
     public Iterator<Resource> listChildren(final ResourceResolverContext context, final Resource parent) {
+        return listChildren(context, parent, 0);
+    }
+
+    /**
+     * Like {@link #listChildren(ResourceResolverContext, Resource)}, the
+     * <code>depth</code> is passed as a prefetch hint to resource providers
+     * supporting bulk reads. A depth of <code>0</code> does not prefetch.
+     */
+    @SuppressWarnings("unchecked")
+    public Iterator<Resource> listChildren(final ResourceResolverContext context, final Resource parent, final int depth) {
         final String parentPath = parent.getPath();
 
         // 3 sources are combined: children of the provider which owns 'parent',
@@ -260,7 +317,7 @@ public class ResourceResolverControl {
         Iterator<Resource> realChildren = null;
         final AuthenticatedResourceProvider provider = this.getBestMatchingProvider(context, parentPath);
         if ( provider != null ) {
-            realChildren = provider.listChildren(parent);
+            realChildren = provider.listChildren(parent, depth);
         }
 
         final Set<String> visitedNames = new HashSet<String>();
@@ -703,6 +760,7 @@ public class ResourceResolverControl {
     public String getParentResourceType(
             final ResourceResolverFactory factory,
             final ResourceResolver resolver,
+            final ResourceTypeHierarchyCache cache,
             final String resourceType) {
         // normalize resource type to a path string
         final String rtPath = (resourceType == null ? null : ResourceUtil.resourceTypeToPath(resourceType));
@@ -710,17 +768,75 @@ public class ResourceResolverControl {
         String resourceSuperType = null;
 
         if ( rtPath != null ) {
+            final boolean useCache = this.isResourceTypeCacheable(resolver, cache, rtPath);
+            if ( useCache && cache.containsSuperType(rtPath) ) {
+                return cache.getSuperType(rtPath);
+            }
+            final long generation = (useCache ? cache.getGeneration() : 0);
             ResourceResolver adminResolver = this.getResourceTypeResourceResolver(factory, resolver);
             if ( adminResolver != null ) {
                 final Resource rtResource = adminResolver.getResource(rtPath);
                 if (rtResource != null) {
                     resourceSuperType = rtResource.getResourceSuperType();
                 }
+                if ( useCache ) {
+                    cache.putSuperType(rtPath, resourceSuperType, generation);
+                }
             }
         }
         return resourceSuperType;
     }
 
+    /**
+     * Get the resource type hierarchy starting with the given resource type,
+     * following the parent resource types up to the root or up to the first
+     * resource type which is already part of the hierarchy.
+     */
+    public ResourceTypeHierarchy getResourceTypeHierarchy(
+            final ResourceResolverFactory factory,
+            final ResourceResolver resolver,
+            final ResourceTypeHierarchyCache cache,
+            final String resourceType) {
+        boolean useCache = this.isResourceTypeCacheable(resolver, cache, ResourceUtil.resourceTypeToPath(resourceType));
+        if ( useCache ) {
+            final ResourceTypeHierarchy hierarchy = cache.getHierarchy(resourceType);
+            if ( hierarchy != null ) {
+                return hierarchy;
+            }
+        }
+        final long generation = (useCache ? cache.getGeneration() : 0);
+        final LinkedHashSet<String> resourceTypes = new LinkedHashSet<String>();
+        boolean cyclic = false;
+        String current = resourceType;
+        while ( current != null ) {
+            if ( !resourceTypes.add(current) ) {
+                cyclic = true;
+                break;
+            }
+            // a hierarchy leaving the search path is not invalidated by the cache
+            useCache = useCache && cache.isCacheable(ResourceUtil.resourceTypeToPath(current));
+            current = this.getParentResourceType(factory, resolver, cache, current);
+        }
+        final ResourceTypeHierarchy hierarchy = new ResourceTypeHierarchy(resourceTypes, cyclic);
+        if ( useCache ) {
+            cache.putHierarchy(resourceType, hierarchy, generation);
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Resource types are looked up with the resolver itself for admin resource
+     * resolvers, therefore the cache must not be used if it has transient changes.
+     */
+    private boolean isResourceTypeCacheable(final ResourceResolver resolver,
+            final ResourceTypeHierarchyCache cache,
+            final String rtPath) {
+        if ( cache == null || !cache.isCacheable(rtPath) ) {
+            return false;
+        }
+        return !this.isAdmin || !resolver.hasChanges();
+    }
+
     /**
      * Returns {@link #getProperty(Resource, String, Class) getProperty(res,
      * propName, String.class)}
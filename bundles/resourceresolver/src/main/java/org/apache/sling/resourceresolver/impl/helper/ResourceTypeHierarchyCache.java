@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * The <code>ResourceTypeHierarchyCache</code> is shared by all resource
+ * resolvers of a factory and caches the resource super type of each resource
+ * type and the resulting resource super type hierarchies.
+ * <p>
+ * The super types are always read with an administrative resource resolver,
+ * therefore the cached values are independent of the resource resolver asking.
+ * Only resource types resolved through the search path are cached. All entries
+ * are dropped on any change below the search path.
+ */
+public class ResourceTypeHierarchyCache implements ResourceChangeListener, ExternalResourceChangeListener {
+
+    /** The maximum number of cached entries, the cache is cleared once it is reached. */
+    static final int MAX_ENTRIES = 10000;
+
+    /** Marker for resource types without a super type. */
+    private static final String NO_SUPER_TYPE = "";
+
+    /** The search path of the factory. */
+    private final String[] searchPath;
+
+    /** Incremented on each change, to not cache values read before a change. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Resource super types by resource type path. */
+    private final Map<String, String> superTypes = new ConcurrentHashMap<String, String>();
+
+    /** Resource super type hierarchies by resource type. */
+    private final Map<String, ResourceTypeHierarchy> hierarchies = new ConcurrentHashMap<String, ResourceTypeHierarchy>();
+
+    private volatile ServiceRegistration registration;
+
+    public ResourceTypeHierarchyCache(final String[] searchPath) {
+        this.searchPath = (searchPath == null ? new String[] {"/"} : searchPath);
+    }
+
+    /**
+     * Register this cache as a resource change listener for the search path.
+     */
+    public void register(final BundleContext bundleContext) {
+        final String[] paths = new String[this.searchPath.length];
+        for(int i = 0; i < paths.length; i++) {
+            final String path = this.searchPath[i];
+            paths[i] = (path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+        }
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(PATHS, paths);
+        props.put(CHANGES, new String[] {
+                ResourceChange.ChangeType.ADDED.name(),
+                ResourceChange.ChangeType.CHANGED.name(),
+                ResourceChange.ChangeType.REMOVED.name(),
+                ResourceChange.ChangeType.PROVIDER_ADDED.name(),
+                ResourceChange.ChangeType.PROVIDER_REMOVED.name() });
+        props.put(Constants.SERVICE_DESCRIPTION, "Apache Sling Resource Type Hierarchy Cache");
+        props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        this.registration = bundleContext.registerService(
+                new String[] {ResourceChangeListener.class.getName(), ExternalResourceChangeListener.class.getName()},
+                this, props);
+    }
+
+    /**
+     * Unregister this cache and drop all entries.
+     */
+    public void unregister() {
+        final ServiceRegistration reg = this.registration;
+        this.registration = null;
+        if ( reg != null ) {
+            try {
+                reg.unregister();
+            } catch ( final IllegalStateException ise ) {
+                // ignore - service is already unregistered
+            }
+        }
+        this.clear();
+    }
+
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        this.clear();
+    }
+
+    private void clear() {
+        this.generation.incrementAndGet();
+        this.superTypes.clear();
+        this.hierarchies.clear();
+    }
+
+    /**
+     * The current generation, to be passed to the <code>put</code> methods
+     * for values read after calling this method.
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Check whether the resource type path is resolved through the search path.
+     */
+    public boolean isCacheable(final String resourceTypePath) {
+        if ( !resourceTypePath.startsWith("/") ) {
+            return true;
+        }
+        for(final String path : this.searchPath) {
+            if ( resourceTypePath.startsWith(path) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the super type of the resource type path is cached.
+     */
+    public boolean containsSuperType(final String resourceTypePath) {
+        return this.superTypes.containsKey(resourceTypePath);
+    }
+
+    /**
+     * Get the cached super type of the resource type path.
+     * @return The super type or <code>null</code> if the resource type has no
+     *         super type or it is not cached.
+     */
+    public String getSuperType(final String resourceTypePath) {
+        final String superType = this.superTypes.get(resourceTypePath);
+        return (superType == NO_SUPER_TYPE ? null : superType);
+    }
+
+    public void putSuperType(final String resourceTypePath, final String superType, final long generation) {
+        if ( this.superTypes.size() >= MAX_ENTRIES ) {
+            this.superTypes.clear();
+        }
+        this.superTypes.put(resourceTypePath, superType == null ? NO_SUPER_TYPE : superType);
+        // drop the entry if a change happened while it was read
+        if ( generation != this.generation.get() ) {
+            this.superTypes.remove(resourceTypePath);
+        }
+    }
+
+    /**
+     * Get the cached hierarchy starting with the resource type.
+     * @return The hierarchy or <code>null</code> if it is not cached.
+     */
+    public ResourceTypeHierarchy getHierarchy(final String resourceType) {
+        return this.hierarchies.get(resourceType);
+    }
+
+    public void putHierarchy(final String resourceType, final ResourceTypeHierarchy hierarchy, final long generation) {
+        if ( this.hierarchies.size() >= MAX_ENTRIES ) {
+            this.hierarchies.clear();
+        }
+        this.hierarchies.put(resourceType, hierarchy);
+        // drop the entry if a change happened while it was read
+        if ( generation != this.generation.get() ) {
+            this.hierarchies.remove(resourceType);
+        }
+    }
+
+    /**
+     * A resource type together with all its resource super types.
+     */
+    public static final class ResourceTypeHierarchy {
+
+        private final Set<String> resourceTypes;
+
+        private final boolean cyclic;
+
+        public ResourceTypeHierarchy(final LinkedHashSet<String> resourceTypes, final boolean cyclic) {
+            this.resourceTypes = Collections.unmodifiableSet(resourceTypes);
+            this.cyclic = cyclic;
+        }
+
+        /**
+         * Check whether the resource type is part of this hierarchy.
+         */
+        public boolean contains(final String resourceType) {
+            return this.resourceTypes.contains(resourceType);
+        }
+
+        /**
+         * Whether the hierarchy ends with a cyclic super type reference.
+         */
+        public boolean isCyclic() {
+            return this.cyclic;
+        }
+
+        /**
+         * The resource types, starting with the resource type itself.
+         */
+        public Set<String> getResourceTypes() {
+            return this.resourceTypes;
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.sling.resourceresolver.impl.providers.stateful;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +36,7 @@ import org.apache.sling.resourceresolver.impl.ResourceAccessSecurityTracker;
 import org.apache.sling.resourceresolver.impl.ResourceResolverImpl;
 import org.apache.sling.resourceresolver.impl.helper.AbstractIterator;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderHandler;
+import org.apache.sling.spi.resource.provider.BulkResourceProvider;
 import org.apache.sling.spi.resource.provider.QueryLanguageProvider;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
@@ -146,6 +148,51 @@ public class AuthenticatedResourceProvider {
         return null;
     }
 
+    /**
+     * #see {@link ResourceProvider#getBulkResourceProvider()}
+     */
+    private BulkResourceProvider<Object> getBulkResourceProvider() {
+        final ResourceProvider<Object> rp = this.providerHandler.getResourceProvider();
+        if ( rp != null ) {
+            return rp.getBulkResourceProvider();
+        }
+        return null;
+    }
+
+    /**
+     * #see {@link BulkResourceProvider#getResources(ResolveContext, Collection, ResourceContext)}
+     * @return The found resources by path or {@code null} if the provider does not support bulk reads.
+     */
+    public Map<String, Resource> getResources(final Collection<String> paths) {
+        final BulkResourceProvider<Object> bulkProvider = getBulkResourceProvider();
+        if ( bulkProvider == null ) {
+            return null;
+        }
+        final Map<String, Resource> result = new HashMap<String, Resource>();
+        for(final Map.Entry<String, Resource> entry : bulkProvider.getResources(this.resolveContext, paths, ResourceContext.EMPTY_CONTEXT).entrySet()) {
+            final Resource resource = wrapResource(entry.getValue());
+            if ( resource != null ) {
+                result.put(entry.getKey(), resource);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * #see {@link BulkResourceProvider#listChildren(ResolveContext, Resource, int)}
+     * Falls back to {@link #listChildren(Resource)} if the provider does not support
+     * bulk reads or if no depth is given.
+     */
+    public Iterator<Resource> listChildren(final Resource parent, final int depth) {
+        if ( depth > 0 ) {
+            final BulkResourceProvider<Object> bulkProvider = getBulkResourceProvider();
+            if ( bulkProvider != null ) {
+                return wrapIterator(bulkProvider.listChildren(this.resolveContext, parent, depth));
+            }
+        }
+        return listChildren(parent);
+    }
+
     /**
      * #see {@link ResourceProvider#getAttributeNames(ResolveContext)}
      */
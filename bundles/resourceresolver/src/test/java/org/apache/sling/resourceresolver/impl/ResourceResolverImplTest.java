@@ -31,6 +31,7 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -48,6 +49,7 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderHandler;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderStorage;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderTracker;
@@ -595,6 +597,29 @@ public class ResourceResolverImplTest {
         resolver.isResourceType(resource, "/types/unknown");
     }
 
+    @Test public void testIsResourceTypeCachedHierarchy() {
+        final PathBasedResourceResolverImpl resolver = getPathBasedResourceResolver();
+
+        resolver.add(new SyntheticResourceWithSupertype(resolver, "/types/1", "/types/component", "/types/2"));
+        resolver.add(new SyntheticResourceWithSupertype(resolver, "/types/2", "/types/component", "/types/3"));
+        resolver.add(new SyntheticResource(resolver, "/types/3", "/types/component"));
+
+        Resource resourceT1 = resolver.add(new SyntheticResource(resolver, "/resourceT1", "/types/1"));
+
+        assertTrue(resolver.isResourceType(resourceT1, "/types/3"));
+        assertEquals("/types/3", resolver.getParentResourceType("/types/2"));
+
+        // the changed super type is not visible until the cache is invalidated
+        resolver.add(new SyntheticResource(resolver, "/types/2", "/types/component"));
+        assertTrue(resolver.isResourceType(resourceT1, "/types/3"));
+        assertEquals("/types/3", resolver.getParentResourceType("/types/2"));
+
+        resolver.factory.getResourceTypeHierarchyCache().onChange(Collections.<ResourceChange>emptyList());
+        assertTrue(resolver.isResourceType(resourceT1, "/types/2"));
+        assertFalse(resolver.isResourceType(resourceT1, "/types/3"));
+        assertNull(resolver.getParentResourceType("/types/2"));
+    }
+
     private PathBasedResourceResolverImpl getPathBasedResourceResolver() {
         try {
             final List<ResourceResolver> resolvers = new ArrayList<ResourceResolver>();
@@ -611,6 +636,8 @@ public class ResourceResolverImplTest {
 
         private final Map<String, Resource> resources = new HashMap<String, Resource>();
 
+        private final CommonResourceResolverFactoryImpl factory;
+
         public PathBasedResourceResolverImpl(final List<ResourceResolver> resolvers, final ResourceProviderTracker resourceProviderTracker) throws LoginException {
             this(new CommonResourceResolverFactoryImpl(new ResourceResolverFactoryActivator()) {
                 @Override
@@ -623,6 +650,7 @@ public class ResourceResolverImplTest {
 
         public PathBasedResourceResolverImpl(CommonResourceResolverFactoryImpl factory, ResourceProviderTracker resourceProviderTracker) throws LoginException {
             super(factory, false, null, resourceProviderTracker);
+            this.factory = factory;
         }
 
         public Resource add(final Resource r) {
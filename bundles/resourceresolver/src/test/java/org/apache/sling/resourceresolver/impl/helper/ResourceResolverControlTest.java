@@ -53,6 +53,7 @@ import org.apache.sling.resourceresolver.impl.providers.ResourceProviderHandler;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderInfo;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderStorage;
 import org.apache.sling.resourceresolver.impl.providers.ResourceProviderStorageProvider;
+import org.apache.sling.spi.resource.provider.BulkResourceProvider;
 import org.apache.sling.spi.resource.provider.QueryLanguageProvider;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
@@ -309,6 +310,46 @@ public class ResourceResolverControlTest {
 
     }
 
+    /**
+     * Verifies that resources are read with a single call from a bulk resource provider
+     * and are not contained in the result for other resource providers
+     */
+    @Test
+    public void getResources_bulk() {
+        BulkResourceProvider<Object> bulkProvider = mock(BulkResourceProvider.class);
+        when(subProvider.getBulkResourceProvider()).thenReturn(bulkProvider);
+        when(bulkProvider.getResources(mockContext(), Mockito.anyCollection(), (ResourceContext) Mockito.any()))
+            .thenReturn(Collections.singletonMap("/some/path/object", subProviderResource));
+
+        Map<String, Resource> resources = crp.getResources(context,
+                Arrays.asList("/some/path/object", "/some/path/missing", "/something"));
+
+        assertThat(resources.entrySet(), Matchers.hasSize(2));
+        assertThat(resources.get("/some/path/object"), not(nullValue()));
+        assertTrue("Missing resource contained", resources.containsKey("/some/path/missing"));
+        assertThat(resources.get("/some/path/missing"), nullValue());
+        verify(bulkProvider).getResources(mockContext(),
+                Mockito.eq(Arrays.asList("/some/path/object", "/some/path/missing")), (ResourceContext) Mockito.any());
+    }
+
+    /**
+     * Verifies that the depth is passed to a bulk resource provider when listing children
+     */
+    @Test
+    public void listChildren_bulk() {
+        BulkResourceProvider<Object> bulkProvider = mock(BulkResourceProvider.class);
+        Resource child = newMockResource("/some/path/object/child");
+        when(subProvider.getBulkResourceProvider()).thenReturn(bulkProvider);
+        when(bulkProvider.listChildren(mockContext(), Mockito.eq(subProviderResource), Mockito.eq(2)))
+            .thenReturn(Collections.singleton(child).iterator());
+
+        Iterator<Resource> children = crp.listChildren(context, subProviderResource, 2);
+
+        assertTrue("No children", children.hasNext());
+        assertThat(children.next().getPath(), equalTo("/some/path/object/child"));
+        verify(subProvider, Mockito.never()).listChildren(mockContext(), Mockito.eq(subProviderResource));
+    }
+
     /**
      * Verifies copying resources between the same ResourceProvider
      *
@@ -21,6 +21,7 @@ package org.apache.sling.scripting.sightly.impl.engine;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 
@@ -48,6 +49,8 @@ public class ResourceBackedPojoChangeMonitor implements ResourceChangeListener {
 
     private Map<String, Long> slyJavaUseMap = new ConcurrentHashMap<>();
 
+    private final AtomicLong changeCount = new AtomicLong();
+
     @Reference
     private SightlyEngineConfiguration sightlyEngineConfiguration = null;
 
@@ -65,6 +68,15 @@ public class ResourceBackedPojoChangeMonitor implements ResourceChangeListener {
         return date != null ? date : 0;
     }
 
+    /**
+     * Returns a counter which is incremented every time a Java Use-API object stored in the repository is added, changed or removed.
+     *
+     * @return the number of changes observed so far
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
     public void clearJavaUseObject(String className) {
         if (StringUtils.isNotEmpty(className)) {
             slyJavaUseMap.remove(className);
@@ -90,5 +102,6 @@ public class ResourceBackedPojoChangeMonitor implements ResourceChangeListener {
             }
             LOG.debug("Java Use Object {} was {}.", path, changeType.toString());
         }
+        changeCount.incrementAndGet();
     }
 }
@@ -18,8 +18,12 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine.extension.use;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 import javax.script.Bindings;
 import javax.servlet.ServletRequest;
@@ -74,9 +78,25 @@ public class JavaUseProvider implements UseProvider {
     @Reference
     private ClassLoaderWriter classLoaderWriter = null;
 
+    private final ConcurrentMap<String, JavaUseObject> useObjects = new ConcurrentHashMap<>();
+
+    /** the class loader and the repository change count the cached resolutions were made with */
+    private volatile ClassLoader cachedClassLoader;
+    private volatile long cachedChangeCount;
+    private final Object cacheLock = new Object();
+
     @Override
     public ProviderOutcome provide(String identifier, RenderContext renderContext, Bindings arguments) {
-        if (!JAVA_PATTERN.matcher(identifier).matches()) {
+        ClassLoader classLoader = classLoaderWriter.getClassLoader();
+        long changeCount = resourceBackedPojoChangeMonitor.getChangeCount();
+        clearCacheOnChange(classLoader, changeCount);
+        JavaUseObject useObject = useObjects.get(identifier);
+        if (useObject != null && !useObject.isValid(classLoader, changeCount)) {
+            // resolved concurrently with a change of the classes
+            useObjects.remove(identifier, useObject);
+            useObject = null;
+        }
+        if (useObject == null && !JAVA_PATTERN.matcher(identifier).matches()) {
             LOG.debug("Identifier {} does not match a Java class name pattern.", identifier);
             return ProviderOutcome.failure();
         }
@@ -85,57 +105,77 @@ public class JavaUseProvider implements UseProvider {
         SlingHttpServletRequest request = BindingsUtils.getRequest(globalBindings);
         Map<String, Object> overrides = setRequestAttributes(request, arguments);
 
+        try {
+            if (useObject != null) {
+                return useObject.provide(sling, request, globalBindings, arguments);
+            }
+            return resolve(identifier, renderContext, sling, request, arguments, classLoader, changeCount);
+        } catch (InvocationTargetException e) {
+            return ProviderOutcome.failure(e.getCause());
+        } catch (Exception e) {
+            // any other exception is an error
+            return ProviderOutcome.failure(e);
+        } finally {
+            resetRequestAttribute(request, overrides);
+        }
+    }
+
+    /**
+     * Drops all cached resolutions at once if the classes have changed, so that no entry of an identifier which is not used anymore
+     * keeps a previous class loader reachable.
+     */
+    private void clearCacheOnChange(ClassLoader classLoader, long changeCount) {
+        if (cachedClassLoader != classLoader || cachedChangeCount != changeCount) {
+            synchronized (cacheLock) {
+                if (cachedClassLoader != classLoader || cachedChangeCount != changeCount) {
+                    LOG.debug("Discarding the cached resolutions of Java Use-API objects as classes have changed since.");
+                    useObjects.clear();
+                    cachedClassLoader = classLoader;
+                    cachedChangeCount = changeCount;
+                }
+            }
+        }
+    }
+
+    private ProviderOutcome resolve(String identifier, RenderContext renderContext, SlingScriptHelper sling,
+                                    SlingHttpServletRequest request, Bindings arguments, ClassLoader classLoader, long changeCount)
+            throws Exception {
+        Bindings globalBindings = renderContext.getBindings();
         Object result;
         try {
             LOG.debug("Attempting to load class {} from the classloader cache.", identifier);
-            Class<?> cls = classLoaderWriter.getClassLoader().loadClass(identifier);
+            Class<?> cls = classLoader.loadClass(identifier);
             if (resourceBackedPojoChangeMonitor.getLastModifiedDateForJavaUseObject(identifier) > 0) {
                 // the object is a POJO that was changed in the repository but not recompiled;
                 LOG.debug("Class {} is available in the classloader cache but it needs to be recompiled.", identifier);
                 result = sightlyJavaCompilerService.getInstance(renderContext, identifier);
+                cacheRepositoryPojo(identifier, result, changeCount);
                 if (result instanceof Use) {
                     ((Use) result).init(BindingsUtils.merge(globalBindings, arguments));
                 }
                 return ProviderOutcome.success(result);
             }
-            // attempt OSGi service load
-            result = sling.getService(cls);
-            if (result != null) {
-                return ProviderOutcome.success(result);
-            }
-            result = request.adaptTo(cls);
-            if (result == null) {
-                Resource resource = BindingsUtils.getResource(globalBindings);
-                result = resource.adaptTo(cls);
-            }
-            if (result != null) {
-                return ProviderOutcome.success(result);
-            } else {
-                /**
-                 * the object was cached by the class loader but it's not adaptable from {@link Resource} or {@link
-                 * SlingHttpServletRequest}; attempt to load it like a regular POJO that optionally could implement {@link Use}
-                 */
-                result = cls.newInstance();
-                if (result instanceof Use) {
-                    ((Use) result).init(BindingsUtils.merge(globalBindings, arguments));
-                }
-                return ProviderOutcome.notNullOrFailure(result);
-            }
+            JavaUseObject useObject = new JavaUseObject(cls, classLoader, changeCount);
+            useObjects.put(identifier, useObject);
+            return useObject.provide(sling, request, globalBindings, arguments);
         } catch (ClassNotFoundException e) {
             /**
              * this object is either not exported from a bundle, or it's a POJO from the repository that wasn't loaded before
              */
             LOG.debug("Class {} was not found in the classloader cache.", identifier);
             result = sightlyJavaCompilerService.getInstance(renderContext, identifier);
+            cacheRepositoryPojo(identifier, result, changeCount);
             if (result instanceof Use) {
                 ((Use) result).init(BindingsUtils.merge(globalBindings, arguments));
             }
             return ProviderOutcome.success(result);
-        } catch (Exception e) {
-            // any other exception is an error
-            return ProviderOutcome.failure(e);
-        } finally {
-            resetRequestAttribute(request, overrides);
+        }
+    }
+
+    private void cacheRepositoryPojo(String identifier, Object result, long changeCount) {
+        if (result != null) {
+            // compiling the class might have replaced the class loader
+            useObjects.put(identifier, new JavaUseObject(result.getClass(), classLoaderWriter.getClassLoader(), changeCount));
         }
     }
 
@@ -168,4 +208,54 @@ public class JavaUseProvider implements UseProvider {
     }
 
     private static final Object NULL = new Object();
+
+    /**
+     * The cached resolution of an identifier: the resolved class and its constructor. The objects themselves are provided for each
+     * request, as the service or the adaptation might not be available for every request. The resolution is valid as long as the
+     * class loader is the same and no Java Use-API object was changed in the repository.
+     */
+    private static final class JavaUseObject {
+
+        private final Class<?> cls;
+        private final ClassLoader classLoader;
+        private final long changeCount;
+        private volatile Constructor<?> constructor;
+
+        JavaUseObject(Class<?> cls, ClassLoader classLoader, long changeCount) {
+            this.cls = cls;
+            this.classLoader = classLoader;
+            this.changeCount = changeCount;
+        }
+
+        boolean isValid(ClassLoader classLoader, long changeCount) {
+            return this.classLoader == classLoader && this.changeCount == changeCount;
+        }
+
+        /**
+         * Provides the object as an OSGi service, adapted from the request, adapted from the resource or instantiated as a POJO which
+         * optionally could implement {@link Use}, in this order - on every call, as e.g. the adaptation of a Sling Model might fail for
+         * some requests only.
+         */
+        ProviderOutcome provide(SlingScriptHelper sling, SlingHttpServletRequest request, Bindings globalBindings, Bindings arguments)
+                throws Exception {
+            Object result = sling.getService(cls);
+            if (result == null) {
+                result = request.adaptTo(cls);
+            }
+            if (result == null) {
+                result = BindingsUtils.getResource(globalBindings).adaptTo(cls);
+            }
+            if (result != null) {
+                return ProviderOutcome.success(result);
+            }
+            if (constructor == null) {
+                constructor = cls.getConstructor();
+            }
+            result = constructor.newInstance();
+            if (result instanceof Use) {
+                ((Use) result).init(BindingsUtils.merge(globalBindings, arguments));
+            }
+            return ProviderOutcome.notNullOrFailure(result);
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.extension.use;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.SimpleBindings;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.api.scripting.SlingScriptHelper;
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.apache.sling.scripting.sightly.impl.compiler.MockPojo;
+import org.apache.sling.scripting.sightly.impl.engine.ResourceBackedPojoChangeMonitor;
+import org.apache.sling.scripting.sightly.impl.engine.SightlyJavaCompilerService;
+import org.apache.sling.scripting.sightly.render.RenderContext;
+import org.apache.sling.scripting.sightly.use.ProviderOutcome;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JavaUseProviderTest {
+
+    private static final String POJO = MockPojo.class.getName();
+
+    private JavaUseProvider javaUseProvider;
+    private ClassLoaderWriter classLoaderWriter;
+    private ResourceBackedPojoChangeMonitor resourceBackedPojoChangeMonitor;
+    private SlingScriptHelper sling;
+    private SlingHttpServletRequest request;
+    private ClassLoader classLoader;
+    private RenderContext renderContext;
+
+    @Before
+    public void setUp() {
+        javaUseProvider = new JavaUseProvider();
+        classLoaderWriter = mock(ClassLoaderWriter.class);
+        resourceBackedPojoChangeMonitor = mock(ResourceBackedPojoChangeMonitor.class);
+        classLoader = spy(new ClassLoader(getClass().getClassLoader()) {});
+        when(classLoaderWriter.getClassLoader()).thenReturn(classLoader);
+        Whitebox.setInternalState(javaUseProvider, "classLoaderWriter", classLoaderWriter);
+        Whitebox.setInternalState(javaUseProvider, "resourceBackedPojoChangeMonitor", resourceBackedPojoChangeMonitor);
+        Whitebox.setInternalState(javaUseProvider, "sightlyJavaCompilerService", mock(SightlyJavaCompilerService.class));
+
+        sling = mock(SlingScriptHelper.class);
+        request = mock(SlingHttpServletRequest.class);
+        Bindings bindings = new SimpleBindings();
+        bindings.put(SlingBindings.SLING, sling);
+        bindings.put(SlingBindings.REQUEST, request);
+        bindings.put(SlingBindings.RESOURCE, mock(Resource.class));
+        renderContext = mock(RenderContext.class);
+        when(renderContext.getBindings()).thenReturn(bindings);
+    }
+
+    @Test
+    public void testResolutionIsCached() throws Exception {
+        ProviderOutcome first = javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        ProviderOutcome second = javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        assertTrue(first.isSuccess());
+        assertTrue(second.isSuccess());
+        assertTrue(second.getResult() instanceof MockPojo);
+        verify(classLoader, times(1)).loadClass(POJO);
+        verify(sling, times(2)).getService(MockPojo.class);
+    }
+
+    @Test
+    public void testObjectIsProvidedForEachRequest() throws Exception {
+        MockPojo service = new MockPojo();
+        when(sling.getService(MockPojo.class)).thenReturn(service);
+        assertSame(service, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+        assertSame(service, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+
+        // the service is gone, the object is adapted from the request
+        MockPojo adapted = new MockPojo();
+        when(sling.getService(MockPojo.class)).thenReturn(null);
+        when(request.adaptTo(MockPojo.class)).thenReturn(adapted);
+        assertSame(adapted, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+        verify(classLoader, times(1)).loadClass(POJO);
+    }
+
+    @Test
+    public void testFailedAdaptationFallsBackToPojo() throws Exception {
+        MockPojo adapted = new MockPojo();
+        when(request.adaptTo(MockPojo.class)).thenReturn(adapted);
+        assertSame(adapted, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+
+        // e.g. a Sling Model whose injection failed for this request
+        when(request.adaptTo(MockPojo.class)).thenReturn(null);
+        Object result = javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult();
+        assertTrue(result instanceof MockPojo);
+        assertNotSame(adapted, result);
+
+        when(request.adaptTo(MockPojo.class)).thenReturn(adapted);
+        assertSame(adapted, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+        verify(classLoader, times(1)).loadClass(POJO);
+    }
+
+    @Test
+    public void testPojoIsAdaptedOnceAvailable() throws Exception {
+        assertTrue(javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult() instanceof MockPojo);
+
+        MockPojo adapted = new MockPojo();
+        when(request.adaptTo(MockPojo.class)).thenReturn(adapted);
+        assertSame(adapted, javaUseProvider.provide(POJO, renderContext, new SimpleBindings()).getResult());
+    }
+
+    @Test
+    public void testCacheIsInvalidatedOnRepositoryChange() throws Exception {
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        when(resourceBackedPojoChangeMonitor.getChangeCount()).thenReturn(1L);
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        verify(classLoader, times(2)).loadClass(POJO);
+    }
+
+    @Test
+    public void testCacheIsInvalidatedOnClassLoaderChange() throws Exception {
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        ClassLoader newClassLoader = spy(new ClassLoader(getClass().getClassLoader()) {});
+        when(classLoaderWriter.getClassLoader()).thenReturn(newClassLoader);
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        verify(classLoader, times(1)).loadClass(POJO);
+        verify(newClassLoader, times(1)).loadClass(POJO);
+    }
+
+    @Test
+    public void testAllResolutionsAreDiscardedOnChange() throws Exception {
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        javaUseProvider.provide(ArrayList.class.getName(), renderContext, new SimpleBindings());
+        Map<?, ?> useObjects = Whitebox.getInternalState(javaUseProvider, "useObjects");
+        assertEquals(2, useObjects.size());
+
+        when(resourceBackedPojoChangeMonitor.getChangeCount()).thenReturn(1L);
+        javaUseProvider.provide(POJO, renderContext, new SimpleBindings());
+        assertEquals(Collections.singleton(POJO), useObjects.keySet());
+    }
+
+    @Test
+    public void testInvalidIdentifier() {
+        assertFalse(javaUseProvider.provide("not a class", renderContext, new SimpleBindings()).isSuccess());
+    }
+}
@@ -87,6 +87,7 @@ import org.apache.sling.servlets.resolver.internal.defaults.DefaultServlet;
 import org.apache.sling.servlets.resolver.internal.helper.AbstractResourceCollector;
 import org.apache.sling.servlets.resolver.internal.helper.NamedScriptResourceCollector;
 import org.apache.sling.servlets.resolver.internal.helper.ResourceCollector;
+import org.apache.sling.servlets.resolver.internal.helper.ScriptLocationIndex;
 import org.apache.sling.servlets.resolver.internal.helper.SlingServletConfig;
 import org.apache.sling.servlets.resolver.internal.resource.ServletResourceProvider;
 import org.apache.sling.servlets.resolver.internal.resource.ServletResourceProviderFactory;
@@ -194,6 +195,9 @@ public class SlingServletResolver
     /** The cache size. */
     private int cacheSize;
 
+    /** The index of empty script locations, only used with the cache. */
+    private ScriptLocationIndex locationIndex;
+
     /** Flag to log warning if cache size exceed only once. */
     private volatile boolean logCacheSizeWarning;
 
@@ -635,7 +639,7 @@ public class SlingServletResolver
             return scriptServlet;
         }
 
-        final Collection<Resource> candidates = locationUtil.getServlets(resolver);
+        final Collection<Resource> candidates = locationUtil.getServlets(resolver, this.locationIndex);
 
         if (LOGGER.isDebugEnabled()) {
             if (candidates.isEmpty()) {
@@ -844,6 +848,7 @@ public class SlingServletResolver
         this.cacheSize = OsgiUtil.toInteger(properties.get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE);
         if (this.cacheSize > 5) {
             this.cache = new ConcurrentHashMap<AbstractResourceCollector, Servlet>(cacheSize);
+            this.locationIndex = new ScriptLocationIndex(ScriptLocationIndex.DEFAULT_MAX_ENTRIES);
             this.logCacheSizeWarning = true;
         } else {
             this.cacheSize = 0;
@@ -919,6 +924,7 @@ public class SlingServletResolver
         }
 
         this.cache = null;
+        this.locationIndex = null;
         this.servletResourceProviderFactory = null;
 
         if (this.mbeanRegistration != null) {
@@ -1012,6 +1018,7 @@ public class SlingServletResolver
         synchronized (this.servletsByReference) {
             servletsByReference.put(reference, new ServletReg(servlet, regs));
         }
+        flushLocationIndex();
         return true;
     }
 
@@ -1049,6 +1056,7 @@ public class SlingServletResolver
             for(final ServiceRegistration reg : registration.registrations) {
                 reg.unregister();
             }
+            flushLocationIndex();
             final String name = RequestUtil.getServletName(registration.servlet);
             LOGGER.debug("unbindServlet: Servlet {} removed", name);
 
@@ -1095,6 +1103,10 @@ public class SlingServletResolver
                         index++;
                     }
                 }
+                // only changes of the resource tree affect the locations
+                if (flushCache) {
+                    flushLocationIndex();
+                }
             }
             if (flushCache) {
                 flushCache();
@@ -1107,6 +1119,13 @@ public class SlingServletResolver
         this.logCacheSizeWarning = true;
     }
 
+    private void flushLocationIndex() {
+        final ScriptLocationIndex index = this.locationIndex;
+        if (index != null) {
+            index.clear();
+        }
+    }
+
     /** The list of property names checked by {@link #getName(ServiceReference)} */
     private static final String[] NAME_PROPERTIES = { SLING_SERLVET_NAME,
         COMPONENT_NAME, SERVICE_PID, SERVICE_ID };
@@ -1405,6 +1424,7 @@ public class SlingServletResolver
         @Override
         public void flushCache() {
             SlingServletResolver.this.flushCache();
+            SlingServletResolver.this.flushLocationIndex();
         }
 
         @Override
@@ -65,6 +65,20 @@ public abstract class AbstractResourceCollector {
     }
 
     public final Collection<Resource> getServlets(final ResourceResolver resolver) {
+        return getServlets(resolver, null);
+    }
+
+    /**
+     * Returns the ordered collection of servlet and script resources, skipping
+     * all locations known to be empty by the <code>locationIndex</code>.
+     *
+     * @param resolver The <code>ResourceResolver</code> used to access the
+     *            resources.
+     * @param locationIndex The index of empty locations, may be <code>null</code>.
+     *            It must only be used with the script resource resolver.
+     */
+    public final Collection<Resource> getServlets(final ResourceResolver resolver,
+            final ScriptLocationIndex locationIndex) {
 
         final SortedSet<Resource> resources = new TreeSet<Resource>();
         final Iterator<String> locations = new LocationIterator(resourceType, resourceSuperType,
@@ -81,6 +95,9 @@ public abstract class AbstractResourceCollector {
             } else {
                 path = location;
             }
+            if (locationIndex != null && path.startsWith("/") && locationIndex.isEmpty(resolver, path)) {
+                continue;
+            }
             final Resource locationRes = getResource(resolver, path);
             getWeightedResources(resources, locationRes);
         }
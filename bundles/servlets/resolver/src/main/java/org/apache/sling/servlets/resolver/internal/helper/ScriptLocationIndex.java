@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.servlets.resolver.internal.resource.ServletResourceProviderFactory;
+
+/**
+ * The <code>ScriptLocationIndex</code> remembers which of the locations
+ * returned by the {@link LocationIterator} are empty. A location is empty if
+ * there is no resource at the location path, the location has no child
+ * resources and there is no servlet registered for the location itself. Such
+ * a location can never provide a servlet or script, so the collectors skip it
+ * without accessing the resource tree again.
+ * <p>
+ * The index is shared for all requests and must only be used with the script
+ * resource resolvers of the servlet resolver. It has to be cleared on every
+ * change below the search paths and whenever servlets are registered or
+ * unregistered.
+ */
+public class ScriptLocationIndex {
+
+    /** The maximum number of locations, the index is cleared once it is reached. */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private final int maxEntries;
+
+    /** Incremented on each clear, to not store states read before a change. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Emptiness of the locations by location path. */
+    private final Map<String, Boolean> locations = new ConcurrentHashMap<String, Boolean>();
+
+    public ScriptLocationIndex(final int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Checks whether the location at <code>path</code> is empty. The
+     * result is read from the resource tree if it is not known yet.
+     *
+     * @param resolver The script resource resolver
+     * @param path The absolute path of the location, without trailing slash
+     * @return <code>true</code> if the location can not provide any servlet or script.
+     */
+    public boolean isEmpty(final ResourceResolver resolver, final String path) {
+        final Boolean known = this.locations.get(path);
+        if (known != null) {
+            return known;
+        }
+        final long current = this.generation.get();
+        final boolean empty = resolver.getResource(path) == null
+            && !resolver.listChildren(new SyntheticResource(resolver, path, "$synthetic$")).hasNext()
+            && resolver.getResource(path + ServletResourceProviderFactory.SERVLET_PATH_EXTENSION) == null;
+        if (this.locations.size() >= this.maxEntries) {
+            this.locations.clear();
+        }
+        this.locations.put(path, empty);
+        // drop the state if a change happened while it was read
+        if (current != this.generation.get()) {
+            this.locations.remove(path);
+        }
+        return empty;
+    }
+
+    /**
+     * Removes all locations from the index.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.locations.clear();
+    }
+
+    /**
+     * Returns the number of indexed locations.
+     */
+    public int size() {
+        return this.locations.size();
+    }
+}
@@ -286,6 +286,18 @@ public class ResourceCollectorTest extends HelperTestBase {
         }
 
         assertFalse(rIter.hasNext());
+
+        // the location index must not change the result
+        final ScriptLocationIndex index = new ScriptLocationIndex(ScriptLocationIndex.DEFAULT_MAX_ENTRIES);
+        for (int i = 0; i < 2; i++) {
+            final Iterator<Resource> expected = res.iterator();
+            final Iterator<Resource> actual = lu.getServlets(request.getResourceResolver(), index).iterator();
+            while (expected.hasNext()) {
+                assertTrue(actual.hasNext());
+                assertEquals(expected.next().getPath(), actual.next().getPath());
+            }
+            assertFalse(actual.hasNext());
+        }
     }
 
     protected MockResource createScriptResource(String path, String type) {
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.resolver.internal.helper;
+
+import org.apache.sling.commons.testing.sling.MockResource;
+
+public class ScriptLocationIndexTest extends HelperTestBase {
+
+    private ScriptLocationIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        index = new ScriptLocationIndex(ScriptLocationIndex.DEFAULT_MAX_ENTRIES);
+    }
+
+    public void testEmptyLocations() {
+        resourceResolver.addResource(new MockResource(resourceResolver, "/apps/foo/bar", "sling:Folder"));
+        resourceResolver.addResource(new MockResource(resourceResolver, "/libs/foo/bar/html.esp", "nt:file"));
+        resourceResolver.addResource(new MockResource(resourceResolver, "/apps/sling/servlet/default.servlet", "sling/bundle/resource"));
+
+        assertFalse(index.isEmpty(resourceResolver, "/apps/foo/bar"));
+        assertFalse(index.isEmpty(resourceResolver, "/libs/foo/bar"));
+        assertFalse(index.isEmpty(resourceResolver, "/apps/sling/servlet/default"));
+        assertTrue(index.isEmpty(resourceResolver, "/libs/sling/servlet/default"));
+        assertEquals(4, index.size());
+    }
+
+    public void testClear() {
+        assertTrue(index.isEmpty(resourceResolver, "/apps/foo/bar"));
+
+        // the index is not updated until it is cleared
+        resourceResolver.addResource(new MockResource(resourceResolver, "/apps/foo/bar/html.esp", "nt:file"));
+        assertTrue(index.isEmpty(resourceResolver, "/apps/foo/bar"));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.isEmpty(resourceResolver, "/apps/foo/bar"));
+    }
+
+    public void testMaxEntries() {
+        index = new ScriptLocationIndex(2);
+        index.isEmpty(resourceResolver, "/apps/a");
+        index.isEmpty(resourceResolver, "/apps/b");
+        assertEquals(2, index.size());
+        index.isEmpty(resourceResolver, "/apps/c");
+        assertEquals(1, index.size());
+    }
+}
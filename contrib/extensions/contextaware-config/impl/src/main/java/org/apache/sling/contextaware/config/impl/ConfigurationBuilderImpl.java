@@ -23,6 +23,7 @@ import static org.apache.sling.contextaware.config.impl.ConfigurationNameConstan
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.Resource;
@@ -34,6 +35,8 @@ import org.apache.sling.contextaware.config.ConfigurationResolver;
 import org.apache.sling.contextaware.config.impl.ConfigurationProxy.ChildResolver;
 import org.apache.sling.contextaware.config.impl.metadata.AnnotationClassParser;
 import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache.ResolverEntries;
 import org.apache.sling.contextaware.config.spi.ConfigurationPersistenceStrategy;
 
 class ConfigurationBuilderImpl implements ConfigurationBuilder {
@@ -42,17 +45,20 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
     private final ConfigurationResolver configurationResolver;
     private final ConfigurationResourceResolver configurationResourceResolver;
     private final ConfigurationPersistenceStrategy configurationPersistenceStrategy;
+    private final ConfigurationResolutionCache cache;
 
     private String configName;
 
     public ConfigurationBuilderImpl(final Resource resource,
             final ConfigurationResolver configurationResolver,
             final ConfigurationResourceResolver configurationResourceResolver,
-            final ConfigurationPersistenceStrategy configurationPersistenceStrategy) {
+            final ConfigurationPersistenceStrategy configurationPersistenceStrategy,
+            final ConfigurationResolutionCache cache) {
         this.contentResource = resource;
         this.configurationResolver = configurationResolver;
         this.configurationResourceResolver = configurationResourceResolver;
         this.configurationPersistenceStrategy = configurationPersistenceStrategy;
+        this.cache = cache;
     }
 
     @Override
@@ -182,7 +188,25 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
                 public <C> Collection<C> getChildren(String configName, Class<C> clazz) {
                     return getConfiguration(configName).asCollection(clazz);
                 }
-            });
+            }, getValues(resource, clazz));
+        }
+
+        /**
+         * Get the converted values of the configuration resource from the cache of the resource resolver.
+         * @return Values or null if caching is not possible
+         */
+        private Map<String, Object> getValues(final Resource resource, final Class<T> clazz) {
+            final ResolverEntries entries = cache.getEntries(contentResource);
+            if (entries == null) {
+                return null;
+            }
+            final String path = resource != null ? resource.getPath() : null;
+            Map<String, Object> values = entries.getValues(path, clazz);
+            if (values == null) {
+                values = ConfigurationProxy.getValues(resource, clazz);
+                entries.putValues(path, clazz, values);
+            }
+            return values;
         }
     }
     
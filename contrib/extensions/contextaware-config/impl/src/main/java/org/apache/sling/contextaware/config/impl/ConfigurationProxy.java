@@ -54,8 +54,22 @@ final class ConfigurationProxy {
      * @param childResolver This is used to resolve nested configuration objects relative to the current configuration resource
      * @return Dynamic proxy object
      */
-    @SuppressWarnings("unchecked")
     public @Nonnull static <T> T get(@Nullable Resource resource, @Nonnull Class<T> clazz, ChildResolver childResolver) {
+        return get(resource, clazz, childResolver, null);
+    }
+
+    /**
+     * Get dynamic proxy for given resources's properties mapped to given annotation class.
+     * @param resource Resource
+     * @param clazz Annotation class
+     * @param childResolver This is used to resolve nested configuration objects relative to the current configuration resource
+     * @param values Property values converted by {@link #getValues(Resource, Class)} for the same resource and class,
+     *     or null to convert them now
+     * @return Dynamic proxy object
+     */
+    @SuppressWarnings("unchecked")
+    public @Nonnull static <T> T get(@Nullable Resource resource, @Nonnull Class<T> clazz, ChildResolver childResolver,
+            @Nullable Map<String, Object> values) {
 
         // only annotation interface classes are supported
         if (!AnnotationClassParser.isContextAwareConfig(clazz)) {
@@ -63,12 +77,84 @@ final class ConfigurationProxy {
         }
 
         // create dynamic proxy for annotation class accessing underlying resource properties
-        // wrap in caching invocation handler so client code can call all methods multiple times
-        // without having to worry about performance
+        // wrap in caching invocation handler prefilled with all property values so client code
+        // can call all methods multiple times without having to worry about performance
         return (T)Proxy.newProxyInstance(clazz.getClassLoader(), new Class[] { clazz },
-                new CachingInvocationHandler(new DynamicProxyInvocationHandler(resource, childResolver)));
+                new CachingInvocationHandler(new DynamicProxyInvocationHandler(resource, childResolver),
+                        values != null ? values : getValues(resource, clazz)));
+    }
+
+    /**
+     * Converts the resource properties for all methods of the annotation class at once.
+     * Nested configurations and methods with unsupported types are left out, they are
+     * handled when the method is invoked.
+     * @param resource Resource
+     * @param clazz Annotation class
+     * @return Converted values by method name
+     */
+    public @Nonnull static Map<String, Object> getValues(@Nullable Resource resource, @Nonnull Class<?> clazz) {
+        Map<String, Object> values = new HashMap<>();
+        ValueMap props = ResourceUtil.getValueMap(resource);
+        for (Method method : clazz.getDeclaredMethods()) {
+            Class<?> componentType = getComponentType(method);
+            if (method.getParameterTypes().length > 0
+                    || AnnotationClassParser.isContextAwareConfig(componentType)
+                    || !isValidType(componentType)) {
+                continue;
+            }
+            values.put(method.getName(), getValue(props, method));
+        }
+        return values;
+    }
+
+    private static Class<?> getComponentType(Method method) {
+        Class<?> targetType = method.getReturnType();
+        return targetType.isArray() ? targetType.getComponentType() : targetType;
+    }
+
+    /**
+     * Ensures the given type is support for reading configuration parameters.
+     * @param type Type
+     * @return true if type is supported
+     */
+    private static boolean isValidType(Class<?> type) {
+        return PropertyMetadata.SUPPORTED_TYPES.contains(type);
+    }
+
+    /**
+     * Get the value of a configuration property from the value map, falling back to the
+     * default value of the method.
+     * @param props Resource properties
+     * @param method Annotation class method
+     * @return Value
+     */
+    private static Object getValue(ValueMap props, Method method) {
+        String propName = AnnotationClassParser.getPropertyName(method.getName());
+        Class<?> targetType = method.getReturnType();
+
+        // detect default value
+        Object defaultValue = method.getDefaultValue();
+        if (defaultValue == null) {
+            if (targetType.isArray()) {
+                defaultValue = Array.newInstance(targetType.getComponentType(), 0);
+            }
+            else if (targetType.isPrimitive()) {
+                // get default value for primitive data type (use hack via array)
+                defaultValue = Array.get(Array.newInstance(targetType, 1), 0);
+            }
+        }
+
+        // get value from valuemap with given type/default value
+        Object value;
+        if (defaultValue != null) {
+            value = props.get(propName, defaultValue);
+        }
+        else {
+            value = props.get(propName, targetType);
+        }
+        return value;
     }
-    
+
     /**
      * Resolves nested configurations.
      */
@@ -117,45 +203,15 @@ final class ConfigurationProxy {
                   + " in " + method.getDeclaringClass() + "#" + method.getName());
             }
 
-            // detect default value
-            Object defaultValue = method.getDefaultValue();
-            if (defaultValue == null) {
-                if (isArray) {
-                    defaultValue = Array.newInstance(componentType, 0);
-                }
-                else if (targetType.isPrimitive()) {
-                    // get default value for primitive data type (use hack via array)
-                    defaultValue = Array.get(Array.newInstance(targetType, 1), 0);
-                }
-            }
-
-            // get value from valuemap with given type/default value
-            ValueMap props = ResourceUtil.getValueMap(resource);
-            Object value;
-            if (defaultValue != null) {
-                value = props.get(propName, defaultValue);
-            }
-            else {
-                value = props.get(propName, targetType);
-            }
-            return value;
-
+            return getValue(ResourceUtil.getValueMap(resource), method);
         }
 
-        /**
-         * Ensures the given type is support for reading configuration parameters.
-         * @param type Type
-         * @return true if type is supported
-         */
-        private boolean isValidType(Class<?> type) {
-            return PropertyMetadata.SUPPORTED_TYPES.contains(type);
-        }
-        
     }
 
     /**
      * Invocation handler that caches all results for each method name, and returns
-     * the result from cache on next invocation.
+     * the result from cache on next invocation. Arrays are copied before they are returned,
+     * as the cached results may be shared with other proxies.
      */
     static class CachingInvocationHandler implements InvocationHandler {
 
@@ -167,6 +223,17 @@ final class ConfigurationProxy {
             this.delegate = delegate;
         }
 
+        /**
+         * @param delegate Invocation handler for all methods without precomputed result
+         * @param precomputedResults Results by method name
+         */
+        public CachingInvocationHandler(InvocationHandler delegate, Map<String, Object> precomputedResults) {
+            this.delegate = delegate;
+            for (Map.Entry<String, Object> entry : precomputedResults.entrySet()) {
+                results.put(entry.getKey(), entry.getValue() != null ? entry.getValue() : NULL_OBJECT);
+            }
+        }
+
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
             String key = method.getName();
@@ -181,6 +248,12 @@ final class ConfigurationProxy {
             if (result == NULL_OBJECT) {
                 return null;
             }
+            else if (result.getClass().isArray()) {
+                int length = Array.getLength(result);
+                Object copy = Array.newInstance(result.getClass().getComponentType(), length);
+                System.arraycopy(result, 0, copy, 0, length);
+                return copy;
+            }
             else {
                 return result;
             }
@@ -23,6 +23,7 @@ import org.apache.sling.contextaware.config.ConfigurationBuilder;
 import org.apache.sling.contextaware.config.ConfigurationResolver;
 import org.apache.sling.contextaware.config.management.impl.ConfigurationPersistenceStrategyMultiplexer;
 import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
@@ -34,11 +35,14 @@ public class ConfigurationResolverImpl implements ConfigurationResolver {
 
     @Reference
     private ConfigurationPersistenceStrategyMultiplexer configurationResourcePersistenceStrategy;
+
+    @Reference
+    private ConfigurationResolutionCache cache;
     
     @Override
     public ConfigurationBuilder get(Resource resource) {
         return new ConfigurationBuilderImpl(resource, this,
-                configurationResourceResolver, configurationResourcePersistenceStrategy);
+                configurationResourceResolver, configurationResourcePersistenceStrategy, cache);
     }
 
 }
@@ -30,6 +30,7 @@ import org.apache.sling.contextaware.config.impl.metadata.ConfigurationMetadataP
 import org.apache.sling.contextaware.config.management.ConfigurationData;
 import org.apache.sling.contextaware.config.management.ConfigurationManager;
 import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache;
 import org.apache.sling.contextaware.config.resource.impl.ConfigurationResourceResolvingStrategyMultiplexer;
 import org.apache.sling.contextaware.config.spi.ConfigurationPersistenceException;
 import org.apache.sling.contextaware.config.spi.metadata.ConfigurationMetadata;
@@ -47,6 +48,8 @@ public class ConfigurationManagerImpl implements ConfigurationManager {
     private ConfigurationMetadataProviderMultiplexer configurationMetadataProvider;
     @Reference
     private ConfigurationPersistenceStrategyMultiplexer configurationPersistenceStrategy;
+    @Reference
+    private ConfigurationResolutionCache cache;
 
     @Override
     public ConfigurationData get(Resource resource, String configName) {
@@ -82,6 +85,8 @@ public class ConfigurationManagerImpl implements ConfigurationManager {
         if (!configurationPersistenceStrategy.persist(resource.getResourceResolver(), configResourcePath, values)) {
             throw new ConfigurationPersistenceException("Unable to persist configuration: No persistence strategy found.");
         }
+        // do not wait for the resource events to see the changes with the same resource resolver
+        cache.invalidate(resource.getResourceResolver());
     }
 
     @Override
@@ -93,6 +98,7 @@ public class ConfigurationManagerImpl implements ConfigurationManager {
         if (!configurationPersistenceStrategy.persistCollection(resource.getResourceResolver(), configResourceParentPath, values)) {
             throw new ConfigurationPersistenceException("Unable to persist configuration: No persistence strategy found.");
         }
+        cache.invalidate(resource.getResourceResolver());
     }
 
     @Override
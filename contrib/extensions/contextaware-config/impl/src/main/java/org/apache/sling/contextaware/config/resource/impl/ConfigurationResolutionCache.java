@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.contextaware.config.resource.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.def.DefaultContextPathStrategy;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+/**
+ * Caches the results of the configuration resolution per resource resolver: the paths of the
+ * configuration resources found for a context resource, and the property values converted for
+ * annotation classes. As resources are resolved with the access rights of the resource resolver,
+ * the entries are never shared between resource resolvers.
+ * <p>
+ * Only paths and converted values are cached, so a cache never references its resource resolver
+ * and is released together with it. All caches are dropped on resource events below the
+ * configured invalidation paths, as configurations might have changed. Below the context paths
+ * only changes of the {@value DefaultContextPathStrategy#PROPERTY_CONFIG} property and removed
+ * resources drop the caches, so that content changes in general do not invalidate them.
+ * The event handler is registered with a filter on these paths, so that the cache is not notified
+ * of any other resource events.
+ * </p>
+ */
+@Component(service=ConfigurationResolutionCache.class)
+@Designate(ocd=ConfigurationResolutionCache.Config.class)
+public class ConfigurationResolutionCache {
+
+    @ObjectClassDefinition(name="Apache Sling Context-Aware Configuration Resolution Cache",
+            description="Caches resolved configuration resources and values per resource resolver.")
+    static @interface Config {
+
+        @AttributeDefinition(name="Enabled",
+                description = "Enable the configuration resolution cache.")
+        boolean enabled() default true;
+
+        @AttributeDefinition(name="Max entries",
+                description = "Maximum number of cached resolutions and value sets per resource resolver.")
+        int maxEntries() default 1000;
+
+        @AttributeDefinition(name="Invalidation paths",
+                description = "Changes below these paths invalidate the cache. This has to include the configuration paths.")
+        String[] invalidationPaths() default {"/conf", "/apps/conf", "/libs/conf"};
+
+        @AttributeDefinition(name="Context paths",
+                description = "Changes of sling:config-ref properties and removed resources below these paths invalidate "
+                        + "the cache. This has to include all content trees with sling:config-ref properties.")
+        String[] contextPaths() default {"/content"};
+
+    }
+
+    private static final String[] TOPICS = new String[] {
+            SlingConstants.TOPIC_RESOURCE_ADDED,
+            SlingConstants.TOPIC_RESOURCE_CHANGED,
+            SlingConstants.TOPIC_RESOURCE_REMOVED
+    };
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Map<ResourceResolver, ResolverEntries> caches =
+            Collections.synchronizedMap(new WeakHashMap<ResourceResolver, ResolverEntries>());
+
+    private volatile Config config;
+
+    private ServiceRegistration<EventHandler> eventHandlerRegistration;
+
+    @Activate
+    private void activate(final BundleContext bundleContext, final Config config) {
+        this.config = config;
+        if (config.enabled()) {
+            final Dictionary<String, Object> properties = new Hashtable<>();
+            properties.put(EventConstants.EVENT_TOPIC, TOPICS);
+            properties.put(EventConstants.EVENT_FILTER,
+                    buildEventFilter(config.invalidationPaths(), config.contextPaths()));
+            this.eventHandlerRegistration = bundleContext.registerService(EventHandler.class, new EventHandler() {
+                @Override
+                public void handleEvent(final Event event) {
+                    ConfigurationResolutionCache.this.handleEvent(event);
+                }
+            }, properties);
+        }
+    }
+
+    @Deactivate
+    private void deactivate() {
+        if (this.eventHandlerRegistration != null) {
+            this.eventHandlerRegistration.unregister();
+            this.eventHandlerRegistration = null;
+        }
+        this.config = null;
+        this.caches.clear();
+    }
+
+    /**
+     * Get the cache entries for the resource resolver of the given resource.
+     * @param resource Resource
+     * @return Cache entries or {@code null} if caching is disabled or the resource resolver
+     *         has uncommitted changes.
+     */
+    public ResolverEntries getEntries(final Resource resource) {
+        final Config config = this.config;
+        if (config == null || !config.enabled() || resource == null) {
+            return null;
+        }
+        final ResourceResolver resolver = resource.getResourceResolver();
+        if (resolver == null) {
+            return null;
+        }
+        if (resolver.hasChanges()) {
+            // transient changes are only visible to this resource resolver
+            this.caches.remove(resolver);
+            return null;
+        }
+        ResolverEntries entries;
+        synchronized (this.caches) {
+            entries = this.caches.get(resolver);
+            if (entries == null) {
+                entries = new ResolverEntries(this.generation, config.maxEntries());
+                this.caches.put(resolver, entries);
+            }
+        }
+        entries.validate();
+        return entries;
+    }
+
+    /**
+     * Drop all entries of the given resource resolver, e.g. after it persisted configuration changes.
+     * @param resolver Resource resolver
+     */
+    public void invalidate(final ResourceResolver resolver) {
+        this.caches.remove(resolver);
+    }
+
+    /**
+     * Invalidate all caches if the given resource event might affect the configuration resolution.
+     * @param event Resource event
+     */
+    void handleEvent(final Event event) {
+        final Config config = this.config;
+        final Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+        if (config == null || !(path instanceof String)) {
+            return;
+        }
+        if (matches((String)path, config.invalidationPaths())
+                || (matches((String)path, config.contextPaths()) && isContextChange(event))) {
+            this.generation.incrementAndGet();
+        }
+    }
+
+    private static boolean matches(final String path, final String[] paths) {
+        if (paths != null) {
+            for (final String invalidationPath : paths) {
+                if (isSameOrDescendant(path, invalidationPath) || isSameOrDescendant(invalidationPath, path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the context resources might have changed: resources have been removed, or
+     * config references have been added, changed or removed.
+     * @param event Resource event
+     * @return {@code true} if the context paths might have changed
+     */
+    private static boolean isContextChange(final Event event) {
+        if (SlingConstants.TOPIC_RESOURCE_REMOVED.equals(event.getTopic())) {
+            return true;
+        }
+        for (final String attributes : new String[] {SlingConstants.PROPERTY_ADDED_ATTRIBUTES,
+                SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, SlingConstants.PROPERTY_REMOVED_ATTRIBUTES}) {
+            final Object names = event.getProperty(attributes);
+            if (names instanceof String[]
+                    && Arrays.asList((String[])names).contains(DefaultContextPathStrategy.PROPERTY_CONFIG)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the event filter matching the resource events {@link #handleEvent(Event)} might act upon:
+     * events of the given paths, their descendants and their ancestors.
+     * @param pathArrays Paths
+     * @return LDAP filter on the path property of the events
+     */
+    static String buildEventFilter(final String[]... pathArrays) {
+        final Set<String> filters = new LinkedHashSet<>();
+        for (final String[] paths : pathArrays) {
+            if (paths == null) {
+                continue;
+            }
+            for (final String path : paths) {
+                if (path == null || path.isEmpty()) {
+                    continue;
+                }
+                if ("/".equals(path)) {
+                    filters.add("(" + SlingConstants.PROPERTY_PATH + "=/*)");
+                    continue;
+                }
+                final String escapedPath = escapeFilterValue(path);
+                filters.add("(" + SlingConstants.PROPERTY_PATH + "=" + escapedPath + ")");
+                filters.add("(" + SlingConstants.PROPERTY_PATH + "=" + escapedPath + "/*)");
+                // removing an ancestor removes the path as well
+                for (int pos = path.lastIndexOf('/'); pos >= 0; pos = path.lastIndexOf('/', pos - 1)) {
+                    final String ancestor = pos == 0 ? "/" : path.substring(0, pos);
+                    filters.add("(" + SlingConstants.PROPERTY_PATH + "=" + escapeFilterValue(ancestor) + ")");
+                    if (pos == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (filters.isEmpty()) {
+            // nothing to listen to, but the filter has to be valid
+            return "(!(" + SlingConstants.PROPERTY_PATH + "=*))";
+        }
+        final StringBuilder filter = new StringBuilder("(|");
+        for (final String item : filters) {
+            filter.append(item);
+        }
+        return filter.append(")").toString();
+    }
+
+    private static String escapeFilterValue(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for (final char c : value.toCharArray()) {
+            if (c == '\\' || c == '*' || c == '(' || c == ')') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean isSameOrDescendant(final String path, final String parentPath) {
+        return path.equals(parentPath) || "/".equals(parentPath) || path.startsWith(parentPath + "/");
+    }
+
+    /**
+     * Build the key of a configuration resolution.
+     * @param contentResource Context resource
+     * @param bucketName Bucket name
+     * @param configName Configuration name
+     * @param collection Whether a configuration collection is resolved
+     * @return Key
+     */
+    static String getKey(final Resource contentResource, final String bucketName, final String configName,
+            final boolean collection) {
+        return (collection ? "c:" : "s:") + contentResource.getPath() + "\n" + bucketName + "\n" + configName;
+    }
+
+    /**
+     * Build the key of the context paths found for a resource.
+     * @param resource Resource
+     * @return Key
+     */
+    static String getContextPathsKey(final Resource resource) {
+        return "p:" + resource.getPath();
+    }
+
+    /**
+     * Cached entries of a single resource resolver. As resource resolvers are not thread safe,
+     * the entries are not thread safe either.
+     */
+    public static final class ResolverEntries {
+
+        private final AtomicLong cacheGeneration;
+
+        private long generation;
+
+        /** Paths of the resolved context and configuration resources by key, an empty list if none was found. */
+        private final Map<String, List<String>> paths;
+
+        /** Converted values by configuration resource path and annotation class. */
+        private final Map<String, Map<Class<?>, Map<String, Object>>> values;
+
+        ResolverEntries(final AtomicLong cacheGeneration, final int maxEntries) {
+            this.cacheGeneration = cacheGeneration;
+            this.generation = cacheGeneration.get();
+            this.paths = createLRUMap(maxEntries);
+            this.values = createLRUMap(maxEntries);
+        }
+
+        private static <V> Map<String, V> createLRUMap(final int maxEntries) {
+            return new LinkedHashMap<String, V>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        /**
+         * Drop all entries if the cache was invalidated since they were cached.
+         */
+        void validate() {
+            final long current = this.cacheGeneration.get();
+            if (current != this.generation) {
+                this.paths.clear();
+                this.values.clear();
+                this.generation = current;
+            }
+        }
+
+        List<String> getPaths(final String key) {
+            return this.paths.get(key);
+        }
+
+        void putPaths(final String key, final List<String> resourcePaths) {
+            this.paths.put(key, resourcePaths);
+        }
+
+        /**
+         * @param path Path of the configuration resource, {@code null} if no configuration exists.
+         * @param clazz Annotation class
+         * @return The converted values or {@code null} if not cached.
+         */
+        public Map<String, Object> getValues(final String path, final Class<?> clazz) {
+            final Map<Class<?>, Map<String, Object>> byClass = this.values.get(path == null ? "" : path);
+            return byClass == null ? null : byClass.get(clazz);
+        }
+
+        public void putValues(final String path, final Class<?> clazz, final Map<String, Object> converted) {
+            final String key = path == null ? "" : path;
+            Map<Class<?>, Map<String, Object>> byClass = this.values.get(key);
+            if (byClass == null) {
+                byClass = new HashMap<>();
+                this.values.put(key, byClass);
+            }
+            byClass.put(clazz, converted);
+        }
+    }
+
+}
@@ -20,11 +20,14 @@ package org.apache.sling.contextaware.config.resource.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache.ResolverEntries;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
@@ -35,22 +38,87 @@ public class ConfigurationResourceResolverImpl implements ConfigurationResourceR
     private ContextPathStrategyMultiplexer contextPathStrategy;
     @Reference
     private ConfigurationResourceResolvingStrategyMultiplexer configurationResourceResolvingStrategy;
+    @Reference
+    private ConfigurationResolutionCache cache;
 
     @Override
     public Resource getResource(Resource resource, String bucketName, String configName) {
-        return configurationResourceResolvingStrategy.getResource(resource, bucketName, configName);
+        ResolverEntries entries = cache.getEntries(resource);
+        if (entries == null) {
+            return configurationResourceResolvingStrategy.getResource(resource, bucketName, configName);
+        }
+        String key = ConfigurationResolutionCache.getKey(resource, bucketName, configName, false);
+        List<String> paths = entries.getPaths(key);
+        if (paths != null) {
+            if (paths.isEmpty()) {
+                return null;
+            }
+            Resource configResource = resource.getResourceResolver().getResource(paths.get(0));
+            if (configResource != null) {
+                return configResource;
+            }
+        }
+        Resource configResource = configurationResourceResolvingStrategy.getResource(resource, bucketName, configName);
+        entries.putPaths(key, configResource != null
+                ? Collections.singletonList(configResource.getPath())
+                : Collections.<String>emptyList());
+        return configResource;
     }
 
     @Override
     public Collection<Resource> getResourceCollection(Resource resource, String bucketName, String configName) {
-        return configurationResourceResolvingStrategy.getResourceCollection(resource, bucketName, configName);
+        ResolverEntries entries = cache.getEntries(resource);
+        if (entries == null) {
+            return configurationResourceResolvingStrategy.getResourceCollection(resource, bucketName, configName);
+        }
+        String key = ConfigurationResolutionCache.getKey(resource, bucketName, configName, true);
+        List<String> paths = entries.getPaths(key);
+        if (paths != null) {
+            Collection<Resource> configResources = getResources(resource.getResourceResolver(), paths);
+            if (configResources != null) {
+                return configResources;
+            }
+        }
+        Collection<Resource> configResources = configurationResourceResolvingStrategy.getResourceCollection(resource, bucketName, configName);
+        List<String> resourcePaths = new ArrayList<>(configResources.size());
+        for (Resource configResource : configResources) {
+            resourcePaths.add(configResource.getPath());
+        }
+        entries.putPaths(key, resourcePaths);
+        return configResources;
+    }
+
+    /**
+     * Get the resources for the cached paths.
+     * @return Resources or null if one of them does not exist anymore
+     */
+    private Collection<Resource> getResources(ResourceResolver resolver, List<String> paths) {
+        List<Resource> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            Resource configResource = resolver.getResource(path);
+            if (configResource == null) {
+                return null;
+            }
+            result.add(configResource);
+        }
+        return result;
     }
 
     @Override
     public String getContextPath(Resource resource) {
-        Iterator<Resource> it = contextPathStrategy.findContextResources(resource);
-        if (it.hasNext()) {
-            return it.next().getPath();
+        if (cache.getEntries(resource) == null) {
+            // only the first context resource is needed
+            Iterator<Resource> it = contextPathStrategy.findContextResources(resource);
+            if (it.hasNext()) {
+                return it.next().getPath();
+            }
+            else {
+                return null;
+            }
+        }
+        Collection<String> contextPaths = getAllContextPaths(resource);
+        if (!contextPaths.isEmpty()) {
+            return contextPaths.iterator().next();
         }
         else {
             return null;
@@ -59,11 +127,23 @@ public class ConfigurationResourceResolverImpl implements ConfigurationResourceR
 
     @Override
     public Collection<String> getAllContextPaths(Resource resource) {
+        ResolverEntries entries = cache.getEntries(resource);
+        String key = null;
+        if (entries != null) {
+            key = ConfigurationResolutionCache.getContextPathsKey(resource);
+            List<String> contextPaths = entries.getPaths(key);
+            if (contextPaths != null) {
+                return new ArrayList<>(contextPaths);
+            }
+        }
         final List<String> contextPaths = new ArrayList<>();
         Iterator<Resource> contextResources = contextPathStrategy.findContextResources(resource);
         while (contextResources.hasNext()) {
             contextPaths.add(contextResources.next().getPath());
         }
+        if (entries != null) {
+            entries.putPaths(key, new ArrayList<>(contextPaths));
+        }
         return contextPaths;
     }
 
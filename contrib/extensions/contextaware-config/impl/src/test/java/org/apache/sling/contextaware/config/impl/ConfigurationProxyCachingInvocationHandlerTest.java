@@ -18,14 +18,19 @@
  */
 package org.apache.sling.contextaware.config.impl;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.sling.contextaware.config.impl.ConfigurationProxy.CachingInvocationHandler;
 import org.junit.Before;
@@ -81,4 +86,30 @@ public class ConfigurationProxyCachingInvocationHandlerTest {
         verify(invocationHandler, times(1)).invoke(testObject, testMethod, null);
     }
 
+    @Test
+    public void testPrecomputed() throws Throwable {
+        Map<String, Object> values = new HashMap<>();
+        values.put("toString", "value1");
+        values.put("hashCode", null);
+        underTest = new CachingInvocationHandler(invocationHandler, values);
+        Method hashCodeMethod = Object.class.getMethod("hashCode");
+
+        assertEquals("value1", underTest.invoke(testObject, testMethod, null));
+        assertNull(underTest.invoke(testObject, hashCodeMethod, null));
+        verify(invocationHandler, never()).invoke(testObject, testMethod, null);
+        verify(invocationHandler, never()).invoke(testObject, hashCodeMethod, null);
+    }
+
+    @Test
+    public void testCacheHitArrayCopy() throws Throwable {
+        String[] value = new String[] { "value1", "value2" };
+        when(invocationHandler.invoke(testObject, testMethod, null)).thenReturn(value);
+        String[] result1 = (String[])underTest.invoke(testObject, testMethod, null);
+        result1[0] = "changed";
+        String[] result2 = (String[])underTest.invoke(testObject, testMethod, null);
+        assertNotSame(result1, result2);
+        assertArrayEquals(new String[] { "value1", "value2" }, result2);
+        verify(invocationHandler, times(1)).invoke(testObject, testMethod, null);
+    }
+
 }
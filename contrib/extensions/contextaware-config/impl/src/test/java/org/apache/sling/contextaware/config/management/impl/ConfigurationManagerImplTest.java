@@ -36,6 +36,7 @@ import org.apache.sling.contextaware.config.impl.metadata.ConfigurationMetadataP
 import org.apache.sling.contextaware.config.management.ConfigurationData;
 import org.apache.sling.contextaware.config.management.ConfigurationManager;
 import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.contextaware.config.resource.impl.ConfigurationResolutionCache;
 import org.apache.sling.contextaware.config.resource.impl.ConfigurationResourceResolvingStrategyMultiplexer;
 import org.apache.sling.contextaware.config.resource.spi.ConfigurationResourceResolvingStrategy;
 import org.apache.sling.contextaware.config.spi.ConfigurationMetadataProvider;
@@ -85,6 +86,7 @@ public class ConfigurationManagerImplTest {
         context.registerInjectActivateService(new ConfigurationMetadataProviderMultiplexer());
         context.registerInjectActivateService(new DefaultConfigurationPersistenceStrategy());
         context.registerInjectActivateService(new ConfigurationPersistenceStrategyMultiplexer());
+        context.registerInjectActivateService(new ConfigurationResolutionCache());
         underTest = context.registerInjectActivateService(new ConfigurationManagerImpl());
         
         contextResource = context.create().resource("/content/test");
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.contextaware.config.resource.impl;
+
+import static org.apache.sling.contextaware.config.resource.impl.ConfigurationResourceTestUtils.assetResourcePaths;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.contextaware.config.resource.ConfigurationResourceResolver;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+import com.google.common.collect.ImmutableList;
+
+public class ConfigurationResolutionCacheTest {
+
+    private static final String BUCKET = "sling:test";
+
+    @Rule
+    public SlingContext context = new SlingContext();
+
+    private ConfigurationResourceResolver resolver;
+    private ConfigurationResolutionCache underTest;
+
+    private Resource site1Page1;
+
+    @Before
+    public void setUp() throws PersistenceException {
+        resolver = ConfigurationResourceTestUtils.registerConfigurationResourceResolver(context);
+        underTest = context.getService(ConfigurationResolutionCache.class);
+
+        context.build()
+            .resource("/content/site1", "sling:config-ref", "/conf/site1")
+            .resource("/conf/site1/sling:test/test")
+            .resource("/conf/site1/sling:test/feature/c")
+            .resource("/libs/conf/sling:test/feature/b");
+        site1Page1 = context.create().resource("/content/site1/page1");
+        // resolutions are not cached for resource resolvers with transient changes
+        context.resourceResolver().commit();
+    }
+
+    @Test
+    public void testCachedResource() {
+        assertEquals("/conf/site1/sling:test/test", resolver.getResource(site1Page1, BUCKET, "test").getPath());
+        assertNull(resolver.getResource(site1Page1, BUCKET, "unknown"));
+
+        assertEquals(ImmutableList.of("/conf/site1/sling:test/test"), getPaths(site1Page1, "test", false));
+        assertEquals(ImmutableList.of(), getPaths(site1Page1, "unknown", false));
+
+        // resolved from cache
+        assertEquals("/conf/site1/sling:test/test", resolver.getResource(site1Page1, BUCKET, "test").getPath());
+        assertNull(resolver.getResource(site1Page1, BUCKET, "unknown"));
+    }
+
+    @Test
+    public void testCachedResourceCollection() {
+        assetResourcePaths(new String[] {
+                "/conf/site1/sling:test/feature/c",
+                "/libs/conf/sling:test/feature/b" },
+                resolver.getResourceCollection(site1Page1, BUCKET, "feature"));
+
+        assertEquals(ImmutableList.of("/conf/site1/sling:test/feature/c", "/libs/conf/sling:test/feature/b"),
+                getPaths(site1Page1, "feature", true));
+
+        // resolved from cache
+        assetResourcePaths(new String[] {
+                "/conf/site1/sling:test/feature/c",
+                "/libs/conf/sling:test/feature/b" },
+                resolver.getResourceCollection(site1Page1, BUCKET, "feature"));
+    }
+
+    @Test
+    public void testCachedContextPaths() {
+        assertEquals("/content/site1", resolver.getContextPath(site1Page1));
+        assertEquals(ImmutableList.of("/content/site1"),
+                underTest.getEntries(site1Page1).getPaths(ConfigurationResolutionCache.getContextPathsKey(site1Page1)));
+        assertEquals(ImmutableList.of("/content/site1"), resolver.getAllContextPaths(site1Page1));
+    }
+
+    @Test
+    public void testInvalidateOnEvent() {
+        resolver.getResource(site1Page1, BUCKET, "test");
+
+        underTest.handleEvent(createEvent("/var/test"));
+        assertNotNull(getPaths(site1Page1, "test", false));
+
+        underTest.handleEvent(createEvent("/conf/site1/sling:test/test"));
+        assertNull(getPaths(site1Page1, "test", false));
+
+        resolver.getResource(site1Page1, BUCKET, "test");
+        underTest.handleEvent(createEvent("/content/site1"));
+        assertNotNull(getPaths(site1Page1, "test", false));
+
+        underTest.handleEvent(createEvent("/content/site1", "jcr:title"));
+        assertNotNull(getPaths(site1Page1, "test", false));
+
+        underTest.handleEvent(createEvent("/content/site1", "jcr:title", "sling:config-ref"));
+        assertNull(getPaths(site1Page1, "test", false));
+
+        resolver.getResource(site1Page1, BUCKET, "test");
+        underTest.handleEvent(new Event(SlingConstants.TOPIC_RESOURCE_REMOVED,
+                Collections.<String, Object>singletonMap(SlingConstants.PROPERTY_PATH, "/content/site1/page2")));
+        assertNull(getPaths(site1Page1, "test", false));
+    }
+
+    @Test
+    public void testEventHandlerFilter() throws InvalidSyntaxException {
+        ServiceReference<EventHandler> reference = context.bundleContext().getServiceReference(EventHandler.class);
+        resolver.getResource(site1Page1, BUCKET, "test");
+        context.bundleContext().getService(reference).handleEvent(createEvent("/conf/site1/sling:test/test"));
+        assertNull(getPaths(site1Page1, "test", false));
+
+        Filter filter = FrameworkUtil.createFilter((String)reference.getProperty(EventConstants.EVENT_FILTER));
+        assertTrue(filter.match(createFilterProperties("/conf")));
+        assertTrue(filter.match(createFilterProperties("/conf/site1/sling:test/test")));
+        assertTrue(filter.match(createFilterProperties("/apps/conf/sling:test")));
+        assertTrue(filter.match(createFilterProperties("/apps")));
+        assertTrue(filter.match(createFilterProperties("/")));
+        assertTrue(filter.match(createFilterProperties("/content/site1")));
+        assertFalse(filter.match(createFilterProperties("/confidential")));
+        assertFalse(filter.match(createFilterProperties("/apps/components/page")));
+        assertFalse(filter.match(createFilterProperties("/var/test")));
+    }
+
+    @Test
+    public void testEventFilterEscaping() throws InvalidSyntaxException {
+        Filter filter = FrameworkUtil.createFilter(
+                ConfigurationResolutionCache.buildEventFilter(new String[] {"/conf/a*(b)"}));
+        assertTrue(filter.match(createFilterProperties("/conf/a*(b)/test")));
+        assertFalse(filter.match(createFilterProperties("/conf/ab/test")));
+
+        Filter emptyFilter = FrameworkUtil.createFilter(ConfigurationResolutionCache.buildEventFilter());
+        assertFalse(emptyFilter.match(createFilterProperties("/conf")));
+    }
+
+    @Test
+    public void testInvalidateResourceResolver() {
+        resolver.getResource(site1Page1, BUCKET, "test");
+        underTest.invalidate(context.resourceResolver());
+        assertNull(getPaths(site1Page1, "test", false));
+    }
+
+    @Test
+    public void testNoCacheWithTransientChanges() throws PersistenceException {
+        resolver.getResource(site1Page1, BUCKET, "test");
+        context.resourceResolver().create(context.resourceResolver().getResource("/conf/site1/sling:test"), "test2",
+                ValueMap.EMPTY);
+
+        assertNull(underTest.getEntries(site1Page1));
+        assertEquals("/conf/site1/sling:test/test2", resolver.getResource(site1Page1, BUCKET, "test2").getPath());
+
+        context.resourceResolver().commit();
+        assertNull(getPaths(site1Page1, "test", false));
+    }
+
+    private Object getPaths(Resource resource, String configName, boolean collection) {
+        return underTest.getEntries(resource).getPaths(
+                ConfigurationResolutionCache.getKey(resource, BUCKET, configName, collection));
+    }
+
+    private static Hashtable<String, Object> createFilterProperties(String path) {
+        Hashtable<String, Object> props = new Hashtable<>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        return props;
+    }
+
+    private static Event createEvent(String path, String... changedAttributes) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        if (changedAttributes.length > 0) {
+            props.put(SlingConstants.PROPERTY_CHANGED_ATTRIBUTES, changedAttributes);
+        }
+        return new Event(SlingConstants.TOPIC_RESOURCE_CHANGED, props);
+    }
+
+}
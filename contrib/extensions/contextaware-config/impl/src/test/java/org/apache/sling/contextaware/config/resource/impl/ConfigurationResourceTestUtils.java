@@ -69,6 +69,7 @@ public final class ConfigurationResourceTestUtils {
         context.registerInjectActivateService(new ContextPathStrategyMultiplexer());
         context.registerInjectActivateService(new DefaultConfigurationResourceResolvingStrategy());
         context.registerInjectActivateService(new ConfigurationResourceResolvingStrategyMultiplexer());
+        context.registerInjectActivateService(new ConfigurationResolutionCache());
         return context.registerInjectActivateService(new ConfigurationResourceResolverImpl());
     }
     
@@ -174,6 +174,13 @@ public class ForwardDistributionAgentFactory extends AbstractDistributionAgentFa
     @Property(boolValue = false, label = "Async delivery", description = "Whether or not to use a separate delivery queue to maximize transport throughput when queue has more than 100 items")
     public static final String ASYNC_DELIVERY = "async.delivery";
 
+    @Property(intValue = 1, label = "Batch size", description = "The maximum number of packages delivered to an endpoint in a single request, " +
+            "only applies to the In-memory and In-file queue providers. The endpoints must support batches if greater than 1.")
+    public static final String QUEUE_BATCH_SIZE = "queue.batch.size";
+
+    @Property(intValue = 0, label = "Batch linger", description = "The maximum time in milliseconds to wait for a queue to hold a full batch before delivering the packages.")
+    public static final String QUEUE_BATCH_LINGER = "queue.batch.linger";
+
     @Reference
     private Packaging packaging;
 
@@ -236,10 +243,11 @@ public class ForwardDistributionAgentFactory extends AbstractDistributionAgentFa
         String queueProviderName = PropertiesUtil.toString(config.get(QUEUE_PROVIDER), JobHandlingDistributionQueueProvider.TYPE);
         if (JobHandlingDistributionQueueProvider.TYPE.equals(queueProviderName)) {
             queueProvider = new JobHandlingDistributionQueueProvider(agentName, jobManager, context, configAdmin);
-        } else if (SimpleDistributionQueueProvider.TYPE.equals(queueProviderName)) {
-            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, false);
         } else {
-            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, true);
+            int batchSize = PropertiesUtil.toInteger(config.get(QUEUE_BATCH_SIZE), 1);
+            int batchLinger = PropertiesUtil.toInteger(config.get(QUEUE_BATCH_LINGER), 0);
+            boolean checkpoint = !SimpleDistributionQueueProvider.TYPE.equals(queueProviderName);
+            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, checkpoint, batchSize, batchLinger);
         }
 
         DistributionQueueDispatchingStrategy exportQueueStrategy;
@@ -19,6 +19,8 @@
 package org.apache.sling.distribution.agent.impl;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.distribution.DistributionRequestType;
@@ -31,19 +33,22 @@ import org.apache.sling.distribution.log.impl.DefaultDistributionLog;
 import org.apache.sling.distribution.packaging.DistributionPackage;
 import org.apache.sling.distribution.packaging.DistributionPackageExporter;
 import org.apache.sling.distribution.packaging.DistributionPackageImporter;
+import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.packaging.impl.DistributionPackageUtils;
+import org.apache.sling.distribution.packaging.impl.importer.RemoteDistributionPackageImporter;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueItemStatus;
-import org.apache.sling.distribution.queue.DistributionQueueProcessor;
 import org.apache.sling.distribution.queue.DistributionQueueProvider;
+import org.apache.sling.distribution.queue.impl.DistributionQueueBatchProcessor;
 import org.apache.sling.distribution.queue.impl.DistributionQueueDispatchingStrategy;
 import org.apache.sling.distribution.util.impl.DistributionUtils;
 
 /**
  * A processor of agent queue entries, each entry's underlying package is fecthed and passed to the {@link DistributionPackageImporter} for import.
+ * Batches of entries are passed at once to a {@link RemoteDistributionPackageImporter}.
  */
-class SimpleDistributionAgentQueueProcessor implements DistributionQueueProcessor {
+class SimpleDistributionAgentQueueProcessor implements DistributionQueueBatchProcessor {
 
     private final DistributionPackageExporter distributionPackageExporter;
     private final DistributionPackageImporter distributionPackageImporter;
@@ -167,6 +172,121 @@ class SimpleDistributionAgentQueueProcessor implements DistributionQueueProcesso
         return removeItemFromQueue;
     }
 
+    @Override
+    public int processBatch(@Nonnull String queueName, @Nonnull List<DistributionQueueEntry> queueEntries) {
+        int processed = 0;
+
+        if (!(distributionPackageImporter instanceof RemoteDistributionPackageImporter)) {
+            while (processed < queueEntries.size() && process(queueName, queueEntries.get(processed))) {
+                processed++;
+            }
+            return processed;
+        }
+
+        try {
+            while (processed < queueEntries.size()) {
+                // consecutive entries requested by the same user are imported together
+                String callingUser = getCallingUser(queueEntries.get(processed));
+                int end = processed + 1;
+                while (end < queueEntries.size() && isSameUser(callingUser, getCallingUser(queueEntries.get(end)))) {
+                    end++;
+                }
+
+                int imported = processQueueItems(queueName, queueEntries.subList(processed, end), callingUser);
+                processed += imported;
+                if (processed < end) {
+                    break;
+                }
+            }
+        } catch (Throwable t) {
+            log.error("[{}] BATCH-FAIL items={}", queueName, queueEntries.subList(processed, queueEntries.size()), t);
+        }
+
+        return processed;
+    }
+
+    /**
+     * import the packages of consecutive queue entries, stops before the first entry whose package does not exist so
+     * that it's processed alone.
+     *
+     * @return the number of entries, from the first one, whose package was imported
+     */
+    private int processQueueItems(String queueName, List<DistributionQueueEntry> queueEntries, String callingUser) throws DistributionException {
+        int imported = 0;
+        ResourceResolver agentResourceResolver = null;
+        List<DistributionPackage> distributionPackages = new ArrayList<DistributionPackage>(queueEntries.size());
+        try {
+            agentResourceResolver = DistributionUtils.getResourceResolver(callingUser, authenticationInfo.getAgentService(),
+                    authenticationInfo.getSlingRepository(), authenticationInfo.getSubServiceName(),
+                    authenticationInfo.getResourceResolverFactory());
+
+            final long startTime = System.currentTimeMillis();
+
+            for (DistributionQueueEntry queueEntry : queueEntries) {
+                DistributionPackage distributionPackage = distributionPackageExporter.getPackage(agentResourceResolver, queueEntry.getItem().getPackageId());
+                if (distributionPackage == null) {
+                    break;
+                }
+                DistributionPackageUtils.mergeQueueEntry(distributionPackage.getInfo(), queueEntry);
+                distributionPackages.add(distributionPackage);
+            }
+
+            if (distributionPackages.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                // import packages
+                imported = ((RemoteDistributionPackageImporter) distributionPackageImporter).importPackages(agentResourceResolver, distributionPackages);
+            } catch (RecoverableDistributionException e) {
+                log.error("[{}] PACKAGE-FAIL could not deliver {} packages starting with {}, {}", queueName, distributionPackages.size(),
+                        distributionPackages.get(0).getId(), e.getMessage());
+                log.debug("could not deliver packages", e);
+            } catch (Throwable e) {
+                log.error("[{}] PACKAGE-FAIL could not deliver {} packages starting with {} {}", queueName, distributionPackages.size(),
+                        distributionPackages.get(0).getId(), e.getMessage(), e);
+            }
+
+            final long endTime = System.currentTimeMillis();
+
+            for (int i = 0; i < imported; i++) {
+                DistributionPackage distributionPackage = distributionPackages.get(i);
+                DistributionPackageInfo info = distributionPackage.getInfo();
+
+                // generated event
+                distributionEventFactory.generatePackageEvent(DistributionEventTopics.AGENT_PACKAGE_DISTRIBUTED,
+                        DistributionComponentKind.AGENT, agentName, info);
+
+                Long globalStartTime = queueEntries.get(i).getItem().get(DistributionPackageUtils.PACKAGE_INFO_PROPERTY_REQUEST_START_TIME, Long.class);
+                log.info("[{}] PACKAGE-DELIVERED {}: {} paths={}, importTime={}ms, execTime={}ms, size={}B, batch={}", new Object[]{
+                        queueName, queueEntries.get(i).getItem().get(DistributionPackageUtils.PACKAGE_INFO_PROPERTY_REQUEST_ID, String.class),
+                        info.getRequestType(), info.getPaths(),
+                        endTime - startTime, globalStartTime != null ? endTime - globalStartTime : null,
+                        distributionPackage.getSize(), distributionPackages.size()
+                });
+            }
+        } finally {
+            for (int i = 0; i < distributionPackages.size(); i++) {
+                if (i < imported) {
+                    DistributionPackageUtils.releaseOrDelete(distributionPackages.get(i), queueName);
+                } else {
+                    DistributionPackageUtils.closeSafely(distributionPackages.get(i));
+                }
+            }
+            DistributionUtils.ungetResourceResolver(agentResourceResolver);
+        }
+
+        return imported;
+    }
+
+    private static String getCallingUser(DistributionQueueEntry queueEntry) {
+        return queueEntry.getItem().get(DistributionPackageUtils.PACKAGE_INFO_PROPERTY_REQUEST_USER, String.class);
+    }
+
+    private static boolean isSameUser(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
     private boolean reEnqueuePackage(DistributionPackage distributionPackage) {
 
         if (errorQueueStrategy == null) {
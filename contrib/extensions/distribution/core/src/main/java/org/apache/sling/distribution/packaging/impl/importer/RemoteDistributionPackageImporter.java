@@ -21,6 +21,7 @@ package org.apache.sling.distribution.packaging.impl.importer;
 import javax.annotation.Nonnull;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.sling.api.resource.ResourceResolver;
@@ -74,6 +75,32 @@ public class RemoteDistributionPackageImporter implements DistributionPackageImp
         }
     }
 
+    /**
+     * Import several packages of the same queue in a single exchange with each endpoint.
+     *
+     * @return the number of packages, from the first one, which have been imported by all the endpoints
+     */
+    public int importPackages(@Nonnull ResourceResolver resourceResolver, @Nonnull List<DistributionPackage> distributionPackages) throws DistributionException {
+        if (distributionPackages.isEmpty()) {
+            return 0;
+        }
+
+        DistributionPackageInfo info = distributionPackages.get(0).getInfo();
+        String queueName = DistributionPackageUtils.getQueueName(info);
+
+        DistributionTransport distributionTransport = transportHandlers.get(queueName);
+
+        if (distributionTransport != null) {
+            return distributionTransport.deliverPackages(resourceResolver, distributionPackages, distributionContext);
+        } else {
+            int imported = distributionPackages.size();
+            for (DistributionTransport transportHandler : transportHandlers.values()) {
+                imported = Math.min(imported, transportHandler.deliverPackages(resourceResolver, distributionPackages, distributionContext));
+            }
+            return imported;
+        }
+    }
+
     @Nonnull
     public DistributionPackageInfo importStream(@Nonnull ResourceResolver resourceResolver, @Nonnull InputStream stream) throws DistributionException {
         throw new DistributionException("not supported");
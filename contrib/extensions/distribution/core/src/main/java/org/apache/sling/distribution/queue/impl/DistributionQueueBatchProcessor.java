@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.distribution.queue.impl;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+import org.apache.sling.distribution.queue.DistributionQueueEntry;
+import org.apache.sling.distribution.queue.DistributionQueueProcessor;
+
+/**
+ * A {@link DistributionQueueProcessor} able to process several consecutive entries of a queue at once.
+ */
+public interface DistributionQueueBatchProcessor extends DistributionQueueProcessor {
+
+    /**
+     * Process consecutive entries from a certain {@link org.apache.sling.distribution.queue.DistributionQueue}, in
+     * their order. The processing stops at the first entry which cannot be processed.
+     *
+     * @param queueName    the name of the {@link org.apache.sling.distribution.queue.DistributionQueue} to be processed
+     * @param queueEntries the {@link DistributionQueueEntry}s to be processed, starting with the head of the queue
+     * @return the number of entries, from the first one, which were successfully processed
+     */
+    int processBatch(@Nonnull String queueName, @Nonnull List<DistributionQueueEntry> queueEntries);
+}
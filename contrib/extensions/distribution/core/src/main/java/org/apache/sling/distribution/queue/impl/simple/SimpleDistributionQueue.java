@@ -128,7 +128,14 @@ public class SimpleDistributionQueue implements DistributionQueue {
     public Iterable<DistributionQueueEntry> getItems(int skip, int limit) {
         List<DistributionQueueEntry> result = new ArrayList<DistributionQueueEntry>();
 
+        int position = 0;
         for (DistributionQueueItem item : queue) {
+            if (limit >= 0 && result.size() >= limit) {
+                break;
+            }
+            if (position++ < skip) {
+                continue;
+            }
             result.add(new DistributionQueueEntry(item.getPackageId(), item, statusMap.get(item)));
         }
         return result;
@@ -18,35 +18,79 @@
  */
 package org.apache.sling.distribution.queue.impl.simple;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
+import org.apache.sling.distribution.queue.impl.DistributionQueueBatchProcessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * a simple scheduled {@link SimpleDistributionQueue}s processor
+ * <p/>
+ * If the {@link DistributionQueueProcessor} is a {@link DistributionQueueBatchProcessor} and the batch size is greater
+ * than one, up to batch size entries are processed at once, waiting at most the batch linger time for the queue to
+ * hold a full batch. Entries are removed in order as they are processed, the first entry of a batch which cannot be
+ * processed is then processed alone, so that it's retried as any other entry.
  */
 class SimpleDistributionQueueProcessor implements Runnable {
 
+    /**
+     * the interval in ms at which the queue size is checked while waiting for a full batch
+     */
+    private static final long LINGER_CHECK_INTERVAL = 10;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final DistributionQueue queue;
     private final DistributionQueueProcessor queueProcessor;
+    private final int batchSize;
+    private final long batchLinger;
 
     public SimpleDistributionQueueProcessor(DistributionQueue queue,
                                             DistributionQueueProcessor queueProcessor) {
+        this(queue, queueProcessor, 1, 0);
+    }
+
+    public SimpleDistributionQueueProcessor(DistributionQueue queue,
+                                            DistributionQueueProcessor queueProcessor,
+                                            int batchSize, long batchLinger) {
         this.queue = queue;
         this.queueProcessor = queueProcessor;
+        this.batchSize = batchSize;
+        this.batchLinger = batchLinger;
     }
 
     public void run() {
         try {
             DistributionQueueEntry entry;
             while ((entry = queue.getHead()) != null) {
-                if (queueProcessor.process(queue.getName(), entry)) {
-                    if (queue.remove(entry.getId()) != null) {
-                        log.debug("item {} processed and removed from the queue", entry.getItem());
+                if (batchSize > 1 && queueProcessor instanceof DistributionQueueBatchProcessor) {
+                    List<DistributionQueueEntry> batch = getBatch(entry);
+                    if (batch.size() > 1) {
+                        int processed = ((DistributionQueueBatchProcessor) queueProcessor).processBatch(queue.getName(), batch);
+                        for (int i = 0; i < processed; i++) {
+                            remove(batch.get(i));
+                        }
+                        if (processed >= batch.size()) {
+                            continue;
+                        }
+
+                        log.warn("processing of batch failed at item {}", batch.get(processed).getId());
+
+                        // process the failed entry alone
+                        entry = queue.getHead();
+                        if (entry == null) {
+                            break;
+                        }
                     }
+                }
+
+                if (queueProcessor.process(queue.getName(), entry)) {
+                    remove(entry);
                 } else {
                     log.warn("processing of item {} failed", entry.getId());
                 }
@@ -56,4 +100,38 @@ class SimpleDistributionQueueProcessor implements Runnable {
         }
 
     }
+
+    private void remove(DistributionQueueEntry entry) {
+        if (queue.remove(entry.getId()) != null) {
+            log.debug("item {} processed and removed from the queue", entry.getItem());
+        }
+    }
+
+    /**
+     * get the entries following the head, waiting for a full batch at most the batch linger time
+     */
+    private List<DistributionQueueEntry> getBatch(DistributionQueueEntry head) {
+        if (batchLinger > 0) {
+            long deadline = System.currentTimeMillis() + batchLinger;
+            long now;
+            try {
+                while (queue.getStatus().getItemsCount() < batchSize && (now = System.currentTimeMillis()) < deadline) {
+                    Thread.sleep(Math.min(LINGER_CHECK_INTERVAL, deadline - now));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<DistributionQueueEntry> batch = new ArrayList<DistributionQueueEntry>(batchSize);
+        batch.add(head);
+        Iterator<DistributionQueueEntry> entries = queue.getItems(0, batchSize).iterator();
+        // the entries start with the head, unless it has been removed meanwhile
+        if (entries.hasNext() && head.getId().equals(entries.next().getId())) {
+            while (entries.hasNext()) {
+                batch.add(entries.next());
+            }
+        }
+        return batch;
+    }
 }
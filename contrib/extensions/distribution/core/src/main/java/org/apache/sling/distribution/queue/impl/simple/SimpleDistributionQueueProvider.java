@@ -61,10 +61,22 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
 
     private final Map<String, SimpleDistributionQueue> queueMap = new ConcurrentHashMap<String, SimpleDistributionQueue>();
     private final boolean checkpoint;
+    private final int batchSize;
+    private final long batchLinger;
     private File checkpointDirectory;
 
     public SimpleDistributionQueueProvider(Scheduler scheduler, String name, boolean checkpoint) {
+        this(scheduler, name, checkpoint, 1, 0);
+    }
+
+    /**
+     * @param batchSize   the maximum number of entries processed at once, if supported by the queue processor
+     * @param batchLinger the maximum time in ms to wait for a queue to hold a full batch
+     */
+    public SimpleDistributionQueueProvider(Scheduler scheduler, String name, boolean checkpoint, int batchSize, long batchLinger) {
         this.checkpoint = checkpoint;
+        this.batchSize = batchSize;
+        this.batchLinger = batchLinger;
         if (name == null || scheduler == null) {
             throw new IllegalArgumentException("all arguments are required");
         }
@@ -174,7 +186,7 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
             ScheduleOptions options = scheduler.NOW(-1, 1)
                     .canRunConcurrently(false)
                     .name(getJobName(queueName));
-            scheduler.schedule(new SimpleDistributionQueueProcessor(getQueue(queueName), queueProcessor), options);
+            scheduler.schedule(new SimpleDistributionQueueProcessor(getQueue(queueName), queueProcessor, batchSize, batchLinger), options);
         }
 
     }
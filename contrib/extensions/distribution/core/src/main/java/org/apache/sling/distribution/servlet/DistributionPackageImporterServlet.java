@@ -25,7 +25,10 @@ import static org.apache.sling.distribution.util.impl.DigestUtils.readDigestMess
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.DigestInputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,6 +43,7 @@ import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.distribution.packaging.DistributionPackageImporter;
 import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.resources.DistributionResourceTypes;
+import org.apache.sling.distribution.transport.impl.BatchTransportUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,20 +72,18 @@ public class DistributionPackageImporterServlet extends SlingAllMethodsServlet {
                 .getResource()
                 .adaptTo(DistributionPackageImporter.class);
 
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith(BatchTransportUtils.BATCH_CONTENT_TYPE)) {
+            doPostBatch(distributionPackageImporter, request, response);
+            return;
+        }
+
         String digestAlgorithm = null;
         String digestMessage = null;
-        String digestHeader = request.getHeader(DIGEST_HEADER);
-        if (isNotEmpty(digestHeader)) {
-            log.debug("Found Digest header {}, extracting algorithm and message...", digestHeader);
-
-            Matcher matcher = digestHeaderRegex.matcher(digestHeader);
-            if (matcher.matches()) {
-                digestAlgorithm = matcher.group(1);
-                digestMessage = matcher.group(2);
-            } else {
-                log.debug("Digest header {} not supported, it doesn't match with expected pattern {}",
-                          new Object[]{ digestHeader, digestHeaderRegex.pattern() });
-            }
+        Matcher matcher = matchDigest(request.getHeader(DIGEST_HEADER));
+        if (matcher != null) {
+            digestAlgorithm = matcher.group(1);
+            digestMessage = matcher.group(2);
         }
 
         final long start = System.currentTimeMillis();
@@ -130,6 +132,103 @@ public class DistributionPackageImporterServlet extends SlingAllMethodsServlet {
         }
     }
 
+    /**
+     * import the packages of a batch in order, once the import of a package fails the following ones are skipped
+     * so that they can be sent again in the same order.
+     */
+    private void doPostBatch(DistributionPackageImporter distributionPackageImporter, SlingHttpServletRequest request,
+                             SlingHttpServletResponse response) throws IOException {
+        final long start = System.currentTimeMillis();
+        response.setContentType("application/json");
+
+        ResourceResolver resourceResolver = request.getResourceResolver();
+        List<Map<String, String>> acknowledgements = new ArrayList<Map<String, String>>();
+        boolean failed = false;
+        try {
+            BatchTransportUtils.BatchReader batchReader = new BatchTransportUtils.BatchReader(request.getInputStream());
+            BatchTransportUtils.BatchEntry entry;
+            while ((entry = batchReader.next()) != null) {
+                Map<String, String> acknowledgement = new LinkedHashMap<String, String>();
+                acknowledgement.put(BatchTransportUtils.ACK_ID, entry.getId());
+                if (failed) {
+                    acknowledgement.put(BatchTransportUtils.ACK_STATUS, BatchTransportUtils.STATUS_SKIPPED);
+                } else {
+                    String error = importBatchEntry(distributionPackageImporter, resourceResolver, entry);
+                    if (error == null) {
+                        acknowledgement.put(BatchTransportUtils.ACK_STATUS, BatchTransportUtils.STATUS_IMPORTED);
+                    } else {
+                        acknowledgement.put(BatchTransportUtils.ACK_STATUS, BatchTransportUtils.STATUS_FAILED);
+                        acknowledgement.put("message", error);
+                        failed = true;
+                    }
+                }
+                acknowledgements.add(acknowledgement);
+            }
+        } catch (IOException e) {
+            // the packages read so far are still acknowledged
+            log.error("Error while reading distribution batch", e);
+            failed = true;
+        }
+
+        long end = System.currentTimeMillis();
+        log.debug("Processed batch import request of {} packages in {} ms", acknowledgements.size(), end - start);
+
+        String message = failed ? "batch partially imported" : "batch imported successfully";
+        ServletJsonUtils.writeJson(response, SC_OK, message, BatchTransportUtils.ACKNOWLEDGEMENTS, acknowledgements);
+    }
+
+    /**
+     * @return {@code null} if the package has been imported, an error message otherwise
+     */
+    private String importBatchEntry(DistributionPackageImporter distributionPackageImporter, ResourceResolver resourceResolver,
+                                    BatchTransportUtils.BatchEntry entry) {
+        final long start = System.currentTimeMillis();
+
+        Matcher matcher = matchDigest(entry.getDigest());
+        InputStream stream = entry.getStream();
+        if (matcher != null) {
+            stream = openDigestInputStream(stream, matcher.group(1));
+        }
+
+        try {
+            DistributionPackageInfo distributionPackageInfo = distributionPackageImporter.importStream(resourceResolver, stream);
+
+            long end = System.currentTimeMillis();
+
+            if (matcher != null) {
+                String receivedDigestMessage = readDigestMessage((DigestInputStream) stream);
+                if (!matcher.group(2).equalsIgnoreCase(receivedDigestMessage)) {
+                    log.error("Error during distribution import: received distribution package {} is corrupted, expected [{}] but received [{}]",
+                              new Object[]{ entry.getId(), matcher.group(2), receivedDigestMessage });
+                    return "Received distribution package is corrupted";
+                }
+            }
+
+            log.info("Package {} imported successfully in {}ms", distributionPackageInfo, end - start);
+            return null;
+        } catch (final Throwable e) {
+            log.error("Error during distribution import of package {}", entry.getId(), e);
+            return "an unexpected error has occurred during distribution import";
+        }
+    }
+
+    /**
+     * @return the matcher of a supported digest header, holding the algorithm and the message, or {@code null}
+     */
+    private Matcher matchDigest(String digestHeader) {
+        if (isNotEmpty(digestHeader)) {
+            log.debug("Found Digest header {}, extracting algorithm and message...", digestHeader);
+
+            Matcher matcher = digestHeaderRegex.matcher(digestHeader);
+            if (matcher.matches()) {
+                return matcher;
+            }
+            log.debug("Digest header {} not supported, it doesn't match with expected pattern {}",
+                      new Object[]{ digestHeader, digestHeaderRegex.pattern() });
+        }
+        return null;
+    }
+
     private static boolean isNotEmpty(String s) {
         return s != null && !s.isEmpty();
     }
@@ -21,9 +21,11 @@ package org.apache.sling.distribution.servlet;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.commons.json.JSONArray;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
 import org.apache.sling.distribution.DistributionResponse;
@@ -82,4 +84,22 @@ class ServletJsonUtils {
 
         response.getWriter().append(json.toString());
     }
+
+    public static void writeJson(SlingHttpServletResponse response, int status, String message,
+                                 String itemsName, List<Map<String, String>> items) throws IOException {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("message", message);
+            JSONArray array = new JSONArray();
+            for (Map<String, String> item : items) {
+                array.put(new JSONObject(item));
+            }
+            json.put(itemsName, array);
+        } catch (JSONException e) {
+            log.error("Cannot write json", e);
+        }
+        response.setStatus(status);
+
+        response.getWriter().append(json.toString());
+    }
 }
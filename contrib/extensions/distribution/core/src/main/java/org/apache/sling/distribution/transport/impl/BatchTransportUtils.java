@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.distribution.transport.impl;
+
+import javax.annotation.CheckForNull;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.sling.distribution.packaging.DistributionPackage;
+import org.apache.sling.distribution.packaging.impl.DistributionPackageUtils;
+
+/**
+ * Utilities to stream several {@link DistributionPackage}s in one HTTP request.
+ * <p/>
+ * A batch is a sequence of packages, each one introduced by a marker byte {@code 1}, followed by the package id,
+ * the value of its <code>Digest</code> header (empty if there's none) and the package stream (as created by
+ * {@link DistributionPackageUtils#createStreamWithHeader(DistributionPackage)}) split in length prefixed chunks,
+ * terminated by an empty chunk. The batch ends with a marker byte {@code 0}.
+ * <p/>
+ * The receiver acknowledges each package in the response, see {@link #STATUS_IMPORTED}.
+ */
+public class BatchTransportUtils {
+
+    /**
+     * content type of a batch request
+     */
+    public static final String BATCH_CONTENT_TYPE = "application/x-sling-distribution-batch";
+
+    /**
+     * name of the array holding the per package acknowledgements in the json response
+     */
+    public static final String ACKNOWLEDGEMENTS = "packages";
+
+    public static final String ACK_ID = "id";
+    public static final String ACK_STATUS = "status";
+
+    /**
+     * the package was imported
+     */
+    public static final String STATUS_IMPORTED = "imported";
+
+    /**
+     * the package could not be imported
+     */
+    public static final String STATUS_FAILED = "failed";
+
+    /**
+     * the package was not imported because a previous package of the batch failed
+     */
+    public static final String STATUS_SKIPPED = "skipped";
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Create an entity streaming the given packages.
+     *
+     * @param packages the packages to send
+     * @param digests  the <code>Digest</code> header value of each package, entries might be {@code null}
+     */
+    public static AbstractHttpEntity createBatchEntity(List<DistributionPackage> packages, List<String> digests) {
+        return new BatchEntity(packages, digests);
+    }
+
+    /**
+     * Write a package of a batch.
+     */
+    static void writePackage(DataOutputStream output, String id, String digest, InputStream packageStream) throws IOException {
+        output.writeByte(1);
+        output.writeUTF(id);
+        output.writeUTF(digest != null ? digest : "");
+
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int read;
+        while ((read = IOUtils.read(packageStream, buffer)) > 0) {
+            output.writeInt(read);
+            output.write(buffer, 0, read);
+        }
+        output.writeInt(0);
+    }
+
+    /**
+     * Write the end of a batch.
+     */
+    static void writeEnd(DataOutputStream output) throws IOException {
+        output.writeByte(0);
+        output.flush();
+    }
+
+    private static class BatchEntity extends AbstractHttpEntity {
+
+        private final List<DistributionPackage> packages;
+        private final List<String> digests;
+
+        BatchEntity(List<DistributionPackage> packages, List<String> digests) {
+            this.packages = packages;
+            this.digests = digests;
+            setContentType(BATCH_CONTENT_TYPE);
+            setChunked(true);
+        }
+
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        public long getContentLength() {
+            return -1;
+        }
+
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("a batch can only be written");
+        }
+
+        public void writeTo(OutputStream outputStream) throws IOException {
+            DataOutputStream output = new DataOutputStream(outputStream);
+            for (int i = 0; i < packages.size(); i++) {
+                DistributionPackage distributionPackage = packages.get(i);
+                InputStream inputStream = null;
+                try {
+                    inputStream = DistributionPackageUtils.createStreamWithHeader(distributionPackage);
+                    writePackage(output, distributionPackage.getId(), digests.get(i), inputStream);
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
+            }
+            writeEnd(output);
+        }
+
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /**
+     * Reader for the packages of a batch, the stream of a package must be consumed (or closed) before reading the
+     * next one.
+     */
+    public static class BatchReader {
+
+        private final DataInputStream input;
+        private PackageInputStream current;
+
+        public BatchReader(InputStream inputStream) {
+            this.input = new DataInputStream(inputStream);
+        }
+
+        /**
+         * Read the next package of the batch.
+         *
+         * @return the next package or {@code null} if the batch ends
+         * @throws IOException if the batch is malformed
+         */
+        @CheckForNull
+        public BatchEntry next() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+
+            int marker = input.read();
+            if (marker == 0) {
+                return null;
+            } else if (marker != 1) {
+                throw new IOException("malformed batch, unexpected marker " + marker);
+            }
+
+            String id = input.readUTF();
+            String digest = input.readUTF();
+            current = new PackageInputStream(input);
+
+            return new BatchEntry(id, digest.length() > 0 ? digest : null, current);
+        }
+    }
+
+    /**
+     * A package read from a batch.
+     */
+    public static class BatchEntry {
+
+        private final String id;
+        private final String digest;
+        private final InputStream stream;
+
+        BatchEntry(String id, String digest, InputStream stream) {
+            this.id = id;
+            this.digest = digest;
+            this.stream = stream;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the value of the <code>Digest</code> header of the package or {@code null}
+         */
+        @CheckForNull
+        public String getDigest() {
+            return digest;
+        }
+
+        public InputStream getStream() {
+            return stream;
+        }
+    }
+
+    /**
+     * Stream of the chunks of a package, closing it skips the remaining chunks but leaves the batch stream open.
+     */
+    private static class PackageInputStream extends InputStream {
+
+        private final DataInputStream input;
+        private int remaining;
+        private boolean ended;
+
+        PackageInputStream(DataInputStream input) {
+            this.input = input;
+        }
+
+        private boolean nextChunk() throws IOException {
+            while (!ended && remaining == 0) {
+                remaining = input.readInt();
+                if (remaining < 0) {
+                    throw new IOException("malformed batch, negative chunk size " + remaining);
+                }
+                ended = remaining == 0;
+            }
+            return !ended;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException("unexpected end of batch");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int read = input.read(b, off, Math.min(len, remaining));
+            if (read < 0) {
+                throw new EOFException("unexpected end of batch");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return ended ? 0 : Math.min(remaining, input.available());
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (nextChunk()) {
+                IOUtils.skipFully(input, remaining);
+                remaining = 0;
+            }
+        }
+    }
+}
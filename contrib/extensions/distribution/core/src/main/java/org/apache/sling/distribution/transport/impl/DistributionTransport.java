@@ -20,6 +20,7 @@ package org.apache.sling.distribution.transport.impl;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.List;
 
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.distribution.DistributionRequest;
@@ -45,6 +46,18 @@ public interface DistributionTransport {
      */
     void deliverPackage(@Nonnull ResourceResolver resourceResolver, @Nonnull DistributionPackage distributionPackage, @Nonnull DistributionTransportContext context) throws DistributionException;
 
+    /**
+     * Deliver several {@link DistributionPackage}s to a target instance in a single exchange, preserving their order.
+     * The target instance acknowledges each package, the packages following the first one which is not acknowledged
+     * are not imported.
+     *
+     * @param resourceResolver     a resolver used to eventually access local resources needed by the transport algorithm
+     * @param distributionPackages the {@link DistributionPackage}s to transport
+     * @return the number of packages, from the first one, which have been delivered
+     * @throws DistributionException if the exchange with the target instance fails (e.g. because of network, I/O issues)
+     */
+    int deliverPackages(@Nonnull ResourceResolver resourceResolver, @Nonnull List<DistributionPackage> distributionPackages, @Nonnull DistributionTransportContext context) throws DistributionException;
+
     /**
      * Retrieve {@link DistributionPackage}s from a target Sling instance, which
      * will create them according to {@link org.apache.sling.distribution.DistributionRequest}.
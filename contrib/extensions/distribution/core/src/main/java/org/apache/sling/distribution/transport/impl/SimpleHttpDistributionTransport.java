@@ -22,6 +22,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -34,6 +36,9 @@ import org.apache.http.client.fluent.Response;
 import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.entity.ContentType;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
 import org.apache.sling.distribution.DistributionRequest;
 import org.apache.sling.distribution.common.DistributionException;
 import org.apache.sling.distribution.common.RecoverableDistributionException;
@@ -101,11 +106,9 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
                 Request req = Request.Post(distributionEndpoint.getUri()).useExpectContinue();
 
                 // add the message body digest, see https://tools.ietf.org/html/rfc3230#section-4.3.2
-                if (distributionPackage instanceof AbstractDistributionPackage) {
-                    AbstractDistributionPackage adb = (AbstractDistributionPackage) distributionPackage;
-                    if (adb.getDigestAlgorithm() != null && adb.getDigestMessage() != null) {
-                        req.addHeader(DIGEST_HEADER, String.format("%s=%s", adb.getDigestAlgorithm(), adb.getDigestMessage()));
-                    }
+                String digest = getDigest(distributionPackage);
+                if (digest != null) {
+                    req.addHeader(DIGEST_HEADER, digest);
                 }
 
                 InputStream inputStream = null;
@@ -137,6 +140,80 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
         }
     }
 
+    public int deliverPackages(@Nonnull ResourceResolver resourceResolver, @Nonnull List<DistributionPackage> distributionPackages,
+                               @Nonnull DistributionTransportContext distributionContext) throws DistributionException {
+        String hostAndPort = getHostAndPort(distributionEndpoint.getUri());
+
+        List<DistributionPackage> packagesToSend = new ArrayList<DistributionPackage>(distributionPackages.size());
+        List<String> digests = new ArrayList<String>(distributionPackages.size());
+        // the position of each package to send in the given list
+        List<Integer> positions = new ArrayList<Integer>(distributionPackages.size());
+
+        for (int i = 0; i < distributionPackages.size(); i++) {
+            DistributionPackage distributionPackage = distributionPackages.get(i);
+            URI packageOrigin = distributionPackage.getInfo().get(PACKAGE_INFO_PROPERTY_ORIGIN_URI, URI.class);
+
+            if (packageOrigin != null && hostAndPort.equals(getHostAndPort(packageOrigin))) {
+                log.debug("skipping distribution of package {} to same origin {}", distributionPackage.getId(), hostAndPort);
+            } else {
+                packagesToSend.add(distributionPackage);
+                digests.add(getDigest(distributionPackage));
+                positions.add(i);
+            }
+        }
+
+        if (packagesToSend.isEmpty()) {
+            return distributionPackages.size();
+        }
+
+        try {
+            Executor executor = getExecutor(distributionContext);
+
+            Request req = Request.Post(distributionEndpoint.getUri()).useExpectContinue()
+                    .body(BatchTransportUtils.createBatchEntity(packagesToSend, digests));
+
+            Response response = executor.execute(req);
+            String content = response.returnContent().asString(); // throws an error if HTTP status is >= 300
+
+            int acknowledged = countAcknowledged(packagesToSend, content);
+
+            log.debug("delivered {} of {} packages, endpoint={}", acknowledged, packagesToSend.size(), distributionEndpoint.getUri());
+
+            return acknowledged == packagesToSend.size() ? distributionPackages.size() : positions.get(acknowledged);
+        } catch (HttpHostConnectException e) {
+            throw new RecoverableDistributionException("endpoint not available " + distributionEndpoint.getUri(), e);
+        } catch (HttpResponseException e) {
+            int statusCode = e.getStatusCode();
+            if (statusCode == 404 || statusCode == 401) {
+                throw new RecoverableDistributionException("not enough rights for " + distributionEndpoint.getUri(), e);
+            }
+            throw new DistributionException(e);
+        } catch (Exception e) {
+            throw new DistributionException(e);
+        }
+    }
+
+    /**
+     * count the packages, from the first one, the receiver acknowledged as imported
+     */
+    private int countAcknowledged(List<DistributionPackage> sentPackages, String content) throws JSONException {
+        JSONArray acknowledgements = new JSONObject(content).getJSONArray(BatchTransportUtils.ACKNOWLEDGEMENTS);
+
+        int acknowledged = 0;
+        while (acknowledged < sentPackages.size() && acknowledged < acknowledgements.length()) {
+            JSONObject acknowledgement = acknowledgements.getJSONObject(acknowledged);
+            DistributionPackage distributionPackage = sentPackages.get(acknowledged);
+
+            if (!distributionPackage.getId().equals(acknowledgement.optString(BatchTransportUtils.ACK_ID))
+                    || !BatchTransportUtils.STATUS_IMPORTED.equals(acknowledgement.optString(BatchTransportUtils.ACK_STATUS))) {
+                log.debug("package {} not imported by {}: {}", distributionPackage.getId(), distributionEndpoint.getUri(), acknowledgement);
+                break;
+            }
+            acknowledged++;
+        }
+        return acknowledged;
+    }
+
     @Nullable
     public RemoteDistributionPackage retrievePackage(@Nonnull ResourceResolver resourceResolver, @Nonnull DistributionRequest distributionRequest, @Nonnull DistributionTransportContext distributionContext) throws DistributionException {
         log.debug("pulling from {}", distributionEndpoint.getUri());
@@ -167,6 +244,20 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
         return null;
     }
 
+    /**
+     * the value of the Digest header for a package, or {@code null} if the package has no digest
+     */
+    @Nullable
+    private String getDigest(DistributionPackage distributionPackage) {
+        if (distributionPackage instanceof AbstractDistributionPackage) {
+            AbstractDistributionPackage adb = (AbstractDistributionPackage) distributionPackage;
+            if (adb.getDigestAlgorithm() != null && adb.getDigestMessage() != null) {
+                return String.format("%s=%s", adb.getDigestAlgorithm(), adb.getDigestMessage());
+            }
+        }
+        return null;
+    }
+
     private Executor authenticate(DistributionTransportSecret secret, Executor executor) {
         Map<String, String> credentialsMap = secret.asCredentialsMap();
         if (credentialsMap != null) {
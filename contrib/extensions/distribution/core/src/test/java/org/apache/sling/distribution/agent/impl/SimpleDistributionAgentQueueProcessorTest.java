@@ -18,12 +18,20 @@
  */
 package org.apache.sling.distribution.agent.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.distribution.component.impl.DistributionComponentKind;
 import org.apache.sling.distribution.event.impl.DistributionEventFactory;
 import org.apache.sling.distribution.log.impl.DefaultDistributionLog;
+import org.apache.sling.distribution.packaging.DistributionPackage;
 import org.apache.sling.distribution.packaging.DistributionPackageExporter;
 import org.apache.sling.distribution.packaging.DistributionPackageImporter;
+import org.apache.sling.distribution.packaging.DistributionPackageInfo;
+import org.apache.sling.distribution.packaging.impl.importer.RemoteDistributionPackageImporter;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueItemState;
@@ -32,7 +40,15 @@ import org.apache.sling.distribution.queue.DistributionQueueProvider;
 import org.apache.sling.distribution.queue.impl.DistributionQueueDispatchingStrategy;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for {@link SimpleDistributionAgentQueueProcessor}
@@ -59,4 +75,43 @@ public class SimpleDistributionAgentQueueProcessorTest {
         DistributionQueueEntry entry = new DistributionQueueEntry(id, item, status);
         queueProcessor.process(queueName, entry);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testProcessBatch() throws Exception {
+        DistributionPackageExporter packageExporter = mock(DistributionPackageExporter.class);
+        RemoteDistributionPackageImporter packageImporter = mock(RemoteDistributionPackageImporter.class);
+        DefaultDistributionLog log = mock(DefaultDistributionLog.class);
+        DistributionQueueProvider queueProvider = mock(DistributionQueueProvider.class);
+        DistributionEventFactory eventFactory = mock(DistributionEventFactory.class);
+        SimpleDistributionAgentAuthenticationInfo authenticationInfo = mock(SimpleDistributionAgentAuthenticationInfo.class);
+        when(authenticationInfo.getResourceResolverFactory()).thenReturn(mock(ResourceResolverFactory.class));
+        SimpleDistributionAgentQueueProcessor queueProcessor = new SimpleDistributionAgentQueueProcessor(packageExporter,
+                packageImporter, 3, null, log, queueProvider, eventFactory, authenticationInfo, "dummy-a");
+
+        String queueName = "queue-1";
+        List<DistributionQueueEntry> entries = new ArrayList<DistributionQueueEntry>();
+        List<DistributionPackage> packages = new ArrayList<DistributionPackage>();
+        for (int i = 0; i < 3; i++) {
+            DistributionQueueItem item = new DistributionQueueItem("pckg-" + i, new HashMap<String, Object>());
+            DistributionQueueItemStatus status = new DistributionQueueItemStatus(DistributionQueueItemState.QUEUED, queueName);
+            entries.add(new DistributionQueueEntry("id-" + i, item, status));
+
+            DistributionPackage distributionPackage = mock(DistributionPackage.class);
+            when(distributionPackage.getInfo()).thenReturn(new DistributionPackageInfo("type"));
+            when(packageExporter.getPackage(any(ResourceResolver.class), eq("pckg-" + i))).thenReturn(distributionPackage);
+            packages.add(distributionPackage);
+        }
+
+        // the import of the third package fails
+        when(packageImporter.importPackages(any(ResourceResolver.class), eq(packages))).thenReturn(2);
+
+        assertEquals(2, queueProcessor.processBatch(queueName, entries));
+
+        verify(eventFactory, times(2)).generatePackageEvent(anyString(), any(DistributionComponentKind.class),
+                anyString(), any(DistributionPackageInfo.class));
+        verify(packages.get(0)).delete();
+        verify(packages.get(1)).delete();
+        verify(packages.get(2), never()).delete();
+        verify(packages.get(2)).close();
+    }
+}
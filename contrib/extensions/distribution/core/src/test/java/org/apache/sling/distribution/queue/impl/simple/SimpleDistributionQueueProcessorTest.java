@@ -18,16 +18,32 @@
  */
 package org.apache.sling.distribution.queue.impl.simple;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
+import org.apache.sling.distribution.queue.impl.DistributionQueueBatchProcessor;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -73,4 +89,62 @@ public class SimpleDistributionQueueProcessorTest {
                 queue, queueProcessor);
         simpleDistributionQueueProcessor.run();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRunWithBatches() throws Exception {
+        SimpleDistributionQueue queue = new SimpleDistributionQueue("agentName", "default");
+        for (int i = 0; i < 5; i++) {
+            queue.add(new DistributionQueueItem("id-" + i, new HashMap<String, Object>()));
+        }
+
+        final List<List<String>> batches = new ArrayList<List<String>>();
+        DistributionQueueBatchProcessor queueProcessor = mock(DistributionQueueBatchProcessor.class);
+        when(queueProcessor.processBatch(eq("default"), anyListOf(DistributionQueueEntry.class))).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                List<String> batch = new ArrayList<String>();
+                for (Object entry : (List<?>) invocation.getArguments()[1]) {
+                    batch.add(((DistributionQueueEntry) entry).getId());
+                }
+                batches.add(batch);
+                // the third package of the first batch fails
+                return batches.size() == 1 ? 2 : batch.size();
+            }
+        });
+        when(queueProcessor.process(eq("default"), any(DistributionQueueEntry.class))).thenReturn(true);
+
+        SimpleDistributionQueueProcessor simpleDistributionQueueProcessor = new SimpleDistributionQueueProcessor(
+                queue, queueProcessor, 3, 0);
+        simpleDistributionQueueProcessor.run();
+
+        assertEquals(Arrays.asList("id-0", "id-1", "id-2"), batches.get(0));
+        assertEquals(Arrays.asList("id-3", "id-4"), batches.get(1));
+        assertEquals(2, batches.size());
+
+        // the failed package is processed alone
+        ArgumentCaptor<DistributionQueueEntry> entry = ArgumentCaptor.forClass(DistributionQueueEntry.class);
+        verify(queueProcessor).process(eq("default"), entry.capture());
+        assertEquals("id-2", entry.getValue().getId());
+
+        assertTrue(queue.getStatus().isEmpty());
+    }
+
+    @Test
+    public void testRunWithBatchLinger() throws Exception {
+        SimpleDistributionQueue queue = new SimpleDistributionQueue("agentName", "default");
+        queue.add(new DistributionQueueItem("id-0", new HashMap<String, Object>()));
+        DistributionQueueBatchProcessor queueProcessor = mock(DistributionQueueBatchProcessor.class);
+        when(queueProcessor.process(eq("default"), any(DistributionQueueEntry.class))).thenReturn(true);
+
+        SimpleDistributionQueueProcessor simpleDistributionQueueProcessor = new SimpleDistributionQueueProcessor(
+                queue, queueProcessor, 3, 50);
+        long start = System.currentTimeMillis();
+        simpleDistributionQueueProcessor.run();
+
+        // a single package is processed alone once the linger time elapsed
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        verify(queueProcessor).process(eq("default"), any(DistributionQueueEntry.class));
+        verify(queueProcessor, never()).processBatch(anyString(), anyListOf(DistributionQueueEntry.class));
+        assertTrue(queue.getStatus().isEmpty());
+    }
+}
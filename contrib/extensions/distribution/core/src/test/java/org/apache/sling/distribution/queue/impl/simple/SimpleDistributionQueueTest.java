@@ -18,6 +18,10 @@
  */
 package org.apache.sling.distribution.queue.impl.simple;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
@@ -74,4 +78,26 @@ public class SimpleDistributionQueueTest {
         assertEquals(1, status.getAttempts());
     }
 
+    @Test
+    public void testGetItemsWithSkipAndLimit() throws Exception {
+        DistributionQueue queue = new SimpleDistributionQueue("agentName", "default");
+        for (int i = 0; i < 5; i++) {
+            DistributionQueueItem pkg = mock(DistributionQueueItem.class);
+            when(pkg.getPackageId()).thenReturn("id-" + i);
+            assertNotNull(queue.add(pkg));
+        }
+
+        List<String> ids = new ArrayList<String>();
+        for (DistributionQueueEntry entry : queue.getItems(1, 3)) {
+            ids.add(entry.getId());
+        }
+        assertEquals(Arrays.asList("id-1", "id-2", "id-3"), ids);
+
+        int count = 0;
+        for (DistributionQueueEntry ignored : queue.getItems(0, -1)) {
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
 }
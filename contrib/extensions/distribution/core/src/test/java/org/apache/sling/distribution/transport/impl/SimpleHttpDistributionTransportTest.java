@@ -18,6 +18,7 @@
  */
 package org.apache.sling.distribution.transport.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
@@ -26,11 +27,20 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
@@ -38,6 +48,9 @@ import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.fluent.Response;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
 import org.apache.sling.distribution.DistributionRequest;
 import org.apache.sling.distribution.DistributionRequestType;
 import org.apache.sling.distribution.SimpleDistributionRequest;
@@ -148,4 +161,89 @@ public class SimpleHttpDistributionTransportTest {
         RemoteDistributionPackage retrievedPackage = simpleHttpDistributionTransport.retrievePackage(resourceResolver, distributionRequest, distributionContext);
         assertNotNull(retrievedPackage);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDeliverPackages() throws Exception {
+        final List<String> imported = new ArrayList<String>();
+
+        // a stand-in for the importer servlet, failing the import of "broken" packages
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/importer", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    assertEquals(BatchTransportUtils.BATCH_CONTENT_TYPE, exchange.getRequestHeaders().getFirst("Content-Type"));
+
+                    JSONArray acknowledgements = new JSONArray();
+                    String status = BatchTransportUtils.STATUS_IMPORTED;
+                    BatchTransportUtils.BatchReader batchReader = new BatchTransportUtils.BatchReader(exchange.getRequestBody());
+                    BatchTransportUtils.BatchEntry entry;
+                    while ((entry = batchReader.next()) != null) {
+                        if (BatchTransportUtils.STATUS_FAILED.equals(status)) {
+                            status = BatchTransportUtils.STATUS_SKIPPED;
+                        } else if (!BatchTransportUtils.STATUS_SKIPPED.equals(status)) {
+                            String content = IOUtils.toString(entry.getStream(), "UTF-8");
+                            if (content.endsWith("broken")) {
+                                status = BatchTransportUtils.STATUS_FAILED;
+                            } else {
+                                imported.add(entry.getId());
+                            }
+                        }
+                        acknowledgements.put(new JSONObject().put(BatchTransportUtils.ACK_ID, entry.getId())
+                                .put(BatchTransportUtils.ACK_STATUS, status));
+                    }
+
+                    byte[] response = new JSONObject().put(BatchTransportUtils.ACKNOWLEDGEMENTS, acknowledgements)
+                            .toString().getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, response.length);
+                    exchange.getResponseBody().write(response);
+                } catch (JSONException e) {
+                    exchange.sendResponseHeaders(500, -1);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+
+        try {
+            DistributionTransportSecret secret = mock(DistributionTransportSecret.class);
+            Map<String, String> credentialsMap = new HashMap<String, String>();
+            credentialsMap.put("username", "foo");
+            credentialsMap.put("password", "foo");
+            when(secret.asCredentialsMap()).thenReturn(credentialsMap);
+            DistributionTransportSecretProvider secretProvider = mock(DistributionTransportSecretProvider.class);
+            when(secretProvider.getSecret(any(URI.class))).thenReturn(secret);
+
+            String uri = "http://127.0.0.1:" + server.getAddress().getPort() + "/importer";
+            SimpleHttpDistributionTransport simpleHttpDistributionTransport = new SimpleHttpDistributionTransport(mock(DefaultDistributionLog.class),
+                    new DistributionEndpoint(uri), mock(DistributionPackageBuilder.class), secretProvider);
+            ResourceResolver resourceResolver = mock(ResourceResolver.class);
+            DistributionTransportContext distributionContext = new DistributionTransportContext();
+
+            // the packages after the broken one are not imported
+            int delivered = simpleHttpDistributionTransport.deliverPackages(resourceResolver, Arrays.asList(
+                    createPackage("p1", "content"), createPackage("p2", "content"),
+                    createPackage("p3", "broken"), createPackage("p4", "content")), distributionContext);
+            assertEquals(2, delivered);
+            assertEquals(Arrays.asList("p1", "p2"), imported);
+
+            // packages coming from the endpoint are not sent back but count as delivered
+            DistributionPackage fromEndpoint = createPackage("p5", "broken");
+            fromEndpoint.getInfo().put("internal.origin.uri", new URI(uri));
+            delivered = simpleHttpDistributionTransport.deliverPackages(resourceResolver, Arrays.asList(
+                    createPackage("p3", "fixed"), fromEndpoint, createPackage("p4", "content")), distributionContext);
+            assertEquals(3, delivered);
+            assertEquals(Arrays.asList("p1", "p2", "p3", "p4"), imported);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private DistributionPackage createPackage(String id, String content) throws Exception {
+        DistributionPackage distributionPackage = mock(DistributionPackage.class);
+        when(distributionPackage.getId()).thenReturn(id);
+        when(distributionPackage.getInfo()).thenReturn(new DistributionPackageInfo("type"));
+        when(distributionPackage.createInputStream()).thenReturn(new ByteArrayInputStream(content.getBytes("UTF-8")));
+        return distributionPackage;
+    }
+}
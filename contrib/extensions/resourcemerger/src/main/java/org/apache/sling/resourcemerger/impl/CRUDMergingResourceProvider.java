@@ -29,6 +29,7 @@ import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.resourcemerger.spi.MergedResourcePicker2;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
@@ -45,6 +46,14 @@ public class CRUDMergingResourceProvider
         super(mergeRootPath, picker, false, traverseHierarchie);
     }
 
+    public CRUDMergingResourceProvider(final String mergeRootPath,
+            final MergedResourcePicker2 picker,
+            final boolean traverseHierarchie,
+            final int cacheSize,
+            final MetricsService metricsService) {
+        super(mergeRootPath, picker, false, traverseHierarchie, cacheSize, metricsService);
+    }
+
     private static final class ExtendedResourceHolder {
         public final String name;
         public final List<Resource> resources = new ArrayList<Resource>();
@@ -90,9 +99,16 @@ public class CRUDMergingResourceProvider
         return holder;
     }
 
+    private void clearCache(final ResolveContext<MergedResourceCache> ctx) {
+        if ( ctx.getProviderState() != null ) {
+            ctx.getProviderState().clear();
+        }
+    }
+
     @Override
-    public Resource create(final ResolveContext<Void> ctx, final String path, final Map<String, Object> properties) throws PersistenceException {
+    public Resource create(final ResolveContext<MergedResourceCache> ctx, final String path, final Map<String, Object> properties) throws PersistenceException {
         final ResourceResolver resolver = ctx.getResourceResolver();
+        clearCache(ctx);
 
         // check if the resource exists
         final Resource mountResource = this.getResource(ctx, path, ResourceContext.EMPTY_CONTEXT, null);
@@ -128,9 +144,10 @@ public class CRUDMergingResourceProvider
     }
 
     @Override
-    public void delete(final ResolveContext<Void> ctx, final Resource resource) throws PersistenceException {
+    public void delete(final ResolveContext<MergedResourceCache> ctx, final Resource resource) throws PersistenceException {
         final ResourceResolver resolver = ctx.getResourceResolver();
         final String path = resource.getPath();
+        clearCache(ctx);
 
         // deleting of the root mount resource is not supported
         final String relativePath = getRelativePath(path);
@@ -158,17 +175,19 @@ public class CRUDMergingResourceProvider
     }
 
     @Override
-    public void revert(final ResolveContext<Void> ctx) {
+    public void revert(final ResolveContext<MergedResourceCache> ctx) {
         // the provider for the merged resources will revert
+        clearCache(ctx);
     }
 
     @Override
-    public void commit(final ResolveContext<Void> ctx) throws PersistenceException {
+    public void commit(final ResolveContext<MergedResourceCache> ctx) throws PersistenceException {
         // the provider for the merged resources will commit
+        clearCache(ctx);
     }
 
     @Override
-    public boolean hasChanges(final ResolveContext<Void> ctx) {
+    public boolean hasChanges(final ResolveContext<MergedResourceCache> ctx) {
         // the provider for the merged resources will return changes
         return false;
     }
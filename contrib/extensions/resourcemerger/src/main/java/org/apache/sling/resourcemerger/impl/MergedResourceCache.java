@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourcemerger.impl;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.resourcemerger.impl.MergingResourceProvider.ParentHidingHandler;
+
+/**
+ * Cache of the merged resources for a single resource resolver. It is the provider state
+ * of the {@link MergingResourceProvider}, therefore the resources are merged with the
+ * access rights of the resource resolver. As resource resolvers are not thread safe,
+ * this cache is not thread safe either.
+ *
+ * All entries are dropped as soon as the generation of the provider changes.
+ */
+public class MergedResourceCache {
+
+    private final AtomicLong providerGeneration;
+
+    private long generation;
+
+    /** Merged resources by path, {@code null} values for non existing resources. */
+    private final Map<String, Resource> resources;
+
+    /** Merged children by parent path. */
+    private final Map<String, List<Resource>> children;
+
+    /** Hiding handlers by path of the underlying parent resource. */
+    private final Map<String, ParentHidingHandler> hidingHandlers;
+
+    MergedResourceCache(final AtomicLong providerGeneration, final int maxEntries) {
+        this.providerGeneration = providerGeneration;
+        this.generation = providerGeneration.get();
+        this.resources = createLRUMap(maxEntries);
+        this.children = createLRUMap(maxEntries);
+        this.hidingHandlers = createLRUMap(maxEntries);
+    }
+
+    private static <V> Map<String, V> createLRUMap(final int maxEntries) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Drop all entries if the provider generation changed since they were cached.
+     */
+    public void validate() {
+        final long current = this.providerGeneration.get();
+        if (current != this.generation) {
+            this.clear();
+            this.generation = current;
+        }
+    }
+
+    public void clear() {
+        this.resources.clear();
+        this.children.clear();
+        this.hidingHandlers.clear();
+    }
+
+    public boolean containsResource(final String path) {
+        return this.resources.containsKey(path);
+    }
+
+    public Resource getResource(final String path) {
+        return this.resources.get(path);
+    }
+
+    public void putResource(final String path, final Resource resource) {
+        this.resources.put(path, resource);
+    }
+
+    /**
+     * @return The merged children or {@code null} if not cached.
+     */
+    public List<Resource> getChildren(final String path) {
+        return this.children.get(path);
+    }
+
+    public void putChildren(final String path, final List<Resource> list) {
+        this.children.put(path, list);
+    }
+
+    public ParentHidingHandler getParentHidingHandler(final String path) {
+        return this.hidingHandlers.get(path);
+    }
+
+    public void putParentHidingHandler(final String path, final ParentHidingHandler handler) {
+        this.hidingHandlers.put(path, handler);
+    }
+}
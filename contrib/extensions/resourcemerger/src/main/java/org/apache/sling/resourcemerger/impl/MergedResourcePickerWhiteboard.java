@@ -27,8 +27,18 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicyOption;
+import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.resourcemerger.spi.MergedResourcePicker;
 import org.apache.sling.resourcemerger.spi.MergedResourcePicker2;
@@ -41,18 +51,43 @@ import org.osgi.framework.ServiceRegistration;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 
-@Component
-public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer {
+@Component(immediate = true, metatype = true,
+    label = "Apache Sling Resource Merger",
+    description = "Registers a merging resource provider for each merged resource picker.")
+@Service(ResourceChangeListener.class)
+@Properties({
+    @Property(name = ResourceChangeListener.PATHS, value = {"/apps", "/libs"},
+            label = "Invalidation Paths",
+            description = "Changes below these paths invalidate the cached merged resources. " +
+                          "They should cover the paths the pickers merge resources from, usually the search paths.")
+})
+public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer, ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    @Property(intValue = DEFAULT_CACHE_SIZE,
+            label = "Cache Size",
+            description = "The maximum number of merged resources cached for a resource resolver, " +
+                          "0 disables caching.")
+    private static final String PROP_CACHE_SIZE = "merge.cache.size";
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policyOption = ReferencePolicyOption.GREEDY)
+    private MetricsService metricsService;
 
     private ServiceTracker tracker;
 
     private BundleContext bundleContext;
 
+    private int cacheSize;
+
     private final Map<Long, ServiceRegistration> serviceRegistrations = new ConcurrentHashMap<Long, ServiceRegistration>();
 
+    private final Map<Long, MergingResourceProvider> providers = new ConcurrentHashMap<Long, MergingResourceProvider>();
+
     @Activate
-    protected void activate(final BundleContext bundleContext) throws InvalidSyntaxException {
+    protected void activate(final BundleContext bundleContext, final Map<String, Object> config) throws InvalidSyntaxException {
         this.bundleContext = bundleContext;
+        this.cacheSize = PropertiesUtil.toInteger(config.get(PROP_CACHE_SIZE), DEFAULT_CACHE_SIZE);
         tracker = new ServiceTracker(bundleContext, bundleContext.createFilter("(|(objectClass=" + MergedResourcePicker.class.getName() +
                 ")(objectClass=" + MergedResourcePicker2.class.getName() + "))"), this);
         tracker.open();
@@ -86,20 +121,24 @@ public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer
                     };
                 }
 
+                final MetricsService metrics = (this.metricsService == null ? MetricsService.NOOP : this.metricsService);
                 MergingResourceProvider provider = readOnly ?
-                        new MergingResourceProvider(mergeRoot, picker, true, traverseParent) :
-                        new CRUDMergingResourceProvider(mergeRoot, picker, traverseParent);
+                        new MergingResourceProvider(mergeRoot, picker, true, traverseParent, this.cacheSize, metrics) :
+                        new CRUDMergingResourceProvider(mergeRoot, picker, traverseParent, this.cacheSize, metrics);
 
                 final Dictionary<Object, Object> props = new Hashtable<Object, Object>();
                 props.put(ResourceProvider.PROPERTY_NAME, readOnly ? "Merging" : "CRUDMerging");
                 props.put(ResourceProvider.PROPERTY_ROOT, mergeRoot);
                 props.put(ResourceProvider.PROPERTY_MODIFIABLE, !readOnly);
-                props.put(ResourceProvider.PROPERTY_AUTHENTICATE, ResourceProvider.AUTHENTICATE_NO);
+                // the provider state holds the cache for each resource resolver
+                props.put(ResourceProvider.PROPERTY_AUTHENTICATE,
+                        this.cacheSize > 0 ? ResourceProvider.AUTHENTICATE_LAZY : ResourceProvider.AUTHENTICATE_NO);
 
                 final Long key = (Long) reference.getProperty(Constants.SERVICE_ID);
                 final ServiceRegistration reg = bundleContext.registerService(ResourceProvider.class.getName(), provider, props);
 
                 serviceRegistrations.put(key, reg);
+                providers.put(key, provider);
             }
             return pickerObj;
         }
@@ -115,6 +154,7 @@ public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer
     @Override
     public void removedService(final ServiceReference reference, final Object service) {
         final Long key = (Long) reference.getProperty(Constants.SERVICE_ID);
+        providers.remove(key);
         final ServiceRegistration reg = serviceRegistrations.get(key);
         if ( reg != null ) {
             reg.unregister();
@@ -122,4 +162,10 @@ public class MergedResourcePickerWhiteboard implements ServiceTrackerCustomizer
         }
     }
 
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (final MergingResourceProvider provider : providers.values()) {
+            provider.invalidate();
+        }
+    }
 }
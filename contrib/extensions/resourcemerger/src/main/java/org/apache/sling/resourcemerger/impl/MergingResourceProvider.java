@@ -19,19 +19,26 @@
 package org.apache.sling.resourcemerger.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.metrics.Counter;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
 import org.apache.sling.resourcemerger.spi.MergedResourcePicker2;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
 import org.apache.sling.spi.resource.provider.ResourceProvider;
 
-public class MergingResourceProvider extends ResourceProvider<Void> {
+public class MergingResourceProvider extends ResourceProvider<MergedResourceCache> {
 
     protected final String mergeRootPath;
 
@@ -41,14 +48,40 @@ public class MergingResourceProvider extends ResourceProvider<Void> {
 
     protected final boolean traverseHierarchie;
 
+    /** The maximum number of cached entries per resource resolver, 0 if caching is disabled. */
+    private final int cacheSize;
+
+    /** Incremented whenever the cached merged resources get outdated. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Timer mergeTimer;
+
+    private final Counter cacheHits;
+
+    private final Counter cacheMisses;
+
     MergingResourceProvider(final String mergeRootPath,
             final MergedResourcePicker2 picker,
             final boolean readOnly,
             final boolean traverseHierarchie) {
+        this(mergeRootPath, picker, readOnly, traverseHierarchie, 0, MetricsService.NOOP);
+    }
+
+    MergingResourceProvider(final String mergeRootPath,
+            final MergedResourcePicker2 picker,
+            final boolean readOnly,
+            final boolean traverseHierarchie,
+            final int cacheSize,
+            final MetricsService metricsService) {
         this.mergeRootPath = mergeRootPath;
         this.picker = picker;
         this.readOnly = readOnly;
         this.traverseHierarchie = traverseHierarchie;
+        this.cacheSize = cacheSize;
+        final String metricsPrefix = "resourcemerger" + mergeRootPath.replace('/', '.');
+        this.mergeTimer = metricsService.timer(metricsPrefix + ".merge");
+        this.cacheHits = metricsService.counter(metricsPrefix + ".cache.hits");
+        this.cacheMisses = metricsService.counter(metricsPrefix + ".cache.misses");
     }
 
     protected static final class ExcludeEntry {
@@ -169,11 +202,108 @@ public class MergingResourceProvider extends ResourceProvider<Void> {
         public final List<Resource> resources = new ArrayList<Resource>();
         public final List<ValueMap> valueMaps = new ArrayList<ValueMap>();
 
+        /** The siblings in the merged order, see {@link MergedChildren}. */
+        private ResourceHolder previous;
+        private ResourceHolder next;
+
         public ResourceHolder(final String n) {
             this.name = n;
         }
     }
 
+    /**
+     * The children being merged, in the merged order and indexed by name, so that merging
+     * the children of all the picked resources takes linear time.
+     */
+    protected static final class MergedChildren {
+
+        private final Map<String, ResourceHolder> holders = new HashMap<String, ResourceHolder>();
+
+        private ResourceHolder first;
+
+        private ResourceHolder last;
+
+        public ResourceHolder get(final String name) {
+            return this.holders.get(name);
+        }
+
+        /**
+         * Add a holder at the end
+         */
+        public void add(final ResourceHolder holder) {
+            this.holders.put(holder.name, holder);
+            this.link(holder, null);
+        }
+
+        /**
+         * Remove the holders of the children hidden by the handler
+         */
+        public void removeHidden(final ParentHidingHandler handler) {
+            ResourceHolder holder = this.first;
+            while (holder != null) {
+                final ResourceHolder next = holder.next;
+                if (handler.isHidden(holder.name, false)) {
+                    this.holders.remove(holder.name);
+                    this.unlink(holder);
+                }
+                holder = next;
+            }
+        }
+
+        /**
+         * Move a holder in front of another one, or at the end if the other one is {@code null}
+         */
+        public void move(final ResourceHolder holder, final ResourceHolder before) {
+            this.unlink(holder);
+            this.link(holder, before);
+        }
+
+        public List<ResourceHolder> getHolders() {
+            final List<ResourceHolder> result = new ArrayList<ResourceHolder>(this.holders.size());
+            for (ResourceHolder holder = this.first; holder != null; holder = holder.next) {
+                result.add(holder);
+            }
+            return result;
+        }
+
+        private void link(final ResourceHolder holder, final ResourceHolder before) {
+            if (before == null) {
+                holder.previous = this.last;
+                holder.next = null;
+                if (this.last == null) {
+                    this.first = holder;
+                } else {
+                    this.last.next = holder;
+                }
+                this.last = holder;
+            } else {
+                holder.previous = before.previous;
+                holder.next = before;
+                if (before.previous == null) {
+                    this.first = holder;
+                } else {
+                    before.previous.next = holder;
+                }
+                before.previous = holder;
+            }
+        }
+
+        private void unlink(final ResourceHolder holder) {
+            if (holder.previous == null) {
+                this.first = holder.next;
+            } else {
+                holder.previous.next = holder.next;
+            }
+            if (holder.next == null) {
+                this.last = holder.previous;
+            } else {
+                holder.next.previous = holder.previous;
+            }
+            holder.previous = null;
+            holder.next = null;
+        }
+    }
+
     /**
      * Create the merged resource based on the provided resources
      */
@@ -225,8 +355,71 @@ public class MergingResourceProvider extends ResourceProvider<Void> {
         return null;
     }
 
+    /**
+     * Create the state for a resource resolver: the cache of the merged resources, if enabled.
+     */
     @Override
-    public Resource getParent(ResolveContext<Void> ctx, Resource child) {
+    public MergedResourceCache authenticate(final Map<String, Object> authenticationInfo) {
+        if (this.cacheSize > 0) {
+            return new MergedResourceCache(this.generation, this.cacheSize);
+        }
+        return null;
+    }
+
+    @Override
+    public void logout(final MergedResourceCache state) {
+        if (state != null) {
+            state.clear();
+        }
+    }
+
+    /**
+     * The refreshed resource resolver might see other content than the cached merged resources.
+     */
+    @Override
+    public void refresh(final ResolveContext<MergedResourceCache> ctx) {
+        if (ctx.getProviderState() != null) {
+            ctx.getProviderState().clear();
+        }
+    }
+
+    /**
+     * Invalidate the merged resources cached for all resource resolvers.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Get the cache of the merged resources for the resource resolver of the context
+     * @return The cache or {@code null} if the merged resources must not be cached.
+     */
+    protected MergedResourceCache getCache(final ResolveContext<MergedResourceCache> ctx) {
+        final MergedResourceCache cache = ctx.getProviderState();
+        if (cache != null) {
+            // pending changes are not reported through observation, so don't cache until they are persisted
+            if (ctx.getResourceResolver().hasChanges()) {
+                cache.clear();
+                return null;
+            }
+            cache.validate();
+        }
+        return cache;
+    }
+
+    private ParentHidingHandler getParentHidingHandler(final MergedResourceCache cache, final Resource parent) {
+        ParentHidingHandler handler = (cache == null ? null : cache.getParentHidingHandler(parent.getPath()));
+        if (handler == null) {
+            handler = new ParentHidingHandler(parent, this.traverseHierarchie);
+            if (cache != null) {
+                cache.putParentHidingHandler(parent.getPath(), handler);
+            }
+        }
+        return handler;
+    }
+
+    @Override
+    public Resource getParent(ResolveContext<MergedResourceCache> ctx, Resource child) {
         final String parentPath = ResourceUtil.getParent(child.getPath());
         if (parentPath == null) {
             return null;
@@ -238,144 +431,160 @@ public class MergingResourceProvider extends ResourceProvider<Void> {
      * {@inheritDoc}
      */
     @Override
-    public Resource getResource(final ResolveContext<Void> ctx, final String path, final ResourceContext rCtx, final Resource parent) {
+    public Resource getResource(final ResolveContext<MergedResourceCache> ctx, final String path, final ResourceContext rCtx, final Resource parent) {
         final String relativePath = getRelativePath(path);
 
         if (relativePath != null) {
-            final ResourceHolder holder = new ResourceHolder(ResourceUtil.getName(path));
+            final MergedResourceCache cache = getCache(ctx);
+            if (cache != null) {
+                if (cache.containsResource(path)) {
+                    this.cacheHits.increment();
+                    return cache.getResource(path);
+                }
+                this.cacheMisses.increment();
+            }
+            final Timer.Context timer = this.mergeTimer.time();
+            try {
+                final Resource resource = this.mergeResource(ctx.getResourceResolver(), cache, path, relativePath, parent);
+                if (cache != null) {
+                    cache.putResource(path, resource);
+                }
+                return resource;
+            } finally {
+                timer.stop();
+            }
+        }
 
-            final ResourceResolver resolver = ctx.getResourceResolver();
-            final Iterator<Resource> resources = picker.pickResources(resolver, relativePath, parent).iterator();
+        return null;
+    }
 
-            if (!resources.hasNext()) {
-                return null;
-            }
+    private Resource mergeResource(final ResourceResolver resolver, final MergedResourceCache cache,
+            final String path, final String relativePath, final Resource parent) {
+        final ResourceHolder holder = new ResourceHolder(ResourceUtil.getName(path));
 
-            boolean isUnderlying = true;
-            while (resources.hasNext()) {
-                final Resource resource = resources.next();
+        final Iterator<Resource> resources = picker.pickResources(resolver, relativePath, parent).iterator();
 
-                final boolean hidden;
-                if (isUnderlying) {
-                    hidden = false;
-                    isUnderlying = false;
-                } else {
-                    // check parent for hiding
-                    // SLING-3521 : if parent is not readable, nothing is hidden
-                    final Resource resourceParent = resource.getParent();
-                    hidden = resourceParent != null && new ParentHidingHandler(resourceParent, this.traverseHierarchie).isHidden(holder.name, true);
+        if (!resources.hasNext()) {
+            return null;
+        }
 
-                    // TODO Usually, the parent does not exist if the resource is a NonExistingResource. Ideally, this
-                    // common case should be optimised
-                }
-                if (hidden) {
-                    holder.resources.clear();
-                } else if (!ResourceUtil.isNonExistingResource(resource)) {
-                    holder.resources.add(resource);
-                }
+        boolean isUnderlying = true;
+        while (resources.hasNext()) {
+            final Resource resource = resources.next();
+
+            final boolean hidden;
+            if (isUnderlying) {
+                hidden = false;
+                isUnderlying = false;
+            } else {
+                // check parent for hiding
+                // SLING-3521 : if parent is not readable, nothing is hidden
+                final Resource resourceParent = resource.getParent();
+                hidden = resourceParent != null && getParentHidingHandler(cache, resourceParent).isHidden(holder.name, true);
+
+                // TODO Usually, the parent does not exist if the resource is a NonExistingResource. Ideally, this
+                // common case should be optimised
+            }
+            if (hidden) {
+                holder.resources.clear();
+            } else if (!ResourceUtil.isNonExistingResource(resource)) {
+                holder.resources.add(resource);
             }
-            return createMergedResource(resolver, relativePath, holder);
         }
-
-        return null;
+        return createMergedResource(resolver, relativePath, holder);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public Iterator<Resource> listChildren(final ResolveContext<Void> ctx, final Resource parent) {
-        final ResourceResolver resolver = parent.getResourceResolver();
-
+    public Iterator<Resource> listChildren(final ResolveContext<MergedResourceCache> ctx, final Resource parent) {
         final String relativePath = getRelativePath(parent.getPath());
 
         if (relativePath != null) {
-            final List<ResourceHolder> candidates = new ArrayList<ResourceHolder>();
+            final MergedResourceCache cache = getCache(ctx);
+            if (cache != null) {
+                final List<Resource> children = cache.getChildren(parent.getPath());
+                if (children != null) {
+                    this.cacheHits.increment();
+                    return children.iterator();
+                }
+                this.cacheMisses.increment();
+            }
+            final Timer.Context timer = this.mergeTimer.time();
+            try {
+                final List<Resource> children = Collections.unmodifiableList(
+                        this.mergeChildren(parent.getResourceResolver(), cache, relativePath, parent));
+                if (cache != null) {
+                    cache.putChildren(parent.getPath(), children);
+                }
+                return children.iterator();
+            } finally {
+                timer.stop();
+            }
+        }
 
-            final Iterator<Resource> resources = picker.pickResources(resolver, relativePath, parent).iterator();
+        return null;
+    }
 
-            boolean isUnderlying = true;
-            while (resources.hasNext()) {
-                Resource parentResource = resources.next();
-                final ParentHidingHandler handler = !isUnderlying ? new ParentHidingHandler(parentResource, this.traverseHierarchie) : null;
-                isUnderlying = false;
+    private List<Resource> mergeChildren(final ResourceResolver resolver, final MergedResourceCache cache,
+            final String relativePath, final Resource parent) {
+        final MergedChildren candidates = new MergedChildren();
 
-                // remove the hidden child resources from the underlying resource
-                if (handler != null) {
-                    final Iterator<ResourceHolder> iter = candidates.iterator();
-                    while (iter.hasNext()) {
-                        final ResourceHolder holder = iter.next();
-                        if (handler.isHidden(holder.name, false)) {
-                            iter.remove();
-                        }
+        final Iterator<Resource> resources = picker.pickResources(resolver, relativePath, parent).iterator();
+
+        boolean isUnderlying = true;
+        while (resources.hasNext()) {
+            Resource parentResource = resources.next();
+            final ParentHidingHandler handler = !isUnderlying ? getParentHidingHandler(cache, parentResource) : null;
+            isUnderlying = false;
+
+            // remove the hidden child resources from the underlying resource
+            if (handler != null) {
+                candidates.removeHidden(handler);
+            }
+
+            for (final Resource child : parentResource.getChildren()) {
+                final String rsrcName = child.getName();
+                // check if is this an overlaid resource (i.e. has the resource with the same name already be exposed through the underlying resource)
+                ResourceHolder holder = candidates.get(rsrcName);
+                final boolean overlaid = holder != null;
+                if (holder == null) {
+                    // remove the hidden child resources from the local resource
+                    if (handler != null && handler.isHidden(rsrcName, true)) {
+                        continue; // skip this child
                     }
+                    holder = new ResourceHolder(rsrcName);
+                    candidates.add(holder);
+                }
+                holder.resources.add(child);
+
+                // Check if children need reordering
+                ResourceHolder orderBeforeHolder = null;
+                final ValueMap vm = child.getValueMap();
+                final String orderBefore = vm.get(MergedResourceConstants.PN_ORDER_BEFORE, String.class);
+                if (orderBefore != null && !orderBefore.equals(rsrcName)) {
+                    orderBeforeHolder = candidates.get(orderBefore);
                 }
-                
-                for (final Resource child : parentResource.getChildren()) {
-                    final String rsrcName = child.getName();
-                    ResourceHolder holder = null;
-                    int childPositionInCandidateList = -1;
-                    // check if is this an overlaid resource (i.e. has the resource with the same name already be exposed through the underlying resource)
-                    for (int index=0; index < candidates.size(); index++) {
-                        ResourceHolder current = candidates.get(index);
-                        if (current.name.equals(rsrcName)) {
-                            holder = current;
-                            childPositionInCandidateList = index;
-                            break;
-                        }
-                    }
-                    if (holder == null) {
-                        // remove the hidden child resources from the local resource
-                        if (handler != null && handler.isHidden(rsrcName, true)) {
-                            continue; // skip this child
-                        }
-                        holder = new ResourceHolder(rsrcName);
-                        candidates.add(holder);
-                    } 
-                    holder.resources.add(child);
-
-                    // Check if children need reordering
-                    int orderBeforeIndex = -1;
-                    final ValueMap vm = child.getValueMap();
-                    final String orderBefore = vm.get(MergedResourceConstants.PN_ORDER_BEFORE, String.class);
-                    if (orderBefore != null && !orderBefore.equals(rsrcName)) {
-                        // search entry
-                        int index = 0;
-                        while (index < candidates.size()) {
-                            final ResourceHolder current = candidates.get(index);
-                            if (current.name.equals(orderBefore)) {
-                                orderBeforeIndex = index;
-                                break;
-                            }
-                            index++;
-                        }
-                    }
 
-                    if (orderBeforeIndex > -1) {
-                        candidates.add(orderBeforeIndex, holder);
-                        candidates.remove(candidates.size() - 1);
-                    } else {
-                        // if there was no explicit order, just assume the order given by the overlying resource
-                        if (childPositionInCandidateList != -1) {
-                            candidates.add(holder);
-                            candidates.remove(childPositionInCandidateList);
-                        }
-                    }
+                if (orderBeforeHolder != null) {
+                    candidates.move(holder, orderBeforeHolder);
+                } else if (overlaid) {
+                    // if there was no explicit order, just assume the order given by the overlying resource
+                    candidates.move(holder, null);
                 }
-                
             }
-            final List<Resource> children = new ArrayList<Resource>();
-            for (final ResourceHolder holder : candidates) {
-                final Resource mergedResource = this.createMergedResource(resolver,
-                        (relativePath.length() == 0 ? holder.name : relativePath + '/' + holder.name), holder);
-                if (mergedResource != null) {
-                    children.add(mergedResource);
-                }
+
+        }
+        final List<Resource> children = new ArrayList<Resource>();
+        for (final ResourceHolder holder : candidates.getHolders()) {
+            final Resource mergedResource = this.createMergedResource(resolver,
+                    (relativePath.length() == 0 ? holder.name : relativePath + '/' + holder.name), holder);
+            if (mergedResource != null) {
+                children.add(mergedResource);
             }
-            return children.iterator();
         }
-
-        return null;
+        return children;
     }
 
 }
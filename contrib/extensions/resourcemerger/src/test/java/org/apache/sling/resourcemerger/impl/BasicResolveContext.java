@@ -26,8 +26,15 @@ public class BasicResolveContext<T> implements ResolveContext<T> {
 
     private final ResourceResolver resourceResolver;
 
+    private final T providerState;
+
     public BasicResolveContext(ResourceResolver resourceResolver) {
+        this(resourceResolver, null);
+    }
+
+    public BasicResolveContext(ResourceResolver resourceResolver, T providerState) {
         this.resourceResolver = resourceResolver;
+        this.providerState = providerState;
     }
 
     @Override
@@ -37,7 +44,7 @@ public class BasicResolveContext<T> implements ResolveContext<T> {
 
     @Override
     public T getProviderState() {
-        return null;
+        return providerState;
     }
 
     @Override
@@ -56,7 +56,7 @@ public class CommonMergedResourceProviderTest {
     private Resource base;
     private Resource overlay;
 
-    private ResolveContext<Void> ctx;
+    private ResolveContext<MergedResourceCache> ctx;
 
     /**
      * A very simple resource picker which will just merge two different resources (base and overlay) directly on the mount point.
@@ -101,7 +101,7 @@ public class CommonMergedResourceProviderTest {
     public void setup() throws LoginException, PersistenceException {
         final ResourceResolverFactory factory = new MockResourceResolverFactory();
         this.resolver = factory.getResourceResolver(null);
-        this.ctx = new BasicResolveContext<Void>(resolver);
+        this.ctx = new BasicResolveContext<MergedResourceCache>(resolver);
         MockHelper.create(this.resolver)
         .resource("/apps").resource("base")
         .resource("/apps/overlay").commit();
@@ -290,4 +290,20 @@ public class CommonMergedResourceProviderTest {
         
         Assert.assertThat(iterable, Matchers.contains(ResourceMatchers.resourceWithName("child1"),ResourceMatchers.resourceWithName("child3"), ResourceMatchers.resourceWithName("child2")));
     }
+
+    @Test
+    public void testOrderOfOverlaidChildBeingModifiedThroughOrderBefore() throws PersistenceException {
+        // create new child nodes below base and overlay the second one
+        MockHelper.create(this.resolver)
+            .resource("/apps/base/child1")
+            .resource("/apps/base/child2")
+            .resource("/apps/base/child3")
+            .resource("/apps/overlay/child2").p(MergedResourceConstants.PN_ORDER_BEFORE, "child1")
+            .commit();
+        Resource mergedResource = this.provider.getResource(ctx, "/merged", ResourceContext.EMPTY_CONTEXT, null);
+        // convert the iterator returned by list children into an iterable (to be able to perform some tests)
+        IteratorIterable<Resource> iterable = new IteratorIterable<Resource>(provider.listChildren(ctx, mergedResource), true);
+
+        Assert.assertThat(iterable, Matchers.contains(ResourceMatchers.resourceWithName("child2"),ResourceMatchers.resourceWithName("child1"), ResourceMatchers.resourceWithName("child3")));
+    }
 }
@@ -20,7 +20,9 @@ package org.apache.sling.resourcemerger.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -35,6 +37,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.resourcemerger.impl.picker.MergingResourcePicker;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
@@ -49,7 +52,7 @@ public class MergedResourceProviderTestForMergingPicker {
     private ResourceResolver resolver;
 
     private CRUDMergingResourceProvider provider;
-    private ResolveContext<Void> ctx;
+    private ResolveContext<MergedResourceCache> ctx;
 
     @Before public void setup() throws Exception {
         final MockResourceResolverFactoryOptions options = new MockResourceResolverFactoryOptions();
@@ -342,4 +345,83 @@ public class MergedResourceProviderTestForMergingPicker {
         }
     }
 
+    @Test public void testCachedResources() throws PersistenceException {
+        final CRUDMergingResourceProvider cachingProvider = new CRUDMergingResourceProvider("/merged",
+                new MergingResourcePicker(), false, 100, MetricsService.NOOP);
+        final ResolveContext<MergedResourceCache> cachingCtx = new BasicResolveContext<MergedResourceCache>(resolver,
+                cachingProvider.authenticate(null));
+
+        final Resource rsrcA1 = cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null);
+        assertNotNull(rsrcA1);
+        assertSame(rsrcA1, cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null));
+        assertNull(cachingProvider.getResource(cachingCtx, "/merged/a/Z", ResourceContext.EMPTY_CONTEXT, null));
+        assertNull(cachingProvider.getResource(cachingCtx, "/merged/a/Z", ResourceContext.EMPTY_CONTEXT, null));
+
+        // invalidation drops the cached resources
+        cachingProvider.invalidate();
+        final Resource rsrcA1Again = cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null);
+        assertNotSame(rsrcA1, rsrcA1Again);
+        assertEquals(rsrcA1.getValueMap(), rsrcA1Again.getValueMap());
+
+        // modifications through the provider are visible right away
+        final String path = "/merged/a/new";
+        assertNull(cachingProvider.getResource(cachingCtx, path, ResourceContext.EMPTY_CONTEXT, null));
+        try {
+            cachingProvider.create(cachingCtx, path, Collections.singletonMap("foo", (Object)"bla"));
+            final Resource rsrc = cachingProvider.getResource(cachingCtx, path, ResourceContext.EMPTY_CONTEXT, null);
+            assertNotNull(rsrc);
+            assertEquals("bla", rsrc.getValueMap().get("foo"));
+        } finally {
+            this.resolver.revert();
+        }
+    }
+
+    @Test public void testCacheIsClearedOnRefresh() {
+        final CRUDMergingResourceProvider cachingProvider = new CRUDMergingResourceProvider("/merged",
+                new MergingResourcePicker(), false, 100, MetricsService.NOOP);
+        final ResolveContext<MergedResourceCache> cachingCtx = new BasicResolveContext<MergedResourceCache>(resolver,
+                cachingProvider.authenticate(null));
+
+        final Resource rsrcA1 = cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null);
+        assertSame(rsrcA1, cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null));
+
+        cachingProvider.refresh(cachingCtx);
+        assertNotSame(rsrcA1, cachingProvider.getResource(cachingCtx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null));
+    }
+
+    @Test public void testCachedChildren() {
+        final CRUDMergingResourceProvider cachingProvider = new CRUDMergingResourceProvider("/merged",
+                new MergingResourcePicker(), false, 100, MetricsService.NOOP);
+        final ResolveContext<MergedResourceCache> cachingCtx = new BasicResolveContext<MergedResourceCache>(resolver,
+                cachingProvider.authenticate(null));
+
+        final Resource rsrcA = cachingProvider.getResource(cachingCtx, "/merged/a", ResourceContext.EMPTY_CONTEXT, null);
+        final List<Resource> children = new ArrayList<Resource>();
+        final Iterator<Resource> i = cachingProvider.listChildren(cachingCtx, rsrcA);
+        while ( i.hasNext() ) {
+            children.add(i.next());
+        }
+        assertEquals(6, children.size());
+        final Iterator<Resource> cached = cachingProvider.listChildren(cachingCtx, rsrcA);
+        for(final Resource child : children) {
+            assertSame(child, cached.next());
+        }
+
+        cachingProvider.invalidate();
+        final Iterator<Resource> merged = cachingProvider.listChildren(cachingCtx, rsrcA);
+        for(final Resource child : children) {
+            final Resource mergedChild = merged.next();
+            assertNotSame(child, mergedChild);
+            assertEquals(child.getPath(), mergedChild.getPath());
+        }
+    }
+
+    @Test public void testNoCacheWithoutState() {
+        final CRUDMergingResourceProvider cachingProvider = new CRUDMergingResourceProvider("/merged",
+                new MergingResourcePicker(), false, 100, MetricsService.NOOP);
+        final Resource rsrcA1 = cachingProvider.getResource(ctx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null);
+        assertNotSame(rsrcA1, cachingProvider.getResource(ctx, "/merged/a/1", ResourceContext.EMPTY_CONTEXT, null));
+        assertNull(new CRUDMergingResourceProvider("/merged", new MergingResourcePicker(), false).authenticate(null));
+    }
+
 }
@@ -189,7 +189,7 @@ public class FactoryCache {
      * @return The transformer instances
      */
     private Transformer[][] createTransformers(final TransformerFactory[][] factories) {
-        if ( factories == EMPTY_DOUBLE_ARRAY ) {
+        if ( factories == TransformerFactoryServiceTracker.EMPTY_DOUBLE_FACTORY_ARRAY ) {
             return FactoryCache.EMPTY_DOUBLE_ARRAY;
         }
         final Transformer[][] transformers = new Transformer[2][];
@@ -202,10 +202,11 @@ public class FactoryCache {
                 transformers[arrayIndex] = FactoryCache.EMPTY_ARRAY;
             } else {
                 transformers[arrayIndex] = new Transformer[count];
-                for(int i=0; i < factories[arrayIndex].length; i++) {
-                    final TransformerFactory factory = factories[arrayIndex][i];
+                int index = 0;
+                for(final TransformerFactory factory : factories[arrayIndex]) {
                     if ( factory != null ) {
-                        transformers[arrayIndex][i] = factory.createTransformer();
+                        transformers[arrayIndex][index] = factory.createTransformer();
+                        index++;
                     }
                 }
             }
@@ -250,6 +251,13 @@ public class FactoryCache {
             }
         }
 
+        /**
+         * The configuration checked by this entry or <code>null</code> if it matches all requests.
+         */
+        ProcessorConfigurationImpl getConfiguration() {
+            return (ProcessorConfigurationImpl)configuration;
+        }
+
         public boolean match(final ProcessingContext context) {
             if ( configuration == null ) {
                 return true;
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Cache for the result of matching a fixed set of processor configurations
+ * against requests. The cache is never invalidated, if the configurations
+ * change a new cache is created.
+ * The resource type is not checked by the cached results, it has to be checked
+ * for each request if {@link #checksResourceType()} returns <code>true</code>.
+ * The number of keys is limited by the configured values, see {@link MatchKey}.
+ * In addition, once the maximum size is reached, no further results are cached.
+ */
+final class MatchCache<V> {
+
+    /** The default maximum number of cached results. */
+    static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final String[] EMPTY_ARRAY = new String[0];
+
+    private final ConcurrentMap<MatchKey, V> results = new ConcurrentHashMap<MatchKey, V>();
+
+    /** The configured content types, extensions, path prefixes and selectors. */
+    private final Set<String> contentTypes = new HashSet<String>();
+
+    private final Set<String> extensions = new HashSet<String>();
+
+    private final String[] paths;
+
+    private final String[] selectors;
+
+    private final boolean checksResourceType;
+
+    private final int maxSize;
+
+    /**
+     * @param configurations The configurations to match, <code>null</code> entries match all requests
+     * @param maxSize The maximum number of cached results
+     */
+    MatchCache(final Collection<ProcessorConfigurationImpl> configurations, final int maxSize) {
+        final Set<String> paths = new TreeSet<String>();
+        final Set<String> selectors = new TreeSet<String>();
+        boolean checksResourceType = false;
+        for(final ProcessorConfigurationImpl config : configurations) {
+            if ( config != null ) {
+                addAll(this.contentTypes, config.getContentTypes());
+                addAll(this.extensions, config.getExtensions());
+                addAll(paths, config.getPaths());
+                addAll(selectors, config.getSelectors());
+                checksResourceType |= config.checksResourceType();
+            }
+        }
+        // '*' matches all content types and paths
+        this.contentTypes.remove("*");
+        paths.remove("*");
+        this.paths = paths.toArray(new String[paths.size()]);
+        this.selectors = selectors.isEmpty() ? EMPTY_ARRAY : selectors.toArray(new String[selectors.size()]);
+        this.checksResourceType = checksResourceType;
+        this.maxSize = maxSize;
+    }
+
+    private static void addAll(final Set<String> set, final String[] values) {
+        if ( values != null ) {
+            set.addAll(Arrays.asList(values));
+        }
+    }
+
+    /**
+     * Whether the resource type has to be checked in addition to the cached result.
+     */
+    boolean checksResourceType() {
+        return this.checksResourceType;
+    }
+
+    /**
+     * Create the key for a request.
+     * @param request The current request
+     * @param contentType The content type of the response, might be <code>null</code>
+     */
+    MatchKey getKey(final SlingHttpServletRequest request, final String contentType) {
+        final String[] values = new String[4];
+        final String type = normalizeContentType(contentType);
+        if ( this.contentTypes.contains(type) ) {
+            values[0] = type;
+        }
+        final String extension = request.getRequestPathInfo().getExtension();
+        if ( extension != null && this.extensions.contains(extension) ) {
+            values[1] = extension;
+        }
+        if ( this.paths.length > 0 ) {
+            final String path = request.getRequestPathInfo().getResourcePath();
+            final char[] matched = new char[this.paths.length];
+            for(int i=0; i<this.paths.length; i++) {
+                matched[i] = path.startsWith(this.paths[i]) ? '1' : '0';
+            }
+            values[2] = new String(matched);
+        }
+        if ( this.selectors.length > 0 ) {
+            final String selectorString = request.getRequestPathInfo().getSelectorString();
+            final Set<String> requestSelectors = (selectorString == null ? null
+                    : new HashSet<String>(Arrays.asList(selectorString.split("\\."))));
+            final char[] matched = new char[this.selectors.length];
+            for(int i=0; i<this.selectors.length; i++) {
+                matched[i] = requestSelectors != null && requestSelectors.contains(this.selectors[i]) ? '1' : '0';
+            }
+            values[3] = new String(matched);
+        }
+        return new MatchKey(values, request.getAttribute("javax.servlet.error.status_code") != null);
+    }
+
+    private static String normalizeContentType(final String contentType) {
+        if ( contentType == null ) {
+            return ProcessorManagerImpl.MIME_TYPE_HTML;
+        }
+        final int idx = contentType.indexOf(';');
+        if ( idx != -1 ) {
+            return contentType.substring(0, idx);
+        }
+        return contentType;
+    }
+
+    /**
+     * Return the cached result or <code>null</code>.
+     */
+    V get(final MatchKey key) {
+        return this.results.get(key);
+    }
+
+    /**
+     * Cache the result unless the cache is full.
+     */
+    void put(final MatchKey key, final V result) {
+        if ( this.results.size() < this.maxSize ) {
+            this.results.put(key, result);
+        }
+    }
+
+    int size() {
+        return this.results.size();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl;
+
+import java.util.Arrays;
+
+/**
+ * The characteristics of a request a processor configuration is matched against.
+ * Two requests with equal keys are matched by the same configurations.
+ *
+ * The key does not contain the values of the request but the configured values
+ * matched by the request, e.g. the configured path prefixes instead of the resource
+ * path. Requests to different resources below the same prefix therefore share a key
+ * and the number of keys is limited by the configurations.
+ * The resource type is not part of the key, as the resource type hierarchy might
+ * change at any time; it is checked for each request.
+ *
+ * @see MatchCache#getKey(org.apache.sling.api.SlingHttpServletRequest, String)
+ */
+final class MatchKey {
+
+    private final String[] values;
+
+    private final boolean error;
+
+    private final int hashCode;
+
+    MatchKey(final String[] values, final boolean error) {
+        this.values = values;
+        this.error = error;
+        this.hashCode = 31 * Arrays.hashCode(values) + (error ? 1 : 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if ( obj == this ) {
+            return true;
+        }
+        if ( !(obj instanceof MatchKey) ) {
+            return false;
+        }
+        final MatchKey other = (MatchKey)obj;
+        return this.error == other.error && Arrays.equals(this.values, other.values);
+    }
+
+    @Override
+    public String toString() {
+        return "MatchKey " + Arrays.toString(this.values) + (this.error ? " (error)" : "");
+    }
+}
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceUtil;
@@ -367,10 +368,29 @@ public class ProcessorConfigurationImpl implements PipelineConfiguration {
      * @see org.apache.sling.rewriter.ProcessorConfiguration#match(org.apache.sling.rewriter.ProcessingContext)
      */
     public boolean match(final ProcessingContext processContext) {
+        return this.matchIgnoringResourceType(processContext) && this.matchResourceType(processContext.getRequest());
+    }
+
+    /**
+     * Check everything but the resource type. Unlike the other characteristics
+     * the resource type hierarchy might change at any time, so the result of
+     * this check can be cached while the resource type has to be checked for
+     * each request.
+     * @see #matchResourceType(SlingHttpServletRequest)
+     */
+    boolean matchIgnoringResourceType(final ProcessingContext processContext) {
         if ( !this.processErrorResponse && processContext.getRequest().getAttribute("javax.servlet.error.status_code") != null ) {
             return false;
         }
-        String contentType = processContext.getContentType();
+        return this.matchContentType(processContext.getContentType()) && this.matchRequest(processContext.getRequest());
+    }
+
+    /**
+     * Check the content type of the response.
+     * @param responseContentType The content type, might be <code>null</code> or contain parameters
+     */
+    boolean matchContentType(final String responseContentType) {
+        String contentType = responseContentType;
         // if no content type is supplied, we assume html
         if ( contentType == null ) {
             contentType = ProcessorManagerImpl.MIME_TYPE_HTML;
@@ -398,13 +418,22 @@ public class ProcessorConfigurationImpl implements PipelineConfiguration {
                 return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Check the extension, path and selectors of the request.
+     * Unlike {@link #match(ProcessingContext)} this neither checks the
+     * content type, the resource type nor whether an error is processed.
+     */
+    boolean matchRequest(final SlingHttpServletRequest request) {
         // now check extenstions
         // if no extenstion is configured, we apply to all extenstions
         if ( this.extensions != null && this.extensions.length > 0 ) {
              boolean found = false;
              int index = 0;
              while ( !found && index < this.extensions.length ) {
-                 if ( this.extensions[index].equals(processContext.getRequest().getRequestPathInfo().getExtension()) ) {
+                 if ( this.extensions[index].equals(request.getRequestPathInfo().getExtension()) ) {
                      found = true;
                  }
                  index++;
@@ -413,34 +442,10 @@ public class ProcessorConfigurationImpl implements PipelineConfiguration {
                  return false;
              }
         }
-        // check resource types
-        if ( this.resourceTypes != null && this.resourceTypes.length > 0 ) {
-            final ResourceResolver resourceResolver = processContext.getRequest().getResourceResolver();
-            final Resource resource = processContext.getRequest().getResource();
-            boolean found = false;
-            int index = 0;
-            while ( !found && index < this.resourceTypes.length ) {
-                if ( resourceResolver.isResourceType(resource, resourceTypes[index]) ) {
-                    found = true;
-                }
-                else if ( unwrapResources && resource instanceof ResourceWrapper ) {
-                    // accept resource as well if type was overridden and unwrapped resource has a matching type
-                    final Resource unwrappedResource = unwrap(resource);
-                    if ( resourceResolver.isResourceType(unwrappedResource, resourceTypes[index]) ) {
-                        found = true;
-                    }
-                }
-                index++;
-            }
-            if ( !found ) {
-                return false;
-            }
-        }
-
         // now check for path
         // if no path is configured, we apply to all paths
         if ( this.paths != null && this.paths.length > 0 ) {
-            final String path = processContext.getRequest().getRequestPathInfo().getResourcePath();
+            final String path = request.getRequestPathInfo().getResourcePath();
             int index = 0;
             boolean found = false;
             while ( !found && index < this.paths.length ) {
@@ -458,7 +463,7 @@ public class ProcessorConfigurationImpl implements PipelineConfiguration {
 
         // now check for selectors
         if( this.selectors != null && this.selectors.length > 0 ) {
-            final String selectorString = processContext.getRequest().getRequestPathInfo().getSelectorString();
+            final String selectorString = request.getRequestPathInfo().getSelectorString();
             if ( selectorString == null || "".equals(selectorString )) {
                 // selectors required but not set
                 return false;
@@ -483,6 +488,60 @@ public class ProcessorConfigurationImpl implements PipelineConfiguration {
         return true;
     }
 
+    /**
+     * Check the resource type of the request.
+     */
+    boolean matchResourceType(final SlingHttpServletRequest request) {
+        // check resource types
+        if ( this.resourceTypes != null && this.resourceTypes.length > 0 ) {
+            final ResourceResolver resourceResolver = request.getResourceResolver();
+            final Resource resource = request.getResource();
+            boolean found = false;
+            int index = 0;
+            while ( !found && index < this.resourceTypes.length ) {
+                if ( resourceResolver.isResourceType(resource, resourceTypes[index]) ) {
+                    found = true;
+                }
+                else if ( unwrapResources && resource instanceof ResourceWrapper ) {
+                    // accept resource as well if type was overridden and unwrapped resource has a matching type
+                    final Resource unwrappedResource = unwrap(resource);
+                    if ( resourceResolver.isResourceType(unwrappedResource, resourceTypes[index]) ) {
+                        found = true;
+                    }
+                }
+                index++;
+            }
+            if ( !found ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Does this configuration check the resource type?
+     */
+    boolean checksResourceType() {
+        return this.resourceTypes != null && this.resourceTypes.length > 0;
+    }
+
+    String[] getContentTypes() {
+        return this.contentTypes;
+    }
+
+    String[] getExtensions() {
+        return this.extensions;
+    }
+
+    String[] getPaths() {
+        return this.paths;
+    }
+
+    String[] getSelectors() {
+        return this.selectors;
+    }
+
     /**
      * Unwrap the resource and return the wrapped implementation.
      * Copied from ResourceUtil.unwrap which is available in Sling API 2.7.0 and up.
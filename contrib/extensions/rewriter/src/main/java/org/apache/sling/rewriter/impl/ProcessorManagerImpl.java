@@ -33,6 +33,7 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.SlingException;
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -82,6 +83,9 @@ public class ProcessorManagerImpl
     /** Ordered processor configs. */
     private List<ProcessorConfiguration> orderedProcessors = new ArrayList<ProcessorConfiguration>();
 
+    /** Snapshot of the ordered processor configs together with the cached match results. */
+    private volatile ActiveConfigurations activeConfigurations = new ActiveConfigurations(this.orderedProcessors);
+
     /** Event handler registration */
     private ServiceRegistration eventHandlerRegistration;
 
@@ -214,6 +218,7 @@ public class ProcessorManagerImpl
                 }
             }
         }
+        this.updateActiveConfigurations();
     }
 
     /**
@@ -243,9 +248,17 @@ public class ProcessorManagerImpl
         if ( config.isActive() ) {
             this.orderedProcessors.add(config);
             Collections.sort(this.orderedProcessors, new ProcessorConfiguratorComparator());
+            this.updateActiveConfigurations();
         }
     }
 
+    /**
+     * Publish the current ordered processor configs, this drops all cached match results.
+     */
+    private void updateActiveConfigurations() {
+        this.activeConfigurations = new ActiveConfigurations(this.orderedProcessors);
+    }
+
     private void printConfiguration(final PrintWriter pw, final ConfigEntry entry) {
         if ( entry.config instanceof ProcessorConfigurationImpl ) {
             ((ProcessorConfigurationImpl)entry.config).printConfiguration(pw);
@@ -378,6 +391,7 @@ public class ProcessorManagerImpl
             // completly new, just add it
             this.addProcessor(key, path, config);
         }
+        this.updateActiveConfigurations();
     }
 
     /**
@@ -417,6 +431,7 @@ public class ProcessorManagerImpl
                     }
                     this.processors.put(key, newArray);
                 }
+                this.updateActiveConfigurations();
             }
         }
     }
@@ -456,7 +471,74 @@ public class ProcessorManagerImpl
      * @see org.apache.sling.rewriter.ProcessorManager#getProcessorConfigurations()
      */
     public List<ProcessorConfiguration> getProcessorConfigurations() {
-        return this.orderedProcessors;
+        return this.activeConfigurations.ordered;
+    }
+
+    /**
+     * Return the processor configurations matching the processing context.
+     * The result is cached by the request characteristics checked by the configurations,
+     * except for the resource type which is checked for each request.
+     * @return The list of matching processor configurations in the order to check.
+     */
+    List<ProcessorConfiguration> getMatchingProcessorConfigurations(final ProcessingContext context) {
+        final ActiveConfigurations active = this.activeConfigurations;
+        final MatchKey key = active.matches.getKey(context.getRequest(), context.getContentType());
+        List<ProcessorConfiguration> result = active.matches.get(key);
+        if ( result == null ) {
+            final List<ProcessorConfiguration> matching = new ArrayList<ProcessorConfiguration>();
+            for(final ProcessorConfigurationImpl config : active.configurations) {
+                if ( config.matchIgnoringResourceType(context) ) {
+                    matching.add(config);
+                }
+            }
+            if ( matching.isEmpty() ) {
+                result = Collections.emptyList();
+            } else {
+                result = Collections.unmodifiableList(matching);
+            }
+            active.matches.put(key, result);
+        }
+        if ( !active.matches.checksResourceType() || result.isEmpty() ) {
+            return result;
+        }
+        final List<ProcessorConfiguration> matching = new ArrayList<ProcessorConfiguration>(result.size());
+        for(final ProcessorConfiguration config : result) {
+            if ( ((ProcessorConfigurationImpl)config).matchResourceType(context.getRequest()) ) {
+                matching.add(config);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Check if any processor configuration might apply to the request.
+     * As the content type of the response is not known before the response is
+     * written, it is not checked. The error status is not checked either as
+     * an error might occur later on.
+     * @return <code>false</code> if no processor configuration applies to the request.
+     */
+    boolean mayMatch(final SlingHttpServletRequest request) {
+        final ActiveConfigurations active = this.activeConfigurations;
+        if ( active.configurations.isEmpty() ) {
+            return false;
+        }
+        final MatchKey key = active.requestMatches.getKey(request, null);
+        List<ProcessorConfigurationImpl> result = active.requestMatches.get(key);
+        if ( result == null ) {
+            result = new ArrayList<ProcessorConfigurationImpl>();
+            for(final ProcessorConfigurationImpl config : active.configurations) {
+                if ( config.matchRequest(request) ) {
+                    result.add(config);
+                }
+            }
+            active.requestMatches.put(key, result);
+        }
+        for(final ProcessorConfigurationImpl config : result) {
+            if ( config.matchResourceType(request) ) {
+                return true;
+            }
+        }
+        return false;
     }
 
     protected static final class ProcessorConfiguratorComparator implements Comparator<ProcessorConfiguration> {
@@ -477,6 +559,34 @@ public class ProcessorManagerImpl
 
     }
 
+    /**
+     * Immutable snapshot of the ordered processor configs. The match results
+     * are cached per snapshot, so a new snapshot is created whenever the
+     * configurations change.
+     */
+    private static final class ActiveConfigurations {
+
+        public final List<ProcessorConfiguration> ordered;
+
+        public final List<ProcessorConfigurationImpl> configurations;
+
+        /** The matching configurations by request, ignoring the resource type. */
+        public final MatchCache<List<ProcessorConfiguration>> matches;
+
+        /** The configurations which might match by request, ignoring the content type and the resource type. */
+        public final MatchCache<List<ProcessorConfigurationImpl>> requestMatches;
+
+        public ActiveConfigurations(final List<ProcessorConfiguration> ordered) {
+            this.ordered = Collections.unmodifiableList(new ArrayList<ProcessorConfiguration>(ordered));
+            this.configurations = new ArrayList<ProcessorConfigurationImpl>(ordered.size());
+            for(final ProcessorConfiguration config : ordered) {
+                this.configurations.add((ProcessorConfigurationImpl)config);
+            }
+            this.matches = new MatchCache<List<ProcessorConfiguration>>(this.configurations, MatchCache.DEFAULT_MAX_SIZE);
+            this.requestMatches = new MatchCache<List<ProcessorConfigurationImpl>>(this.configurations, MatchCache.DEFAULT_MAX_SIZE);
+        }
+    }
+
     public static final class ConfigEntry {
         public final String path;
         public final ProcessorConfiguration config;
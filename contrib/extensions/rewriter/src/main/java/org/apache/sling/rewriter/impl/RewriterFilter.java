@@ -76,6 +76,13 @@ public class RewriterFilter implements Filter {
         final SlingHttpServletRequest slingRequest = (SlingHttpServletRequest) request;
         final SlingHttpServletResponse slingResponse = (SlingHttpServletResponse) response;
 
+        // don't wrap the response if no configuration can apply to this request
+        if ( this.pipelineManager instanceof ProcessorManagerImpl
+             && !((ProcessorManagerImpl)this.pipelineManager).mayMatch(slingRequest) ) {
+            chain.doFilter(request, response);
+            return;
+        }
+
         final RewriterResponse rewriterResponse =
                 new RewriterResponse(slingRequest, slingResponse, this.pipelineManager);
         boolean errorOccured = true;
@@ -163,11 +163,18 @@ class RewriterResponse
     private Processor getProcessor() {
         final ProcessingContext processorContext = new ServletProcessingContext(this.request, this, this.getSlingResponse(), this.contentType);
         Processor found = null;
-        final List<ProcessorConfiguration> processorConfigs = this.processorManager.getProcessorConfigurations();
+        // our own manager already knows which configurations match
+        final boolean matched = this.processorManager instanceof ProcessorManagerImpl;
+        final List<ProcessorConfiguration> processorConfigs;
+        if ( matched ) {
+            processorConfigs = ((ProcessorManagerImpl)this.processorManager).getMatchingProcessorConfigurations(processorContext);
+        } else {
+            processorConfigs = this.processorManager.getProcessorConfigurations();
+        }
         final Iterator<ProcessorConfiguration> i = processorConfigs.iterator();
         while ( found == null && i.hasNext() ) {
             final ProcessorConfiguration config = i.next();
-            if ( config.match(processorContext) ) {
+            if ( matched || config.match(processorContext) ) {
                 try {
                     found = this.processorManager.getProcessor(config, processorContext);
                     this.request.getRequestProgressTracker().log("Found processor for post processing {0}", config);
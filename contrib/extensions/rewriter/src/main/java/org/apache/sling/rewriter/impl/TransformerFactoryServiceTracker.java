@@ -16,7 +16,9 @@
  */
 package org.apache.sling.rewriter.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.sling.rewriter.ProcessingContext;
 import org.apache.sling.rewriter.TransformerFactory;
@@ -43,7 +45,7 @@ final class TransformerFactoryServiceTracker<T> extends HashingServiceTrackerCus
     public static final TransformerFactory[] EMPTY_FACTORY_ARRAY = new TransformerFactory[0];
     public static final TransformerFactory[][] EMPTY_DOUBLE_FACTORY_ARRAY = new TransformerFactory[][] {EMPTY_FACTORY_ARRAY, EMPTY_FACTORY_ARRAY};
 
-    private TransformerFactoryEntry[][] cached = EMPTY_DOUBLE_ENTRY_ARRAY;
+    private volatile GlobalFactories cached = new GlobalFactories(EMPTY_DOUBLE_ENTRY_ARRAY);
 
     /** flag for cache. */
     private boolean cacheIsValid = true;
@@ -84,12 +86,16 @@ final class TransformerFactoryServiceTracker<T> extends HashingServiceTrackerCus
      * @return Two arrays of transformer factories
      */
     public TransformerFactoryEntry[][] getGlobalTransformerFactoryEntries() {
+        return this.getGlobalFactories().entries;
+    }
+
+    private GlobalFactories getGlobalFactories() {
         if ( !this.cacheIsValid ) {
             synchronized ( this ) {
                 if ( !this.cacheIsValid ) {
                     final ServiceReference[] refs = this.getServiceReferences();
                     if ( refs == null || refs.length == 0 ) {
-                        this.cached = EMPTY_DOUBLE_ENTRY_ARRAY;
+                        this.cached = new GlobalFactories(EMPTY_DOUBLE_ENTRY_ARRAY);
                     } else {
                         Arrays.sort(refs, ServiceReferenceComparator.INSTANCE);
 
@@ -128,7 +134,7 @@ final class TransformerFactoryServiceTracker<T> extends HashingServiceTrackerCus
                                 index++;
                             }
                         }
-                        this.cached = globalFactories;
+                        this.cached = new GlobalFactories(globalFactories);
                     }
                 }
                 this.cacheIsValid = true;
@@ -140,29 +146,71 @@ final class TransformerFactoryServiceTracker<T> extends HashingServiceTrackerCus
 
     /**
      * Get all global transformer factories that apply to the current request.
+     * The result is cached by the request characteristics checked by the factories
+     * and must not be modified. If a factory checks the resource type, the result
+     * is not cached, as the resource type hierarchy might change at any time.
      * @param context The current processing context.
      * @return Two arrays containing the transformer factories.
      */
     public TransformerFactory[][] getGlobalTransformerFactories(final ProcessingContext context) {
-        final TransformerFactoryEntry[][] globalFactoryEntries = this.getGlobalTransformerFactoryEntries();
+        final GlobalFactories globalFactories = this.getGlobalFactories();
+        final TransformerFactoryEntry[][] globalFactoryEntries = globalFactories.entries;
         // quick check
         if ( globalFactoryEntries == EMPTY_DOUBLE_ENTRY_ARRAY ) {
             return EMPTY_DOUBLE_FACTORY_ARRAY;
         }
+        if ( globalFactories.matches.checksResourceType() ) {
+            return this.match(globalFactoryEntries, context);
+        }
+        final MatchKey key = globalFactories.matches.getKey(context.getRequest(), context.getContentType());
+        TransformerFactory[][] factories = globalFactories.matches.get(key);
+        if ( factories == null ) {
+            factories = this.match(globalFactoryEntries, context);
+            globalFactories.matches.put(key, factories);
+        }
+        return factories;
+    }
+
+    private TransformerFactory[][] match(final TransformerFactoryEntry[][] globalFactoryEntries, final ProcessingContext context) {
         final TransformerFactory[][] factories = new TransformerFactory[2][];
         for(int i=0; i<2; i++) {
-            if ( globalFactoryEntries[i] == EMPTY_ENTRY_ARRAY ) {
-                factories[i] = EMPTY_FACTORY_ARRAY;
-            } else {
-                factories[i] = new TransformerFactory[globalFactoryEntries[i].length];
-                for(int m=0; m<globalFactoryEntries[i].length; m++) {
-                    final TransformerFactoryEntry entry = globalFactoryEntries[i][m];
+            factories[i] = EMPTY_FACTORY_ARRAY;
+            if ( globalFactoryEntries[i] != EMPTY_ENTRY_ARRAY ) {
+                final List<TransformerFactory> matching = new ArrayList<TransformerFactory>();
+                for(final TransformerFactoryEntry entry : globalFactoryEntries[i]) {
                     if ( entry.match(context) ) {
-                        factories[i][m] = entry.factory;
+                        matching.add(entry.factory);
                     }
                 }
+                if ( !matching.isEmpty() ) {
+                    factories[i] = matching.toArray(new TransformerFactory[matching.size()]);
+                }
             }
         }
+        if ( factories[0] == EMPTY_FACTORY_ARRAY && factories[1] == EMPTY_FACTORY_ARRAY ) {
+            return EMPTY_DOUBLE_FACTORY_ARRAY;
+        }
         return factories;
     }
-}
\ No newline at end of file
+
+    /**
+     * The global transformer factories together with the cached match results for them.
+     */
+    private static final class GlobalFactories {
+
+        public final TransformerFactoryEntry[][] entries;
+
+        public final MatchCache<TransformerFactory[][]> matches;
+
+        public GlobalFactories(final TransformerFactoryEntry[][] entries) {
+            this.entries = entries;
+            final List<ProcessorConfigurationImpl> configurations = new ArrayList<ProcessorConfigurationImpl>();
+            for(final TransformerFactoryEntry[] array : entries) {
+                for(final TransformerFactoryEntry entry : array) {
+                    configurations.add(entry.getConfiguration());
+                }
+            }
+            this.matches = new MatchCache<TransformerFactory[][]>(configurations, MatchCache.DEFAULT_MAX_SIZE);
+        }
+    }
+}
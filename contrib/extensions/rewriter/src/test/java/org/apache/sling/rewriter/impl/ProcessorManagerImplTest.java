@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.rewriter.ProcessingContext;
+import org.apache.sling.rewriter.ProcessorConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProcessorManagerImplTest {
+
+    @Mock
+    private SlingHttpServletRequest request;
+
+    @Mock
+    private RequestPathInfo requestPathInfo;
+
+    @Mock
+    private ResourceResolver resourceResolver;
+
+    @Mock
+    private Resource resource;
+
+    @Mock
+    private ProcessingContext processingContext;
+
+    private ProcessorManagerImpl manager = new ProcessorManagerImpl();
+
+    @Before
+    public void setup() {
+        when(request.getRequestPathInfo()).thenReturn(requestPathInfo);
+        when(request.getResourceResolver()).thenReturn(resourceResolver);
+        when(request.getResource()).thenReturn(resource);
+        when(requestPathInfo.getExtension()).thenReturn("html");
+        when(requestPathInfo.getResourcePath()).thenReturn("/content/page");
+        when(resource.getResourceType()).thenReturn("app/page");
+        when(resourceResolver.isResourceType(resource, "app/page")).thenReturn(true);
+        when(processingContext.getContentType()).thenReturn("text/html;charset=UTF-8");
+        when(processingContext.getRequest()).thenReturn(request);
+    }
+
+    private ProcessorConfigurationImpl addConfig(String name, String[] extensions, String[] resourceTypes, int order) {
+        final ProcessorConfigurationImpl config = new ProcessorConfigurationImpl(null, null, extensions, resourceTypes,
+                false, null, order, null, null, null, true);
+        manager.addProcessor(name, "/apps/rewriter/config/" + name, config);
+        return config;
+    }
+
+    @Test
+    public void testNoConfigurations() {
+        assertTrue(manager.getProcessorConfigurations().isEmpty());
+        assertFalse(manager.mayMatch(request));
+        assertTrue(manager.getMatchingProcessorConfigurations(processingContext).isEmpty());
+    }
+
+    @Test
+    public void testMatchingConfigurations() {
+        final ProcessorConfiguration html = addConfig("html", new String[] {"html"}, null, 1);
+        final ProcessorConfiguration page = addConfig("page", null, new String[] {"app/page"}, 2);
+        addConfig("json", new String[] {"json"}, null, 3);
+
+        assertEquals(3, manager.getProcessorConfigurations().size());
+        assertTrue(manager.mayMatch(request));
+        // ordered by descending order
+        assertEquals(Arrays.asList(page, html), manager.getMatchingProcessorConfigurations(processingContext));
+    }
+
+    @Test
+    public void testResourceTypeIsCheckedForEachRequest() {
+        final ProcessorConfiguration page = addConfig("page", null, new String[] {"app/page"}, 1);
+
+        assertEquals(Collections.singletonList(page), manager.getMatchingProcessorConfigurations(processingContext));
+        assertEquals(Collections.singletonList(page), manager.getMatchingProcessorConfigurations(processingContext));
+        verify(resourceResolver, times(2)).isResourceType(resource, "app/page");
+
+        // the resource super type has been changed
+        when(resourceResolver.isResourceType(resource, "app/page")).thenReturn(false);
+        assertTrue(manager.getMatchingProcessorConfigurations(processingContext).isEmpty());
+        assertFalse(manager.mayMatch(request));
+    }
+
+    @Test
+    public void testKeyContainsMatchedPaths() {
+        final ProcessorConfigurationImpl config = new ProcessorConfigurationImpl(null, new String[] {"/content/a", "/content"},
+                null, null, false, null, 0, null, null, null, true);
+        final MatchCache<Boolean> cache = new MatchCache<Boolean>(Collections.singletonList(config), MatchCache.DEFAULT_MAX_SIZE);
+
+        final MatchKey key = cache.getKey(request, null);
+        when(requestPathInfo.getResourcePath()).thenReturn("/content/page2");
+        assertEquals(key, cache.getKey(request, null));
+        when(requestPathInfo.getResourcePath()).thenReturn("/content/a/page");
+        assertFalse(key.equals(cache.getKey(request, null)));
+        when(requestPathInfo.getResourcePath()).thenReturn("/libs/page");
+        assertFalse(key.equals(cache.getKey(request, null)));
+    }
+
+    @Test
+    public void testCacheIsDroppedOnChange() {
+        addConfig("json", new String[] {"json"}, null, 1);
+        assertFalse(manager.mayMatch(request));
+        assertTrue(manager.getMatchingProcessorConfigurations(processingContext).isEmpty());
+
+        final ProcessorConfiguration html = addConfig("html", new String[] {"html"}, null, 2);
+        assertTrue(manager.mayMatch(request));
+        assertEquals(Collections.singletonList(html), manager.getMatchingProcessorConfigurations(processingContext));
+    }
+
+    @Test
+    public void testMayMatchIgnoresContentType() {
+        final ProcessorConfigurationImpl config = new ProcessorConfigurationImpl(new String[] {"text/xml"}, null,
+                new String[] {"html"}, null, false, null, 0, null, null, null, true);
+        manager.addProcessor("xml", "/apps/rewriter/config/xml", config);
+
+        assertTrue(manager.mayMatch(request));
+        assertTrue(manager.getMatchingProcessorConfigurations(processingContext).isEmpty());
+    }
+}
@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -33,9 +35,13 @@ import javax.script.SimpleScriptContext;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,10 +56,30 @@ public class PipeBindings {
 
     public static final String PN_ADDITIONALSCRIPTS = "additionalScripts";
 
-    ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
+    /**
+     * maximum number of compiled scripts kept in the shared cache
+     */
+    static final int COMPILED_CACHE_SIZE = 1000;
+
+    /**
+     * script engine is shared by all bindings, each bindings object evaluating
+     * scripts in its own script context
+     */
+    ScriptEngine engine = SharedEngine.ENGINE;
 
     ScriptContext scriptContext = new SimpleScriptContext();
 
+    /**
+     * expressions already parsed by this bindings object
+     */
+    Map<String, Expression> expressions = new HashMap<>();
+
+    /**
+     * true as soon as an additional script has been evaluated in this context, in which case
+     * top level variables can't be resolved from the bindings only anymore
+     */
+    boolean scripted = false;
+
     public static final String PATH_BINDING = "path";
 
     Map<String, String> pathBindings = new HashMap<>();
@@ -62,11 +88,31 @@ public class PipeBindings {
 
     private static final Pattern INJECTED_SCRIPT = Pattern.compile("\\$\\{(([^\\{^\\}]*(\\{[0-9,]+\\})?)*)\\}");
 
+    /**
+     * simple property path, like <code>a.b.c</code>, that can be resolved without the script engine
+     */
+    private static final Pattern PROPERTY_PATH = Pattern.compile("\\s*([a-zA-Z_$][\\w$]*(\\s*\\.\\s*[a-zA-Z_$][\\w$]*)*)\\s*");
+
+    /**
+     * marker of a property path that can't be resolved natively
+     */
+    private static final Object UNRESOLVED = new Object();
+
+    /**
+     * compiled scripts, shared between all bindings as they don't hold any state
+     */
+    private static final Map<String, CompiledScript> COMPILED_SCRIPTS = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                    return size() > COMPILED_CACHE_SIZE;
+                }
+            });
+
     /**
      * public constructor
      */
     public PipeBindings(Resource resource){
-        engine.setContext(scriptContext);
         //add path bindings where path.MyPipe will give MyPipe current resource path
         getBindings().put(PATH_BINDING, pathBindings);
 
@@ -111,6 +157,7 @@ public class PipeBindings {
             }
             if (is != null) {
                 try {
+                    scripted = true;
                     engine.eval(new InputStreamReader(is), scriptContext);
                 } catch (Exception e) {
                     log.error("unable to execute {}", path);
@@ -132,6 +179,7 @@ public class PipeBindings {
 
     public void copyBindings(PipeBindings original){
         getBindings().putAll(original.getBindings());
+        scripted |= original.scripted;
     }
 
     /**
@@ -201,12 +249,156 @@ public class PipeBindings {
      * @throws ScriptException
      */
     protected Object evaluate(String expr) throws ScriptException {
-        String computed = computeECMA5Expression(expr);
-        if (computed != null){
-            //computed is null in case expr is a simple string
-            return engine.eval(computed, scriptContext);
+        Expression expression = expressions.get(expr);
+        if (expression == null) {
+            expression = new Expression(expr, computeECMA5Expression(expr));
+            expressions.put(expr, expression);
         }
-        return expr;
+        return expression.evaluate();
+    }
+
+    /**
+     * @param source ECMA5 script
+     * @return compiled script, from the cache if <code>source</code> has already been compiled
+     * @throws ScriptException
+     */
+    static CompiledScript compile(String source) throws ScriptException {
+        CompiledScript script = COMPILED_SCRIPTS.get(source);
+        if (script == null) {
+            synchronized (SharedEngine.ENGINE) {
+                script = ((Compilable) SharedEngine.ENGINE).compile(source);
+            }
+            COMPILED_SCRIPTS.put(source, script);
+        }
+        return script;
+    }
+
+    /**
+     * resolves a property path from the bindings, going down maps only
+     * @param path segments of the path
+     * @return value of the path, {@link #UNRESOLVED} if the script engine is needed for resolving it
+     */
+    Object resolve(String[] path) {
+        Bindings bindings = getBindings();
+        if (scripted || !bindings.containsKey(path[0])) {
+            return UNRESOLVED;
+        }
+        Object value = bindings.get(path[0]);
+        for (int i = 1; i < path.length; i++) {
+            //nashorn reads a map entry if there is one, bean properties & methods otherwise
+            if (!(value instanceof Map) || !((Map) value).containsKey(path[i])) {
+                return UNRESOLVED;
+            }
+            value = ((Map) value).get(path[i]);
+        }
+        return value;
+    }
+
+    /**
+     * @param value
+     * @return true if the ECMA string conversion of the value is the same as the java one
+     */
+    static boolean isNativelyConcatenable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * expression parsed once: plain string, concatenation of literals & property paths that can be
+     * resolved from the bindings, or script evaluated by the engine
+     */
+    class Expression {
+        final String expr;
+
+        /**
+         * ECMA5 script of the expression, null for a plain string
+         */
+        final String source;
+
+        /**
+         * literal strings and property paths (as String[]) of the expression, null if the expression
+         * contains something else than property paths
+         */
+        final List<Object> parts;
+
+        CompiledScript script;
+
+        Expression(String expr, String source) {
+            this.expr = expr;
+            this.source = source;
+            this.parts = source == null ? null : parse(expr);
+        }
+
+        /**
+         * @param expr
+         * @return parts of the expression if all the injected scripts are property paths, null otherwise
+         */
+        private List<Object> parse(String expr) {
+            List<Object> list = new ArrayList<>();
+            Matcher matcher = INJECTED_SCRIPT.matcher(expr);
+            int start = 0;
+            while (matcher.find()) {
+                Matcher path = PROPERTY_PATH.matcher(matcher.group(1));
+                if (!path.matches()) {
+                    return null;
+                }
+                if (matcher.start() > start) {
+                    list.add(expr.substring(start, matcher.start()));
+                }
+                list.add(path.group(1).replaceAll("\\s", "").split("\\."));
+                start = matcher.end();
+            }
+            if (start < expr.length()) {
+                list.add(expr.substring(start));
+            }
+            return list;
+        }
+
+        Object evaluate() throws ScriptException {
+            if (source == null) {
+                //plain string
+                return expr;
+            }
+            if (parts != null) {
+                Object value = evaluateParts();
+                if (value != UNRESOLVED) {
+                    return value;
+                }
+            }
+            if (script == null) {
+                script = compile(source);
+            }
+            return script.eval(scriptContext);
+        }
+
+        /**
+         * @return value of the expression resolved from the bindings, {@link #UNRESOLVED} if not possible
+         */
+        private Object evaluateParts() {
+            if (parts.size() == 1 && parts.get(0) instanceof String[]) {
+                return resolve((String[]) parts.get(0));
+            }
+            StringBuilder builder = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof String) {
+                    builder.append((String) part);
+                } else {
+                    Object value = resolve((String[]) part);
+                    if (value == UNRESOLVED || !isNativelyConcatenable(value)) {
+                        return UNRESOLVED;
+                    }
+                    builder.append(value);
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * lazy holder of the script engine shared by all bindings
+     */
+    private static class SharedEngine {
+        static final ScriptEngine ENGINE = new ScriptEngineManager().getEngineByName("nashorn");
     }
 
     /**
@@ -19,6 +19,7 @@ package org.apache.sling.pipes;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.event.jobs.Job;
 
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +31,39 @@ public interface Plumber {
 
     String RESOURCE_TYPE = "slingPipes/plumber";
 
+    /**
+     * topic of the jobs executing pipes asynchronously
+     */
+    String SLING_EVENT_TOPIC = "org/apache/sling/pipes/topic";
+
+    /**
+     * status of the last asynchronous execution, written on the pipe resource
+     */
+    String PN_STATUS = "status";
+
+    /**
+     * date of the last status update
+     */
+    String PN_STATUS_MODIFIED = "statusModified";
+
+    /**
+     * number of output resources of the last asynchronous execution that have been saved
+     */
+    String PN_STATUS_PROCESSED = "statusProcessed";
+
+    /**
+     * path of the last output resource of the last asynchronous execution that has been saved
+     */
+    String PN_STATUS_POSITION = "statusPosition";
+
+    String STATUS_STARTED = "started";
+
+    String STATUS_FINISHED = "finished";
+
+    String STATUS_STOPPED = "stopped";
+
+    String STATUS_FAILED = "failed";
+
     /**
      * Instantiate a pipe from the given resource and returns it
      * @param resource
@@ -59,6 +93,30 @@ public interface Plumber {
      */
     Set<String> execute(ResourceResolver resolver, Pipe pipe, Map bindings, boolean save) throws Exception;
 
+    /**
+     * Executes a given pipe, streaming its output to a writer rather than collecting it: in case the pipe writes
+     * anything and save is set, changes are saved each time a configured amount of resources has been output
+     * @param resolver resource resolver with which pipe will be executed
+     * @param pipe pipe to execute
+     * @param bindings bindings to add to the execution of the pipe, can be null
+     * @param writer writer each output resource is written to, can be null. Its end is not written
+     * @param save in case that pipe writes anything, wether the plumber should save changes or not
+     *
+     * @return number of resources output by the pipe
+     */
+    int execute(ResourceResolver resolver, Pipe pipe, Map bindings, OutputWriter writer, boolean save) throws Exception;
+
+    /**
+     * Executes a pipe at a certain path, in a sling job, saving changes. Progress of the execution is reported
+     * in the job's progress log, and its status in the pipe resource's status properties
+     * @param resolver resource resolver with which pipe's existence is checked
+     * @param path path of a valid pipe configuration
+     * @param bindings bindings to add to the execution of the pipe, can be null
+     *
+     * @return the created job, or null if the job could not be created
+     */
+    Job executeAsync(ResourceResolver resolver, String path, Map bindings);
+
     /**
      * Persist some pipe changes, and eventually distribute changes
      * @param resolver
@@ -26,6 +26,8 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.io.JSONWriter;
+import org.apache.sling.event.jobs.Job;
 import org.apache.sling.pipes.impl.CustomJsonWriter;
 import org.apache.sling.pipes.impl.CustomWriter;
 import org.slf4j.Logger;
@@ -33,13 +35,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Servlet executing plumber for a pipe path given as 'path' parameter,
- * it can also be launched against a container pipe resource directly (no need for path parameter)
+ * it can also be launched against a container pipe resource directly (no need for path parameter).
+ * With the 'async' parameter set to true, the pipe is executed in a sling job, and only the job id is returned
  *
  */
 @SlingServlet(resourceTypes = {Plumber.RESOURCE_TYPE,
@@ -58,6 +61,10 @@ public class PlumberServlet extends SlingAllMethodsServlet {
 
     protected static final String PARAM_SIZE = "size";
 
+    protected static final String PARAM_ASYNC = "async";
+
+    protected static final String KEY_JOB_ID = "jobId";
+
     public static final int NB_MAX = 10;
 
     @Reference
@@ -88,10 +95,10 @@ public class PlumberServlet extends SlingAllMethodsServlet {
             ResourceResolver resolver = request.getResourceResolver();
             Resource pipeResource = resolver.getResource(path);
             Pipe pipe = plumber.getPipe(pipeResource);
-            PipeBindings bindings = pipe.getBindings();
+            Map<String, Object> bindings = new HashMap<>();
 
             if (StringUtils.isNotBlank(dryRun) && dryRun.equals(Boolean.TRUE.toString())) {
-                bindings.addBinding(BasePipe.DRYRUN_KEY, true);
+                bindings.put(BasePipe.DRYRUN_KEY, true);
             }
 
             String paramBindings = request.getParameter(PARAM_BINDINGS);
@@ -100,7 +107,7 @@ public class PlumberServlet extends SlingAllMethodsServlet {
                     JSONObject bindingJSON = new JSONObject(paramBindings);
                     for (Iterator<String> keys = bindingJSON.keys(); keys.hasNext();){
                         String key = keys.next();
-                        bindings.addBinding(key, bindingJSON.get(key));
+                        bindings.put(key, bindingJSON.get(key));
                     }
                 } catch (Exception e){
                     log.error("Unable to retrieve bindings information", e);
@@ -109,24 +116,70 @@ public class PlumberServlet extends SlingAllMethodsServlet {
             if (!writeAllowed && pipe.modifiesContent()) {
                 throw new Exception("This pipe modifies content, you should use a POST request");
             }
-            OutputWriter writer = getWriter(request, response, pipe);
-            int i = 0;
-            Iterator<Resource> resourceIterator = pipe.getOutput();
-            Set<String> paths = new HashSet<String>();
-            while (resourceIterator.hasNext()){
-                Resource resource = resourceIterator.next();
-                paths.add(resource.getPath());
-                if (++i < size) {
-                    writer.writeItem(resource);
+            if (Boolean.parseBoolean(request.getParameter(PARAM_ASYNC))) {
+                Job job = plumber.executeAsync(resolver, path, bindings);
+                if (job == null) {
+                    throw new Exception("unable to start an asynchronous execution of " + path);
                 }
+                response.setCharacterEncoding("utf-8");
+                response.setContentType("application/json");
+                JSONWriter jsonWriter = new JSONWriter(response.getWriter());
+                jsonWriter.object();
+                jsonWriter.key(KEY_JOB_ID).value(job.getId());
+                jsonWriter.endObject();
+                return;
+            }
+            for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+                pipe.getBindings().addBinding(binding.getKey(), binding.getValue());
             }
+            OutputWriter writer = new LimitedOutputWriter(getWriter(request, response, pipe), size);
+            int i = plumber.execute(resolver, pipe, null, writer, true);
             writer.ends(i);
-            plumber.persist(resolver, pipe, paths);
         } catch (Exception e) {
             throw new ServletException(e);
         }
     }
 
+    /**
+     * only writes the first items of the output to another writer, resources beyond are output by the pipe but not
+     * written
+     */
+    static class LimitedOutputWriter implements OutputWriter {
+
+        private final OutputWriter delegate;
+
+        private final int size;
+
+        private int count = 0;
+
+        LimitedOutputWriter(OutputWriter delegate, int size) {
+            this.delegate = delegate;
+            this.size = size;
+        }
+
+        @Override
+        public boolean handleRequest(SlingHttpServletRequest request) {
+            return delegate.handleRequest(request);
+        }
+
+        @Override
+        public void init(SlingHttpServletRequest request, SlingHttpServletResponse response, Pipe pipe) throws IOException, JSONException {
+            delegate.init(request, response, pipe);
+        }
+
+        @Override
+        public void writeItem(Resource resource) throws JSONException {
+            if (++count < size) {
+                delegate.writeItem(resource);
+            }
+        }
+
+        @Override
+        public void ends(int size) throws JSONException {
+            delegate.ends(size);
+        }
+    }
+
     OutputWriter getWriter(SlingHttpServletRequest request, SlingHttpServletResponse response, Pipe pipe) throws IOException, JSONException {
         OutputWriter[] candidates = new OutputWriter[]{new CustomJsonWriter(), new CustomWriter(), new DefaultOutputWriter()};
         for (OutputWriter candidate : candidates) {
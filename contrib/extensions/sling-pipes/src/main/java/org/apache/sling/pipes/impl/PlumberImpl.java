@@ -19,18 +19,28 @@ package org.apache.sling.pipes.impl;
 import org.apache.commons.lang.StringUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Properties;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.json.JSONObject;
 import org.apache.sling.distribution.DistributionRequest;
 import org.apache.sling.distribution.DistributionRequestType;
 import org.apache.sling.distribution.DistributionResponse;
 import org.apache.sling.distribution.Distributor;
 import org.apache.sling.distribution.SimpleDistributionRequest;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+import org.apache.sling.event.jobs.consumer.JobExecutor;
 import org.apache.sling.pipes.AuthorizablePipe;
 import org.apache.sling.pipes.BasePipe;
 import org.apache.sling.pipes.ContainerPipe;
@@ -39,6 +49,7 @@ import org.apache.sling.pipes.JsonPipe;
 import org.apache.sling.pipes.MovePipe;
 import org.apache.sling.pipes.MultiPropertyPipe;
 import org.apache.sling.pipes.NotPipe;
+import org.apache.sling.pipes.OutputWriter;
 import org.apache.sling.pipes.ParentPipe;
 import org.apache.sling.pipes.PathPipe;
 import org.apache.sling.pipes.Pipe;
@@ -51,6 +62,8 @@ import org.apache.sling.pipes.XPathPipe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -59,20 +72,56 @@ import java.util.Set;
 
 
 /**
- * implements plumber interface, and registers default pipes
+ * implements plumber interface, and registers default pipes. It also executes the pipes of jobs with the
+ * {@link Plumber#SLING_EVENT_TOPIC} topic
  */
-@Component
-@Service
-public class PlumberImpl implements Plumber {
+@Component(metatype = true, label = "Apache Sling Pipes Plumber", description = "executes pipes")
+@Service(value = {Plumber.class, JobExecutor.class})
+@Properties({
+        @Property(name = JobExecutor.PROPERTY_TOPICS, value = Plumber.SLING_EVENT_TOPIC, propertyPrivate = true),
+        @Property(name = PlumberImpl.PN_BUFFER_SIZE, intValue = PlumberImpl.DEFAULT_BUFFER_SIZE,
+                label = "Buffer size",
+                description = "number of resources output by a content modifying pipe after which changes are saved")
+})
+public class PlumberImpl implements Plumber, JobExecutor {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+    public static final String PN_BUFFER_SIZE = "bufferSize";
+
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    /**
+     * job property holding the json representation of the additional bindings
+     */
+    public static final String PN_JOB_BINDINGS = "bindings";
+
+    /**
+     * sub service name of the resource resolver asynchronous executions run with. A service user mapping
+     * for org.apache.sling.pipes:async is required, the mapped user needs to be able to read the pipe
+     * and to modify the content it changes
+     */
+    public static final String SUBSERVICE_ASYNC = "async";
+
     Map<String, Class<? extends BasePipe>> registry;
 
+    int bufferSize = DEFAULT_BUFFER_SIZE;
+
     @Reference(policy= ReferencePolicy.DYNAMIC, cardinality= ReferenceCardinality.OPTIONAL_UNARY)
     protected volatile Distributor distributor = null;
 
+    @Reference(policy= ReferencePolicy.DYNAMIC, cardinality= ReferenceCardinality.OPTIONAL_UNARY)
+    protected volatile JobManager jobManager = null;
+
+    @Reference
+    protected ResourceResolverFactory factory;
+
     @Activate
-    public void activate(){
+    public void activate(Map<String, Object> properties){
+        Object size = properties.get(PN_BUFFER_SIZE);
+        bufferSize = size != null ? Integer.parseInt(size.toString()) : DEFAULT_BUFFER_SIZE;
+        if (bufferSize <= 0) {
+            bufferSize = DEFAULT_BUFFER_SIZE;
+        }
         registry = new HashMap<>();
         registerPipe(BasePipe.RESOURCE_TYPE, BasePipe.class);
         registerPipe(ContainerPipe.RESOURCE_TYPE, ContainerPipe.class);
@@ -118,24 +167,183 @@ public class PlumberImpl implements Plumber {
 
     @Override
     public Set<String> execute(ResourceResolver resolver, Pipe pipe, Map additionalBindings, boolean save) throws Exception {
+        Set<String> set = new HashSet<>();
+        execute(resolver, pipe, additionalBindings, null, save, set, null, null);
+        return set;
+    }
+
+    @Override
+    public int execute(ResourceResolver resolver, Pipe pipe, Map additionalBindings, OutputWriter writer, boolean save) throws Exception {
+        return execute(resolver, pipe, additionalBindings, writer, save, null, null, null);
+    }
+
+    /**
+     * executes a pipe, saving changes each time {@link #bufferSize} resources have been output
+     * @param collected if not null, all output paths are collected in that set
+     * @param statusResource if not null, status of the execution is written on that resource each time changes are saved
+     * @param context if not null, progress is reported to that job context, and execution stops if the job is stopped
+     * @return number of resources output by the pipe
+     */
+    protected int execute(ResourceResolver resolver, Pipe pipe, Map additionalBindings, OutputWriter writer, boolean save,
+                          Set<String> collected, Resource statusResource, JobExecutionContext context) throws Exception {
         if (additionalBindings != null && pipe instanceof ContainerPipe){
             pipe.getBindings().addBindings(additionalBindings);
         }
 
         log.info("[{}] execution starts, save ({})", pipe, save);
-        Set<String> set = new HashSet<>();
+        long start = System.currentTimeMillis();
+        int count = 0;
+        int pending = 0;
+        String position = null;
+        Set<String> paths = new HashSet<>();
         for (Iterator<Resource> it = pipe.getOutput(); it.hasNext();){
+            if (context != null && context.isStopped()) {
+                log.info("[{}] job has been stopped after {} resources", pipe.getName(), count);
+                break;
+            }
             Resource resource = it.next();
             if (resource != null) {
                 log.debug("[{}] retrieved {}", pipe.getName(), resource.getPath());
-                set.add(resource.getPath());
+                count++;
+                position = resource.getPath();
+                if (collected != null) {
+                    collected.add(position);
+                }
+                if (writer != null) {
+                    writer.writeItem(resource);
+                }
+                if (save) {
+                    paths.add(position);
+                    if (++pending >= bufferSize) {
+                        checkpoint(resolver, pipe, paths, statusResource, STATUS_STARTED, count, position);
+                        reportProgress(context, count, position, start);
+                        paths.clear();
+                        pending = 0;
+                    }
+                }
             }
         }
         if (save) {
-            persist(resolver, pipe, set);
+            String status = context != null && context.isStopped() ? STATUS_STOPPED : STATUS_FINISHED;
+            checkpoint(resolver, pipe, paths, statusResource, status, count, position);
+        }
+        reportProgress(context, count, position, start);
+        log.info("[{}] done executing, {} resources output in {}ms.",
+                new Object[]{pipe.getName(), count, System.currentTimeMillis() - start});
+        return count;
+    }
+
+    /**
+     * saves pipe's changes, and then the execution status if a status resource is given
+     */
+    private void checkpoint(ResourceResolver resolver, Pipe pipe, Set<String> paths, Resource statusResource,
+                            String status, int count, String position) throws PersistenceException {
+        persist(resolver, pipe, paths);
+        if (statusResource != null) {
+            writeStatus(statusResource, status, count, position);
+        }
+    }
+
+    /**
+     * writes & saves the status of a pipe execution on a pipe resource
+     */
+    private void writeStatus(Resource pipeResource, String status, int count, String position) throws PersistenceException {
+        ModifiableValueMap properties = pipeResource.adaptTo(ModifiableValueMap.class);
+        if (properties == null) {
+            log.warn("unable to write status of {}", pipeResource.getPath());
+            return;
+        }
+        properties.put(PN_STATUS, status);
+        properties.put(PN_STATUS_MODIFIED, Calendar.getInstance());
+        properties.put(PN_STATUS_PROCESSED, count);
+        if (position != null) {
+            properties.put(PN_STATUS_POSITION, position);
+        } else {
+            properties.remove(PN_STATUS_POSITION);
+        }
+        pipeResource.getResourceResolver().commit();
+    }
+
+    private void reportProgress(JobExecutionContext context, int count, String position, long start) {
+        if (context != null) {
+            long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+            context.log("{0} resources processed in {1}ms ({2} resources/s), last one is {3}",
+                    count, elapsed, count * 1000L / elapsed, position);
+        }
+    }
+
+    @Override
+    public Job executeAsync(ResourceResolver resolver, String path, Map bindings) {
+        if (jobManager == null) {
+            log.error("no job manager is available, {} can't be executed asynchronously", path);
+            return null;
+        }
+        if (resolver.getResource(path) == null) {
+            log.error("there is no pipe configured at {}", path);
+            return null;
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Pipe.PN_PATH, path);
+        if (bindings != null && !bindings.isEmpty()) {
+            properties.put(PN_JOB_BINDINGS, new JSONObject(bindings).toString());
+        }
+        return jobManager.addJob(SLING_EVENT_TOPIC, properties);
+    }
+
+    @Override
+    public JobExecutionResult process(Job job, JobExecutionContext context) {
+        String path = job.getProperty(Pipe.PN_PATH, String.class);
+        ResourceResolver resolver = null;
+        Resource pipeResource = null;
+        Pipe pipe = null;
+        try {
+            resolver = factory.getServiceResourceResolver(
+                    Collections.<String, Object>singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE_ASYNC));
+            pipeResource = resolver.getResource(path);
+            pipe = getPipe(pipeResource);
+            if (pipe == null) {
+                return context.result().message("unable to build pipe based on configuration at " + path).cancelled();
+            }
+            String bindings = job.getProperty(PN_JOB_BINDINGS, String.class);
+            if (StringUtils.isNotBlank(bindings)) {
+                JSONObject bindingJSON = new JSONObject(bindings);
+                for (Iterator<String> keys = bindingJSON.keys(); keys.hasNext();){
+                    String key = keys.next();
+                    pipe.getBindings().addBinding(key, bindingJSON.get(key));
+                }
+            }
+            writeStatus(pipeResource, STATUS_STARTED, 0, null);
+            int count = execute(resolver, pipe, null, null, true, null, pipeResource, context);
+            if (context.isStopped()) {
+                return context.result().message("stopped after " + count + " resources").cancelled();
+            }
+            return context.result().message(count + " resources processed").succeeded();
+        } catch (Exception e) {
+            log.error("unable to execute pipe {}", path, e);
+            if (resolver != null && pipeResource != null) {
+                try {
+                    resolver.revert();
+                    resolver.refresh();
+                    Resource resource = resolver.getResource(path);
+                    if (resource != null) {
+                        writeStatus(resource, STATUS_FAILED, resource.getValueMap().get(PN_STATUS_PROCESSED, 0),
+                                resource.getValueMap().get(PN_STATUS_POSITION, String.class));
+                    }
+                } catch (PersistenceException pe) {
+                    log.error("unable to write failure status of {}", path, pe);
+                }
+            }
+            // changes of a content modifying pipe might have been saved already: running it again from the start,
+            // on top of those changes, isn't safe (e.g. for a move or a remove), so such a job is not retried
+            if (pipe != null && (!pipe.modifiesContent() || pipe.isDryRun())) {
+                return context.result().message(e.getMessage()).failed();
+            }
+            return context.result().message(e.getMessage()).cancelled();
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
         }
-        log.info("[{}] done executing.", pipe.getName());
-        return set;
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.apache.sling.testing.mock.sling.junit.SlingContext;
 import org.junit.Before;
 import org.junit.Rule;
 
+import java.util.HashMap;
 import java.util.Iterator;
 
 import static org.junit.Assert.assertEquals;
@@ -52,7 +53,7 @@ public class AbstractPipeTest {
     @Before
     public void setup(){
         PlumberImpl plumberImpl = new PlumberImpl();
-        plumberImpl.activate();
+        plumberImpl.activate(new HashMap<String, Object>());
         plumberImpl.registerPipe("slingPipes/dummyNull", DummyNull.class);
         plumberImpl.registerPipe("slingPipes/dummySearch", DummySearch.class);
         plumber = plumberImpl;
@@ -105,6 +105,48 @@ public class PipeBindingsTest extends AbstractPipeTest {
         assertEquals("date should be correct", 12, cal.get(Calendar.DAY_OF_MONTH));
     }
 
+    @Test
+    public void testPropertyPaths() throws Exception {
+        PipeBindings bindings = getDummyTreeBinding();
+        Map<String, Object> testMap = new HashMap<>();
+        testMap.put("count", 3L);
+        testMap.put("ratio", 2.0);
+        bindings.getBindings().put("test", testMap);
+        assertEquals("long value should be kept as is", 3L, bindings.instantiateObject("${test.count}"));
+        assertEquals("long value should be concatenated", "3 items", bindings.instantiateExpression("${test.count} items"));
+        assertEquals("double value should be concatenated the ECMA way", "2 items", bindings.instantiateExpression("${test.ratio} items"));
+        assertEquals("expression not being a property path should be evaluated", 4L, ((Number)bindings.instantiateObject("${test.count + 1}")).longValue());
+        assertEquals("map methods should still be available", 2, ((Number)bindings.instantiateObject("${test.size()}")).intValue());
+    }
+
+    @Test
+    public void testExpressionsParsedOnce() throws Exception {
+        PipeBindings bindings = getDummyTreeBinding();
+        Map<String, Object> testMap = new HashMap<>();
+        testMap.put("a", "apricots");
+        bindings.getBindings().put("test", testMap);
+        bindings.instantiateExpression("${test.a}");
+        testMap.put("a", "avocados");
+        assertEquals("parsed expression should take the new binding value", "avocados", bindings.instantiateExpression("${test.a}"));
+        assertNull("property path should not need any script", bindings.expressions.get("${test.a}").script);
+        bindings.instantiateExpression("${test.a.toUpperCase()}");
+        assertEquals("expression should be parsed once", 2, bindings.expressions.size());
+        assertNotNull("script should be compiled", bindings.expressions.get("${test.a.toUpperCase()}").script);
+        assertSame("compiled scripts should be shared", PipeBindings.compile("test.a.toUpperCase()"),
+                bindings.expressions.get("${test.a.toUpperCase()}").script);
+    }
+
+    @Test
+    public void testSharedEngine() throws Exception {
+        PipeBindings bindings = getDummyTreeBinding();
+        PipeBindings otherBindings = getDummyTreeBinding();
+        assertSame("script engine should be shared", bindings.engine, otherBindings.engine);
+        bindings.addBinding("x", 1);
+        otherBindings.addBinding("x", 2);
+        assertEquals("each bindings should have its own context", 2, ((Number)bindings.instantiateObject("${x + 1}")).intValue());
+        assertEquals("each bindings should have its own context", 3, ((Number)otherBindings.instantiateObject("${x + 1}")).intValue());
+    }
+
     @Test
     public void testAdditionalBindings() throws Exception {
         Resource resource = context.resourceResolver().getResource(PATH_PIPE + "/" + NN_MOREBINDINGS);
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.pipes;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+import org.apache.sling.pipes.dummies.DummyFailing;
+import org.apache.sling.pipes.impl.PlumberImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * testing the plumber's execution modes
+ */
+public class PlumberTest extends AbstractPipeTest {
+
+    String pipedWritePath = PATH_PIPE + "/" + WritePipeTest.NN_PIPED;
+
+    ResourceResolver jobResolver;
+
+    @Before
+    public void setup() {
+        super.setup();
+        context.load().json("/write.json", PATH_PIPE);
+    }
+
+    private PlumberImpl createPlumber(int bufferSize) {
+        return createPlumber(bufferSize, null);
+    }
+
+    private PlumberImpl createPlumber(int bufferSize, final JobManager manager) {
+        return createPlumber(bufferSize, manager, null);
+    }
+
+    private PlumberImpl createPlumber(int bufferSize, final JobManager manager, final ResourceResolverFactory resolverFactory) {
+        PlumberImpl plumberImpl = new PlumberImpl() {
+            {
+                this.jobManager = manager;
+                this.factory = resolverFactory;
+            }
+        };
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(PlumberImpl.PN_BUFFER_SIZE, bufferSize);
+        plumberImpl.activate(properties);
+        plumberImpl.registerPipe("slingPipes/dummySearch", org.apache.sling.pipes.dummies.DummySearch.class);
+        plumberImpl.registerPipe("slingPipes/dummyFailing", DummyFailing.class);
+        return plumberImpl;
+    }
+
+    /**
+     * creates a plumber processing jobs with the context's resource resolver, which stays open
+     */
+    private PlumberImpl createJobPlumber() throws Exception {
+        jobResolver = mock(ResourceResolver.class, delegatesTo(context.resourceResolver()));
+        doNothing().when(jobResolver).close();
+        ResourceResolverFactory resolverFactory = mock(ResourceResolverFactory.class);
+        when(resolverFactory.getServiceResourceResolver(any(Map.class))).thenReturn(jobResolver);
+        return createPlumber(PlumberImpl.DEFAULT_BUFFER_SIZE, null, resolverFactory);
+    }
+
+    private Job createJob(String path, String bindings) {
+        Job job = mock(Job.class);
+        when(job.getProperty(Pipe.PN_PATH, String.class)).thenReturn(path);
+        when(job.getProperty(PlumberImpl.PN_JOB_BINDINGS, String.class)).thenReturn(bindings);
+        return job;
+    }
+
+    private JobExecutionContext createJobContext(boolean stopped, JobExecutionResult succeeded, JobExecutionResult failed,
+                                                 JobExecutionResult cancelled) {
+        JobExecutionContext.ResultBuilder builder = mock(JobExecutionContext.ResultBuilder.class);
+        when(builder.message(anyString())).thenReturn(builder);
+        when(builder.succeeded()).thenReturn(succeeded);
+        when(builder.failed()).thenReturn(failed);
+        when(builder.cancelled()).thenReturn(cancelled);
+        JobExecutionContext jobContext = mock(JobExecutionContext.class);
+        when(jobContext.result()).thenReturn(builder);
+        when(jobContext.isStopped()).thenReturn(stopped);
+        return jobContext;
+    }
+
+    private String getStatus(String path) {
+        return context.resourceResolver().getResource(path).adaptTo(ValueMap.class).get(Plumber.PN_STATUS, String.class);
+    }
+
+    /**
+     * creates a container pipe writing a property on the apple and then executing given sub pipe
+     */
+    private String createContainerPipe(String name, String resourceType) throws Exception {
+        String path = PATH_PIPE + "/" + name;
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("sling:resourceType", "slingPipes/container");
+        context.create().resource(path, properties);
+        context.create().resource(path + "/conf");
+        properties = new HashMap<>();
+        properties.put("sling:resourceType", "slingPipes/write");
+        properties.put("path", PATH_APPLE);
+        context.create().resource(path + "/conf/write", properties);
+        properties = new HashMap<>();
+        properties.put("jobWritten", "${fruitName}");
+        context.create().resource(path + "/conf/write/conf", properties);
+        properties = new HashMap<>();
+        properties.put("sling:resourceType", resourceType);
+        context.create().resource(path + "/conf/next", properties);
+        context.resourceResolver().commit();
+        return path;
+    }
+
+    @Test
+    public void testBufferedSave() throws Exception {
+        PlumberImpl plumberImpl = createPlumber(1);
+        ResourceResolver resolver = mock(ResourceResolver.class);
+        when(resolver.hasChanges()).thenReturn(true);
+        int size = plumberImpl.execute(resolver, getPipe(pipedWritePath), null, null, true);
+        assertEquals("piped write pipe should output two resources", 2, size);
+        // one save for each output resource, and a last one at the end
+        verify(resolver, times(3)).commit();
+    }
+
+    @Test
+    public void testDefaultBufferSave() throws Exception {
+        PlumberImpl plumberImpl = createPlumber(PlumberImpl.DEFAULT_BUFFER_SIZE);
+        ResourceResolver resolver = mock(ResourceResolver.class);
+        when(resolver.hasChanges()).thenReturn(true);
+        plumberImpl.execute(resolver, getPipe(pipedWritePath), null, null, true);
+        verify(resolver, times(1)).commit();
+    }
+
+    @Test
+    public void testStreamedExecution() throws Exception {
+        int size = plumber.execute(context.resourceResolver(), getPipe(pipedWritePath), null, null, true);
+        assertEquals("piped write pipe should output two resources", 2, size);
+        assertFalse("There should be no more pending changes", context.resourceResolver().hasChanges());
+        WritePipeTest.assertPiped(context.resourceResolver().getResource(PATH_FRUITS));
+    }
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        assertNull("without job manager, no job should be created",
+                plumber.executeAsync(context.resourceResolver(), pipedWritePath, null));
+        JobManager jobManager = mock(JobManager.class);
+        Job job = mock(Job.class);
+        Map<String, Object> jobProperties = new HashMap<>();
+        jobProperties.put(Pipe.PN_PATH, pipedWritePath);
+        when(jobManager.addJob(eq(Plumber.SLING_EVENT_TOPIC), eq(jobProperties))).thenReturn(job);
+        PlumberImpl plumberImpl = createPlumber(PlumberImpl.DEFAULT_BUFFER_SIZE, jobManager);
+        assertSame(job, plumberImpl.executeAsync(context.resourceResolver(), pipedWritePath, null));
+        assertNull("a job should not be created for a missing pipe",
+                plumberImpl.executeAsync(context.resourceResolver(), PATH_PIPE + "/missing", null));
+    }
+
+    @Test
+    public void testProcessJob() throws Exception {
+        JobExecutionResult succeeded = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(false, succeeded, null, null);
+        assertSame(succeeded, createJobPlumber().process(createJob(pipedWritePath, null), jobContext));
+        WritePipeTest.assertPiped(context.resourceResolver().getResource(PATH_FRUITS));
+        assertEquals(Plumber.STATUS_FINISHED, getStatus(pipedWritePath));
+    }
+
+    @Test
+    public void testProcessJobWithBindings() throws Exception {
+        String path = createContainerPipe("bound", "slingPipes/dummyNull");
+        JobExecutionResult succeeded = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(false, succeeded, null, null);
+        assertSame(succeeded, createJobPlumber().process(createJob(path, "{\"fruitName\":\"pomme\"}"), jobContext));
+        assertEquals("pomme", context.resourceResolver().getResource(PATH_APPLE).adaptTo(ValueMap.class).get("jobWritten", String.class));
+    }
+
+    @Test
+    public void testProcessStoppedJob() throws Exception {
+        JobExecutionResult cancelled = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(true, null, null, cancelled);
+        assertSame(cancelled, createJobPlumber().process(createJob(pipedWritePath, null), jobContext));
+        assertEquals(Plumber.STATUS_STOPPED, getStatus(pipedWritePath));
+    }
+
+    @Test
+    public void testProcessFailingModifyingJob() throws Exception {
+        String path = createContainerPipe("failing", "slingPipes/dummyFailing");
+        JobExecutionResult cancelled = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(false, null, mock(JobExecutionResult.class), cancelled);
+        assertSame("a content modifying pipe should not be retried", cancelled,
+                createJobPlumber().process(createJob(path, "{\"fruitName\":\"pomme\"}"), jobContext));
+        verify(jobResolver).revert();
+        verify(jobResolver, times(0)).commit();
+        assertEquals(Plumber.STATUS_FAILED, getStatus(path));
+    }
+
+    @Test
+    public void testProcessFailingReadOnlyJob() throws Exception {
+        String path = PATH_PIPE + "/failingSearch";
+        context.create().resource(path, Collections.<String, Object>singletonMap("sling:resourceType", "slingPipes/dummyFailing"));
+        context.resourceResolver().commit();
+        JobExecutionResult failed = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(false, null, failed, mock(JobExecutionResult.class));
+        assertSame("a pipe not modifying content can be retried", failed,
+                createJobPlumber().process(createJob(path, null), jobContext));
+        assertEquals(Plumber.STATUS_FAILED, getStatus(path));
+    }
+
+    @Test
+    public void testProcessMissingPipe() throws Exception {
+        JobExecutionResult cancelled = mock(JobExecutionResult.class);
+        JobExecutionContext jobContext = createJobContext(false, null, null, cancelled);
+        assertSame(cancelled, createJobPlumber().process(createJob(PATH_PIPE + "/missing", null), jobContext));
+    }
+}
@@ -23,5 +23,18 @@ import aQute.bnd.annotation.ProviderType;
 
 @ProviderType
 public enum SearchStrategy {
-	BFS, DFS, QUERY;
+	BFS, DFS, QUERY,
+
+	/**
+	 * Breadth-first search listing the children of several resources concurrently, using a bounded thread
+	 * pool for each search. As a resource resolver can't be used concurrently, the children are listed with
+	 * clones of the resource resolver, so the resources have to be readable by a cloned resolver.
+	 */
+	PARALLEL,
+
+	/**
+	 * Uses {@link #QUERY} if the selector restricts the resource type, JCR type, name or a property of the
+	 * searched resources, so the query can be answered by an index. Uses {@link #DFS} otherwise.
+	 */
+	AUTO;
 }
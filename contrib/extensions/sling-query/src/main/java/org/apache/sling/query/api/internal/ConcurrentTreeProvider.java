@@ -0,0 +1,55 @@
+/*-
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.query.api.internal;
+
+import java.util.Iterator;
+
+import aQute.bnd.annotation.ConsumerType;
+
+/**
+ * Tree provider which can list children in other threads than the traversing
+ * one, through workers. Only such providers are traversed by the
+ * {@link org.apache.sling.query.api.SearchStrategy#PARALLEL} strategy, other
+ * providers fall back to a sequential breadth-first search.
+ */
+@ConsumerType
+public interface ConcurrentTreeProvider<T> extends TreeProvider<T> {
+
+	/**
+	 * Creates a worker listing children in another thread. Called by the
+	 * traversing thread. A worker is used by a single thread at a time and
+	 * closed once the children of a batch of elements have been listed.
+	 */
+	Worker<T> createWorker();
+
+	/**
+	 * Returns an element listed by a worker as an element of this provider.
+	 * Called by the traversing thread.
+	 * 
+	 * @return the element or {@code null} if it doesn't exist anymore
+	 */
+	T adopt(T element);
+
+	interface Worker<T> {
+		Iterator<T> listChildren(T parent);
+
+		void close();
+	}
+}
@@ -23,12 +23,16 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.sling.query.api.SearchStrategy;
+import org.apache.sling.query.api.internal.ConcurrentTreeProvider;
 import org.apache.sling.query.api.internal.ElementToIteratorFunction;
 import org.apache.sling.query.api.internal.TreeProvider;
 import org.apache.sling.query.iterator.WarningIterator;
 import org.apache.sling.query.iterator.tree.BfsTreeIterator;
 import org.apache.sling.query.iterator.tree.DfsTreeIterator;
+import org.apache.sling.query.iterator.tree.ParallelBfsTreeIterator;
+import org.apache.sling.query.selector.parser.Attribute;
 import org.apache.sling.query.selector.parser.Selector;
 import org.apache.sling.query.selector.parser.SelectorParser;
 import org.apache.sling.query.selector.parser.SelectorSegment;
@@ -43,16 +47,45 @@ public class FindFunction<T> implements ElementToIteratorFunction<T> {
 
 	public FindFunction(SearchStrategy searchStrategy, TreeProvider<T> provider,
 			SelectorSegment preFilteringSelector) {
-		this.strategy = searchStrategy;
 		this.provider = provider;
 		this.preFilteringSelector = Arrays.asList(preFilteringSelector);
+		this.strategy = chooseStrategy(searchStrategy, this.preFilteringSelector);
 	}
 
 	public FindFunction(SearchStrategy searchStrategy, TreeProvider<T> provider, String preFilteringSelector) {
-		this.strategy = searchStrategy;
 		this.provider = provider;
 		List<Selector> selectors = SelectorParser.parse(preFilteringSelector);
 		this.preFilteringSelector = SelectorParser.getFirstSegmentFromEachSelector(selectors);
+		this.strategy = chooseStrategy(searchStrategy, this.preFilteringSelector);
+	}
+
+	private static SearchStrategy chooseStrategy(SearchStrategy strategy, List<SelectorSegment> segments) {
+		if (strategy != SearchStrategy.AUTO) {
+			return strategy;
+		}
+		if (segments.isEmpty()) {
+			return SearchStrategy.DFS;
+		}
+		// every alternative has to be restricted, otherwise the query returns all descendants
+		for (SelectorSegment segment : segments) {
+			if (!isRestricted(segment)) {
+				return SearchStrategy.DFS;
+			}
+		}
+		return SearchStrategy.QUERY;
+	}
+
+	private static boolean isRestricted(SelectorSegment segment) {
+		if (StringUtils.isNotBlank(segment.getType()) || StringUtils.isNotBlank(segment.getName())) {
+			return true;
+		}
+		for (Attribute attribute : segment.getAttributes()) {
+			// attributes of descendants are not part of the query
+			if (!attribute.getKey().contains("/")) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	@Override
@@ -62,6 +95,13 @@ public class FindFunction<T> implements ElementToIteratorFunction<T> {
 			case BFS:
 				iterator = new BfsTreeIterator<T>(input, provider);
 				break;
+			case PARALLEL:
+				if (provider instanceof ConcurrentTreeProvider) {
+					iterator = new ParallelBfsTreeIterator<T>(input, (ConcurrentTreeProvider<T>) provider);
+				} else {
+					iterator = new BfsTreeIterator<T>(input, provider);
+				}
+				break;
 			case QUERY:
 				iterator = provider.query(preFilteringSelector, input);
 				break;
@@ -0,0 +1,239 @@
+/*-
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.query.iterator.tree;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.query.api.internal.ConcurrentTreeProvider;
+import org.apache.sling.query.iterator.AbstractIterator;
+
+/**
+ * Breadth-first iterator which lists the children of several elements of the
+ * same level concurrently. The elements are returned in the same order as by
+ * the {@link BfsTreeIterator}.
+ * 
+ * Children are only listed when the consumer asks for more elements, at most
+ * one batch of elements is listed in advance. Therefore no work is left
+ * running if the consumer stops iterating, eg. because of a limit.
+ * 
+ * Children are listed concurrently by workers of the provider, which are
+ * created for each batch and closed once the batch has been listed.
+ * 
+ * Unless an executor is passed, each iterator uses its own pool of daemon
+ * threads. The pool is created for the first batch listed concurrently and
+ * shut down once the whole tree has been traversed. Idle threads are stopped
+ * after a short time, so a pool of an abandoned iterator doesn't keep any
+ * thread running.
+ */
+public class ParallelBfsTreeIterator<T> extends AbstractIterator<T> {
+
+	private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	private static final int DEFAULT_BATCH_SIZE = 2 * POOL_SIZE;
+
+	private static final long KEEP_ALIVE_SECONDS = 5;
+
+	/** Elements whose children haven't been listed yet */
+	private final Deque<T> parents = new LinkedList<T>();
+
+	/** Listed elements which haven't been returned yet */
+	private final Deque<T> listed = new LinkedList<T>();
+
+	private final ConcurrentTreeProvider<T> provider;
+
+	private final int batchSize;
+
+	/** Whether the executor is created and shut down by this iterator */
+	private final boolean ownExecutor;
+
+	private ExecutorService executor;
+
+	public ParallelBfsTreeIterator(T root, ConcurrentTreeProvider<T> provider) {
+		this(root, provider, null, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param executor executor listing the children, it is not shut down by
+	 *            this iterator. If it is {@code null}, the iterator uses its own
+	 *            pool.
+	 */
+	public ParallelBfsTreeIterator(T root, ConcurrentTreeProvider<T> provider, ExecutorService executor,
+			int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size has to be positive");
+		}
+		this.provider = provider;
+		this.executor = executor;
+		this.ownExecutor = executor == null;
+		this.batchSize = batchSize;
+		this.parents.add(root);
+	}
+
+	@Override
+	protected T getElement() {
+		while (listed.isEmpty()) {
+			if (parents.isEmpty()) {
+				shutdown();
+				return null;
+			}
+			listNextBatch();
+		}
+		T element = listed.poll();
+		parents.add(element);
+		return element;
+	}
+
+	private void listNextBatch() {
+		List<T> batch = new ArrayList<T>(batchSize);
+		while (batch.size() < batchSize && !parents.isEmpty()) {
+			batch.add(parents.poll());
+		}
+		List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(batch.size() - 1);
+		List<ConcurrentTreeProvider.Worker<T>> workers = new ArrayList<ConcurrentTreeProvider.Worker<T>>();
+		boolean listedAll = false;
+		try {
+			if (batch.size() > 1) {
+				if (executor == null) {
+					executor = createExecutor();
+				}
+				BlockingQueue<ConcurrentTreeProvider.Worker<T>> idleWorkers = createWorkers(
+						Math.min(batch.size() - 1, POOL_SIZE), workers);
+				for (T parent : batch.subList(1, batch.size())) {
+					futures.add(executor.submit(new ChildrenLister<T>(parent, idleWorkers)));
+				}
+			}
+			// the current thread takes the first element instead of waiting
+			Iterator<T> children = provider.listChildren(batch.get(0));
+			while (children.hasNext()) {
+				listed.add(children.next());
+			}
+			for (Future<List<T>> future : futures) {
+				for (T child : future.get()) {
+					T adopted = provider.adopt(child);
+					if (adopted != null) {
+						listed.add(adopted);
+					}
+				}
+			}
+			listedAll = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while listing children", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Can't list children", cause);
+		} finally {
+			for (Future<List<T>> future : futures) {
+				future.cancel(true);
+			}
+			for (ConcurrentTreeProvider.Worker<T> worker : workers) {
+				worker.close();
+			}
+			if (!listedAll) {
+				shutdown();
+			}
+		}
+	}
+
+	private BlockingQueue<ConcurrentTreeProvider.Worker<T>> createWorkers(int count,
+			List<ConcurrentTreeProvider.Worker<T>> workers) {
+		BlockingQueue<ConcurrentTreeProvider.Worker<T>> idleWorkers = new ArrayBlockingQueue<ConcurrentTreeProvider.Worker<T>>(
+				count);
+		for (int i = 0; i < count; i++) {
+			ConcurrentTreeProvider.Worker<T> worker = provider.createWorker();
+			workers.add(worker);
+			idleWorkers.add(worker);
+		}
+		return idleWorkers;
+	}
+
+	private void shutdown() {
+		if (ownExecutor && executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Creates a bounded pool of daemon threads. Idle threads are stopped and if
+	 * the pool is busy, the children are listed by the calling thread.
+	 */
+	private static ExecutorService createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(DEFAULT_BATCH_SIZE), new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "sling-query-traversal-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static class ChildrenLister<T> implements Callable<List<T>> {
+
+		private final T parent;
+
+		private final BlockingQueue<ConcurrentTreeProvider.Worker<T>> idleWorkers;
+
+		private ChildrenLister(T parent, BlockingQueue<ConcurrentTreeProvider.Worker<T>> idleWorkers) {
+			this.parent = parent;
+			this.idleWorkers = idleWorkers;
+		}
+
+		@Override
+		public List<T> call() throws InterruptedException {
+			ConcurrentTreeProvider.Worker<T> worker = idleWorkers.take();
+			try {
+				List<T> children = new ArrayList<T>();
+				Iterator<T> iterator = worker.listChildren(parent);
+				while (iterator.hasNext()) {
+					children.add(iterator.next());
+				}
+				return children;
+			} finally {
+				idleWorkers.add(worker);
+			}
+		}
+	}
+}
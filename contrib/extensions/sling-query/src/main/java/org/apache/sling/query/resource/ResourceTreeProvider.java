@@ -19,24 +19,35 @@
 
 package org.apache.sling.query.resource;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.query.api.Predicate;
-import org.apache.sling.query.api.internal.TreeProvider;
+import org.apache.sling.query.api.internal.ConcurrentTreeProvider;
 import org.apache.sling.query.resource.jcr.JcrQueryIterator;
 import org.apache.sling.query.resource.jcr.JcrTypeResolver;
 import org.apache.sling.query.resource.jcr.SessionJcrTypeResolver;
 import org.apache.sling.query.selector.parser.Attribute;
 import org.apache.sling.query.selector.parser.SelectorSegment;
 
-public class ResourceTreeProvider implements TreeProvider<Resource> {
+/**
+ * Tree provider for resources. As a resource resolver can't be used
+ * concurrently, each worker listing children in another thread uses its own
+ * clone of the resource resolver. Resources without a resource resolver are
+ * listed directly.
+ */
+public class ResourceTreeProvider implements ConcurrentTreeProvider<Resource> {
+
+	private final ResourceResolver resolver;
 
 	private final JcrTypeResolver typeResolver;
 
 	public ResourceTreeProvider(ResourceResolver resolver) {
+		this.resolver = resolver;
 		this.typeResolver = new SessionJcrTypeResolver(resolver);
 	}
 
@@ -45,6 +56,26 @@ public class ResourceTreeProvider implements TreeProvider<Resource> {
 		return parent.listChildren();
 	}
 
+	@Override
+	public Worker<Resource> createWorker() {
+		if (resolver == null) {
+			return new ResourceWorker(null);
+		}
+		try {
+			return new ResourceWorker(resolver.clone(null));
+		} catch (LoginException e) {
+			throw new IllegalStateException("Can't clone the resource resolver", e);
+		}
+	}
+
+	@Override
+	public Resource adopt(Resource element) {
+		if (resolver == null) {
+			return element;
+		}
+		return resolver.getResource(element.getPath());
+	}
+
 	@Override
 	public Resource getParent(Resource element) {
 		return element.getParent();
@@ -84,4 +115,31 @@ public class ResourceTreeProvider implements TreeProvider<Resource> {
 		return testedElement.getPath().startsWith(root.getPath());
 	}
 
+	private static class ResourceWorker implements Worker<Resource> {
+
+		private final ResourceResolver resolver;
+
+		private ResourceWorker(ResourceResolver resolver) {
+			this.resolver = resolver;
+		}
+
+		@Override
+		public Iterator<Resource> listChildren(Resource parent) {
+			if (resolver == null) {
+				return parent.listChildren();
+			}
+			Resource resource = resolver.getResource(parent.getPath());
+			if (resource == null) {
+				return Collections.<Resource> emptyList().iterator();
+			}
+			return resource.listChildren();
+		}
+
+		@Override
+		public void close() {
+			if (resolver != null) {
+				resolver.close();
+			}
+		}
+	}
 }
@@ -37,8 +37,9 @@ public class SessionJcrTypeResolver implements JcrTypeResolver {
 	public SessionJcrTypeResolver(ResourceResolver resolver) {
 		NodeTypeManager m = null;
 		try {
-			if (resolver != null) {
-				m = resolver.adaptTo(Session.class).getWorkspace().getNodeTypeManager();
+			Session session = resolver == null ? null : resolver.adaptTo(Session.class);
+			if (session != null) {
+				m = session.getWorkspace().getNodeTypeManager();
 			}
 		} catch (RepositoryException e) {
 			LOG.error("Can't get node type manager", e);
@@ -24,8 +24,19 @@ import static org.apache.sling.query.TestUtils.assertEmptyIterator;
 import static org.apache.sling.query.TestUtils.assertResourceListEquals;
 import static org.apache.sling.query.TestUtils.assertResourceSetEquals;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.query.api.SearchStrategy;
+import org.apache.sling.query.api.internal.TreeProvider;
+import org.apache.sling.query.function.FindFunction;
+import org.apache.sling.query.mock.ResourceResolverMock;
+import org.apache.sling.query.resource.ResourceTreeProvider;
+import org.apache.sling.query.selector.parser.SelectorSegment;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class FindTest {
@@ -84,4 +95,87 @@ public class FindTest {
 		assertResourceListEquals(query.iterator(), "jcr:content", "configParsys", "tab", "items",
 				"localizedtext", "lang", "text", "tab_0", "items", "text_0", "text");
 	}
+
+	@Test
+	public void testParallelFind() {
+		SlingQuery query = $(tree.getChild("application/configuration/labels")).searchStrategy(
+				SearchStrategy.PARALLEL).find("");
+		assertResourceListEquals(query.iterator(), "jcr:content", "configParsys", "tab", "tab_0", "items",
+				"items", "localizedtext", "text", "text_0", "text", "lang");
+	}
+
+	@Test
+	public void testParallelFindWithFilter() {
+		SlingQuery query = $(tree.getChild("application/configuration/labels")).searchStrategy(
+				SearchStrategy.PARALLEL).find("cq-commons/config/components/text");
+		assertResourceSetEquals(query.iterator(), "text", "text");
+	}
+
+	@Test
+	public void testParallelFindFirst() {
+		SlingQuery query = $(tree.getChild("application/configuration/labels")).searchStrategy(
+				SearchStrategy.PARALLEL).find("").first();
+		assertResourceListEquals(query.iterator(), "jcr:content");
+	}
+
+	@Test
+	public void testParallelFindListsWithClonedResolvers() {
+		ResourceResolverMock resolver = new ResourceResolverMock(tree);
+		Iterator<Resource> iterator = new FindFunction<Resource>(SearchStrategy.PARALLEL,
+				new ResourceTreeProvider(resolver), "").apply(tree.getChild("application/configuration/labels"));
+		assertResourceListEquals(iterator, "jcr:content", "configParsys", "tab", "tab_0", "items", "items",
+				"localizedtext", "text", "text_0", "text", "lang");
+		// the resource resolver itself is only used by the traversing thread
+		Assert.assertEquals(Collections.singleton(Thread.currentThread()), resolver.getThreads());
+		Assert.assertFalse(resolver.getClones().isEmpty());
+		for (ResourceResolverMock clone : resolver.getClones()) {
+			Assert.assertFalse(clone.isLive());
+		}
+	}
+
+	@Test
+	public void testAbandonedParallelFindClosesClonedResolvers() {
+		ResourceResolverMock resolver = new ResourceResolverMock(tree);
+		Iterator<Resource> iterator = new FindFunction<Resource>(SearchStrategy.PARALLEL,
+				new ResourceTreeProvider(resolver), "").apply(tree.getChild("application/configuration/labels"));
+		// the children of tab and tab_0 are listed concurrently
+		for (int i = 0; i < 5; i++) {
+			iterator.next();
+		}
+		Assert.assertFalse(resolver.getClones().isEmpty());
+		for (ResourceResolverMock clone : resolver.getClones()) {
+			Assert.assertFalse(clone.isLive());
+		}
+	}
+
+	@Test
+	public void testAutoFindWithoutRestriction() {
+		SlingQuery query = $(tree.getChild("application/configuration/labels")).searchStrategy(
+				SearchStrategy.AUTO).find("");
+		assertResourceListEquals(query.iterator(), "jcr:content", "configParsys", "tab", "items",
+				"localizedtext", "lang", "text", "tab_0", "items", "text_0", "text");
+	}
+
+	@Test
+	public void testAutoFindUsesQueryForRestrictedSelector() {
+		final List<List<SelectorSegment>> queries = new ArrayList<List<SelectorSegment>>();
+		TreeProvider<Resource> provider = new ResourceTreeProvider(null) {
+			@Override
+			public Iterator<Resource> query(List<SelectorSegment> segments, Resource resource) {
+				queries.add(segments);
+				return Collections.<Resource> emptyList().iterator();
+			}
+		};
+		Resource labels = tree.getChild("application/configuration/labels");
+
+		assertEmptyIterator(new FindFunction<Resource>(SearchStrategy.AUTO, provider, "cq:Page[jcr:content/foo=bar]")
+				.apply(labels));
+		Assert.assertEquals(1, queries.size());
+
+		// the properties of descendants can't be queried, so the tree is traversed
+		Iterator<Resource> traversed = new FindFunction<Resource>(SearchStrategy.AUTO, provider,
+				"[jcr:content/foo=bar]").apply(labels);
+		Assert.assertTrue(traversed.hasNext());
+		Assert.assertEquals(1, queries.size());
+	}
 }
@@ -0,0 +1,159 @@
+/*-
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.query.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * Resource resolver of a mocked tree, which records the threads it's used by.
+ */
+public class ResourceResolverMock implements ResourceResolver {
+
+	private final Resource root;
+
+	private final List<ResourceResolverMock> clones = Collections
+			.synchronizedList(new ArrayList<ResourceResolverMock>());
+
+	private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+	private volatile boolean live = true;
+
+	public ResourceResolverMock(Resource root) {
+		this.root = root;
+	}
+
+	public List<ResourceResolverMock> getClones() {
+		return clones;
+	}
+
+	public Set<Thread> getThreads() {
+		return threads;
+	}
+
+	@Override
+	public Resource getResource(String path) {
+		if (!live) {
+			throw new IllegalStateException("Resource resolver is already closed");
+		}
+		threads.add(Thread.currentThread());
+		if (path.isEmpty() || "/".equals(path)) {
+			return root;
+		}
+		return root.getChild(path.substring(1));
+	}
+
+	@Override
+	public ResourceResolver clone(Map<String, Object> authenticationInfo) {
+		ResourceResolverMock clone = new ResourceResolverMock(root);
+		clones.add(clone);
+		return clone;
+	}
+
+	@Override
+	public boolean isLive() {
+		return live;
+	}
+
+	@Override
+	public void close() {
+		live = false;
+	}
+
+	@Override
+	public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+		return null;
+	}
+
+	@Override
+	public Resource resolve(HttpServletRequest request, String absPath) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Resource resolve(String absPath) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Resource resolve(HttpServletRequest request) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String map(String resourcePath) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String map(HttpServletRequest request, String resourcePath) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Resource getResource(Resource base, String path) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String[] getSearchPath() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<Resource> listChildren(Resource parent) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<Resource> findResources(String query, String language) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<Map<String, Object>> queryResources(String query, String language) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String getUserID() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<String> getAttributeNames() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -244,6 +244,12 @@ public class SelectorTest {
 		return SelectorParser.parse(selector).get(0).getSegments();
 	}
 
+	@Test
+	public void parseIsCached() {
+		Assert.assertSame(SelectorParser.parse("my/resource/type[key=value]"),
+				SelectorParser.parse("my/resource/type[key=value]"));
+	}
+
 	private static SelectorSegment getFirstSegment(String selector) {
 		return getSegments(selector).get(0);
 	}
@@ -58,6 +58,12 @@ import org.osgi.framework.Constants;
 @SuppressWarnings("serial")
 public class OsgiInstallerWebConsolePlugin extends GenericServlet {
 
+    /**
+     * The execution times of the tasks during the last cycle, as set by
+     * newer installer versions (TaskResource.ATTR_TASK_EXECUTION_TIMES)
+     */
+    private static final String ATTR_TASK_EXECUTION_TIMES = "org.apache.sling.installer.api.resource.task.execution.times";
+
     @Reference
     private InfoProvider installer;
 
@@ -154,6 +160,10 @@ public class OsgiInstallerWebConsolePlugin extends GenericServlet {
                     getInfo(toActivate),
                     getURL(toActivate),
                     toActivate.getState());
+            if ( toActivate.getAttribute(ATTR_TASK_EXECUTION_TIMES) != null ) {
+                pw.printf("<tr><td></td><td colspan='2'>%s</td><td></td></tr>",
+                        toActivate.getAttribute(ATTR_TASK_EXECUTION_TIMES));
+            }
         }
         if ( rt != null ) {
             pw.println("</tbody></table>");
@@ -201,6 +211,10 @@ public class OsgiInstallerWebConsolePlugin extends GenericServlet {
                             first.getAttribute(TaskResource.ATTR_INSTALL_INFO));
 
                 }
+                if ( first.getAttribute(ATTR_TASK_EXECUTION_TIMES) != null ) {
+                    pw.printf("<tr><td></td><td colspan='2'>%s</td><td></td></tr>",
+                            first.getAttribute(ATTR_TASK_EXECUTION_TIMES));
+                }
                 while ( iter.hasNext() ) {
                     final Resource resource = iter.next();
                     pw.printf("<tr><td></td><td>%s</td><td>%s</td><td>%s</td></tr>",
@@ -261,6 +275,10 @@ public class OsgiInstallerWebConsolePlugin extends GenericServlet {
                     getInfo(toActivate),
                     getURL(toActivate),
                     toActivate.getState());
+            if ( toActivate.getAttribute(ATTR_TASK_EXECUTION_TIMES) != null ) {
+                pw.printf("  : %s%n",
+                        toActivate.getAttribute(ATTR_TASK_EXECUTION_TIMES));
+            }
         }
         pw.println();
 
@@ -290,6 +308,10 @@ public class OsgiInstallerWebConsolePlugin extends GenericServlet {
                             first.getAttribute(TaskResource.ATTR_INSTALL_INFO));
 
                 }
+                if ( first.getAttribute(ATTR_TASK_EXECUTION_TIMES) != null ) {
+                    pw.printf("  : %s%n",
+                            first.getAttribute(ATTR_TASK_EXECUTION_TIMES));
+                }
                 while ( iter.hasNext() ) {
                     final Resource resource = iter.next();
                     pw.printf("  - %s, %s, %s%n",
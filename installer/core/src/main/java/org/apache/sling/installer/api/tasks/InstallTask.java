@@ -150,4 +150,22 @@ public abstract class InstallTask implements Comparable<InstallTask> {
     public boolean isAsynchronousTask() {
         return false;
     }
+
+    /**
+     * Tasks returning the same key are independent from each other and
+     * might be executed concurrently by the OSGi installer.
+     * Only tasks which directly follow each other according to their
+     * {@link #getSortKey()} are executed concurrently, all of them
+     * are finished before the next task is executed. Therefore the
+     * sort keys of all tasks sharing a key should start with this key.
+     *
+     * Asynchronous tasks are never executed concurrently.
+     *
+     * @return The key or <code>null</code> if this task has to be
+     *         executed on its own (the default)
+     * @since 1.4
+     */
+    public String getParallelExecutionKey() {
+        return null;
+    }
 }
\ No newline at end of file
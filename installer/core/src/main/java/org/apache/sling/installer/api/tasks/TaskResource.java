@@ -43,6 +43,13 @@ public interface TaskResource extends RegisteredResource {
      */
     String ATTR_INSTALL_EXCLUDED = "org.apache.sling.installer.api.resource.install.excluded";
 
+    /** The execution times of the tasks which processed this resource during the
+     * last installer cycle in human readable format.
+     * This attribute is set by the installer.
+     * @since 1.4
+     */
+    String ATTR_TASK_EXECUTION_TIMES = "org.apache.sling.installer.api.resource.task.execution.times";
+
     /**
      * Get the value of an attribute.
      * Attributes are specific to the resource and are either set
@@ -65,6 +65,9 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
     /** The listener. */
     private transient InstallationListener listener;
 
+    /** Modification stamp of the last change of the list itself. */
+    private transient long modificationStamp;
+
     public EntityResourceList(final String resourceId, final InstallationListener listener) {
         this.resourceId = resourceId;
         this.listener = listener;
@@ -197,6 +200,25 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
         this.listener = listener;
     }
 
+    /**
+     * Mark the persisted state of this list as changed.
+     */
+    private void touch() {
+        this.modificationStamp = Util.nextModificationStamp();
+    }
+
+    /**
+     * Get the modification stamp of the last change of the persisted state
+     * of this list or any of its resources.
+     */
+    public long getModificationStamp() {
+        long stamp = this.modificationStamp;
+        for(final RegisteredResourceImpl rr : this.resources) {
+            stamp = Math.max(stamp, rr.getModificationStamp());
+        }
+        return stamp;
+    }
+
     /**
      * Force the state to be set
      */
@@ -288,6 +310,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
      */
     public void setFinishState(final ResourceState state, final String alias) {
         this.alias = alias;
+        this.touch();
         this.setFinishState(state);
     }
 
@@ -338,6 +361,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
         if ( add ) {
             resources.add(r);
         }
+        this.touch();
     }
 
     public void remove(final String url) {
@@ -355,6 +379,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
                     LOGGER.debug("Removing unused: {}", r);
                     i.remove();
                     this.cleanup(r);
+                    this.touch();
                 }
             }
             first = false;
@@ -389,6 +414,7 @@ public class EntityResourceList implements Serializable, TaskResourceGroup {
             }
             resources.clear();
             resources.addAll(copy);
+            this.touch();
             if ( !this.isEmpty() ) {
                 startNewCycle = true;
             }
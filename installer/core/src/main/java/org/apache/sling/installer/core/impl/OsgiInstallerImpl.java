@@ -28,6 +28,7 @@ import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -84,6 +85,12 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
      */
     private static final String START_LEVEL_HANDLING = "sling.installer.switchstartlevel";
 
+    /**
+     * The name of the bundle context property defining the maximum number of
+     * concurrently executed tasks, a value of 1 disables the concurrent execution.
+     */
+    private static final String MAX_PARALLEL_TASKS = "sling.installer.maxparalleltasks";
+
     /** The logger */
     private final Logger logger =  LoggerFactory.getLogger(this.getClass());
 
@@ -135,6 +142,9 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
     /** Switch start level on bundle update? */
     private final boolean switchStartLevel;
 
+    /** Executor for independent tasks. */
+    private final ParallelTaskExecutor taskExecutor;
+
     /**
      *  Constructor
      *
@@ -148,6 +158,8 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         this.listener = new InstallListener(ctx, logger);
         this.persistentList = new PersistentResourceList(f, listener);
         this.switchStartLevel = PropertiesUtil.toBoolean(ctx.getProperty(START_LEVEL_HANDLING), false);
+        this.taskExecutor = new ParallelTaskExecutor(PropertiesUtil.toInteger(ctx.getProperty(MAX_PARALLEL_TASKS),
+                Math.min(4, Runtime.getRuntime().availableProcessors())));
     }
 
     /**
@@ -195,6 +207,7 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
             }
             logger.debug("Done waiting for background thread");
         }
+        this.taskExecutor.shutdown();
 
         // remove file util
         FileDataStore.SHARED = null;
@@ -792,6 +805,8 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                     }
                 }
             };
+            // the execution times of the tasks per resource in this cycle
+            final Map<TaskResource, String> executionTimes = new IdentityHashMap<TaskResource, String>();
             while (this.active && !tasks.isEmpty()) {
                 InstallTask task = null;
                 synchronized (tasks) {
@@ -842,11 +857,16 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                     t.start();
                     return ACTION.SHUTDOWN;
                 }
-                try {
-                    logger.debug("Executing task: {}", task);
-                    task.execute(ctx);
-                } catch (final Throwable t) {
-                    logger.error("Uncaught exception during task execution!", t);
+                // independent tasks are executed concurrently
+                final List<InstallTask> group = this.taskExecutor.pollGroup(task, tasks);
+                final List<TaskResource> resources = new ArrayList<TaskResource>();
+                for(final InstallTask t : group) {
+                    // get the resources upfront as the active resource changes during execution
+                    resources.add(t.getResource());
+                }
+                final long[] times = this.taskExecutor.execute(group, ctx);
+                for(int i = 0; i < group.size(); i++) {
+                    this.recordExecutionTime(group.get(i), resources.get(i), times[i], executionTimes);
                 }
             }
             // save new state
@@ -859,6 +879,23 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         return ACTION.SLEEP;
     }
 
+    /**
+     * Record the execution time of a task at the processed resource.
+     */
+    private void recordExecutionTime(final InstallTask task,
+            final TaskResource resource,
+            final long time,
+            final Map<TaskResource, String> executionTimes) {
+        logger.debug("Executed task {} in {} ms", task, time);
+        if ( resource != null ) {
+            final String previous = executionTimes.get(resource);
+            final String info = (previous == null ? "" : previous + ", ")
+                    + task.getClass().getSimpleName() + ": " + time + " ms";
+            executionTimes.put(resource, info);
+            resource.setAttribute(TaskResource.ATTR_TASK_EXECUTION_TIMES, info);
+        }
+    }
+
     /**
      * Clean up and compact.
      * @return <code>true</code> if another cycle should be started.
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor for install tasks.
+ *
+ * Tasks which directly follow each other and share the same
+ * {@link InstallTask#getParallelExecutionKey()} form a group
+ * which is executed on a bounded pool of worker threads. The
+ * execution of a group is finished before the next task is
+ * executed, therefore the ordering of the tasks is kept.
+ */
+public class ParallelTaskExecutor {
+
+    /** Idle worker threads are stopped after this time. */
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    /** The logger */
+    private final Logger logger =  LoggerFactory.getLogger(this.getClass());
+
+    /** The maximum number of concurrently executed tasks. */
+    private final int maxThreads;
+
+    private final AtomicLong threadCounter = new AtomicLong();
+
+    /** The worker pool - created on demand. */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param maxThreads The maximum number of concurrently executed tasks,
+     *                   a value lower than <code>2</code> disables the concurrent execution.
+     */
+    public ParallelTaskExecutor(final int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Is the concurrent execution of tasks enabled?
+     */
+    public boolean isEnabled() {
+        return this.maxThreads > 1;
+    }
+
+    /**
+     * Get the group of tasks to execute together with the provided task.
+     * All tasks of the group besides the provided one are removed from
+     * the set of tasks.
+     * @param first The next task to execute, already removed from the set of tasks.
+     * @param tasks The remaining tasks.
+     * @return The group of tasks, the provided task is always the first one.
+     */
+    public List<InstallTask> pollGroup(final InstallTask first, final SortedSet<InstallTask> tasks) {
+        final List<InstallTask> group = new ArrayList<InstallTask>();
+        group.add(first);
+        final String key = (this.isEnabled() && !first.isAsynchronousTask() ? first.getParallelExecutionKey() : null);
+        if ( key != null ) {
+            synchronized ( tasks ) {
+                while ( !tasks.isEmpty() ) {
+                    final InstallTask next = tasks.first();
+                    if ( next.isAsynchronousTask() || !key.equals(next.getParallelExecutionKey()) ) {
+                        break;
+                    }
+                    tasks.remove(next);
+                    group.add(next);
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Execute a group of tasks and wait until all of them are finished.
+     * @param group The tasks to execute
+     * @param ctx The installation context
+     * @return The execution time of each task in milliseconds, in the order of the group.
+     */
+    public long[] execute(final List<InstallTask> group, final InstallationContext ctx) {
+        final long[] times = new long[group.size()];
+        if ( group.size() == 1 ) {
+            times[0] = this.execute(group.get(0), ctx);
+            return times;
+        }
+        logger.debug("Executing {} tasks concurrently: {}", group.size(), group);
+        final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        final ThreadPoolExecutor pool = this.getExecutor();
+        for(final InstallTask task : group) {
+            futures.add(pool.submit(new Callable<Long>() {
+
+                public Long call() {
+                    return execute(task, ctx);
+                }
+            }));
+        }
+        boolean interrupted = false;
+        for(int i = 0; i < futures.size(); i++) {
+            // tasks can't be cancelled, therefore always wait for all of them
+            while ( true ) {
+                try {
+                    times[i] = futures.get(i).get();
+                    break;
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                } catch (final ExecutionException ee) {
+                    logger.error("Uncaught exception during task execution!", ee.getCause());
+                    break;
+                }
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        return times;
+    }
+
+    /**
+     * Execute a single task
+     * @return The execution time in milliseconds
+     */
+    private long execute(final InstallTask task, final InstallationContext ctx) {
+        final long start = System.currentTimeMillis();
+        try {
+            logger.debug("Executing task: {}", task);
+            task.execute(ctx);
+        } catch (final Throwable t) {
+            logger.error("Uncaught exception during task execution!", t);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if ( this.executor == null || this.executor.isShutdown() ) {
+            this.executor = new ThreadPoolExecutor(this.maxThreads, this.maxThreads,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+
+                        public Thread newThread(final Runnable r) {
+                            final Thread t = new Thread(r, "OsgiInstallerTaskWorker" + threadCounter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+        return this.executor;
+    }
+
+    /**
+     * Stop the worker threads.
+     */
+    public synchronized void shutdown() {
+        if ( this.executor != null ) {
+            this.executor.shutdown();
+            this.executor = null;
+        }
+    }
+}
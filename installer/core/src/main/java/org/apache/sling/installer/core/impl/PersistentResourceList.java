@@ -20,6 +20,11 @@ package org.apache.sling.installer.core.impl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -33,6 +38,7 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import org.apache.sling.installer.api.InstallableResource;
 import org.apache.sling.installer.api.event.InstallationListener;
@@ -44,12 +50,36 @@ import org.slf4j.LoggerFactory;
 /**
  * Persistent list of RegisteredResource, used by installer to
  * keep track of all registered resources
+ *
+ * The list is persisted as a snapshot of the whole list and a journal.
+ * On save only the changed resource groups are appended to the journal,
+ * once the journal gets bigger than the snapshot both are compacted
+ * into a new snapshot. On restore the journal is replayed on top of the
+ * snapshot it belongs to.
  */
 public class PersistentResourceList {
 
     /** Serialization version. */
     private static final int VERSION = 2;
 
+    /** Magic number of the journal file. */
+    private static final int JOURNAL_MAGIC = 0x534c494a;
+
+    /** Journal version. */
+    private static final int JOURNAL_VERSION = 1;
+
+    /** Journal record: a resource group has been added or changed. */
+    private static final byte RECORD_PUT = 1;
+
+    /** Journal record: a resource group has been removed. */
+    private static final byte RECORD_REMOVE = 2;
+
+    /** Journal record: the list of untransformed resources has changed. */
+    private static final byte RECORD_UNTRANSFORMED = 3;
+
+    /** The journal is not compacted before it reaches this size. */
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
     /** Entity id for restart active bundles. */
     public static final String RESTART_ACTIVE_BUNDLES_TYPE = "org.apache.sling.installer.core.restart.bundles";
     public static final String RESTART_ACTIVE_BUNDLES_ID = "org.apache.sling.installer.core.restart.bundles";
@@ -69,6 +99,27 @@ public class PersistentResourceList {
     /** The persistence file. */
     private final File dataFile;
 
+    /** The journal file. */
+    private final File journalFile;
+
+    /** The generation of the current snapshot, the journal belongs to this generation. */
+    private long generation = 0;
+
+    /** The size of the current snapshot. */
+    private long snapshotSize = 0;
+
+    /** The size of the current journal, 0 if there is none. */
+    private long journalSize = 0;
+
+    /** The modification stamps of the persisted resource groups. */
+    private Map<String, Long> persistedStamps = new HashMap<String, Long>();
+
+    /** The modification stamp of the persisted untransformed resources. */
+    private long persistedUntransformedStamp = 0;
+
+    /** Modification stamp of the last change of the list of untransformed resources. */
+    private long untransformedStamp = 0;
+
     /** All untransformed resources. */
     private final List<RegisteredResource> untransformedResources;
 
@@ -77,19 +128,28 @@ public class PersistentResourceList {
     @SuppressWarnings("unchecked")
     public PersistentResourceList(final File dataFile, final InstallationListener listener) {
         this.dataFile = dataFile;
+        this.journalFile = new File(dataFile.getParentFile(), dataFile.getName() + ".journal");
         this.listener = listener;
 
         Map<String, EntityResourceList> restoredData = null;
         List<RegisteredResource> unknownList = null;
-        if ( dataFile.exists() ) {
+        // if saving a snapshot got interrupted, the new snapshot might only exist as the temporary file
+        final File snapshotFile = (!dataFile.exists() && getTemporaryFile().exists() ? getTemporaryFile() : dataFile);
+        if ( snapshotFile.exists() ) {
             ObjectInputStream ois = null;
             try {
-                ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+                ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
                 final int version = ois.readInt();
                 if ( version > 0 && version <= VERSION ) {
                     restoredData = (Map<String, EntityResourceList>)ois.readObject();
                     if ( version == VERSION ) {
                         unknownList = (List<RegisteredResource>)ois.readObject();
+                        try {
+                            this.generation = ois.readLong();
+                        } catch (final EOFException eof) {
+                            // snapshot written without a journal
+                            this.generation = 0;
+                        }
                     }
                 } else {
                     logger.warn("Unknown version for persistent resource list: {}", version);
@@ -112,6 +172,7 @@ public class PersistentResourceList {
         }
         data = restoredData != null ? restoredData : new HashMap<String, EntityResourceList>();
         this.untransformedResources = unknownList != null ? unknownList : new ArrayList<RegisteredResource>();
+        final boolean replayed = restoredData != null && this.replayJournal();
 
         this.updateCache();
 
@@ -122,6 +183,21 @@ public class PersistentResourceList {
             erl.setListener(listener);
         }
 
+        if ( replayed ) {
+            // compact snapshot and journal into a new snapshot
+            try {
+                this.writeSnapshot();
+            } catch (final IOException e) {
+                logger.warn("Unable to save persistent list: " + e.getMessage(), e);
+            }
+        } else if ( restoredData != null ) {
+            // the restored state is persisted, a new snapshot is written on the next change
+            for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
+                this.persistedStamps.put(entry.getKey(), entry.getValue().getModificationStamp());
+            }
+            this.persistedUntransformedStamp = this.getUntransformedStamp();
+        }
+
         // check for special resources
         if ( this.getEntityResourceList(RESTART_ACTIVE_BUNDLES_ENTITY_ID) == null ) {
             final RegisteredResource rr = this.addOrUpdate(new InternalResource("$sling-installer$",
@@ -157,23 +233,224 @@ public class PersistentResourceList {
 
     /**
      * Persist the current state
+     * Only the changes since the last save are appended to the journal.
      */
     public void save() {
         try {
-            final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+            final Map<String, Long> stamps = new HashMap<String, Long>();
+            final ByteArrayOutputStream records = new ByteArrayOutputStream();
+            int count = 0;
+            for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
+                final long stamp = entry.getValue().getModificationStamp();
+                stamps.put(entry.getKey(), stamp);
+                final Long persistedStamp = this.persistedStamps.get(entry.getKey());
+                if ( persistedStamp == null || persistedStamp != stamp ) {
+                    writeRecord(records, RECORD_PUT, entry.getKey(), entry.getValue());
+                    count++;
+                }
+            }
+            for(final String entityId : this.persistedStamps.keySet()) {
+                if ( !this.data.containsKey(entityId) ) {
+                    writeRecord(records, RECORD_REMOVE, entityId, null);
+                    count++;
+                }
+            }
+            final long unknownStamp = this.getUntransformedStamp();
+            if ( unknownStamp != this.persistedUntransformedStamp ) {
+                writeRecord(records, RECORD_UNTRANSFORMED, null, this.untransformedResources);
+                count++;
+            }
+            if ( count == 0 ) {
+                logger.debug("Resource list unchanged, nothing to persist.");
+                return;
+            }
+            if ( this.journalSize == 0
+                 || this.journalSize + records.size() > Math.max(this.snapshotSize, MIN_COMPACTION_SIZE) ) {
+                this.writeSnapshot();
+                return;
+            }
+            final FileOutputStream fos = new FileOutputStream(this.journalFile, true);
             try {
-                oos.writeInt(VERSION);
-                oos.writeObject(data);
-                oos.writeObject(untransformedResources);
-                logger.debug("Persisted resource list.");
+                records.writeTo(fos);
             } finally {
-                oos.close();
+                fos.close();
             }
+            this.journalSize += records.size();
+            this.persistedStamps = stamps;
+            this.persistedUntransformedStamp = unknownStamp;
+            logger.debug("Persisted {} changes of resource list.", count);
         } catch (final Exception e) {
             logger.warn("Unable to save persistent list: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Persist the complete state as a new snapshot and start a new journal.
+     */
+    void writeSnapshot() throws IOException {
+        final Map<String, Long> stamps = new HashMap<String, Long>();
+        for(final Map.Entry<String, EntityResourceList> entry : this.data.entrySet()) {
+            stamps.put(entry.getKey(), entry.getValue().getModificationStamp());
+        }
+        final long unknownStamp = this.getUntransformedStamp();
+        final long newGeneration = this.generation + 1;
+
+        // write to a temporary file first, to keep the current snapshot on failures
+        final File tmpFile = getTemporaryFile();
+        final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            oos.writeInt(VERSION);
+            oos.writeObject(data);
+            oos.writeObject(untransformedResources);
+            oos.writeLong(newGeneration);
+        } finally {
+            oos.close();
+        }
+        if ( !tmpFile.renameTo(this.dataFile) ) {
+            // some platforms can't rename to an existing file
+            this.dataFile.delete();
+            if ( !tmpFile.renameTo(this.dataFile) ) {
+                throw new IOException("Unable to rename " + tmpFile + " to " + this.dataFile);
+            }
+        }
+        this.generation = newGeneration;
+        this.snapshotSize = this.dataFile.length();
+
+        // the old journal is contained in the snapshot now
+        final DataOutputStream dos = new DataOutputStream(new FileOutputStream(this.journalFile));
+        try {
+            dos.writeInt(JOURNAL_MAGIC);
+            dos.writeInt(JOURNAL_VERSION);
+            dos.writeLong(this.generation);
+        } finally {
+            dos.close();
+        }
+        this.journalSize = this.journalFile.length();
+        this.persistedStamps = stamps;
+        this.persistedUntransformedStamp = unknownStamp;
+        logger.debug("Persisted resource list.");
+    }
+
+    private File getTemporaryFile() {
+        return new File(this.dataFile.getParentFile(), this.dataFile.getName() + ".tmp");
+    }
+
+    /**
+     * Get the modification stamp of the untransformed resources.
+     */
+    private long getUntransformedStamp() {
+        long stamp = this.untransformedStamp;
+        for(final RegisteredResource rr : this.untransformedResources) {
+            stamp = Math.max(stamp, ((RegisteredResourceImpl)rr).getModificationStamp());
+        }
+        return stamp;
+    }
+
+    /**
+     * Append a record to the journal:
+     * length of the record, the record and the checksum of the record.
+     */
+    private static void writeRecord(final ByteArrayOutputStream records,
+            final byte type,
+            final String entityId,
+            final Object value)
+    throws IOException {
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(record);
+        dos.writeByte(type);
+        if ( entityId != null ) {
+            dos.writeUTF(entityId);
+        }
+        if ( value != null ) {
+            final ObjectOutputStream oos = new ObjectOutputStream(dos);
+            oos.writeObject(value);
+            oos.flush();
+        }
+        dos.flush();
+
+        final byte[] bytes = record.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final DataOutputStream out = new DataOutputStream(records);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(crc.getValue());
+        out.flush();
+    }
+
+    /**
+     * Replay the journal on top of the restored snapshot.
+     * Replaying stops at the first incomplete or corrupt record which
+     * might have been written during a crash.
+     * @return <code>true</code> if records of the journal have been applied.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean replayJournal() {
+        if ( !this.journalFile.exists() ) {
+            return false;
+        }
+        int count = 0;
+        DataInputStream dis = null;
+        try {
+            dis = new DataInputStream(new BufferedInputStream(new FileInputStream(this.journalFile)));
+            if ( dis.readInt() != JOURNAL_MAGIC || dis.readInt() != JOURNAL_VERSION ) {
+                logger.warn("Ignoring journal of persistent resource list with unknown format: {}", this.journalFile);
+                return false;
+            }
+            if ( dis.readLong() != this.generation ) {
+                // the journal is already contained in the snapshot
+                logger.debug("Ignoring journal of a previous snapshot of the persistent resource list.");
+                return false;
+            }
+            while ( true ) {
+                final int length;
+                try {
+                    length = dis.readInt();
+                } catch (final EOFException eof) {
+                    break;
+                }
+                final byte[] bytes = new byte[length];
+                dis.readFully(bytes);
+                final long checksum = dis.readLong();
+                final CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ( crc.getValue() != checksum ) {
+                    logger.warn("Ignoring corrupt record in journal of persistent resource list: {}", this.journalFile);
+                    break;
+                }
+                final DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+                final byte type = record.readByte();
+                if ( type == RECORD_PUT ) {
+                    final String entityId = record.readUTF();
+                    this.data.put(entityId, (EntityResourceList)new ObjectInputStream(record).readObject());
+                } else if ( type == RECORD_REMOVE ) {
+                    this.data.remove(record.readUTF());
+                } else if ( type == RECORD_UNTRANSFORMED ) {
+                    this.untransformedResources.clear();
+                    this.untransformedResources.addAll((List<RegisteredResource>)new ObjectInputStream(record).readObject());
+                } else {
+                    logger.warn("Ignoring unknown record in journal of persistent resource list: {}", type);
+                    break;
+                }
+                count++;
+            }
+        } catch (final EOFException eof) {
+            logger.warn("Ignoring incomplete record in journal of persistent resource list: {}", this.journalFile);
+        } catch (final Exception e) {
+            logger.warn("Unable to replay journal of persistent resource list (" + e.getMessage() + ")", e);
+        } finally {
+            if (dis != null) {
+                try {
+                    dis.close();
+                } catch (final IOException ignore) {
+                    // ignore
+                }
+            }
+        }
+        logger.debug("Replayed {} records from journal of persistent resource list.", count);
+        return count > 0;
+    }
+
     public Collection<String> getEntityIds() {
         return this.data.keySet();
     }
@@ -232,6 +509,7 @@ public class PersistentResourceList {
                 this.untransformedResources.remove(input);
             }
             this.untransformedResources.add(input);
+            this.untransformedStamp = Util.nextModificationStamp();
         }
     }
 
@@ -261,6 +539,7 @@ public class PersistentResourceList {
             if ( rr.getURL().equals(url) ) {
                 ((RegisteredResourceImpl)rr).cleanup();
                 i.remove();
+                this.untransformedStamp = Util.nextModificationStamp();
                 break;
             }
         }
@@ -306,7 +585,9 @@ public class PersistentResourceList {
     public void transform(final RegisteredResource resource,
                           final TransformationResult[] result) {
         // remove resource from unknown list
-        this.untransformedResources.remove(resource);
+        if ( this.untransformedResources.remove(resource) ) {
+            this.untransformedStamp = Util.nextModificationStamp();
+        }
         try {
             for(int i=0; i<result.length; i++) {
                 // check the result
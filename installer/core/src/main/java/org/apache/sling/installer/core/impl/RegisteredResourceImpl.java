@@ -88,6 +88,9 @@ public class RegisteredResourceImpl
     /** When was the last status change? */
     private long lastChange = -1;
 
+    /** Modification stamp of the last change of the persisted state. */
+    private transient long modificationStamp;
+
     /**
      * Serialize the object
      * - write version id
@@ -247,6 +250,7 @@ public class RegisteredResourceImpl
             dataFile.delete();
         }
         this.dataUri = null;
+        this.touch();
 	}
 
 	/**
@@ -333,9 +337,12 @@ public class RegisteredResourceImpl
     @Override
     public void setAttribute(final String key, final Object value) {
         if ( value == null ) {
-            this.attributes.remove(key);
+            if ( this.attributes.remove(key) != null ) {
+                this.touch();
+            }
         } else {
             this.attributes.put(key, value);
+            this.touch();
         }
     }
 
@@ -369,6 +376,7 @@ public class RegisteredResourceImpl
     public void setState(final ResourceState s) {
         this.lastChange = System.currentTimeMillis();
         this.state = s;
+        this.touch();
     }
 
     /**
@@ -573,6 +581,7 @@ public class RegisteredResourceImpl
      * Update the resource uri - if provided.
      */
     public void update(final InternalResource rsrc) {
+        this.touch();
         if ( rsrc.getResourceUri() != null ) {
             FileDataStore.SHARED.removeFromDigestCache(this.url, this.digest);
             this.removeDataFile();
@@ -621,6 +630,7 @@ public class RegisteredResourceImpl
             final String digest,
             final int priority,
             final String url) {
+        this.touch();
         this.removeDataFile();
         if ( file != null ) {
             this.dataFile = file;
@@ -641,6 +651,21 @@ public class RegisteredResourceImpl
         this.urlScheme = url.substring(0, pos);
     }
 
+    /**
+     * Mark the persisted state of this resource as changed.
+     */
+    private void touch() {
+        this.modificationStamp = Util.nextModificationStamp();
+    }
+
+    /**
+     * Get the modification stamp of the last change of the persisted state.
+     * This is <code>0</code> if the resource has not been changed since creation or restore.
+     */
+    public long getModificationStamp() {
+        return this.modificationStamp;
+    }
+
     /**
      * @see org.apache.sling.installer.api.tasks.TaskResource#getVersion()
      */
@@ -21,6 +21,7 @@ package org.apache.sling.installer.core.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 
@@ -30,6 +31,17 @@ import org.slf4j.Logger;
 
 public class Util {
 
+    /** Counter for the modification stamps of the persisted objects. */
+    private static final AtomicLong MODIFICATION_COUNTER = new AtomicLong();
+
+    /**
+     * Get a new modification stamp, each call returns a higher value
+     * than all previous calls.
+     */
+    public static long nextModificationStamp() {
+        return MODIFICATION_COUNTER.incrementAndGet();
+    }
+
     /**
      * Set a (final) field during deserialization.
      */
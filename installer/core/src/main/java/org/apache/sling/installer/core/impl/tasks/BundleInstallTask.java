@@ -94,4 +94,13 @@ public class BundleInstallTask extends AbstractBundleTask {
     public String getSortKey() {
         return BUNDLE_INSTALL_ORDER + getSortableStartLevel() + "-" + getResource().getURL();
     }
+
+    /**
+     * Bundles with the same start level can be installed concurrently,
+     * they are started by separate tasks.
+     */
+    @Override
+    public String getParallelExecutionKey() {
+        return BUNDLE_INSTALL_ORDER + getSortableStartLevel();
+    }
 }
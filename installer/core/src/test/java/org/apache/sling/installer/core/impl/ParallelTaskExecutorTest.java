@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelTaskExecutorTest {
+
+    private ParallelTaskExecutor executor;
+
+    @After
+    public void tearDown() {
+        if ( executor != null ) {
+            executor.shutdown();
+        }
+    }
+
+    private static class TestTask extends InstallTask {
+
+        private final String sortKey;
+
+        private final String parallelKey;
+
+        private final CountDownLatch latch;
+
+        volatile boolean executed;
+
+        volatile boolean concurrent;
+
+        TestTask(final String sortKey, final String parallelKey, final CountDownLatch latch) {
+            super(null);
+            this.sortKey = sortKey;
+            this.parallelKey = parallelKey;
+            this.latch = latch;
+        }
+
+        @Override
+        public void execute(final InstallationContext ctx) {
+            if ( latch != null ) {
+                latch.countDown();
+                try {
+                    // only succeeds if all tasks of the latch are running at the same time
+                    concurrent = latch.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            executed = true;
+        }
+
+        @Override
+        public String getSortKey() {
+            return sortKey;
+        }
+
+        @Override
+        public String getParallelExecutionKey() {
+            return parallelKey;
+        }
+    }
+
+    private SortedSet<InstallTask> createTasks(final CountDownLatch latch) {
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>();
+        tasks.add(new TestTask("20-a", null, null));
+        tasks.add(new TestTask("40-001-a", "40-001", latch));
+        tasks.add(new TestTask("40-001-b", "40-001", latch));
+        tasks.add(new TestTask("40-001-c", "40-001", latch));
+        tasks.add(new TestTask("40-002-a", "40-002", null));
+        tasks.add(new TestTask("60-", null, null));
+        return tasks;
+    }
+
+    private List<InstallTask> pollGroup(final SortedSet<InstallTask> tasks) {
+        final InstallTask first = tasks.first();
+        tasks.remove(first);
+        return executor.pollGroup(first, tasks);
+    }
+
+    @Test
+    public void testPollGroup() {
+        executor = new ParallelTaskExecutor(4);
+        final SortedSet<InstallTask> tasks = createTasks(null);
+
+        assertEquals(1, pollGroup(tasks).size());
+        final List<InstallTask> group = pollGroup(tasks);
+        assertEquals(3, group.size());
+        assertEquals("40-001-a", group.get(0).getSortKey());
+        assertEquals("40-001-c", group.get(2).getSortKey());
+        assertEquals(1, pollGroup(tasks).size());
+        assertEquals(1, pollGroup(tasks).size());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void testPollGroupDisabled() {
+        executor = new ParallelTaskExecutor(1);
+        final SortedSet<InstallTask> tasks = createTasks(null);
+        int groups = 0;
+        while ( !tasks.isEmpty() ) {
+            assertEquals(1, pollGroup(tasks).size());
+            groups++;
+        }
+        assertEquals(6, groups);
+    }
+
+    @Test
+    public void testConcurrentExecution() {
+        executor = new ParallelTaskExecutor(4);
+        final CountDownLatch latch = new CountDownLatch(3);
+        final SortedSet<InstallTask> tasks = createTasks(latch);
+        final List<InstallTask> executed = new ArrayList<InstallTask>();
+        while ( !tasks.isEmpty() ) {
+            final List<InstallTask> group = pollGroup(tasks);
+            final long[] times = executor.execute(group, null);
+            assertEquals(group.size(), times.length);
+            executed.addAll(group);
+        }
+        assertEquals(6, executed.size());
+        for(final InstallTask t : executed) {
+            assertTrue(((TestTask)t).executed);
+            if ( ((TestTask)t).latch != null ) {
+                assertTrue(((TestTask)t).concurrent);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Hashtable;
+
+import org.apache.sling.installer.api.InstallableResource;
+import org.apache.sling.installer.api.tasks.RegisteredResource;
+import org.apache.sling.installer.api.tasks.ResourceState;
+import org.apache.sling.installer.api.tasks.TransformationResult;
+import org.apache.sling.installer.core.impl.tasks.MockInstallationListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistentResourceListTest {
+
+    private File dataFile;
+
+    @Before
+    public void setup() throws IOException {
+        new FileDataStore(new MockBundleContext());
+        dataFile = File.createTempFile("installer", ".ser");
+        dataFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        dataFile.delete();
+        getJournalFile().delete();
+    }
+
+    private File getJournalFile() {
+        return new File(dataFile.getParentFile(), dataFile.getName() + ".journal");
+    }
+
+    private PersistentResourceList createList() {
+        return new PersistentResourceList(dataFile, new MockInstallationListener());
+    }
+
+    private static void addConfig(final PersistentResourceList list, final String id) throws IOException {
+        final Hashtable<String, Object> dict = new Hashtable<String, Object>();
+        dict.put("id", id);
+        final InternalResource internal = InternalResource.create("test",
+                new InstallableResource("/configs/" + id, null, dict, null, null, null));
+        final RegisteredResource rr = list.addOrUpdate(internal);
+        final TransformationResult result = new TransformationResult();
+        result.setId(id);
+        result.setResourceType(InstallableResource.TYPE_CONFIG);
+        list.transform(rr, new TransformationResult[] {result});
+    }
+
+    private static String entityId(final String id) {
+        return InstallableResource.TYPE_CONFIG + ':' + id;
+    }
+
+    @Test
+    public void testRestoreFromJournal() throws IOException {
+        final PersistentResourceList list = createList();
+        addConfig(list, "a");
+        addConfig(list, "b");
+        list.save();
+        final long snapshotSize = dataFile.length();
+
+        addConfig(list, "c");
+        list.getEntityResourceList(entityId("a")).setFinishState(ResourceState.INSTALLED);
+        list.remove("test:/configs/b");
+        list.getEntityResourceList(entityId("b")).setFinishState(ResourceState.UNINSTALLED);
+        list.compact();
+        list.save();
+
+        // only the journal has been written
+        assertEquals(snapshotSize, dataFile.length());
+        final long journalSize = getJournalFile().length();
+        list.save();
+        assertEquals(journalSize, getJournalFile().length());
+
+        final PersistentResourceList restored = createList();
+        assertEquals(ResourceState.INSTALLED,
+                restored.getEntityResourceList(entityId("a")).getFirstResource().getState());
+        assertNull(restored.getEntityResourceList(entityId("b")));
+        assertNotNull(restored.getEntityResourceList(entityId("c")));
+    }
+
+    @Test
+    public void testCorruptJournalTailIsIgnored() throws IOException {
+        final PersistentResourceList list = createList();
+        addConfig(list, "a");
+        list.save();
+        addConfig(list, "b");
+        list.save();
+        final long validSize = getJournalFile().length();
+        addConfig(list, "c");
+        list.save();
+
+        // simulate a crash while writing the records of the last save
+        assertTrue(getJournalFile().length() > validSize + 100);
+        final RandomAccessFile raf = new RandomAccessFile(getJournalFile(), "rw");
+        try {
+            raf.setLength(validSize + 100);
+        } finally {
+            raf.close();
+        }
+
+        final PersistentResourceList restored = createList();
+        assertNotNull(restored.getEntityResourceList(entityId("a")));
+        assertNotNull(restored.getEntityResourceList(entityId("b")));
+        assertNull(restored.getEntityResourceList(entityId("c")));
+    }
+
+    @Test
+    public void testJournalIsCompacted() throws IOException {
+        final PersistentResourceList list = createList();
+        addConfig(list, "a");
+        list.save();
+        final long emptyJournalSize = getJournalFile().length();
+
+        // change the list until the journal exceeds the minimum compaction size
+        boolean compacted = false;
+        for(int i = 0; i < 1000 && !compacted; i++) {
+            addConfig(list, "config" + i);
+            final long before = getJournalFile().length();
+            list.save();
+            compacted = getJournalFile().length() < before;
+        }
+        assertTrue(compacted);
+        assertEquals(emptyJournalSize, getJournalFile().length());
+
+        final PersistentResourceList restored = createList();
+        assertNotNull(restored.getEntityResourceList(entityId("a")));
+        assertEquals(list.getEntityIds().size(), restored.getEntityIds().size());
+    }
+}
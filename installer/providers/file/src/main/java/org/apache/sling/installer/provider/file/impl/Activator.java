@@ -33,6 +33,10 @@ public class Activator implements BundleActivator {
     public static final String KEY_DIR = "sling.fileinstall.dir";
     public static final String KEY_DELAY = "sling.fileinstall.interval";
     public static final String KEY_WRITEBACK = "sling.fileinstall.writeback";
+    public static final String KEY_MODE = "sling.fileinstall.mode";
+
+    /** Mode for polling the directories instead of watching them. */
+    public static final String MODE_POLL = "poll";
 
     /** The services listener will activate the installer. */
     private ServicesListener servicesListener;
@@ -54,11 +58,14 @@ public class Activator implements BundleActivator {
                     delay = Long.valueOf(interval.toString());
                 }
             }
+            final Object mode = getProp(context, KEY_MODE);
+            final boolean watch = mode == null || !MODE_POLL.equalsIgnoreCase(mode.toString().trim());
             final StringTokenizer st = new StringTokenizer(dir.toString(), ",");
             while ( st.hasMoreTokens() ) {
                 final ScanConfiguration sc = new ScanConfiguration();
                 sc.directory = st.nextToken();
                 sc.scanInterval = delay;
+                sc.watch = watch;
 
                 configs.add(sc);
             }
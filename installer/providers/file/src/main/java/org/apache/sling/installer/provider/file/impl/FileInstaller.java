@@ -79,7 +79,7 @@ public class FileInstaller
             }
             logger.debug("Starting monitor for {}", config.directory);
             this.monitors.add(new FileMonitor(new File(config.directory),
-                    config.scanInterval, new Installer(installer, settings, config.directory, hash(key))));
+                    config.scanInterval, config.watch, new Installer(installer, settings, config.directory, hash(key))));
         }
     }
 
@@ -19,10 +19,23 @@
 package org.apache.sling.installer.provider.file.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,9 +43,20 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is a monitor for the file system
  * that periodically checks for changes.
+ *
+ * If watching is enabled, the directories are registered with a
+ * {@link WatchService} and only the directories for which events
+ * are reported are checked. The complete tree is then only checked
+ * if events got lost or in a larger interval.
  */
 public class FileMonitor extends TimerTask {
 
+    /** The interval for a complete check if watching is enabled, in milliseconds. */
+    private static final long RECONCILE_INTERVAL = 5 * 60 * 1000;
+
+    /** Events are collected until no new event arrives within this time, in milliseconds. */
+    private static final long COALESCE_INTERVAL = 200;
+
     /** The logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -44,18 +68,72 @@ public class FileMonitor extends TimerTask {
 
     private final FileChangesListener listener;
 
+    /** The watch service, <code>null</code> if polling is used. */
+    private final WatchService watchService;
+
+    /** The thread processing the watch events. */
+    private final Thread watcher;
+
+    /** The registered directories and their watch keys. */
+    private final Map<Path, WatchKey> watchedDirs = new HashMap<Path, WatchKey>();
+
+    /** Flag indicating that a complete check is required. */
+    private volatile boolean reconcile = false;
+
+    /** The time of the next complete check if watching is enabled. */
+    private long nextReconcile;
+
     /**
      * Creates a new instance of this class.
      * @param interval The interval between executions of the task, in milliseconds.
      */
     public FileMonitor(final File rootDir, final Long interval, final FileChangesListener listener) {
+        this(rootDir, interval, false, listener);
+    }
+
+    /**
+     * Creates a new instance of this class.
+     * @param interval The interval between executions of the task, in milliseconds.
+     * @param watch Whether the file system should be watched instead of being polled.
+     *              If watching is not supported, the file system is polled.
+     */
+    public FileMonitor(final File rootDir, final Long interval, final boolean watch, final FileChangesListener listener) {
         this.listener = listener;
         this.root = new Monitorable(rootDir);
         createStatus(this.root);
         final List<File> files = new ArrayList<File>();
         collect(this.root.file, files);
         this.listener.initialSet(files);
-        logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
+
+        WatchService ws = null;
+        if ( watch ) {
+            try {
+                ws = rootDir.toPath().getFileSystem().newWatchService();
+            } catch (final IOException e) {
+                logger.warn("Unable to watch " + rootDir + " for changes, falling back to polling.", e);
+            } catch (final UnsupportedOperationException e) {
+                logger.warn("Unable to watch " + rootDir + " for changes, falling back to polling.", e);
+            }
+        }
+        this.watchService = ws;
+        if ( this.watchService != null ) {
+            synchronized ( this ) {
+                this.nextReconcile = System.currentTimeMillis() + RECONCILE_INTERVAL;
+                this.register(this.root);
+            }
+            this.watcher = new Thread(new Runnable() {
+
+                public void run() {
+                    processEvents();
+                }
+            }, "Apache Sling File Installer Watcher " + rootDir);
+            this.watcher.setDaemon(true);
+            this.watcher.start();
+            logger.debug("Starting file monitor for {} watching for changes", this.root.file);
+        } else {
+            this.watcher = null;
+            logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
+        }
         timer.schedule(this, 0, (interval != null ? interval : 5000));
     }
 
@@ -98,6 +176,188 @@ public class FileMonitor extends TimerTask {
         public final List<File> changed = new ArrayList<File>();
     }
 
+    /**
+     * Register the directory of the monitorable and all sub directories
+     * which are not registered yet with the watch service.
+     * @param monitorable The monitorable
+     * @param registered The registered directories are added to this set, might be <code>null</code>.
+     */
+    private void register(final Monitorable monitorable, final Set<File> registered) {
+        if ( monitorable.status instanceof DirStatus ) {
+            final Path dir = monitorable.file.toPath();
+            if ( !this.watchedDirs.containsKey(dir) ) {
+                try {
+                    final WatchKey key = dir.register(this.watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    this.watchedDirs.put(dir, key);
+                    if ( registered != null ) {
+                        registered.add(monitorable.file);
+                    }
+                } catch (final IOException e) {
+                    logger.debug("Unable to watch directory " + dir, e);
+                    this.reconcile = true;
+                } catch (final ClosedWatchServiceException e) {
+                    return;
+                }
+            }
+            for(final Monitorable child : ((DirStatus)monitorable.status).children ) {
+                register(child, registered);
+            }
+        }
+    }
+
+    private void register(final Monitorable monitorable) {
+        register(monitorable, null);
+    }
+
+    /**
+     * Process the events of the watch service until the monitor is stopped.
+     * Events are collected until no new events arrive for a short time,
+     * then all directories with events are checked together.
+     */
+    private void processEvents() {
+        final Set<File> dirty = new LinkedHashSet<File>();
+        final Set<File> created = new LinkedHashSet<File>();
+        while ( true ) {
+            final WatchKey key;
+            try {
+                key = (dirty.isEmpty() ? this.watchService.take()
+                        : this.watchService.poll(COALESCE_INTERVAL, TimeUnit.MILLISECONDS));
+            } catch (final InterruptedException e) {
+                break;
+            } catch (final ClosedWatchServiceException e) {
+                break;
+            }
+            if ( key != null ) {
+                final Path dir = (Path)key.watchable();
+                for(final WatchEvent<?> event : key.pollEvents()) {
+                    if ( event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+                        logger.debug("Events lost for {}, scheduling complete check", dir);
+                        this.reconcile = true;
+                    } else if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE ) {
+                        final File child = dir.resolve((Path)event.context()).toFile();
+                        if ( child.isDirectory() ) {
+                            created.add(child);
+                        }
+                    }
+                }
+                dirty.add(dir.toFile());
+                if ( !key.reset() ) {
+                    // directory is not accessible anymore, unless it has been
+                    // registered again after being recreated
+                    synchronized ( this ) {
+                        if ( this.watchedDirs.get(dir) == key ) {
+                            this.watchedDirs.remove(dir);
+                        }
+                    }
+                }
+            } else {
+                synchronized ( this ) {
+                    try {
+                        this.checkDirectories(dirty, created);
+                    } catch (final Exception e) {
+                        // ignore this
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the provided directories without descending into sub directories.
+     * Directories reported as created are checked completely, as they might
+     * replace a deleted directory with the same name.
+     * Directories which are newly registered with the watch service are
+     * added to the provided set to be checked again, as changes might have
+     * happened before the registration.
+     */
+    private void checkDirectories(final Set<File> dirs, final Set<File> created) {
+        final Collector c = new Collector();
+        final List<Monitorable> checked = new ArrayList<Monitorable>();
+        for(final File dir : dirs) {
+            final Monitorable monitorable = this.find(dir);
+            if ( !checked.contains(monitorable) ) {
+                checked.add(monitorable);
+                this.check(monitorable, c, false);
+            }
+        }
+        for(final File dir : created) {
+            final Monitorable monitorable = this.find(dir);
+            if ( monitorable.file.equals(dir) ) {
+                this.unregister(dir.toPath());
+                this.checkTree(monitorable, c);
+                if ( !checked.contains(monitorable) ) {
+                    checked.add(monitorable);
+                }
+            }
+        }
+        created.clear();
+        dirs.clear();
+        for(final Monitorable monitorable : checked) {
+            register(monitorable, dirs);
+        }
+        this.listener.updated(c.added, c.changed, c.removed);
+    }
+
+    /**
+     * Cancel the registration of a directory and of its sub directories.
+     * A directory which has been deleted or moved away and recreated has
+     * the same path, but it is not watched anymore and has to be registered again.
+     */
+    private void unregister(final Path dir) {
+        final Iterator<Map.Entry<Path, WatchKey>> i = this.watchedDirs.entrySet().iterator();
+        while ( i.hasNext() ) {
+            final Map.Entry<Path, WatchKey> entry = i.next();
+            if ( entry.getKey().startsWith(dir) ) {
+                entry.getValue().cancel();
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Check the monitorable and all its sub directories, comparing the
+     * children of every directory with the file system.
+     */
+    private void checkTree(final Monitorable monitorable, final Collector collector) {
+        this.check(monitorable, collector, false);
+        if ( monitorable.status instanceof DirStatus ) {
+            for(final Monitorable child : ((DirStatus)monitorable.status).children ) {
+                if ( child.status instanceof DirStatus ) {
+                    this.checkTree(child, collector);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the monitorable for a directory.
+     * If the directory is not known yet, the nearest known parent directory is returned.
+     */
+    private Monitorable find(final File dir) {
+        Monitorable current = this.root;
+        final Path relPath = this.root.file.toPath().relativize(dir.toPath());
+        for(final Path name : relPath) {
+            if ( !(current.status instanceof DirStatus) ) {
+                break;
+            }
+            Monitorable next = null;
+            for(final Monitorable child : ((DirStatus)current.status).children ) {
+                if ( child.file.getName().equals(name.toString()) ) {
+                    next = child;
+                    break;
+                }
+            }
+            if ( next == null ) {
+                break;
+            }
+            current = next;
+        }
+        return current;
+    }
+
     /**
      * Stop periodically executing this task. If the task is currently executing it
      * will never be run again after the current execution, otherwise it will simply
@@ -109,6 +369,13 @@ public class FileMonitor extends TimerTask {
                 stop = true;
                 cancel();
                 timer.cancel();
+                if ( this.watchService != null ) {
+                    try {
+                        this.watchService.close();
+                    } catch (final IOException ignore) {
+                        // ignore
+                    }
+                }
             }
 
             boolean interrupted = false;
@@ -124,6 +391,13 @@ public class FileMonitor extends TimerTask {
                 Thread.currentThread().interrupt();
             }
         }
+        if ( this.watcher != null ) {
+            try {
+                this.watcher.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         logger.debug("Stopped file monitor for {}", this.root.file);
     }
 
@@ -141,9 +415,22 @@ public class FileMonitor extends TimerTask {
         }
         synchronized ( this ) {
             try {
-                final Collector c = new Collector();
-                this.check(this.root, c);
-                this.listener.updated(c.added, c.changed, c.removed);
+                // if the file system is watched, a complete check is only done if
+                // events got lost or the root is not watched yet
+                final long now = System.currentTimeMillis();
+                if ( this.watchService == null
+                     || this.reconcile
+                     || now >= this.nextReconcile
+                     || !this.watchedDirs.containsKey(this.root.file.toPath()) ) {
+                    final Collector c = new Collector();
+                    this.check(this.root, c, true);
+                    if ( this.watchService != null ) {
+                        this.reconcile = false;
+                        this.nextReconcile = now + RECONCILE_INTERVAL;
+                        this.register(this.root);
+                    }
+                    this.listener.updated(c.added, c.changed, c.removed);
+                }
             } catch (Exception e) {
                 // ignore this
             }
@@ -157,9 +444,11 @@ public class FileMonitor extends TimerTask {
     /**
      * Check the monitorable
      * @param monitorable The monitorable to check
-     * @param localEA The event admin
+     * @param collector The collector for the changes
+     * @param recursive Whether existing sub directories should be checked. If not,
+     *                  the children of a directory are always compared with the file system.
      */
-    private void check(final Monitorable monitorable, final Collector collector) {
+    private void check(final Monitorable monitorable, final Collector collector, final boolean recursive) {
         logger.debug("Checking {}", monitorable.file);
         // if the file is non existing, check if it has been readded
         if ( monitorable.status instanceof NonExistingStatus ) {
@@ -198,10 +487,12 @@ public class FileMonitor extends TimerTask {
                     // directory
                     final DirStatus ds = (DirStatus)fs;
                     for(int i=0; i<ds.children.length; i++) {
-                        check(ds.children[i], collector);
+                        if ( recursive || !(ds.children[i].status instanceof DirStatus) || !ds.children[i].file.exists() ) {
+                            check(ds.children[i], collector, recursive);
+                        }
                     }
                     // if the dir changed we have to update
-                    if ( changed ) {
+                    if ( changed || !recursive ) {
                         // and now update
                         final File[] files = monitorable.file.listFiles();
                         if (files != null) {
@@ -217,7 +508,7 @@ public class FileMonitor extends TimerTask {
                                 if (children[i] == null) {
                                     children[i] = new Monitorable(files[i]);
                                     children[i].status = NonExistingStatus.SINGLETON;
-                                    check(children[i], collector);
+                                    check(children[i], collector, recursive);
                                 }
                             }
                             ds.children = children;
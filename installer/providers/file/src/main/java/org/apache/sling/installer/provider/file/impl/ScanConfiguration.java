@@ -26,4 +26,7 @@ public class ScanConfiguration {
     public String directory;
 
     public Long   scanInterval;
+
+    /** Whether the directory is watched for changes instead of being polled. */
+    public boolean watch = true;
 }
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.provider.file.impl;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the <code>FileMonitor</code> watching the file system for changes.
+ */
+public class FileMonitorTest {
+
+    /** Polling is effectively disabled, changes are only detected through the watch service. */
+    private static final long INTERVAL = 60 * 60 * 1000;
+
+    private static final long TIMEOUT = 10000;
+
+    private File root;
+
+    private File dir;
+
+    private FileMonitor monitor;
+
+    private final Listener listener = new Listener();
+
+    @Before
+    public void setup() throws IOException {
+        root = File.createTempFile("fileinstall", "");
+        root.delete();
+        dir = new File(root, "install");
+        assertTrue(dir.mkdirs());
+        write(new File(dir, "a.cfg"), "a=1");
+        monitor = new FileMonitor(root, INTERVAL, true, listener);
+    }
+
+    @After
+    public void tearDown() {
+        monitor.stop();
+        delete(root);
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if ( children != null ) {
+            for(final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void await(final List<File> files, final File file) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while ( System.currentTimeMillis() < end ) {
+            synchronized ( listener ) {
+                if ( files.contains(file) ) {
+                    return;
+                }
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No event for " + file);
+    }
+
+    @Test
+    public void testInitialSet() {
+        assertTrue(listener.initial.contains(new File(dir, "a.cfg")));
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        final File file = new File(dir, "b.cfg");
+        write(file, "b=1");
+        await(listener.added, file);
+    }
+
+    @Test
+    public void testCreateInNewDirectory() throws Exception {
+        final File sub = new File(dir, "sub");
+        assertTrue(sub.mkdir());
+        final File file = new File(sub, "b.cfg");
+        write(file, "b=1");
+        await(listener.added, file);
+
+        // the new directory is watched as well
+        final File other = new File(sub, "c.cfg");
+        write(other, "c=1");
+        await(listener.added, other);
+    }
+
+    @Test
+    public void testModify() throws Exception {
+        final File file = new File(dir, "a.cfg");
+        write(file, "a=2");
+        file.setLastModified(file.lastModified() + 2000);
+        await(listener.changed, file);
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        final File file = new File(dir, "a.cfg");
+        assertTrue(file.delete());
+        await(listener.removed, file);
+    }
+
+    @Test
+    public void testRecreateDirectory() throws Exception {
+        delete(dir);
+        assertTrue(dir.mkdir());
+        final File file = new File(dir, "b.cfg");
+        write(file, "b=1");
+        await(listener.removed, new File(dir, "a.cfg"));
+        await(listener.added, file);
+
+        // the recreated directory is watched again
+        final File other = new File(dir, "c.cfg");
+        write(other, "c=1");
+        await(listener.added, other);
+    }
+
+    @Test
+    public void testReplaceDirectory() throws Exception {
+        // the watch key of the moved directory stays valid
+        final File moved = new File(root.getParentFile(), root.getName() + ".moved");
+        try {
+            assertTrue(dir.renameTo(moved));
+            assertTrue(dir.mkdir());
+            final File file = new File(dir, "b.cfg");
+            write(file, "b=1");
+            await(listener.removed, new File(dir, "a.cfg"));
+            await(listener.added, file);
+
+            final File other = new File(dir, "c.cfg");
+            write(other, "c=1");
+            await(listener.added, other);
+        } finally {
+            delete(moved);
+        }
+    }
+
+    private static final class Listener implements FileChangesListener {
+
+        final List<File> initial = new ArrayList<File>();
+        final List<File> added = new ArrayList<File>();
+        final List<File> changed = new ArrayList<File>();
+        final List<File> removed = new ArrayList<File>();
+
+        public synchronized void initialSet(final List<File> files) {
+            initial.addAll(files);
+        }
+
+        public synchronized void updated(final List<File> added, final List<File> changed, final List<File> removed) {
+            this.added.addAll(added);
+            this.changed.addAll(changed);
+            this.removed.addAll(removed);
+        }
+
+        public String getScheme() {
+            return "test";
+        }
+    }
+}